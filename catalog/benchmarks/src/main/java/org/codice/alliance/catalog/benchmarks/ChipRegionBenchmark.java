@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.catalog.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.codice.alliance.imaging.chip.service.api.ChipOutOfBoundsException;
+import org.codice.alliance.imaging.chip.transformer.CropAdapter;
+import org.codice.alliance.imaging.chip.transformer.RegionReadAdapter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares reading a 512x512 chip from the middle of a square JPEG by decoding the whole image and
+ * taking a sub-image, which is what the chipping route used to do, with
+ * {@link RegionReadAdapter}, which only decodes the chip. The bytes allocated per chip that are
+ * reported by the GC profiler of {@link BenchmarkRunner} show the heap needed by each approach.
+ * The images are generated in memory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ChipRegionBenchmark {
+
+    private static final int CHIP_SIZE = 512;
+
+    @Param({"1024", "4096", "8192"})
+    private int imageSize;
+
+    private byte[] jpeg;
+
+    private Map<String, Serializable> args;
+
+    private RegionReadAdapter regionReadAdapter;
+
+    @Setup
+    public void setup() throws IOException {
+        BufferedImage image = new BufferedImage(imageSize, imageSize, BufferedImage.TYPE_3BYTE_BGR);
+        WritableRaster raster = image.getRaster();
+        byte[] row = new byte[imageSize * 3];
+        for (int y = 0; y < imageSize; y++) {
+            for (int x = 0; x < imageSize; x++) {
+                row[x * 3] = (byte) x;
+                row[x * 3 + 1] = (byte) y;
+                row[x * 3 + 2] = (byte) (x ^ y);
+            }
+            raster.setDataElements(0, y, imageSize, 1, row);
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", outputStream);
+        jpeg = outputStream.toByteArray();
+
+        int offset = (imageSize - CHIP_SIZE) / 2;
+        args = new HashMap<>();
+        args.put("x", offset);
+        args.put("y", offset);
+        args.put("w", CHIP_SIZE);
+        args.put("h", CHIP_SIZE);
+
+        regionReadAdapter = new RegionReadAdapter(new CropAdapter());
+    }
+
+    @Benchmark
+    public BufferedImage fullDecode() throws IOException {
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(jpeg));
+        int offset = (imageSize - CHIP_SIZE) / 2;
+        return image.getSubimage(offset, offset, CHIP_SIZE, CHIP_SIZE);
+    }
+
+    @Benchmark
+    public BufferedImage regionDecode() throws IOException, ChipOutOfBoundsException {
+        return regionReadAdapter.readChip(new ByteArrayInputStream(jpeg), null, args);
+    }
+
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.catalog.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.libs.klv.GeometryOperator;
+import org.codice.alliance.libs.klv.GeometryUtility;
+import org.codice.alliance.video.stream.mpegts.metacard.LocationMetacardUpdater;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.io.WKTWriter;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.AttributeImpl;
+import ddf.catalog.data.impl.MetacardImpl;
+
+/**
+ * Simulates the parent location updates of a long stream: sequential chunks along a serpentine
+ * flight path, with the parent persisted after every chunk. Compares
+ * {@link LocationMetacardUpdater}, which keeps the footprint in memory, with re-parsing the parent
+ * WKT and unioning it with each chunk. The chunks are generated from a fixed seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class LocationMetacardUpdaterBenchmark {
+
+    private static final long SEED = 4609;
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private static final int CHUNKS_PER_LEG = 50;
+
+    private static final double CHUNK_LENGTH = 0.01;
+
+    private static final double SWATH_WIDTH = 0.008;
+
+    @Param({"1000"})
+    private int chunkCount;
+
+    @Param({"1000", "5000"})
+    private int maxVertices;
+
+    @Param({"0.0001"})
+    private double distanceTolerance;
+
+    private List<String> chunks;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SEED);
+        WKTWriter wktWriter = new WKTWriter();
+        chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(wktWriter.write(chunk(i, random)));
+        }
+    }
+
+    @Benchmark
+    public String accumulatedFootprint() {
+        LocationMetacardUpdater updater = new LocationMetacardUpdater(GeometryOperator.IDENTITY,
+                GeometryOperator.IDENTITY);
+        updater.setMaxVertices(maxVertices);
+        updater.setDistanceTolerance(distanceTolerance);
+
+        Metacard parent = new MetacardImpl();
+        for (String chunk : chunks) {
+            Metacard child = new MetacardImpl();
+            child.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, chunk));
+
+            updater.update(parent, child);
+            updater.beforePersist(parent);
+
+            // the catalog returns a new parent metacard after each update
+            Metacard persistedParent = new MetacardImpl();
+            persistedParent.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY,
+                    parent.getLocation()));
+            parent = persistedParent;
+        }
+        return parent.getLocation();
+    }
+
+    @Benchmark
+    public String reparsedFootprint() {
+        WKTReader wktReader = new WKTReader();
+        WKTWriter wktWriter = new WKTWriter();
+
+        String parentLocation = null;
+        for (String chunk : chunks) {
+            Optional<Geometry> child = GeometryUtility.wktToGeometry(chunk, wktReader);
+            if (!child.isPresent()) {
+                continue;
+            }
+            Optional<Geometry> parent = parentLocation == null ?
+                    Optional.empty() :
+                    GeometryUtility.wktToGeometry(parentLocation, wktReader);
+            parentLocation = wktWriter.write(parent.map(geometry -> geometry.union(child.get()))
+                    .orElse(child.get()));
+        }
+        return parentLocation;
+    }
+
+    /**
+     * The ground footprint of a chunk, a jittered swath between two consecutive points of a
+     * serpentine flight path.
+     */
+    private static Geometry chunk(int index, Random random) {
+        Coordinate from = pathPosition(index);
+        Coordinate to = pathPosition(index + 1);
+
+        List<Coordinate> coordinates = new ArrayList<>();
+        int samples = 4;
+        for (int i = 0; i <= samples; i++) {
+            coordinates.add(swathEdge(from, to, (double) i / samples, SWATH_WIDTH, random));
+        }
+        for (int i = samples; i >= 0; i--) {
+            coordinates.add(swathEdge(from, to, (double) i / samples, -SWATH_WIDTH, random));
+        }
+        coordinates.add(new Coordinate(coordinates.get(0)));
+
+        return GEOMETRY_FACTORY.createPolygon(GEOMETRY_FACTORY.createLinearRing(coordinates.toArray(
+                new Coordinate[coordinates.size()])), null);
+    }
+
+    private static Coordinate pathPosition(int index) {
+        int leg = index / CHUNKS_PER_LEG;
+        int step = index % CHUNKS_PER_LEG;
+        double x = (leg % 2 == 0 ? step : CHUNKS_PER_LEG - step) * CHUNK_LENGTH;
+        double y = leg * SWATH_WIDTH * 1.5 + step * CHUNK_LENGTH * 0.01;
+        return new Coordinate(x, y);
+    }
+
+    private static Coordinate swathEdge(Coordinate from, Coordinate to, double fraction,
+            double offset, Random random) {
+        double x = from.x + (to.x - from.x) * fraction;
+        double y = from.y + (to.y - from.y) * fraction;
+        double jitter = 1 + (random.nextDouble() - 0.5) * 0.2;
+        return new Coordinate(x, y + offset * jitter);
+    }
+
+}
@@ -300,4 +300,24 @@ public interface Isr {
      *  Attribute name for accessing the ISR data quality for this Metacard. 
      */
     String DATA_QUALITY = "ext.isr.data-quality";
+
+    /**
+     *  Attribute name for accessing the width in pixels of the derived overview image.
+     */
+    String OVERVIEW_WIDTH = "ext.isr.overview-width";
+
+    /**
+     *  Attribute name for accessing the height in pixels of the derived overview image.
+     */
+    String OVERVIEW_HEIGHT = "ext.isr.overview-height";
+
+    /**
+     *  Attribute name for accessing the width in pixels of the derived original image.
+     */
+    String ORIGINAL_WIDTH = "ext.isr.original-width";
+
+    /**
+     *  Attribute name for accessing the height in pixels of the derived original image.
+     */
+    String ORIGINAL_HEIGHT = "ext.isr.original-height";
 }
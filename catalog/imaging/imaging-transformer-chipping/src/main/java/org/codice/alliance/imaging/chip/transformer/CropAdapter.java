@@ -13,6 +13,7 @@
  */
 package org.codice.alliance.imaging.chip.transformer;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.Serializable;
 import java.util.Map;
@@ -31,6 +32,22 @@ public class CropAdapter {
      * @return a vector of [x, y, w, h] translated to the full size image.
      */
     public int[] scaleChip(BufferedImage original, BufferedImage overview, Map<String, Serializable> args) {
+        return scaleChip(original == null ? null : new Dimension(original.getWidth(),
+                original.getHeight()), overview == null ? null : new Dimension(overview.getWidth(),
+                overview.getHeight()), args);
+    }
+
+    /**
+     * Same as {@link #scaleChip(BufferedImage, BufferedImage, Map)}, but only needs the size of
+     * the images, so the images do not have to be decoded.
+     *
+     * @param original the size of the full-sized image that the chip will be taken from.
+     * @param overview the size of a scaled-down version of the same image.
+     * @param args A map containing values for the top left corner of the chip (x, y) and the
+     *             height and width of the chip (w, h) as taken from the overview image.
+     * @return a vector of [x, y, w, h] translated to the full size image.
+     */
+    public int[] scaleChip(Dimension original, Dimension overview, Map<String, Serializable> args) {
 
         if (args == null) {
             throw new IllegalArgumentException("method argument 'args' may not be null.");
@@ -44,7 +61,7 @@ public class CropAdapter {
         double scaleFactor = 1.0;
 
         if (original != null && overview != null) {
-            scaleFactor = original.getWidth() / ((double) overview.getWidth());
+            scaleFactor = original.getWidth() / overview.getWidth();
         }
 
         return new int[] {multiply(scaleFactor, x), multiply(scaleFactor, y), multiply(scaleFactor,
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.codice.alliance.catalog.core.api.types.Isr;
+
+import ddf.catalog.CatalogFramework;
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.operation.ResourceResponse;
+import ddf.catalog.resource.Resource;
+import ddf.catalog.resource.ResourceNotFoundException;
+import ddf.catalog.resource.ResourceNotSupportedException;
+
+/**
+ * Finds the pixel dimensions of the overview image without decoding it. The dimensions are taken
+ * from the metacard attributes that are recorded when the overview is created. Metacards that were
+ * ingested before those attributes existed fall back to reading the overview image header.
+ */
+public class ImageSizeAdapter {
+
+    private static final String OVERVIEW = "overview";
+
+    private final CatalogFramework catalogFramework;
+
+    private final CatalogInputAdapter catalogInputAdapter;
+
+    /**
+     * @param catalogFramework    used to retrieve the overview image when the metacard does not
+     *                            contain its dimensions. May not be null.
+     * @param catalogInputAdapter used to build the overview image request. May not be null.
+     */
+    public ImageSizeAdapter(CatalogFramework catalogFramework,
+            CatalogInputAdapter catalogInputAdapter) {
+        if (catalogFramework == null) {
+            throw new IllegalArgumentException(
+                    "method argument 'catalogFramework' may not be null.");
+        }
+
+        if (catalogInputAdapter == null) {
+            throw new IllegalArgumentException(
+                    "method argument 'catalogInputAdapter' may not be null.");
+        }
+
+        this.catalogFramework = catalogFramework;
+        this.catalogInputAdapter = catalogInputAdapter;
+    }
+
+    /**
+     * @param metacard the Metacard of the image. May not be null.
+     * @return the width and height of the overview image.
+     * @throws IOException                   when the overview image header can't be read.
+     * @throws ResourceNotFoundException     when the overview image can't be found.
+     * @throws ResourceNotSupportedException when the overview image can't be retrieved.
+     */
+    public Dimension getOverviewSize(Metacard metacard)
+            throws IOException, ResourceNotFoundException, ResourceNotSupportedException {
+        if (metacard == null) {
+            throw new IllegalArgumentException("method argument 'metacard' may not be null.");
+        }
+
+        Integer width = getIntegerValue(metacard, Isr.OVERVIEW_WIDTH);
+        Integer height = getIntegerValue(metacard, Isr.OVERVIEW_HEIGHT);
+
+        if (width != null && height != null) {
+            return new Dimension(width, height);
+        }
+
+        ResourceResponse resourceResponse = catalogFramework.getLocalResource(
+                catalogInputAdapter.buildReadRequest(metacard, OVERVIEW));
+
+        return readImageSize(resourceResponse);
+    }
+
+    private Integer getIntegerValue(Metacard metacard, String attributeName) {
+        Attribute attribute = metacard.getAttribute(attributeName);
+
+        if (attribute == null) {
+            return null;
+        }
+
+        Serializable value = attribute.getValue();
+
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+
+        return null;
+    }
+
+    private Dimension readImageSize(ResourceResponse resourceResponse) throws IOException {
+        if (resourceResponse == null || resourceResponse.getResource() == null) {
+            throw new IllegalArgumentException(
+                    "argument 'resourceResponse.resource' may not be null.");
+        }
+
+        Resource resource = resourceResponse.getResource();
+
+        if (resource.getInputStream() == null) {
+            throw new IllegalStateException(
+                    "object property 'resourceResponse.resource.inputStream' may not be null.");
+        }
+
+        try (InputStream inputStream = resource.getInputStream();
+                ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            ImageReader imageReader = RegionReadAdapter.findImageReader(imageInputStream);
+            try {
+                imageReader.setInput(imageInputStream, true, true);
+                return new Dimension(imageReader.getWidth(0), imageReader.getHeight(0));
+            } finally {
+                imageReader.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.stream.ImageInputStream;
+
+import org.codice.alliance.imaging.chip.service.api.ChipOutOfBoundsException;
+
+import com.github.jaiimageio.impl.plugins.tiff.TIFFImageReaderSpi;
+
+import ddf.catalog.operation.ResourceResponse;
+import ddf.catalog.resource.Resource;
+
+/**
+ * Reads a chip from the full-size image without decoding the rest of the image. The size of the
+ * full-size image is read from the image header, the chip coordinates are translated with
+ * {@link CropAdapter#scaleChip(Dimension, Dimension, Map)}, and only the pixels inside the chip
+ * are decoded with {@link ImageReadParam#setSourceRegion(Rectangle)}. The chip is adjusted to the
+ * image bounds the same way as {@link org.codice.alliance.imaging.chip.service.api.ChipService#crop(BufferedImage, int, int, int, int)},
+ * so the result has the same pixels as cropping the fully decoded image.
+ * <p>
+ * When the chip is subsampled (see {@link #setMaxChipSideLength(int)}) and the image contains
+ * reduced resolution versions of itself, such as a tiled, multi-resolution TIFF, the chip is read
+ * from the smallest version that still provides the requested resolution.
+ */
+public class RegionReadAdapter {
+
+    static {
+        IIORegistry.getDefaultInstance().registerServiceProvider(new TIFFImageReaderSpi());
+    }
+
+    private final CropAdapter cropAdapter;
+
+    private int maxChipSideLength = 0;
+
+    /**
+     * @param cropAdapter translates the chip coordinates to the full-size image. May not be null.
+     */
+    public RegionReadAdapter(CropAdapter cropAdapter) {
+        if (cropAdapter == null) {
+            throw new IllegalArgumentException("method argument 'cropAdapter' may not be null.");
+        }
+        this.cropAdapter = cropAdapter;
+    }
+
+    /**
+     * When the chip is wider or taller than this length, only every n-th row and column is decoded
+     * so that the returned chip fits within the length. Set to 0 to always decode the chip at full
+     * resolution, which is the default.
+     *
+     * @param maxChipSideLength must be non-negative
+     */
+    public void setMaxChipSideLength(int maxChipSideLength) {
+        if (maxChipSideLength < 0) {
+            throw new IllegalArgumentException(
+                    "method argument 'maxChipSideLength' may not be negative.");
+        }
+        this.maxChipSideLength = maxChipSideLength;
+    }
+
+    /**
+     * @param resourceResponse a ResourceResponse object returned by CatalogFramework for the
+     *                         full-size image.
+     * @param overview         the size of a scaled-down version of the same image. May be null.
+     * @param args             A map containing values for the top left corner of the chip (x, y)
+     *                         and the height and width of the chip (w, h) as taken from the
+     *                         overview image.
+     * @return the chip.
+     * @throws IOException              when the image can't be read from the ResourceResponse
+     *                                  InputStream.
+     * @throws ChipOutOfBoundsException when the chip is not inside the image.
+     */
+    public BufferedImage readChip(ResourceResponse resourceResponse, Dimension overview,
+            Map<String, Serializable> args) throws IOException, ChipOutOfBoundsException {
+        if (resourceResponse == null || resourceResponse.getResource() == null) {
+            throw new IllegalArgumentException(
+                    "argument 'resourceResponse.resource' may not be null.");
+        }
+
+        Resource resource = resourceResponse.getResource();
+
+        if (resource.getInputStream() == null) {
+            throw new IllegalStateException(
+                    "object property 'resourceResponse.resource.inputStream' may not be null.");
+        }
+
+        try (InputStream inputStream = resource.getInputStream()) {
+            return readChip(inputStream, overview, args);
+        }
+    }
+
+    /**
+     * @param inputStream the full-size image. May not be null. It is not closed.
+     * @param overview    the size of a scaled-down version of the same image. May be null.
+     * @param args        A map containing values for the top left corner of the chip (x, y)
+     *                    and the height and width of the chip (w, h) as taken from the overview
+     *                    image.
+     * @return the chip.
+     * @throws IOException              when the image can't be read from the InputStream.
+     * @throws ChipOutOfBoundsException when the chip is not inside the image.
+     */
+    public BufferedImage readChip(InputStream inputStream, Dimension overview,
+            Map<String, Serializable> args) throws IOException, ChipOutOfBoundsException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("argument 'inputStream' may not be null.");
+        }
+
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            ImageReader imageReader = findImageReader(imageInputStream);
+            try {
+                // not seek forward only, a reduced resolution image may be read after the header
+                // of the first image
+                imageReader.setInput(imageInputStream, false, true);
+
+                Dimension original = new Dimension(imageReader.getWidth(0),
+                        imageReader.getHeight(0));
+
+                Rectangle region = clip(cropAdapter.scaleChip(original, overview, args), original);
+
+                int imageIndex = 0;
+                int subsampling = calculateSubsampling(region);
+                if (subsampling > 1) {
+                    imageIndex = findReducedResolutionIndex(imageReader, original, subsampling);
+                    if (imageIndex > 0) {
+                        region = scaleRegion(region, original, new Dimension(imageReader.getWidth(
+                                imageIndex), imageReader.getHeight(imageIndex)));
+                        subsampling = calculateSubsampling(region);
+                    }
+                }
+
+                ImageReadParam imageReadParam = imageReader.getDefaultReadParam();
+                imageReadParam.setSourceRegion(region);
+
+                if (subsampling > 1) {
+                    imageReadParam.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+
+                return imageReader.read(imageIndex, imageReadParam);
+            } finally {
+                imageReader.dispose();
+            }
+        }
+    }
+
+    static ImageReader findImageReader(ImageInputStream imageInputStream) throws IOException {
+        if (imageInputStream == null) {
+            throw new IOException("unable to create an image input stream.");
+        }
+
+        Iterator<ImageReader> imageReaders = ImageIO.getImageReaders(imageInputStream);
+
+        if (!imageReaders.hasNext()) {
+            throw new IOException("no image reader found for the image.");
+        }
+
+        return imageReaders.next();
+    }
+
+    /**
+     * Adjust the chip [x, y, w, h] to the image bounds the same way as
+     * {@link org.codice.alliance.imaging.chip.service.api.ChipService#crop(BufferedImage, int, int, int, int)}.
+     */
+    private Rectangle clip(int[] chip, Dimension image) throws ChipOutOfBoundsException {
+        int x = chip[0];
+        int y = chip[1];
+        int w = chip[2];
+        int h = chip[3];
+
+        if (w < 0 || h < 0) {
+            throw new ChipOutOfBoundsException(String.format(
+                    "method arguments 'w', 'h' may not be less than 0. Values were %s and %s.",
+                    w,
+                    h));
+        }
+
+        if (x > image.width || y > image.height) {
+            throw new ChipOutOfBoundsException(String.format(
+                    "method arguments 'x' and 'y' may not be greater than the width and height of the supplied image."
+                            + "\n   image width = %s, x = %s\n   image height = %s, y = %s",
+                    image.width,
+                    x,
+                    image.height,
+                    y));
+        }
+
+        if (x < 0) {
+            x = 0;
+        }
+
+        if (y < 0) {
+            y = 0;
+        }
+
+        if (x + w > image.width) {
+            w = image.width - x;
+        }
+
+        if (y + h > image.height) {
+            h = image.height - y;
+        }
+
+        return new Rectangle(x, y, w, h);
+    }
+
+    /**
+     * Find the smallest of the following images that is a reduced resolution version of the first
+     * image and is reduced by no more than the subsampling factor. Each image must be smaller than
+     * the one before it.
+     *
+     * @return the image index, or 0 when there is no suitable reduced resolution image
+     */
+    private int findReducedResolutionIndex(ImageReader imageReader, Dimension original,
+            int subsampling) throws IOException {
+        int numImages = imageReader.getNumImages(true);
+
+        int imageIndex = 0;
+        int previousWidth = original.width;
+        for (int i = 1; i < numImages; i++) {
+            int width = imageReader.getWidth(i);
+            if (width >= previousWidth || (double) original.width / width > subsampling) {
+                break;
+            }
+            imageIndex = i;
+            previousWidth = width;
+        }
+
+        return imageIndex;
+    }
+
+    /**
+     * Scale a region of the first image to the smallest region of a reduced resolution image that
+     * covers it.
+     */
+    private Rectangle scaleRegion(Rectangle region, Dimension original, Dimension reduced) {
+        double scaleX = (double) reduced.width / original.width;
+        double scaleY = (double) reduced.height / original.height;
+
+        int x = (int) Math.floor(region.x * scaleX);
+        int y = (int) Math.floor(region.y * scaleY);
+        int maxX = Math.min(reduced.width, (int) Math.ceil((region.x + region.width) * scaleX));
+        int maxY = Math.min(reduced.height,
+                (int) Math.ceil((region.y + region.height) * scaleY));
+
+        return new Rectangle(x, y, Math.max(1, maxX - x), Math.max(1, maxY - y));
+    }
+
+    private int calculateSubsampling(Rectangle region) {
+        if (maxChipSideLength == 0) {
+            return 1;
+        }
+        int maxSide = Math.max(region.width, region.height);
+        return Math.max(1, (maxSide + maxChipSideLength - 1) / maxChipSideLength);
+    }
+}
@@ -18,6 +18,7 @@ import static org.hamcrest.core.Is.is;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.awt.Dimension;
 import java.awt.image.BufferedImage;
 import java.io.Serializable;
 import java.util.Map;
@@ -132,4 +133,21 @@ public class CropAdapterTest {
             assertThat(scaledValues[i], is(values[i] * 2));
         }
     }
+
+    @Test
+    public void testScaleChipWithDimensions() {
+        int[] values = new int[]{100, 100, 400, 400};
+        args.put("x", values[0]);
+        args.put("y", values[1]);
+        args.put("w", values[2]);
+        args.put("h", values[3]);
+
+        int[] scaledValues = cropAdapter.scaleChip(new Dimension(2048, 2048),
+                new Dimension(1024, 1024),
+                args);
+
+        for (int i = 0; i < values.length; i++) {
+            assertThat(scaledValues[i], is(values[i] * 2));
+        }
+    }
 }
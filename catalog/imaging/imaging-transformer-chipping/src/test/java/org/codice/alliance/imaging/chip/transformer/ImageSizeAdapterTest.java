@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.Dimension;
+import java.io.InputStream;
+
+import org.codice.alliance.catalog.core.api.types.Isr;
+import org.junit.Before;
+import org.junit.Test;
+
+import ddf.catalog.CatalogFramework;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.AttributeImpl;
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.operation.ResourceRequest;
+import ddf.catalog.operation.ResourceResponse;
+import ddf.catalog.resource.Resource;
+
+public class ImageSizeAdapterTest {
+    private static final String I_3001A = "/i_3001a.png";
+
+    private CatalogFramework catalogFramework;
+
+    private ImageSizeAdapter imageSizeAdapter;
+
+    private MetacardImpl metacard;
+
+    @Before
+    public void setUp() {
+        this.catalogFramework = mock(CatalogFramework.class);
+        this.imageSizeAdapter = new ImageSizeAdapter(catalogFramework, new CatalogInputAdapter());
+        this.metacard = new MetacardImpl();
+        metacard.setAttribute(new AttributeImpl(Metacard.DERIVED_RESOURCE_URI,
+                "content:123#overview"));
+    }
+
+    @Test
+    public void testOverviewSizeFromAttributes() throws Exception {
+        metacard.setAttribute(new AttributeImpl(Isr.OVERVIEW_WIDTH, 512));
+        metacard.setAttribute(new AttributeImpl(Isr.OVERVIEW_HEIGHT, 256));
+
+        assertThat(imageSizeAdapter.getOverviewSize(metacard), is(new Dimension(512, 256)));
+        verify(catalogFramework, never()).getLocalResource(any(ResourceRequest.class));
+    }
+
+    @Test
+    public void testOverviewSizeFromImageHeader() throws Exception {
+        ResourceResponse resourceResponse = mock(ResourceResponse.class);
+        Resource resource = mock(Resource.class);
+        when(resourceResponse.getResource()).thenReturn(resource);
+        when(resource.getInputStream()).thenReturn(getInputStream(I_3001A));
+        when(catalogFramework.getLocalResource(any(ResourceRequest.class))).thenReturn(
+                resourceResponse);
+
+        assertThat(imageSizeAdapter.getOverviewSize(metacard), is(new Dimension(1024, 1024)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullMetacard() throws Exception {
+        imageSizeAdapter.getOverviewSize(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullCatalogFramework() {
+        new ImageSizeAdapter(null, new CatalogInputAdapter());
+    }
+
+    private InputStream getInputStream(String filename) {
+        assertNotNull("Test file missing", getClass().getResource(filename));
+        return getClass().getResourceAsStream(filename);
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.imaging.chip.transformer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.codice.alliance.imaging.chip.service.api.ChipOutOfBoundsException;
+import org.junit.Before;
+import org.junit.Test;
+
+import ddf.catalog.operation.ResourceResponse;
+import ddf.catalog.resource.Resource;
+
+public class RegionReadAdapterTest {
+    private static final String I_3001A = "/i_3001a.png";
+
+    private RegionReadAdapter regionReadAdapter;
+
+    private BufferedImage original;
+
+    @Before
+    public void setUp() throws IOException {
+        this.regionReadAdapter = new RegionReadAdapter(new CropAdapter());
+        this.original = ImageIO.read(getInputStream(I_3001A));
+    }
+
+    @Test
+    public void testReadChipMatchesCrop() throws Exception {
+        BufferedImage chip = regionReadAdapter.readChip(getInputStream(I_3001A),
+                null,
+                createArgs(100, 200, 300, 150));
+
+        assertSamePixels(chip, original.getSubimage(100, 200, 300, 150));
+    }
+
+    @Test
+    public void testReadChipScalesFromOverview() throws Exception {
+        BufferedImage chip = regionReadAdapter.readChip(getInputStream(I_3001A),
+                new Dimension(512, 512),
+                createArgs(50, 100, 150, 75));
+
+        assertSamePixels(chip, original.getSubimage(100, 200, 300, 150));
+    }
+
+    @Test
+    public void testReadChipAdjustedToImageBounds() throws Exception {
+        BufferedImage chip = regionReadAdapter.readChip(getInputStream(I_3001A),
+                null,
+                createArgs(-10, 1000, 50, 100));
+
+        assertSamePixels(chip, original.getSubimage(0, 1000, 50, 24));
+    }
+
+    @Test(expected = ChipOutOfBoundsException.class)
+    public void testReadChipOutsideImage() throws Exception {
+        regionReadAdapter.readChip(getInputStream(I_3001A), null, createArgs(1025, 0, 10, 10));
+    }
+
+    @Test(expected = ChipOutOfBoundsException.class)
+    public void testReadChipNegativeWidth() throws Exception {
+        regionReadAdapter.readChip(getInputStream(I_3001A), null, createArgs(0, 0, -1, 10));
+    }
+
+    @Test
+    public void testReadChipSubsampled() throws Exception {
+        regionReadAdapter.setMaxChipSideLength(100);
+
+        BufferedImage chip = regionReadAdapter.readChip(getInputStream(I_3001A),
+                null,
+                createArgs(0, 0, 400, 200));
+
+        assertThat(chip.getWidth(), is(100));
+        assertThat(chip.getHeight(), is(50));
+        assertThat(chip.getRGB(1, 1), is(original.getRGB(4, 4)));
+    }
+
+    @Test
+    public void testReadChipFromReducedResolutionImage() throws Exception {
+        BufferedImage reduced = new BufferedImage(512, 512, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = reduced.createGraphics();
+        graphics.drawImage(original, 0, 0, 512, 512, null);
+        graphics.dispose();
+
+        byte[] pyramid = writeTiledTiff(original, reduced);
+
+        regionReadAdapter.setMaxChipSideLength(100);
+
+        BufferedImage chip = regionReadAdapter.readChip(new ByteArrayInputStream(pyramid),
+                null,
+                createArgs(0, 0, 400, 200));
+
+        assertThat(chip.getWidth(), is(100));
+        assertThat(chip.getHeight(), is(50));
+        assertThat(chip.getRGB(1, 1), is(reduced.getRGB(2, 2)));
+        assertThat(chip.getRGB(99, 49), is(reduced.getRGB(198, 98)));
+    }
+
+    @Test
+    public void testReadFullResolutionChipFromTiledImage() throws Exception {
+        BufferedImage reduced = new BufferedImage(512, 512, BufferedImage.TYPE_INT_RGB);
+
+        byte[] pyramid = writeTiledTiff(original, reduced);
+
+        BufferedImage chip = regionReadAdapter.readChip(new ByteArrayInputStream(pyramid),
+                null,
+                createArgs(100, 200, 300, 150));
+
+        assertSamePixels(chip, original.getSubimage(100, 200, 300, 150));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMaxChipSideLength() {
+        regionReadAdapter.setMaxChipSideLength(-1);
+    }
+
+    @Test
+    public void testReadChipFromResourceResponse() throws Exception {
+        ResourceResponse resourceResponse = mock(ResourceResponse.class);
+        Resource resource = mock(Resource.class);
+        when(resourceResponse.getResource()).thenReturn(resource);
+        when(resource.getInputStream()).thenReturn(getInputStream(I_3001A));
+
+        BufferedImage chip = regionReadAdapter.readChip(resourceResponse,
+                new Dimension(256, 256),
+                createArgs(25, 50, 75, 30));
+
+        assertSamePixels(chip, original.getSubimage(100, 200, 300, 120));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadChipNullResourceResponse() throws Exception {
+        regionReadAdapter.readChip((ResourceResponse) null, null, createArgs(0, 0, 1, 1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadChipNullInputStream() throws Exception {
+        ResourceResponse resourceResponse = mock(ResourceResponse.class);
+        Resource resource = mock(Resource.class);
+        when(resourceResponse.getResource()).thenReturn(resource);
+        when(resource.getInputStream()).thenReturn(null);
+        regionReadAdapter.readChip(resourceResponse, null, createArgs(0, 0, 1, 1));
+    }
+
+    private void assertSamePixels(BufferedImage actual, BufferedImage expected) {
+        assertThat(actual.getWidth(), is(expected.getWidth()));
+        assertThat(actual.getHeight(), is(expected.getHeight()));
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertThat(actual.getRGB(x, y), is(expected.getRGB(x, y)));
+            }
+        }
+    }
+
+    private byte[] writeTiledTiff(BufferedImage... levels) throws IOException {
+        ImageWriter imageWriter = ImageIO.getImageWritersByFormatName("tiff")
+                .next();
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream outputStream = ImageIO.createImageOutputStream(
+                byteArrayOutputStream)) {
+            imageWriter.setOutput(outputStream);
+            ImageWriteParam imageWriteParam = imageWriter.getDefaultWriteParam();
+            imageWriteParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+            imageWriteParam.setTiling(256, 256, 0, 0);
+            imageWriter.prepareWriteSequence(null);
+            for (BufferedImage level : levels) {
+                imageWriter.writeToSequence(new IIOImage(level, null, null), imageWriteParam);
+            }
+            imageWriter.endWriteSequence();
+        } finally {
+            imageWriter.dispose();
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private Map<String, Serializable> createArgs(int x, int y, int w, int h) {
+        Map<String, Serializable> args = new HashMap<>();
+        args.put("x", x);
+        args.put("y", y);
+        args.put("w", w);
+        args.put("h", h);
+        return args;
+    }
+
+    private InputStream getInputStream(String filename) {
+        assertNotNull("Test file missing", getClass().getResource(filename));
+        return getClass().getResourceAsStream(filename);
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.common;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.MetacardType;
+import ddf.catalog.data.impl.MetacardImpl;
+
+/**
+ * A metacard that records the attribute updates made while handling a single segment, so that they
+ * can be applied to another metacard later in the same order. An update that extends the values
+ * that were read from the attribute just before it is applied as an append to the values of the
+ * target metacard, as if the values had been added to it directly. Any other update replaces the
+ * attribute of the target metacard.
+ */
+class RecordingMetacard extends MetacardImpl {
+
+    private final List<Consumer<Metacard>> updates = new ArrayList<>();
+
+    private final Map<String, List<Serializable>> readValues = new HashMap<>();
+
+    RecordingMetacard(MetacardType metacardType) {
+        super(metacardType);
+    }
+
+    @Override
+    public Attribute getAttribute(String name) {
+        Attribute attribute = super.getAttribute(name);
+        readValues.put(name, getValues(attribute));
+        return attribute;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) {
+        super.setAttribute(attribute);
+
+        List<Serializable> previousValues = readValues.remove(attribute.getName());
+        List<Serializable> values = getValues(attribute);
+        if (previousValues != null && values.size() > previousValues.size()
+                && values.subList(0, previousValues.size())
+                .equals(previousValues)) {
+            List<Serializable> addedValues =
+                    new ArrayList<>(values.subList(previousValues.size(), values.size()));
+            updates.add(metacard -> addedValues.forEach(value -> metacard.setAttribute(
+                    SegmentHandler.populateAttribute(metacard, attribute.getName(), value))));
+        } else {
+            updates.add(metacard -> metacard.setAttribute(attribute));
+        }
+    }
+
+    void applyTo(Metacard metacard) {
+        updates.forEach(update -> update.accept(metacard));
+    }
+
+    private static List<Serializable> getValues(Attribute attribute) {
+        if (attribute == null || attribute.getValues() == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(attribute.getValues());
+    }
+}
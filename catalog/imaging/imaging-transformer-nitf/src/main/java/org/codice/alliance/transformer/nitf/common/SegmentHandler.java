@@ -13,11 +13,21 @@
  */
 package org.codice.alliance.transformer.nitf.common;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.codice.imaging.nitf.core.common.TaggedRecordExtensionHandler;
@@ -45,6 +55,69 @@ public class SegmentHandler {
         handleSegmentHeader(metacard, segment, Arrays.asList(attributes));
     }
 
+    /**
+     * Runs each segment handler against the metacard. When an executor is given, the handlers run
+     * on the executor against separate metacards of the same type, and their attribute updates are
+     * applied to the metacard afterwards in the order of the handlers. The result is the same as
+     * running the handlers one after another, provided that each handler only reads the segment
+     * it handles. A handler that the executor rejects, for example because it has been shut down
+     * to be replaced, runs on the calling thread instead.
+     *
+     * @param metacard        the metacard to update
+     * @param segmentHandlers the handlers in segment order
+     * @param executor        may be null to run the handlers on the calling thread
+     * @throws IOException if the calling thread is interrupted while waiting for the handlers
+     */
+    protected void handleSegments(Metacard metacard, List<Consumer<Metacard>> segmentHandlers,
+            ExecutorService executor) throws IOException {
+        if (executor == null || segmentHandlers.size() < 2) {
+            segmentHandlers.forEach(segmentHandler -> segmentHandler.accept(metacard));
+            return;
+        }
+
+        List<Future<RecordingMetacard>> results = new ArrayList<>(segmentHandlers.size());
+        try {
+            for (Consumer<Metacard> segmentHandler : segmentHandlers) {
+                Callable<RecordingMetacard> task = () -> {
+                    RecordingMetacard recordingMetacard =
+                            new RecordingMetacard(metacard.getMetacardType());
+                    segmentHandler.accept(recordingMetacard);
+                    return recordingMetacard;
+                };
+
+                try {
+                    results.add(executor.submit(task));
+                } catch (RejectedExecutionException e) {
+                    LOGGER.debug("Segment executor rejected a segment handler, running it on the "
+                            + "calling thread.", e);
+                    FutureTask<RecordingMetacard> futureTask = new FutureTask<>(task);
+                    futureTask.run();
+                    results.add(futureTask);
+                }
+            }
+
+            for (Future<RecordingMetacard> result : results) {
+                result.get()
+                        .applyTo(metacard);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            throw new InterruptedIOException("Interrupted while handling the NITF segments.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException("Unable to handle the NITF segments.", cause);
+        } finally {
+            results.forEach(result -> result.cancel(true));
+        }
+    }
+
     protected void handleTres(Metacard metacard,
             TaggedRecordExtensionHandler taggedRecordextensionHandler) {
         List<Tre> tres = taggedRecordextensionHandler.getTREsRawStructure()
@@ -79,18 +152,28 @@ public class SegmentHandler {
 
         for (AttributeDescriptor descriptor : descriptors) {
             if (value != null) {
-                Attribute catalogAttribute = populateAttribute(metacard,
-                        descriptor.getName(),
-                        value);
                 LOGGER.trace("Setting the metacard attribute [{}, {}]",
                         descriptor.getName(),
                         value);
-                metacard.setAttribute(catalogAttribute);
+                addAttributeValue(metacard, descriptor.getName(), value);
             }
         }
     }
 
-    private Attribute populateAttribute(Metacard metacard, String attributeName,
+    /**
+     * Adds a value to an attribute of the metacard, after the values that the attribute already
+     * has.
+     *
+     * @param metacard      the metacard to update
+     * @param attributeName the name of the attribute
+     * @param value         the value to add
+     */
+    protected void addAttributeValue(Metacard metacard, String attributeName,
+            Serializable value) {
+        metacard.setAttribute(populateAttribute(metacard, attributeName, value));
+    }
+
+    static Attribute populateAttribute(Metacard metacard, String attributeName,
             Serializable value) {
         Attribute currentAttribute = metacard.getAttribute(attributeName);
 
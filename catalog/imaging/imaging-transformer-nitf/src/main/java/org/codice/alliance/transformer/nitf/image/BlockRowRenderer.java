@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.io.IOException;
+
+import javax.imageio.stream.ImageInputStream;
+
+import org.codice.imaging.nitf.core.image.ImageCompression;
+import org.codice.imaging.nitf.core.image.ImageMode;
+import org.codice.imaging.nitf.core.image.ImageSegment;
+
+/**
+ * Draws an image segment one row of blocks at a time, and only the rows of blocks that intersect
+ * the clip of the graphics context, so that rendering a strip of the image only reads and decodes
+ * the blocks of that strip. Each row of blocks is rendered as an image segment of its own, whose
+ * data is the part of the segment data that holds the row.
+ * <p>
+ * This requires the blocks to be stored one after another with a fixed size, which is the case
+ * for uncompressed segments that are block interleaved or have a single band, and whose pixels
+ * are a whole number of bytes. Other segments, such as compressed or masked segments, are
+ * rendered whole on every call, through the clip, so they should be rendered once instead when
+ * {@link #isRenderedByBlockRow()} is <code>false</code>.
+ * <p>
+ * The segment is modified while a row of blocks is rendered, and restored afterwards. This class
+ * is not thread-safe.
+ */
+class BlockRowRenderer implements TiledPyramidWriter.ImageRenderer {
+
+    /**
+     * Draws an image segment into a graphics context.
+     */
+    @FunctionalInterface
+    interface SegmentRenderer {
+
+        void render(ImageSegment segment, Graphics2D graphics) throws IOException;
+    }
+
+    private final ImageSegment segment;
+
+    private final SegmentRenderer segmentRenderer;
+
+    private final ImageInputStream data;
+
+    private final long dataStart;
+
+    private final long dataLength;
+
+    private final int rows;
+
+    private final int blockRows;
+
+    private final int blockHeight;
+
+    private final long blockRowBytes;
+
+    /**
+     * @param segment         the image segment, with its data positioned at the first byte of
+     *                        the image data
+     * @param segmentRenderer draws the image segment
+     * @throws IOException when the position of the image data can't be read
+     */
+    BlockRowRenderer(ImageSegment segment, SegmentRenderer segmentRenderer) throws IOException {
+        if (segment == null) {
+            throw new IllegalArgumentException("method argument 'segment' may not be null.");
+        }
+
+        if (segmentRenderer == null) {
+            throw new IllegalArgumentException(
+                    "method argument 'segmentRenderer' may not be null.");
+        }
+
+        this.segment = segment;
+        this.segmentRenderer = segmentRenderer;
+        this.data = segment.getData();
+        this.dataStart = data.getStreamPosition();
+        this.dataLength = segment.getDataLength();
+        this.rows = (int) segment.getNumberOfRows();
+        this.blockRows = (int) segment.getNumberOfBlocksPerColumn();
+        this.blockHeight = (int) segment.getNumberOfPixelsPerBlockVertical();
+        this.blockRowBytes = calculateBlockRowBytes(segment);
+    }
+
+    /**
+     * @return <code>true</code> if the segment is rendered one row of blocks at a time,
+     * <code>false</code> if it is rendered whole
+     */
+    boolean isRenderedByBlockRow() {
+        return blockRowBytes > 0;
+    }
+
+    @Override
+    public void render(Graphics2D graphics) throws IOException {
+        if (!isRenderedByBlockRow()) {
+            renderPart(graphics, blockRows, rows, dataStart, dataLength);
+            return;
+        }
+
+        int firstBlockRow = 0;
+        int lastBlockRow = blockRows - 1;
+
+        Rectangle clip = graphics.getClipBounds();
+        if (clip != null) {
+            if (clip.isEmpty()) {
+                return;
+            }
+            firstBlockRow = Math.max(firstBlockRow, Math.floorDiv(clip.y, blockHeight));
+            lastBlockRow = Math.min(lastBlockRow,
+                    Math.floorDiv(clip.y + clip.height - 1, blockHeight));
+        }
+
+        for (int blockRow = firstBlockRow; blockRow <= lastBlockRow; blockRow++) {
+            int y = blockRow * blockHeight;
+            Graphics2D blockRowGraphics = (Graphics2D) graphics.create();
+            try {
+                blockRowGraphics.translate(0, y);
+                renderPart(blockRowGraphics,
+                        1,
+                        Math.min(blockHeight, rows - y),
+                        dataStart + blockRow * blockRowBytes,
+                        blockRowBytes);
+            } finally {
+                blockRowGraphics.dispose();
+            }
+        }
+    }
+
+    private void renderPart(Graphics2D graphics, int partBlockRows, int partRows,
+            long partDataStart, long partDataLength) throws IOException {
+        segment.setNumberOfBlocksPerColumn(partBlockRows);
+        segment.setNumberOfRows(partRows);
+        segment.setDataLength(partDataLength);
+        segment.setData(new ImageDataWindow(data, partDataStart, partDataLength));
+        try {
+            segmentRenderer.render(segment, graphics);
+        } finally {
+            segment.setNumberOfBlocksPerColumn(blockRows);
+            segment.setNumberOfRows(rows);
+            segment.setDataLength(dataLength);
+            segment.setData(data);
+        }
+    }
+
+    /**
+     * @return the number of bytes of each row of blocks, or 0 if the rows of blocks can't be read
+     * separately
+     */
+    private static long calculateBlockRowBytes(ImageSegment segment) {
+        if (segment.getImageCompression() != ImageCompression.NOTCOMPRESSED) {
+            return 0;
+        }
+
+        int bands = (int) segment.getNumBands();
+        if (segment.getImageMode() != ImageMode.BLOCKINTERLEVE && bands != 1) {
+            return 0;
+        }
+
+        int bitsPerPixel = (int) segment.getNumberOfBitsPerPixelPerBand();
+        if (bitsPerPixel % Byte.SIZE != 0) {
+            return 0;
+        }
+
+        long blockBytes = (long) segment.getNumberOfPixelsPerBlockHorizontal()
+                * segment.getNumberOfPixelsPerBlockVertical() * bands * (bitsPerPixel / Byte.SIZE);
+        long rowBytes = blockBytes * segment.getNumberOfBlocksPerRow();
+        if (rowBytes <= 0
+                || rowBytes * segment.getNumberOfBlocksPerColumn() != segment.getDataLength()) {
+            return 0;
+        }
+
+        return rowBytes;
+    }
+}
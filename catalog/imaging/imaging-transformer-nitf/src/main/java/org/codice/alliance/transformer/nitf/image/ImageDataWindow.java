@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import java.io.IOException;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageInputStreamImpl;
+
+/**
+ * An {@link ImageInputStream} over a range of bytes of another stream, which starts at position 0
+ * of this stream. Every read seeks the other stream, so several windows can share it as long as
+ * they are read one at a time. Closing a window does not close the other stream.
+ */
+class ImageDataWindow extends ImageInputStreamImpl {
+
+    private final ImageInputStream source;
+
+    private final long offset;
+
+    private final long length;
+
+    /**
+     * @param source the stream to read from
+     * @param offset the position in the source of the first byte of the window
+     * @param length the number of bytes in the window
+     */
+    ImageDataWindow(ImageInputStream source, long offset, long length) {
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        bitOffset = 0;
+
+        if (streamPos >= length) {
+            return -1;
+        }
+
+        source.seek(offset + streamPos);
+        int value = source.read();
+        if (value >= 0) {
+            streamPos++;
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+        checkClosed();
+        if (off < 0 || len < 0 || off + len > bytes.length) {
+            throw new IndexOutOfBoundsException("off and len must be within the bytes.");
+        }
+        bitOffset = 0;
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (streamPos >= length) {
+            return -1;
+        }
+
+        source.seek(offset + streamPos);
+        int count = source.read(bytes, off, (int) Math.min(len, length - streamPos));
+        if (count > 0) {
+            streamPos += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+}
@@ -16,6 +16,10 @@ package org.codice.alliance.transformer.nitf.image;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang.StringUtils;
 import org.codice.alliance.catalog.core.api.types.Isr;
@@ -50,6 +54,70 @@ public class NitfImageTransformer extends SegmentHandler {
 
     private static final String IMAGE_DATATYPE = "Image";
 
+    private static final AtomicInteger SEGMENT_THREAD_COUNT = new AtomicInteger();
+
+    private int segmentProcessingThreads = 0;
+
+    /**
+     * Null when the segments are handled on the calling thread.
+     */
+    private ExecutorService segmentExecutor;
+
+    /**
+     * The number of threads that extract the attributes of the image, graphic, text, symbol and
+     * label segments. The attributes are added to the metacard in segment order, so the metacard
+     * is the same as when the segments are handled one after another. The threads are shared by
+     * all of the files that are being transformed. When set to 0, the segments are handled on the
+     * calling thread.
+     *
+     * @param segmentProcessingThreads the number of threads, or 0
+     */
+    public synchronized void setSegmentProcessingThreads(int segmentProcessingThreads) {
+        int threads = segmentProcessingThreads;
+        if (threads < 0) {
+            LOGGER.debug(
+                    "Invalid `segmentProcessingThreads` value [{}], must not be negative. Segments will be handled on the calling thread.",
+                    segmentProcessingThreads);
+            threads = 0;
+        }
+
+        if (threads == this.segmentProcessingThreads) {
+            return;
+        }
+
+        LOGGER.trace("Setting segmentProcessingThreads to {}", threads);
+        shutdownSegmentExecutor();
+        this.segmentProcessingThreads = threads;
+        if (threads > 0) {
+            segmentExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable,
+                        "nitf-segment-" + SEGMENT_THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Stop the segment processing threads. Transforms that start afterwards handle the segments on
+     * the calling thread.
+     */
+    public synchronized void destroy() {
+        shutdownSegmentExecutor();
+        segmentProcessingThreads = 0;
+    }
+
+    private void shutdownSegmentExecutor() {
+        if (segmentExecutor != null) {
+            segmentExecutor.shutdown();
+            segmentExecutor = null;
+        }
+    }
+
+    private synchronized ExecutorService getSegmentExecutor() {
+        return segmentExecutor;
+    }
+
     public Metacard transform(NitfSegmentsFlow nitfSegmentsFlow, Metacard metacard)
             throws IOException {
 
@@ -62,28 +130,42 @@ public class NitfImageTransformer extends SegmentHandler {
         return metacard;
     }
 
-    private void handleSegments(NitfSegmentsFlow nitfSegmentsFlow, Metacard metacard) {
+    private void handleSegments(NitfSegmentsFlow nitfSegmentsFlow, Metacard metacard)
+            throws IOException {
         validateArgument(nitfSegmentsFlow, "nitfSegmentsFlow");
         validateArgument(metacard, "metacard");
 
-        List<Polygon> polygonList = new ArrayList<>();
+        // each image segment collects its polygons separately so they stay in segment order
+        List<List<Polygon>> segmentPolygons = new ArrayList<>();
+        List<Consumer<Metacard>> segmentHandlers = new ArrayList<>();
 
-        nitfSegmentsFlow.forEachImageSegment(segment -> handleImageSegmentHeader(metacard,
-                segment,
-                polygonList))
-                .forEachGraphicSegment(segment -> handleSegmentHeader(metacard,
+        NitfSegmentsFlow segmentsFlow = nitfSegmentsFlow.forEachImageSegment(segment -> {
+            List<Polygon> polygons = new ArrayList<>();
+            segmentPolygons.add(polygons);
+            segmentHandlers.add(target -> handleImageSegmentHeader(target, segment, polygons));
+        })
+                .forEachGraphicSegment(segment -> segmentHandlers.add(target -> handleSegmentHeader(
+                        target,
                         segment,
-                        GraphicAttribute.values()))
-                .forEachTextSegment(segment -> handleSegmentHeader(metacard,
+                        GraphicAttribute.values())))
+                .forEachTextSegment(segment -> segmentHandlers.add(target -> handleSegmentHeader(
+                        target,
                         segment,
-                        TextAttribute.values()))
-                .forEachSymbolSegment(segment -> handleSegmentHeader(metacard,
+                        TextAttribute.values())))
+                .forEachSymbolSegment(segment -> segmentHandlers.add(target -> handleSegmentHeader(
+                        target,
                         segment,
-                        SymbolAttribute.values()))
-                .forEachLabelSegment(segment -> handleSegmentHeader(metacard,
+                        SymbolAttribute.values())))
+                .forEachLabelSegment(segment -> segmentHandlers.add(target -> handleSegmentHeader(
+                        target,
                         segment,
-                        LabelAttribute.values()))
-                .end();
+                        LabelAttribute.values())));
+
+        handleSegments(metacard, segmentHandlers, getSegmentExecutor());
+        segmentsFlow.end();
+
+        List<Polygon> polygonList = new ArrayList<>();
+        segmentPolygons.forEach(polygonList::addAll);
 
         // Set GEOGRAPHY from discovered polygons
         if (polygonList.size() == 1) {
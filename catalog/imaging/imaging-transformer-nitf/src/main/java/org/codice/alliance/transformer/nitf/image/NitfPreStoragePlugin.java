@@ -13,21 +13,33 @@
  */
 package org.codice.alliance.transformer.nitf.image;
 
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import javax.activation.MimeTypeParseException;
 import javax.imageio.ImageIO;
 import javax.imageio.spi.IIORegistry;
+import javax.imageio.stream.FileCacheImageOutputStream;
+import javax.imageio.stream.ImageOutputStream;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
+import org.codice.alliance.catalog.core.api.types.Isr;
 import org.codice.alliance.transformer.nitf.MetacardFactory;
 import org.codice.imaging.nitf.core.common.NitfFormatException;
+import org.codice.imaging.nitf.core.image.ImageSegment;
 import org.codice.imaging.nitf.fluent.NitfParserInputFlow;
 import org.codice.imaging.nitf.render.NitfRenderer;
 import org.slf4j.Logger;
@@ -35,6 +47,8 @@ import org.slf4j.LoggerFactory;
 
 import com.github.jaiimageio.jpeg2000.impl.J2KImageReaderSpi;
 import com.google.common.io.ByteSource;
+import com.google.common.io.FileBackedOutputStream;
+import com.google.common.io.Files;
 
 import ddf.catalog.content.data.ContentItem;
 import ddf.catalog.content.data.impl.ContentItemImpl;
@@ -51,7 +65,18 @@ import net.coobird.thumbnailator.Thumbnails;
 
 /**
  * This pre-storage plugin creates and stores the NITF thumbnail and NITF overview images. The
- * thumbnail is stored with the Metacard while the overview is stored in the content store.
+ * thumbnail is stored with the Metacard while the overview is stored in the content store. The
+ * full-size "original" image is stored either as a JPEG or, when {@link #setCreateTiledPyramid(boolean)}
+ * is enabled, as a tiled, multi-resolution TIFF written by {@link TiledPyramidWriter}.
+ * <p>
+ * When {@link #setBlockRendering(boolean)} is enabled, the full-size image is never held in
+ * memory. The image segment is rendered once into a reduced image for the thumbnail and
+ * overview, and then in strips straight into a tiled TIFF "original" image. The strips stay
+ * within {@link #setMaxRenderingMemory(int)} and the reduced image is bounded by the overview
+ * size, regardless of the size of the image. Each strip only reads and decodes the blocks of the
+ * image segment that it covers, see {@link BlockRowRenderer}. An image segment whose blocks can't
+ * be read separately, such as a compressed or masked segment, is decoded once and processed the
+ * same way as when block rendering is disabled.
  */
 public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateStoragePlugin {
 
@@ -76,8 +101,34 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
 
     private static final double DEFAULT_MAX_SIDE_LENGTH = 1024.0;
 
+    /**
+     * Derived images larger than this are kept in a temporary file instead of on the heap until
+     * they are stored.
+     */
+    private static final int FILE_BACKED_THRESHOLD = 1024 * 1024;
+
     private double maxSideLength = DEFAULT_MAX_SIDE_LENGTH;
 
+    private static final String NITF_TEMP_FILE_PREFIX = "nitf-render-";
+
+    private static final String NITF_TEMP_FILE_SUFFIX = ".ntf";
+
+    private static final int DEFAULT_MAX_RENDERING_MEMORY = 64;
+
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private boolean createTiledPyramid = false;
+
+    private boolean blockRendering = false;
+
+    private long maxRenderingMemoryBytes = DEFAULT_MAX_RENDERING_MEMORY * BYTES_PER_MEGABYTE;
+
+    private final TiledPyramidWriter tiledPyramidWriter = new TiledPyramidWriter();
+
+    private Supplier<NitfRenderer> nitfRendererFactory = NitfRenderer::new;
+
     static {
         IIORegistry.getDefaultInstance().registerServiceProvider(new J2KImageReaderSpi());
     }
@@ -125,35 +176,177 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
     }
 
     private void process(ContentItem contentItem, List<ContentItem> contentItems) {
-        Metacard metacard = contentItem.getMetacard();
-
         if (!isNitfMimeType(contentItem.getMimeTypeRawData())) {
             LOGGER.debug("skipping content item: filename={} mimeType={}",
                     contentItem.getFilename(), contentItem.getMimeTypeRawData());
             return;
         }
 
+        if (blockRendering) {
+            processBlockwise(contentItem, contentItems);
+            return;
+        }
+
         try {
             BufferedImage renderedImage = renderImage(contentItem);
 
             if (renderedImage != null) {
-                addThumbnailToMetacard(metacard, renderedImage);
+                processRenderedImage(contentItem, renderedImage, contentItems);
+            }
+        } catch (IOException | ParseException | NitfFormatException | UnsupportedOperationException e) {
+            LOGGER.debug(e.getMessage(), e);
+        }
+    }
+
+    private void processRenderedImage(ContentItem contentItem, BufferedImage renderedImage,
+            List<ContentItem> contentItems) {
+        Metacard metacard = contentItem.getMetacard();
 
-                ContentItem overviewContentItem = createDerivedImage(contentItem.getId(), OVERVIEW,
-                        renderedImage, metacard, calculateOverviewWidth(renderedImage),
-                        calculateOverviewHeight(renderedImage));
+        addThumbnailToMetacard(metacard, renderedImage);
 
-                contentItems.add(overviewContentItem);
+        ContentItem overviewContentItem = createDerivedImage(contentItem.getId(), OVERVIEW,
+                renderedImage, metacard, calculateOverviewWidth(renderedImage.getWidth(),
+                        renderedImage.getHeight()),
+                calculateOverviewHeight(renderedImage.getWidth(),
+                        renderedImage.getHeight()), Isr.OVERVIEW_WIDTH,
+                Isr.OVERVIEW_HEIGHT);
 
-                ContentItem originalImageContentItem = createDerivedImage(contentItem.getId(),
-                        ORIGINAL, renderedImage, metacard, renderedImage.getWidth(),
-                        renderedImage.getHeight());
+        contentItems.add(overviewContentItem);
 
-                contentItems.add(originalImageContentItem);
+        ContentItem originalImageContentItem;
+        if (createTiledPyramid) {
+            originalImageContentItem = createTiledPyramidImage(contentItem.getId(),
+                    metacard, renderedImage.getWidth(), renderedImage.getHeight(),
+                    outputStream -> tiledPyramidWriter.write(renderedImage,
+                            outputStream));
+        } else {
+            originalImageContentItem = createDerivedImage(contentItem.getId(), ORIGINAL,
+                    renderedImage, metacard, renderedImage.getWidth(),
+                    renderedImage.getHeight(), Isr.ORIGINAL_WIDTH, Isr.ORIGINAL_HEIGHT);
+        }
+
+        contentItems.add(originalImageContentItem);
+    }
+
+    /**
+     * The content is copied to a temporary file, which is parsed once. The first image segment is
+     * then rendered with a {@link BlockRowRenderer}, so each strip only reads and decodes the
+     * blocks that it covers. If the blocks of the segment can't be read separately, then every
+     * strip would decode the whole segment, so the segment is decoded once instead.
+     */
+    private void processBlockwise(ContentItem contentItem, List<ContentItem> contentItems) {
+        File nitfFile = null;
+        try {
+            nitfFile = File.createTempFile(NITF_TEMP_FILE_PREFIX, NITF_TEMP_FILE_SUFFIX);
+
+            try (InputStream inputStream = contentItem.getInputStream()) {
+                Files.asByteSink(nitfFile)
+                        .writeFrom(inputStream);
             }
-        } catch (IOException | ParseException | NitfFormatException | UnsupportedOperationException e) {
+
+            AtomicBoolean rendered = new AtomicBoolean(false);
+            AtomicReference<IOException> renderException = new AtomicReference<>();
+
+            new NitfParserInputFlow().file(nitfFile.getAbsolutePath())
+                    .allData()
+                    .forEachImageSegment(segment -> {
+                        if (rendered.compareAndSet(false, true)) {
+                            try {
+                                processBlockwise(contentItem, segment, contentItems);
+                            } catch (IOException e) {
+                                renderException.set(e);
+                            }
+                        }
+                    })
+                    .end();
+
+            if (renderException.get() != null) {
+                throw renderException.get();
+            }
+        } catch (IOException | NitfFormatException | UnsupportedOperationException e) {
             LOGGER.debug(e.getMessage(), e);
+        } finally {
+            if (nitfFile != null && !nitfFile.delete()) {
+                LOGGER.debug("unable to delete temporary file: {}", nitfFile);
+            }
+        }
+    }
+
+    private void processBlockwise(ContentItem contentItem, ImageSegment segment,
+            List<ContentItem> contentItems) throws IOException {
+        Metacard metacard = contentItem.getMetacard();
+
+        Dimension size = new Dimension((int) segment.getNumberOfColumns(),
+                (int) segment.getNumberOfRows());
+
+        NitfRenderer nitfRenderer = nitfRendererFactory.get();
+        BlockRowRenderer renderer = new BlockRowRenderer(segment, nitfRenderer::render);
+        if (!renderer.isRenderedByBlockRow()) {
+            LOGGER.debug("the blocks of the image segment can't be read separately, rendering the "
+                    + "whole image segment once: compression={} mode={}",
+                    segment.getImageCompression(),
+                    segment.getImageMode());
+            processRenderedImage(contentItem, nitfRenderer.render(segment), contentItems);
+            return;
+        }
+
+        BufferedImage reducedImage = renderReducedImage(renderer, size);
+
+        addThumbnailToMetacard(metacard, reducedImage);
+
+        contentItems.add(createDerivedImage(contentItem.getId(), OVERVIEW, reducedImage,
+                metacard, calculateOverviewWidth(size.width, size.height),
+                calculateOverviewHeight(size.width, size.height), Isr.OVERVIEW_WIDTH,
+                Isr.OVERVIEW_HEIGHT));
+
+        // release the reduced image before the strips are rendered
+        reducedImage = null;
+
+        contentItems.add(createTiledPyramidImage(contentItem.getId(), metacard, size.width,
+                size.height, outputStream -> tiledPyramidWriter.write(size.width,
+                        size.height,
+                        renderer,
+                        maxRenderingMemoryBytes,
+                        createTiledPyramid,
+                        outputStream)));
+    }
+
+    /**
+     * Render the image segment in a single pass into a reduced image that the thumbnail and
+     * overview are scaled from. The reduced image is up to twice the overview size when the
+     * rendering memory budget allows it, and never smaller than the overview, so its size depends
+     * on the overview side length rather than on the size of the image.
+     */
+    private BufferedImage renderReducedImage(TiledPyramidWriter.ImageRenderer renderer,
+            Dimension size) throws IOException {
+        int maxSide = Math.max(size.width, size.height);
+        double overviewScale = Math.min(1.0, maxSideLength / maxSide);
+        double scale = Math.min(1.0, 2 * maxSideLength / maxSide);
+
+        long maxPixels = maxRenderingMemoryBytes / BYTES_PER_PIXEL;
+        if (size.width * scale * size.height * scale > maxPixels) {
+            scale = Math.max(overviewScale,
+                    Math.sqrt((double) maxPixels / ((double) size.width * size.height)));
         }
+
+        int width = Math.max(1, (int) Math.round(size.width * scale));
+        int height = Math.max(1, (int) Math.round(size.height * scale));
+
+        BufferedImage reducedImage = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = reducedImage.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.scale((double) width / size.width, (double) height / size.height);
+            renderer.render(graphics);
+        } finally {
+            graphics.dispose();
+        }
+
+        return reducedImage;
     }
 
     private BufferedImage renderImage(ContentItem contentItem)
@@ -162,7 +355,7 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
         final ThreadLocal<BufferedImage> bufferedImage = new ThreadLocal<>();
 
         if (contentItem != null && contentItem.getInputStream() != null) {
-            NitfRenderer renderer = new NitfRenderer();
+            NitfRenderer renderer = nitfRendererFactory.get();
 
             new NitfParserInputFlow().inputStream(contentItem.getInputStream()).allData()
                     .forEachImageSegment(segment -> {
@@ -191,10 +384,17 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
         }
     }
 
+    /**
+     * The pixel dimensions of the derived image are recorded on the metacard so that consumers,
+     * such as the chipping service, do not have to fetch and decode the derived image to learn
+     * its size.
+     */
     private ContentItem createDerivedImage(String id, String qualifier, BufferedImage image,
-            Metacard metacard, int maxWidth, int maxHeight) {
+            Metacard metacard, int maxWidth, int maxHeight, String widthAttributeName,
+            String heightAttributeName) {
         try {
-            byte[] overviewBytes = scaleImage(image, maxWidth, maxHeight);
+            BufferedImage derivedImage = resizeImage(image, maxWidth, maxHeight);
+            byte[] overviewBytes = writeJpeg(derivedImage);
 
             ByteSource source = ByteSource.wrap(overviewBytes);
             ContentItem contentItem = new ContentItemImpl(id, qualifier, source, IMAGE_JPEG,
@@ -202,6 +402,47 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
                     metacard);
 
             addDerivedResourceAttribute(metacard, contentItem);
+            metacard.setAttribute(new AttributeImpl(widthAttributeName,
+                    derivedImage.getWidth()));
+            metacard.setAttribute(new AttributeImpl(heightAttributeName,
+                    derivedImage.getHeight()));
+
+            return contentItem;
+        } catch (IOException e) {
+            LOGGER.debug(e.getMessage(), e);
+        }
+
+        return null;
+    }
+
+    /**
+     * The pyramid is written straight into the {@link FileBackedOutputStream} that is handed to the
+     * content store, so that the full-size image is never encoded in memory. The TIFF writer needs
+     * to seek, so the stream is wrapped in a {@link FileCacheImageOutputStream}, whose cache file
+     * is deleted when it is closed.
+     */
+    private ContentItem createTiledPyramidImage(String id, Metacard metacard, int width,
+            int height, TiffWriter tiffWriter) {
+        try {
+            FileBackedOutputStream fileBackedOutputStream = new FileBackedOutputStream(
+                    FILE_BACKED_THRESHOLD, true);
+            try (ImageOutputStream outputStream = new FileCacheImageOutputStream(
+                    fileBackedOutputStream, null)) {
+                int levels = tiffWriter.write(outputStream);
+                LOGGER.debug("wrote tiled pyramid: levels={} width={} height={}",
+                        levels, width, height);
+            } finally {
+                fileBackedOutputStream.close();
+            }
+
+            ByteSource source = fileBackedOutputStream.asByteSource();
+            ContentItem contentItem = new ContentItemImpl(id, ORIGINAL, source,
+                    TiledPyramidWriter.MIME_TYPE, buildDerivedImageTitle(metacard.getTitle(),
+                    ORIGINAL, TiledPyramidWriter.FILE_EXTENSION), source.size(), metacard);
+
+            addDerivedResourceAttribute(metacard, contentItem);
+            metacard.setAttribute(new AttributeImpl(Isr.ORIGINAL_WIDTH, width));
+            metacard.setAttribute(new AttributeImpl(Isr.ORIGINAL_HEIGHT, height));
 
             return contentItem;
         } catch (IOException e) {
@@ -212,24 +453,35 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
     }
 
     String buildDerivedImageTitle(String title, String qualifier) {
+        return buildDerivedImageTitle(title, qualifier, JPG);
+    }
+
+    String buildDerivedImageTitle(String title, String qualifier, String extension) {
         String rootFileName = FilenameUtils.getBaseName(title);
 
         // title must contain some alphanumeric, human readable characters, or use default filename
         if (StringUtils.isNotBlank(rootFileName)
                 && StringUtils.isNotBlank(rootFileName.replaceAll("[^A-Za-z0-9]", ""))) {
             String strippedFilename = rootFileName.replaceAll(INVALID_FILENAME_CHARACTER_REGEX, "");
-            return String.format(DERIVED_IMAGE_FILENAME_PATTERN, qualifier, strippedFilename, JPG)
-                    .toLowerCase();
+            return String.format(DERIVED_IMAGE_FILENAME_PATTERN, qualifier, strippedFilename,
+                    extension).toLowerCase();
         }
 
-        return String.format("%s.%s", qualifier, JPG).toLowerCase();
+        return String.format("%s.%s", qualifier, extension).toLowerCase();
     }
 
     private byte[] scaleImage(final BufferedImage bufferedImage, int width, int height)
         throws IOException {
-        BufferedImage thumbnail = Thumbnails.of(bufferedImage).size(width, height).outputFormat(JPG)
+        return writeJpeg(resizeImage(bufferedImage, width, height));
+    }
+
+    private BufferedImage resizeImage(final BufferedImage bufferedImage, int width, int height)
+        throws IOException {
+        return Thumbnails.of(bufferedImage).size(width, height).outputFormat(JPG)
                 .imageType(BufferedImage.TYPE_3BYTE_BGR).asBufferedImage();
+    }
 
+    private byte[] writeJpeg(BufferedImage thumbnail) throws IOException {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         ImageIO.write(thumbnail, JPG, outputStream);
         outputStream.flush();
@@ -251,10 +503,7 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
         metacard.setAttribute(attribute);
     }
 
-    private int calculateOverviewHeight(BufferedImage image) {
-        final int width = image.getWidth();
-        final int height = image.getHeight();
-
+    private int calculateOverviewHeight(int width, int height) {
         if (width >= height) {
             return (int) Math.round(height * (maxSideLength / width));
         }
@@ -262,10 +511,7 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
         return Math.min(height, (int) maxSideLength);
     }
 
-    private int calculateOverviewWidth(BufferedImage image) {
-        final int width = image.getWidth();
-        final int height = image.getHeight();
-
+    private int calculateOverviewWidth(int width, int height) {
         if (width >= height) {
             return Math.min(width, (int) maxSideLength);
         }
@@ -284,4 +530,63 @@ public class NitfPreStoragePlugin implements PreCreateStoragePlugin, PreUpdateSt
             this.maxSideLength = DEFAULT_MAX_SIDE_LENGTH;
         }
     }
+
+    /**
+     * @param createTiledPyramid <code>true</code> to store the full-size image as a tiled,
+     *                           multi-resolution TIFF instead of a JPEG
+     */
+    public void setCreateTiledPyramid(boolean createTiledPyramid) {
+        LOGGER.trace("Setting derived image createTiledPyramid to {}", createTiledPyramid);
+        this.createTiledPyramid = createTiledPyramid;
+    }
+
+    /**
+     * @param blockRendering <code>true</code> to render large images in strips within the
+     *                       rendering memory budget instead of into a single image
+     */
+    public void setBlockRendering(boolean blockRendering) {
+        LOGGER.trace("Setting blockRendering to {}", blockRendering);
+        this.blockRendering = blockRendering;
+    }
+
+    /**
+     * @param maxRenderingMemory the heap budget in megabytes for the images that are rendered
+     *                           when block rendering is enabled
+     */
+    public void setMaxRenderingMemory(int maxRenderingMemory) {
+        if (maxRenderingMemory > 0) {
+            LOGGER.trace("Setting maxRenderingMemory to {}", maxRenderingMemory);
+            this.maxRenderingMemoryBytes = maxRenderingMemory * BYTES_PER_MEGABYTE;
+        } else {
+            LOGGER.debug(
+                    "Invalid `maxRenderingMemory` value [{}], must be greater than zero. Default value [{}] will be used instead.",
+                    maxRenderingMemory, DEFAULT_MAX_RENDERING_MEMORY);
+            this.maxRenderingMemoryBytes = DEFAULT_MAX_RENDERING_MEMORY * BYTES_PER_MEGABYTE;
+        }
+    }
+
+    /**
+     * @param nitfRendererFactory creates the renderer that decodes the image segments, must be
+     *                            non-null
+     */
+    void setNitfRendererFactory(Supplier<NitfRenderer> nitfRendererFactory) {
+        if (nitfRendererFactory == null) {
+            throw new IllegalArgumentException(
+                    "method argument 'nitfRendererFactory' may not be null.");
+        }
+
+        this.nitfRendererFactory = nitfRendererFactory;
+    }
+
+    /**
+     * Writes a TIFF to an output stream.
+     */
+    @FunctionalInterface
+    private interface TiffWriter {
+
+        /**
+         * @return the number of resolution levels that were written
+         */
+        int write(ImageOutputStream outputStream) throws IOException;
+    }
 }
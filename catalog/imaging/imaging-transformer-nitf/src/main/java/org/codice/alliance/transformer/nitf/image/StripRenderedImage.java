@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Vector;
+
+/**
+ * A {@link RenderedImage} whose tiles are full-width horizontal strips that are rendered on
+ * demand. Only the most recently requested strip is kept in memory, so consumers that read the
+ * image from top to bottom, such as an {@link javax.imageio.ImageWriter} writing tiles that are
+ * aligned to the strips, render each strip exactly once.
+ */
+class StripRenderedImage implements RenderedImage {
+
+    private static final int IMAGE_TYPE = BufferedImage.TYPE_INT_ARGB;
+
+    private final int width;
+
+    private final int height;
+
+    private final int stripHeight;
+
+    private final double scaleX;
+
+    private final double scaleY;
+
+    private final TiledPyramidWriter.ImageRenderer renderer;
+
+    private final ColorModel colorModel;
+
+    private final SampleModel sampleModel;
+
+    private int currentStripIndex = -1;
+
+    private Raster currentStrip;
+
+    private int renderCount = 0;
+
+    /**
+     * @param width       the width of this image
+     * @param height      the height of this image
+     * @param stripHeight the height of each strip
+     * @param scaleX      the horizontal scale from the renderer's image to this image
+     * @param scaleY      the vertical scale from the renderer's image to this image
+     * @param renderer    draws the source image
+     */
+    StripRenderedImage(int width, int height, int stripHeight, double scaleX, double scaleY,
+            TiledPyramidWriter.ImageRenderer renderer) {
+        this.width = width;
+        this.height = height;
+        this.stripHeight = stripHeight;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        this.renderer = renderer;
+        this.colorModel = ColorModel.getRGBdefault();
+        this.sampleModel = colorModel.createCompatibleSampleModel(width, stripHeight);
+    }
+
+    /**
+     * @return the number of times a strip has been rendered
+     */
+    int getRenderCount() {
+        return renderCount;
+    }
+
+    @Override
+    public Vector<RenderedImage> getSources() {
+        return null;
+    }
+
+    @Override
+    public Object getProperty(String name) {
+        return Image.UndefinedProperty;
+    }
+
+    @Override
+    public String[] getPropertyNames() {
+        return null;
+    }
+
+    @Override
+    public ColorModel getColorModel() {
+        return colorModel;
+    }
+
+    @Override
+    public SampleModel getSampleModel() {
+        return sampleModel;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getMinX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinY() {
+        return 0;
+    }
+
+    @Override
+    public int getNumXTiles() {
+        return 1;
+    }
+
+    @Override
+    public int getNumYTiles() {
+        return (height + stripHeight - 1) / stripHeight;
+    }
+
+    @Override
+    public int getMinTileX() {
+        return 0;
+    }
+
+    @Override
+    public int getMinTileY() {
+        return 0;
+    }
+
+    @Override
+    public int getTileWidth() {
+        return width;
+    }
+
+    @Override
+    public int getTileHeight() {
+        return stripHeight;
+    }
+
+    @Override
+    public int getTileGridXOffset() {
+        return 0;
+    }
+
+    @Override
+    public int getTileGridYOffset() {
+        return 0;
+    }
+
+    /**
+     * @throws UncheckedIOException when the strip can't be rendered
+     */
+    @Override
+    public synchronized Raster getTile(int tileX, int tileY) {
+        if (tileX != 0 || tileY < 0 || tileY >= getNumYTiles()) {
+            throw new IllegalArgumentException(String.format(
+                    "tile (%s, %s) is outside of the image.",
+                    tileX,
+                    tileY));
+        }
+
+        if (tileY != currentStripIndex) {
+            // release the previous strip before the next one is allocated
+            currentStrip = null;
+            currentStrip = renderStrip(tileY);
+            currentStripIndex = tileY;
+        }
+
+        return currentStrip;
+    }
+
+    @Override
+    public Raster getData() {
+        return getData(new Rectangle(0, 0, width, height));
+    }
+
+    @Override
+    public Raster getData(Rectangle rectangle) {
+        WritableRaster raster = colorModel.createCompatibleWritableRaster(rectangle.width,
+                rectangle.height)
+                .createWritableTranslatedChild(rectangle.x, rectangle.y);
+        return copyData(raster);
+    }
+
+    @Override
+    public WritableRaster copyData(WritableRaster raster) {
+        WritableRaster destination = raster;
+        if (destination == null) {
+            destination = colorModel.createCompatibleWritableRaster(width, height);
+        }
+
+        Rectangle bounds = destination.getBounds()
+                .intersection(new Rectangle(0, 0, width, height));
+
+        if (bounds.isEmpty()) {
+            return destination;
+        }
+
+        int firstStrip = bounds.y / stripHeight;
+        int lastStrip = (bounds.y + bounds.height - 1) / stripHeight;
+
+        for (int strip = firstStrip; strip <= lastStrip; strip++) {
+            Raster tile = getTile(0, strip);
+            Rectangle overlap = tile.getBounds()
+                    .intersection(bounds);
+            destination.setRect(tile.createChild(overlap.x,
+                    overlap.y,
+                    overlap.width,
+                    overlap.height,
+                    overlap.x,
+                    overlap.y,
+                    null));
+        }
+
+        return destination;
+    }
+
+    private Raster renderStrip(int stripIndex) {
+        int stripY = stripIndex * stripHeight;
+
+        BufferedImage strip = new BufferedImage(width, stripHeight, IMAGE_TYPE);
+        Graphics2D graphics = strip.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setClip(0, 0, width, stripHeight);
+            graphics.translate(0, -stripY);
+            graphics.scale(scaleX, scaleY);
+            renderer.render(graphics);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            graphics.dispose();
+        }
+
+        renderCount++;
+
+        return strip.getRaster()
+                .createTranslatedChild(0, stripY);
+    }
+}
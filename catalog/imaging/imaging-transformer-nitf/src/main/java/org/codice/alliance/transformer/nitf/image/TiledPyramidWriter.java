@@ -0,0 +1,284 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.IIORegistry;
+import javax.imageio.stream.ImageOutputStream;
+
+import com.github.jaiimageio.impl.plugins.tiff.TIFFImageWriterSpi;
+
+/**
+ * Writes an image as a tiled, multi-resolution TIFF. The first image in the file is the full
+ * resolution image and each following image halves the width and height of the previous one,
+ * until the image fits within a single tile. A reader can decode only the tiles of a region, at
+ * the resolution that is needed, with {@link javax.imageio.ImageReadParam#setSourceRegion}.
+ * <p>
+ * The tiles are compressed losslessly and are written as they are encoded. Besides the full
+ * resolution image, at most two reduced resolution levels are held in memory at a time, which
+ * together are less than a third of the size of the full resolution image. Images that are too
+ * large to be held in memory can be written with
+ * {@link #write(int, int, ImageRenderer, long, boolean, ImageOutputStream)}, which renders one
+ * strip of tiles at a time.
+ */
+public class TiledPyramidWriter {
+
+    public static final String MIME_TYPE = "image/tiff";
+
+    public static final String FILE_EXTENSION = "tif";
+
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private static final String TIFF = "tiff";
+
+    private static final String COMPRESSION_TYPE = "Deflate";
+
+    /**
+     * TIFF requires the tile width and height to be multiples of 16.
+     */
+    private static final int TILE_SIZE_MULTIPLE = 16;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final int tileSize;
+
+    /**
+     * Draws an image into a graphics context.
+     */
+    @FunctionalInterface
+    public interface ImageRenderer {
+
+        /**
+         * Draw the full resolution image with its top left corner at (0, 0). The graphics context
+         * may be translated, scaled and clipped.
+         *
+         * @param graphics the graphics context. Not null.
+         * @throws IOException when the image can't be drawn.
+         */
+        void render(Graphics2D graphics) throws IOException;
+    }
+
+    static {
+        IIORegistry.getDefaultInstance().registerServiceProvider(new TIFFImageWriterSpi());
+    }
+
+    public TiledPyramidWriter() {
+        this(DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * @param tileSize the width and height of the tiles in pixels. Must be a positive multiple of
+     *                 16.
+     */
+    public TiledPyramidWriter(int tileSize) {
+        if (tileSize <= 0 || tileSize % TILE_SIZE_MULTIPLE != 0) {
+            throw new IllegalArgumentException(
+                    "method argument 'tileSize' must be a positive multiple of 16.");
+        }
+        this.tileSize = tileSize;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @param image        the full resolution image. May not be null.
+     * @param outputStream the destination of the TIFF. May not be null. It is not closed.
+     * @return the number of resolution levels that were written.
+     * @throws IOException when the image can't be written.
+     */
+    public int write(BufferedImage image, ImageOutputStream outputStream) throws IOException {
+        if (image == null) {
+            throw new IllegalArgumentException("method argument 'image' may not be null.");
+        }
+
+        if (outputStream == null) {
+            throw new IllegalArgumentException("method argument 'outputStream' may not be null.");
+        }
+
+        ImageWriter imageWriter = findImageWriter();
+        try {
+            imageWriter.setOutput(outputStream);
+
+            ImageWriteParam imageWriteParam = createImageWriteParam(imageWriter);
+
+            imageWriter.prepareWriteSequence(null);
+
+            int levels = 0;
+            BufferedImage level = image;
+            while (true) {
+                imageWriter.writeToSequence(new IIOImage(level, null, null), imageWriteParam);
+                levels++;
+
+                if (level.getWidth() <= tileSize && level.getHeight() <= tileSize) {
+                    break;
+                }
+
+                level = halve(level);
+            }
+
+            imageWriter.endWriteSequence();
+
+            return levels;
+        } finally {
+            imageWriter.dispose();
+        }
+    }
+
+    /**
+     * Write an image that is rendered in horizontal strips, so that the full resolution image is
+     * never held in memory. Each strip is a whole number of rows of tiles and is rendered once per
+     * resolution level.
+     *
+     * @param width                   the width of the full resolution image. Must be positive.
+     * @param height                  the height of the full resolution image. Must be positive.
+     * @param renderer                draws the full resolution image. May not be null.
+     * @param maxStripBytes           the maximum size in bytes of a rendered strip. A strip is
+     *                                never less than one row of tiles.
+     * @param reducedResolutionLevels <code>true</code> to write the reduced resolution levels,
+     *                                <code>false</code> to only write the full resolution image
+     * @param outputStream            the destination of the TIFF. May not be null. It is not
+     *                                closed.
+     * @return the number of resolution levels that were written.
+     * @throws IOException when the image can't be rendered or written.
+     */
+    public int write(int width, int height, ImageRenderer renderer, long maxStripBytes,
+            boolean reducedResolutionLevels, ImageOutputStream outputStream) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(
+                    "method arguments 'width' and 'height' must be greater than zero.");
+        }
+
+        if (renderer == null) {
+            throw new IllegalArgumentException("method argument 'renderer' may not be null.");
+        }
+
+        if (outputStream == null) {
+            throw new IllegalArgumentException("method argument 'outputStream' may not be null.");
+        }
+
+        ImageWriter imageWriter = findImageWriter();
+        try {
+            imageWriter.setOutput(outputStream);
+
+            ImageWriteParam imageWriteParam = createImageWriteParam(imageWriter);
+
+            imageWriter.prepareWriteSequence(null);
+
+            int levels = 0;
+            int levelWidth = width;
+            int levelHeight = height;
+            while (true) {
+                StripRenderedImage level = new StripRenderedImage(levelWidth,
+                        levelHeight,
+                        calculateStripHeight(levelWidth, levelHeight, maxStripBytes),
+                        (double) levelWidth / width,
+                        (double) levelHeight / height,
+                        renderer);
+                try {
+                    imageWriter.writeToSequence(new IIOImage(level, null, null),
+                            imageWriteParam);
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                levels++;
+
+                if (!reducedResolutionLevels || (levelWidth <= tileSize
+                        && levelHeight <= tileSize)) {
+                    break;
+                }
+
+                levelWidth = Math.max(1, (levelWidth + 1) / 2);
+                levelHeight = Math.max(1, (levelHeight + 1) / 2);
+            }
+
+            imageWriter.endWriteSequence();
+
+            return levels;
+        } finally {
+            imageWriter.dispose();
+        }
+    }
+
+    /**
+     * @return the height of the largest whole number of tile rows that fits within maxStripBytes,
+     * but at least one row of tiles and no more than the tile rows of the image
+     */
+    int calculateStripHeight(int width, int height, long maxStripBytes) {
+        long rowBytes = (long) width * BYTES_PER_PIXEL;
+        long tileRows = maxStripBytes / (rowBytes * tileSize);
+        long imageTileRows = (height + tileSize - 1) / tileSize;
+        return (int) Math.max(1, Math.min(tileRows, imageTileRows)) * tileSize;
+    }
+
+    private ImageWriteParam createImageWriteParam(ImageWriter imageWriter) {
+        ImageWriteParam imageWriteParam = imageWriter.getDefaultWriteParam();
+        imageWriteParam.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+        imageWriteParam.setTiling(tileSize, tileSize, 0, 0);
+        imageWriteParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        imageWriteParam.setCompressionType(COMPRESSION_TYPE);
+        return imageWriteParam;
+    }
+
+    private ImageWriter findImageWriter() throws IOException {
+        Iterator<ImageWriter> imageWriters = ImageIO.getImageWritersByFormatName(TIFF);
+
+        while (imageWriters.hasNext()) {
+            ImageWriter imageWriter = imageWriters.next();
+            if (imageWriter.canWriteSequence()) {
+                return imageWriter;
+            }
+            imageWriter.dispose();
+        }
+
+        throw new IOException("no image writer found for tiled TIFF images.");
+    }
+
+    private BufferedImage halve(BufferedImage image) {
+        int width = Math.max(1, (image.getWidth() + 1) / 2);
+        int height = Math.max(1, (image.getHeight() + 1) / 2);
+
+        int type = image.getType();
+        if (type == BufferedImage.TYPE_CUSTOM || type == BufferedImage.TYPE_BYTE_INDEXED
+                || type == BufferedImage.TYPE_BYTE_BINARY) {
+            type = BufferedImage.TYPE_INT_ARGB;
+        }
+
+        BufferedImage halved = new BufferedImage(width, height, type);
+
+        Graphics2D graphics = halved.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                    RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING,
+                    RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        return halved;
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.common;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ddf.catalog.data.AttributeDescriptor;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.AttributeDescriptorImpl;
+import ddf.catalog.data.impl.AttributeImpl;
+import ddf.catalog.data.impl.BasicTypes;
+import ddf.catalog.data.impl.MetacardImpl;
+
+public class SegmentHandlerTest {
+
+    private static final NitfAttribute<String> DESCRIPTION_ATTRIBUTE =
+            new NitfAttribute<String>() {
+                @Override
+                public String getLongName() {
+                    return Metacard.DESCRIPTION;
+                }
+
+                @Override
+                public String getShortName() {
+                    return Metacard.DESCRIPTION;
+                }
+
+                @Override
+                public Function<String, Serializable> getAccessorFunction() {
+                    return segment -> segment;
+                }
+
+                @Override
+                public Set<AttributeDescriptor> getAttributeDescriptors() {
+                    return Collections.singleton(new AttributeDescriptorImpl(Metacard.DESCRIPTION,
+                            true,
+                            true,
+                            false,
+                            true,
+                            BasicTypes.STRING_TYPE));
+                }
+            };
+
+    private SegmentHandler segmentHandler;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        segmentHandler = new SegmentHandler();
+        executor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Values that are added by later segments are appended, and attributes that are set by later
+     * segments replace the values of earlier segments.
+     */
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        Metacard sequential = new MetacardImpl();
+        segmentHandler.handleSegments(sequential, createSegmentHandlers(), null);
+
+        Metacard parallel = new MetacardImpl();
+        segmentHandler.handleSegments(parallel, createSegmentHandlers(), executor);
+
+        assertThat(sequential.getAttribute(Metacard.DESCRIPTION)
+                .getValues(), is(Arrays.asList("b", "c", "d")));
+        assertThat(sequential.getAttribute(Metacard.TITLE)
+                .getValues(), is(Collections.singletonList("third")));
+
+        assertThat(parallel.getAttribute(Metacard.DESCRIPTION)
+                .getValues(), is(sequential.getAttribute(Metacard.DESCRIPTION)
+                .getValues()));
+        assertThat(parallel.getAttribute(Metacard.TITLE)
+                .getValues(), is(sequential.getAttribute(Metacard.TITLE)
+                .getValues()));
+    }
+
+    @Test
+    public void testParallelAppendsToExistingValues() throws IOException {
+        Metacard metacard = new MetacardImpl();
+        metacard.setAttribute(new AttributeImpl(Metacard.DESCRIPTION, "header"));
+
+        segmentHandler.handleSegments(metacard,
+                Arrays.asList(segment -> segmentHandler.handleSegmentHeader(segment,
+                        "a",
+                        Collections.singletonList(DESCRIPTION_ATTRIBUTE)),
+                        segment -> segmentHandler.handleSegmentHeader(segment,
+                                "b",
+                                Collections.singletonList(DESCRIPTION_ATTRIBUTE))),
+                executor);
+
+        assertThat(metacard.getAttribute(Metacard.DESCRIPTION)
+                .getValues(), is(Arrays.asList("header", "a", "b")));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParallelSegmentHandlerFailure() throws IOException {
+        segmentHandler.handleSegments(new MetacardImpl(), Arrays.asList(metacard -> {
+        }, metacard -> {
+            throw new IllegalStateException("test");
+        }), executor);
+    }
+
+    @Test
+    public void testRejectedSegmentHandlersRunOnCallingThread() throws IOException {
+        Metacard sequential = new MetacardImpl();
+        segmentHandler.handleSegments(sequential, createSegmentHandlers(), null);
+
+        ExecutorService shutdownExecutor = Executors.newSingleThreadExecutor();
+        shutdownExecutor.shutdown();
+
+        Metacard metacard = new MetacardImpl();
+        segmentHandler.handleSegments(metacard, createSegmentHandlers(), shutdownExecutor);
+
+        assertThat(metacard.getAttribute(Metacard.DESCRIPTION)
+                .getValues(), is(sequential.getAttribute(Metacard.DESCRIPTION)
+                .getValues()));
+        assertThat(metacard.getAttribute(Metacard.TITLE)
+                .getValues(), is(sequential.getAttribute(Metacard.TITLE)
+                .getValues()));
+    }
+
+    @Test
+    public void testParallelUsesAddAttributeValue() throws IOException {
+        segmentHandler = new SegmentHandler() {
+            @Override
+            protected void addAttributeValue(Metacard metacard, String attributeName,
+                    Serializable value) {
+                super.addAttributeValue(metacard, attributeName, value.toString()
+                        .toUpperCase());
+            }
+        };
+
+        Metacard metacard = new MetacardImpl();
+        segmentHandler.handleSegments(metacard, createSegmentHandlers(), executor);
+
+        assertThat(metacard.getAttribute(Metacard.DESCRIPTION)
+                .getValues(), is(Arrays.asList("b", "C", "D")));
+    }
+
+    private List<Consumer<Metacard>> createSegmentHandlers() {
+        return Arrays.asList(metacard -> {
+            segmentHandler.handleSegmentHeader(metacard,
+                    "a",
+                    Collections.singletonList(DESCRIPTION_ATTRIBUTE));
+            metacard.setAttribute(new AttributeImpl(Metacard.TITLE, "first"));
+        }, metacard -> {
+            metacard.setAttribute(new AttributeImpl(Metacard.DESCRIPTION, "b"));
+            segmentHandler.handleSegmentHeader(metacard,
+                    "c",
+                    Collections.singletonList(DESCRIPTION_ATTRIBUTE));
+        }, metacard -> {
+            segmentHandler.handleSegmentHeader(metacard,
+                    "d",
+                    Collections.singletonList(DESCRIPTION_ATTRIBUTE));
+            metacard.setAttribute(new AttributeImpl(Metacard.TITLE, "third"));
+        });
+    }
+}
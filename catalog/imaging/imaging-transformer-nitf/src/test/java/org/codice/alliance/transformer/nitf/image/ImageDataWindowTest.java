@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ImageDataWindowTest {
+
+    private ImageInputStream source;
+
+    @Before
+    public void setUp() {
+        byte[] bytes = new byte[100];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        source = new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void testReadWindow() throws IOException {
+        ImageDataWindow window = new ImageDataWindow(source, 10, 20);
+
+        byte[] bytes = new byte[30];
+        assertThat(window.read(bytes, 0, bytes.length), is(20));
+        for (int i = 0; i < 20; i++) {
+            assertThat(bytes[i], is((byte) (10 + i)));
+        }
+        assertThat(window.read(), is(-1));
+        assertThat(window.length(), is(20L));
+    }
+
+    @Test
+    public void testSeek() throws IOException {
+        ImageDataWindow window = new ImageDataWindow(source, 10, 20);
+
+        window.seek(5);
+
+        assertThat(window.read(), is(15));
+        assertThat(window.getStreamPosition(), is(6L));
+    }
+
+    @Test
+    public void testWindowsShareSource() throws IOException {
+        ImageDataWindow first = new ImageDataWindow(source, 0, 10);
+        ImageDataWindow second = new ImageDataWindow(source, 50, 10);
+
+        assertThat(first.read(), is(0));
+        assertThat(second.read(), is(50));
+        assertThat(first.read(), is(1));
+
+        second.close();
+        assertThat(source.read(), is(2));
+    }
+}
@@ -396,6 +396,89 @@ public class ImageInputTransformerTest {
 
     }
 
+    private void createNitfWithMultipleImageSegments(File file, List<String> cloudCovers) {
+        NitfHeader header = NitfHeaderFactory.getDefault(FileType.NITF_TWO_ONE);
+        NitfCreationFlow nitfCreationFlow = new NitfCreationFlow().fileHeader(() -> header);
+
+        for (String cloudCover : cloudCovers) {
+            Tre piaimc = TreFactory.getDefault("PIAIMC", TreSource.ImageExtendedSubheaderData);
+            piaimc.add(new TreEntry("CLOUDCVR", cloudCover, "string"));
+            piaimc.add(new TreEntry("SRP", "Y", "string"));
+            piaimc.add(new TreEntry("SENSMODE", str(12), "string"));
+            piaimc.add(new TreEntry("SENSNAME", str(18), "string"));
+            piaimc.add(new TreEntry("SOURCE", str(255), "string"));
+            piaimc.add(new TreEntry("COMGEN", "09", "string"));
+            piaimc.add(new TreEntry("SUBQUAL", str(1), "string"));
+            piaimc.add(new TreEntry("PIAMSNNUM", str(7), "string"));
+            piaimc.add(new TreEntry("CAMSPECS", str(32), "string"));
+            piaimc.add(new TreEntry("PROJID", str(2), "string"));
+            piaimc.add(new TreEntry("GENERATION", "8", "string"));
+            piaimc.add(new TreEntry("ESD", "Y", "string"));
+            piaimc.add(new TreEntry("OTHERCOND", str(2), "string"));
+            piaimc.add(new TreEntry("MEANGSD", "00000.0", "string"));
+            piaimc.add(new TreEntry("IDATUM", str(3), "string"));
+            piaimc.add(new TreEntry("IELLIP", str(3), "string"));
+            piaimc.add(new TreEntry("PREPROC", str(2), "string"));
+            piaimc.add(new TreEntry("IPROJ", str(2), "string"));
+            piaimc.add(new TreEntry("SATTRACK_PATH", "0000", "string"));
+            piaimc.add(new TreEntry("SATTRACK_ROW", "0000", "string"));
+
+            ImageSegment imageSegment = ImageSegmentFactory.getDefault(FileType.NITF_TWO_ONE);
+            imageSegment.addImageBand(new ImageBand());
+            imageSegment.getTREsRawStructure()
+                    .add(piaimc);
+            nitfCreationFlow.imageSegment(() -> imageSegment);
+        }
+
+        nitfCreationFlow.write(file.getAbsolutePath());
+    }
+
+    private Metacard transformMultipleImageSegments(File file, int segmentProcessingThreads)
+            throws IOException, NitfFormatException {
+        NitfImageTransformer imageTransformer = new NitfImageTransformer();
+        imageTransformer.setSegmentProcessingThreads(segmentProcessingThreads);
+        try (InputStream inputStream = new FileInputStream(file)) {
+            Metacard metacard = metacardFactory.createMetacard("multipleImageSegmentsTest");
+            NitfSegmentsFlow nitfSegmentsFlow = new NitfParserAdapter().parseNitf(inputStream);
+            headerTransformer.transform(nitfSegmentsFlow, metacard);
+            return imageTransformer.transform(nitfSegmentsFlow, metacard);
+        } finally {
+            imageTransformer.destroy();
+        }
+    }
+
+    @Test
+    public void testParallelSegmentProcessingMatchesSequential()
+            throws IOException, NitfFormatException {
+        List<String> cloudCovers = Arrays.asList("070", "020", "045", "090", "010", "030");
+        File nitfFile = File.createTempFile("nitf-", ".ntf");
+        try {
+            createNitfWithMultipleImageSegments(nitfFile, cloudCovers);
+
+            Metacard sequential = transformMultipleImageSegments(nitfFile, 0);
+            Metacard parallel = transformMultipleImageSegments(nitfFile, 4);
+
+            assertThat(sequential.getAttribute(Isr.CLOUD_COVER)
+                    .getValues(), is(Arrays.asList(70, 20, 45, 90, 10, 30)));
+
+            for (AttributeDescriptor descriptor : sequential.getMetacardType()
+                    .getAttributeDescriptors()) {
+                Attribute expected = sequential.getAttribute(descriptor.getName());
+                Attribute actual = parallel.getAttribute(descriptor.getName());
+                if (expected == null) {
+                    assertThat(descriptor.getName(), actual, nullValue());
+                } else {
+                    assertNotNull(descriptor.getName(), actual);
+                    assertThat(descriptor.getName(),
+                            actual.getValues(),
+                            is(expected.getValues()));
+                }
+            }
+        } finally {
+            nitfFile.delete();
+        }
+    }
+
     @Test
     public void testCsexraSnowDepthMin() throws IOException, NitfFormatException {
         testCsexra(metacard -> assertThat(((Float) metacard.getAttribute(Isr.SNOW_DEPTH_MIN_CENTIMETERS)
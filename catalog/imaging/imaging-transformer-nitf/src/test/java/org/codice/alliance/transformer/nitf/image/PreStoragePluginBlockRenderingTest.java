@@ -0,0 +1,406 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.codice.alliance.catalog.core.api.types.Isr;
+import org.codice.alliance.transformer.nitf.MetacardFactory;
+import org.codice.imaging.nitf.core.common.FileType;
+import org.codice.imaging.nitf.core.header.NitfHeader;
+import org.codice.imaging.nitf.core.header.NitfHeaderFactory;
+import org.codice.imaging.nitf.core.image.ImageBand;
+import org.codice.imaging.nitf.core.image.ImageCategory;
+import org.codice.imaging.nitf.core.image.ImageCompression;
+import org.codice.imaging.nitf.core.image.ImageMode;
+import org.codice.imaging.nitf.core.image.ImageRepresentation;
+import org.codice.imaging.nitf.core.image.ImageSegment;
+import org.codice.imaging.nitf.core.image.ImageSegmentFactory;
+import org.codice.imaging.nitf.core.image.PixelValueType;
+import org.codice.imaging.nitf.fluent.NitfCreationFlow;
+import org.codice.imaging.nitf.fluent.NitfParserInputFlow;
+import org.codice.imaging.nitf.render.NitfRenderer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import ddf.catalog.content.data.ContentItem;
+import ddf.catalog.content.operation.CreateStorageRequest;
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.types.Core;
+
+/**
+ * Renders a synthetic multi-block NITF with a rendering memory budget that is smaller than the
+ * image, so that the image is rendered in several strips.
+ */
+public class PreStoragePluginBlockRenderingTest {
+
+    private static final int BLOCK_SIZE = 256;
+
+    private static final int BLOCKS_PER_ROW = 8;
+
+    private static final int BLOCKS_PER_COLUMN = 6;
+
+    private static final int WIDTH = BLOCK_SIZE * BLOCKS_PER_ROW;
+
+    private static final int HEIGHT = BLOCK_SIZE * BLOCKS_PER_COLUMN;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private NitfPreStoragePlugin nitfPreStoragePlugin;
+
+    private CreateStorageRequest createStorageRequest;
+
+    private List<ContentItem> contentItems;
+
+    private Metacard metacard;
+
+    private ContentItem contentItem;
+
+    private File nitfFile;
+
+    @Before
+    public void setUp() throws IOException {
+        nitfFile = createMultiBlockNitf();
+
+        nitfPreStoragePlugin = new NitfPreStoragePlugin();
+        nitfPreStoragePlugin.setBlockRendering(true);
+        nitfPreStoragePlugin.setMaxRenderingMemory(1);
+
+        metacard = mock(Metacard.class);
+        contentItem = mock(ContentItem.class);
+        when(contentItem.getMetacard()).thenReturn(metacard);
+        when(contentItem.getId()).thenReturn("101ABC");
+        when(contentItem.getInputStream()).thenReturn(new FileInputStream(nitfFile));
+        when(contentItem.getMimeTypeRawData()).thenReturn(MetacardFactory.MIME_TYPE.toString());
+
+        contentItems = new ArrayList<>();
+        contentItems.add(contentItem);
+
+        createStorageRequest = mock(CreateStorageRequest.class);
+        when(createStorageRequest.getContentItems()).thenReturn(contentItems);
+    }
+
+    @Test
+    public void testBlockRendering() throws Exception {
+        nitfPreStoragePlugin.process(createStorageRequest);
+
+        ArgumentCaptor<Attribute> attributeArgumentCaptor = ArgumentCaptor.forClass(
+                Attribute.class);
+        verify(metacard, atLeastOnce()).setAttribute(attributeArgumentCaptor.capture());
+
+        assertThat(findValue(attributeArgumentCaptor.getAllValues(), Core.THUMBNAIL),
+                is(notNullValue()));
+        assertThat(findValue(attributeArgumentCaptor.getAllValues(), Isr.OVERVIEW_WIDTH),
+                is(1024));
+        assertThat(findValue(attributeArgumentCaptor.getAllValues(), Isr.OVERVIEW_HEIGHT),
+                is(768));
+        assertThat(findValue(attributeArgumentCaptor.getAllValues(), Isr.ORIGINAL_WIDTH),
+                is(WIDTH));
+        assertThat(findValue(attributeArgumentCaptor.getAllValues(), Isr.ORIGINAL_HEIGHT),
+                is(HEIGHT));
+
+        assertThat(contentItems.size(), is(3));
+
+        ContentItem overview = contentItems.get(1);
+        assertThat(overview.getQualifier(), is("overview"));
+        try (InputStream inputStream = overview.getInputStream()) {
+            BufferedImage overviewImage = ImageIO.read(inputStream);
+            assertThat(overviewImage.getWidth(), is(1024));
+            assertThat(overviewImage.getHeight(), is(768));
+        }
+
+        ContentItem original = contentItems.get(2);
+        assertThat(original.getQualifier(), is("original"));
+        assertThat(original.getMimeTypeRawData(), is(TiledPyramidWriter.MIME_TYPE));
+
+        BufferedImage expected = renderInMemory();
+
+        try (InputStream inputStream = original.getInputStream()) {
+            BufferedImage originalImage = ImageIO.read(inputStream);
+            assertThat(originalImage.getWidth(), is(WIDTH));
+            assertThat(originalImage.getHeight(), is(HEIGHT));
+
+            for (int y = 0; y < HEIGHT; y += BLOCK_SIZE / 4) {
+                for (int x = 0; x < WIDTH; x += BLOCK_SIZE / 4) {
+                    assertThat(originalImage.getRGB(x, y), is(expected.getRGB(x, y)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStripsFollowMaxStripBytes() throws Exception {
+        TiledPyramidWriter tiledPyramidWriter = new TiledPyramidWriter(BLOCK_SIZE);
+        long maxStripBytes = (long) WIDTH * BYTES_PER_PIXEL * BLOCK_SIZE * 2;
+        int stripHeight = tiledPyramidWriter.calculateStripHeight(WIDTH, HEIGHT, maxStripBytes);
+
+        assertThat(stripHeight, is(BLOCK_SIZE * 2));
+
+        List<Rectangle> strips = new ArrayList<>();
+        List<Integer> renderedRows = new ArrayList<>();
+
+        writePyramid(tiledPyramidWriter, maxStripBytes, false, strips, renderedRows);
+
+        assertThat(strips, hasSize(HEIGHT / stripHeight));
+        for (int strip = 0; strip < strips.size(); strip++) {
+            assertThat(strips.get(strip), is(new Rectangle(0, strip * stripHeight, WIDTH,
+                    stripHeight)));
+        }
+        assertThat(renderedRows, hasSize(BLOCKS_PER_COLUMN));
+    }
+
+    @Test
+    public void testWholeSegmentIsNeverRendered() throws Exception {
+        List<Rectangle> strips = new ArrayList<>();
+        List<Integer> renderedRows = new ArrayList<>();
+
+        writePyramid(new TiledPyramidWriter(BLOCK_SIZE),
+                (long) WIDTH * BYTES_PER_PIXEL * BLOCK_SIZE,
+                true,
+                strips,
+                renderedRows);
+
+        assertThat(renderedRows, is(not(empty())));
+        for (int rows : renderedRows) {
+            assertThat(rows, is(BLOCK_SIZE));
+        }
+    }
+
+    /**
+     * The blocks of a compressed image segment can't be read separately, so the segment is decoded
+     * once instead of once for every strip of every level of the pyramid.
+     */
+    @Test
+    public void testCompressedSegmentIsDecodedOnce() throws Exception {
+        File compressedNitf = createCompressedNitf();
+        when(contentItem.getInputStream()).thenReturn(new FileInputStream(compressedNitf));
+
+        BufferedImage decodedImage = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        NitfRenderer nitfRenderer = spy(new NitfRenderer());
+        doReturn(decodedImage).when(nitfRenderer)
+                .render(any(ImageSegment.class));
+        nitfPreStoragePlugin.setNitfRendererFactory(() -> nitfRenderer);
+        nitfPreStoragePlugin.setCreateTiledPyramid(true);
+
+        nitfPreStoragePlugin.process(createStorageRequest);
+
+        verify(nitfRenderer, times(1)).render(any(ImageSegment.class));
+        verify(nitfRenderer, never()).render(any(ImageSegment.class), any(Graphics2D.class));
+
+        assertThat(contentItems.size(), is(3));
+        assertThat(contentItems.get(1)
+                .getQualifier(), is("overview"));
+        assertThat(contentItems.get(2)
+                .getMimeTypeRawData(), is(TiledPyramidWriter.MIME_TYPE));
+
+        ArgumentCaptor<Attribute> attributeArgumentCaptor = ArgumentCaptor.forClass(
+                Attribute.class);
+        verify(metacard, atLeastOnce()).setAttribute(attributeArgumentCaptor.capture());
+        assertThat(findValue(attributeArgumentCaptor.getAllValues(), Isr.ORIGINAL_WIDTH),
+                is(WIDTH));
+        assertThat(findValue(attributeArgumentCaptor.getAllValues(), Isr.ORIGINAL_HEIGHT),
+                is(HEIGHT));
+    }
+
+    /**
+     * Parse the NITF once and write its first image segment as a tiled pyramid, recording the clip
+     * of each strip and the number of rows of each image segment that is rendered.
+     */
+    private void writePyramid(TiledPyramidWriter tiledPyramidWriter, long maxStripBytes,
+            boolean reducedResolutionLevels, List<Rectangle> strips, List<Integer> renderedRows)
+            throws Exception {
+        NitfRenderer nitfRenderer = new NitfRenderer();
+        new NitfParserInputFlow().file(nitfFile.getAbsolutePath())
+                .allData()
+                .forEachImageSegment(segment -> {
+                    try (ImageOutputStream outputStream = new MemoryCacheImageOutputStream(
+                            new ByteArrayOutputStream())) {
+                        BlockRowRenderer blockRowRenderer = new BlockRowRenderer(segment,
+                                (blockRow, graphics) -> {
+                                    assertThat((int) blockRow.getNumberOfBlocksPerColumn(), is(1));
+                                    renderedRows.add((int) blockRow.getNumberOfRows());
+                                    nitfRenderer.render(blockRow, graphics);
+                                });
+                        assertThat(blockRowRenderer.isRenderedByBlockRow(), is(true));
+
+                        tiledPyramidWriter.write(WIDTH, HEIGHT, graphics -> {
+                            strips.add(graphics.getClipBounds());
+                            blockRowRenderer.render(graphics);
+                        }, maxStripBytes, reducedResolutionLevels, outputStream);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .end();
+    }
+
+    private Object findValue(List<Attribute> attributes, String name) {
+        return attributes.stream()
+                .filter(attribute -> attribute.getName()
+                        .equals(name))
+                .map(Attribute::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static int blockValue(int blockRow, int blockColumn) {
+        return (blockRow * BLOCKS_PER_ROW + blockColumn) * 5;
+    }
+
+    /**
+     * Create an uncompressed, 8-bit monochrome NITF where each block has a single pixel value.
+     */
+    private File createMultiBlockNitf() throws IOException {
+        byte[] data = new byte[WIDTH * HEIGHT];
+        int index = 0;
+        for (int blockRow = 0; blockRow < BLOCKS_PER_COLUMN; blockRow++) {
+            for (int blockColumn = 0; blockColumn < BLOCKS_PER_ROW; blockColumn++) {
+                byte value = (byte) blockValue(blockRow, blockColumn);
+                for (int pixel = 0; pixel < BLOCK_SIZE * BLOCK_SIZE; pixel++) {
+                    data[index++] = value;
+                }
+            }
+        }
+
+        NitfHeader header = NitfHeaderFactory.getDefault(FileType.NITF_TWO_ONE);
+
+        ImageSegment imageSegment = ImageSegmentFactory.getDefault(FileType.NITF_TWO_ONE);
+        imageSegment.setNumberOfRows(HEIGHT);
+        imageSegment.setNumberOfColumns(WIDTH);
+        imageSegment.setPixelValueType(PixelValueType.INTEGER);
+        imageSegment.setImageRepresentation(ImageRepresentation.MONOCHROME);
+        imageSegment.setImageCategory(ImageCategory.VISUAL);
+        imageSegment.setActualBitsPerPixelPerBand(8);
+        imageSegment.setNumberOfBitsPerPixelPerBand(8);
+        imageSegment.setImageCompression(ImageCompression.NOTCOMPRESSED);
+        imageSegment.setImageMode(ImageMode.BLOCKINTERLEVE);
+        imageSegment.setNumberOfBlocksPerRow(BLOCKS_PER_ROW);
+        imageSegment.setNumberOfBlocksPerColumn(BLOCKS_PER_COLUMN);
+        imageSegment.setNumberOfPixelsPerBlockHorizontal(BLOCK_SIZE);
+        imageSegment.setNumberOfPixelsPerBlockVertical(BLOCK_SIZE);
+        imageSegment.addImageBand(new ImageBand());
+        imageSegment.setData(new MemoryCacheImageInputStream(new ByteArrayInputStream(data)));
+        imageSegment.setDataLength(data.length);
+
+        File file = temporaryFolder.newFile("multi-block.ntf");
+        new NitfCreationFlow().fileHeader(() -> header)
+                .imageSegment(() -> imageSegment)
+                .write(file.getAbsolutePath());
+        return file;
+    }
+
+    /**
+     * Create a JPEG compressed, 8-bit monochrome NITF with a single block.
+     */
+    private File createCompressedNitf() throws IOException {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", jpeg);
+        byte[] data = jpeg.toByteArray();
+
+        NitfHeader header = NitfHeaderFactory.getDefault(FileType.NITF_TWO_ONE);
+
+        ImageSegment imageSegment = ImageSegmentFactory.getDefault(FileType.NITF_TWO_ONE);
+        imageSegment.setNumberOfRows(HEIGHT);
+        imageSegment.setNumberOfColumns(WIDTH);
+        imageSegment.setPixelValueType(PixelValueType.INTEGER);
+        imageSegment.setImageRepresentation(ImageRepresentation.MONOCHROME);
+        imageSegment.setImageCategory(ImageCategory.VISUAL);
+        imageSegment.setActualBitsPerPixelPerBand(8);
+        imageSegment.setNumberOfBitsPerPixelPerBand(8);
+        imageSegment.setImageCompression(ImageCompression.JPEG);
+        imageSegment.setCompressionRate("00.0");
+        imageSegment.setImageMode(ImageMode.BLOCKINTERLEVE);
+        imageSegment.setNumberOfBlocksPerRow(1);
+        imageSegment.setNumberOfBlocksPerColumn(1);
+        imageSegment.setNumberOfPixelsPerBlockHorizontal(WIDTH);
+        imageSegment.setNumberOfPixelsPerBlockVertical(HEIGHT);
+        imageSegment.addImageBand(new ImageBand());
+        imageSegment.setData(new MemoryCacheImageInputStream(new ByteArrayInputStream(data)));
+        imageSegment.setDataLength(data.length);
+
+        File file = temporaryFolder.newFile("compressed.ntf");
+        new NitfCreationFlow().fileHeader(() -> header)
+                .imageSegment(() -> imageSegment)
+                .write(file.getAbsolutePath());
+        return file;
+    }
+
+    /**
+     * Render the whole image segment into a single image, the same way as when block rendering
+     * is disabled.
+     */
+    private BufferedImage renderInMemory() throws Exception {
+        AtomicReference<BufferedImage> rendered = new AtomicReference<>();
+        NitfRenderer renderer = new NitfRenderer();
+        try (InputStream inputStream = new FileInputStream(nitfFile)) {
+            new NitfParserInputFlow().inputStream(inputStream)
+                    .allData()
+                    .forEachImageSegment(segment -> {
+                        try {
+                            rendered.set(renderer.render(segment));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .end();
+        }
+
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.drawImage(rendered.get(), 0, 0, null);
+        graphics.dispose();
+        return image;
+    }
+}
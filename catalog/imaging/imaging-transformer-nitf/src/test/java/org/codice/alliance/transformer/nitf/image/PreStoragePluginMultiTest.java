@@ -145,7 +145,7 @@ public class PreStoragePluginMultiTest {
 
     private void validateNitf(ContentItem contentItem, Metacard metacard) {
         verify(contentItem, times(2)).getId();
-        verify(metacard, times(3)).setAttribute(attributeArgumentCaptor.capture());
+        verify(metacard, times(7)).setAttribute(attributeArgumentCaptor.capture());
         Attribute thumbnail1 = attributeArgumentCaptor.getAllValues()
                 .get(0);
         Attribute overview1 = attributeArgumentCaptor.getAllValues()
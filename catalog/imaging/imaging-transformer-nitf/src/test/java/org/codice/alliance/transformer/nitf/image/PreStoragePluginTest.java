@@ -28,6 +28,7 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.codice.alliance.catalog.core.api.types.Isr;
 import org.codice.alliance.transformer.nitf.MetacardFactory;
 import org.junit.Before;
 import org.junit.Test;
@@ -105,6 +106,34 @@ public class PreStoragePluginTest {
         validate();
     }
 
+    @Test
+    public void testDerivedImageSizeAttributes() throws PluginExecutionException {
+        nitfPreStoragePlugin.setMaxSideLength(256);
+        nitfPreStoragePlugin.process(createStorageRequest);
+        verify(metacard, times(7)).setAttribute(attributeArgumentCaptor.capture());
+        List<Attribute> attributes = attributeArgumentCaptor.getAllValues();
+        assertAttribute(attributes.get(2), Isr.OVERVIEW_WIDTH, 256);
+        assertAttribute(attributes.get(3), Isr.OVERVIEW_HEIGHT, 256);
+        assertAttribute(attributes.get(5), Isr.ORIGINAL_WIDTH, 1024);
+        assertAttribute(attributes.get(6), Isr.ORIGINAL_HEIGHT, 1024);
+    }
+
+    @Test
+    public void testCreateTiledPyramid() throws PluginExecutionException, IOException {
+        nitfPreStoragePlugin.setCreateTiledPyramid(true);
+        nitfPreStoragePlugin.process(createStorageRequest);
+        validate();
+
+        List<ContentItem> contentItems = createStorageRequest.getContentItems();
+        assertThat(contentItems.size(), is(3));
+
+        ContentItem original = contentItems.get(2);
+        assertThat(original.getQualifier(), is("original"));
+        assertThat(original.getMimeTypeRawData(), is(TiledPyramidWriter.MIME_TYPE));
+        assertThat(original.getFilename(), is("original.tif"));
+        assertThat(original.getSize() > 0, is(true));
+    }
+
     /**
      * Test that the plugin handles non-nitf content items
      *
@@ -123,7 +152,7 @@ public class PreStoragePluginTest {
 
     private void validate() {
         verify(contentItem, times(2)).getId();
-        verify(metacard, times(3)).setAttribute(attributeArgumentCaptor.capture());
+        verify(metacard, times(7)).setAttribute(attributeArgumentCaptor.capture());
         Attribute thumbnail = attributeArgumentCaptor.getAllValues()
                 .get(0);
         Attribute overview = attributeArgumentCaptor.getAllValues()
@@ -132,6 +161,19 @@ public class PreStoragePluginTest {
         assertThat(thumbnail.getValue(), is(notNullValue()));
         assertThat(overview.getName(), is(Core.DERIVED_RESOURCE_URI));
         assertThat(overview.getValue(), is(notNullValue()));
+        assertAttribute(attributeArgumentCaptor.getAllValues()
+                .get(2), Isr.OVERVIEW_WIDTH, 1024);
+        assertAttribute(attributeArgumentCaptor.getAllValues()
+                .get(3), Isr.OVERVIEW_HEIGHT, 1024);
+        assertAttribute(attributeArgumentCaptor.getAllValues()
+                .get(5), Isr.ORIGINAL_WIDTH, 1024);
+        assertAttribute(attributeArgumentCaptor.getAllValues()
+                .get(6), Isr.ORIGINAL_HEIGHT, 1024);
+    }
+
+    private void assertAttribute(Attribute attribute, String name, int value) {
+        assertThat(attribute.getName(), is(name));
+        assertThat(attribute.getValue(), is(value));
     }
 
     private InputStream getInputStream(String filename) {
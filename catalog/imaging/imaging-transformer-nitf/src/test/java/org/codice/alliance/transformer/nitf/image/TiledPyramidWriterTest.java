@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.nitf.image;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.junit.Test;
+
+public class TiledPyramidWriterTest {
+
+    @Test
+    public void testWritePyramid() throws IOException {
+        BufferedImage image = createImage(600, 300);
+
+        byte[] tiff = write(new TiledPyramidWriter(256), image, 3);
+
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(tiff))) {
+            ImageReader imageReader = findImageReader(inputStream);
+            try {
+                imageReader.setInput(inputStream);
+
+                assertThat(imageReader.getNumImages(true), is(3));
+                assertThat(imageReader.isImageTiled(0), is(true));
+                assertThat(imageReader.getTileWidth(0), is(256));
+                assertThat(imageReader.getTileHeight(0), is(256));
+                assertThat(imageReader.getWidth(1), is(300));
+                assertThat(imageReader.getHeight(1), is(150));
+                assertThat(imageReader.getWidth(2), is(150));
+                assertThat(imageReader.getHeight(2), is(75));
+
+                BufferedImage level0 = imageReader.read(0);
+                assertThat(level0.getWidth(), is(600));
+                assertThat(level0.getHeight(), is(300));
+                for (int y = 0; y < image.getHeight(); y += 7) {
+                    for (int x = 0; x < image.getWidth(); x += 7) {
+                        assertThat(level0.getRGB(x, y), is(image.getRGB(x, y)));
+                    }
+                }
+            } finally {
+                imageReader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Each strip of each level is rendered exactly once, and the full resolution image is written
+     * without loss.
+     */
+    @Test
+    public void testWriteInStrips() throws IOException {
+        BufferedImage image = createImage(600, 300);
+        AtomicInteger renderCount = new AtomicInteger();
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream outputStream = ImageIO.createImageOutputStream(
+                byteArrayOutputStream)) {
+            int levels = new TiledPyramidWriter(256).write(600, 300, graphics -> {
+                renderCount.incrementAndGet();
+                graphics.drawImage(image, 0, 0, null);
+            }, 600 * 4 * 256, true, outputStream);
+
+            assertThat(levels, is(3));
+        }
+
+        assertThat(renderCount.get(), is(4));
+
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(byteArrayOutputStream.toByteArray()))) {
+            ImageReader imageReader = findImageReader(inputStream);
+            try {
+                imageReader.setInput(inputStream);
+
+                assertThat(imageReader.getNumImages(true), is(3));
+                assertThat(imageReader.getWidth(2), is(150));
+                assertThat(imageReader.getHeight(2), is(75));
+
+                BufferedImage level0 = imageReader.read(0);
+                assertThat(level0.getWidth(), is(600));
+                assertThat(level0.getHeight(), is(300));
+                for (int y = 0; y < image.getHeight(); y += 7) {
+                    for (int x = 0; x < image.getWidth(); x += 7) {
+                        assertThat(level0.getRGB(x, y), is(image.getRGB(x, y)));
+                    }
+                }
+            } finally {
+                imageReader.dispose();
+            }
+        }
+    }
+
+    @Test
+    public void testWriteFullResolutionOnlyInStrips() throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream outputStream = ImageIO.createImageOutputStream(
+                byteArrayOutputStream)) {
+            assertThat(new TiledPyramidWriter(256).write(600, 300, graphics -> {
+            }, 0, false, outputStream), is(1));
+        }
+    }
+
+    @Test
+    public void testCalculateStripHeight() {
+        TiledPyramidWriter tiledPyramidWriter = new TiledPyramidWriter(256);
+
+        assertThat(tiledPyramidWriter.calculateStripHeight(1000, 5000, 1000 * 4 * 256 * 3),
+                is(768));
+        assertThat(tiledPyramidWriter.calculateStripHeight(1000, 5000, 1), is(256));
+        assertThat(tiledPyramidWriter.calculateStripHeight(1000, 300, Long.MAX_VALUE), is(512));
+    }
+
+    @Test
+    public void testWriteSingleTileImage() throws IOException {
+        write(new TiledPyramidWriter(), createImage(100, 50), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTileSize() {
+        new TiledPyramidWriter(100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullImage() throws IOException {
+        new TiledPyramidWriter().write(null, ImageIO.createImageOutputStream(
+                new ByteArrayOutputStream()));
+    }
+
+    private byte[] write(TiledPyramidWriter tiledPyramidWriter, BufferedImage image,
+            int expectedLevels) throws IOException {
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream outputStream = ImageIO.createImageOutputStream(
+                byteArrayOutputStream)) {
+            assertThat(tiledPyramidWriter.write(image, outputStream), is(expectedLevels));
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    private ImageReader findImageReader(ImageInputStream inputStream) {
+        Iterator<ImageReader> imageReaders = ImageIO.getImageReaders(inputStream);
+        assertThat(imageReaders.hasNext(), is(true));
+        return imageReaders.next();
+    }
+
+    private BufferedImage createImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | (x ^ y)
+                        & 0xff);
+            }
+        }
+        return image;
+    }
+}
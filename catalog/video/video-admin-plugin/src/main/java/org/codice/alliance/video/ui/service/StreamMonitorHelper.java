@@ -18,6 +18,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalLong;
 import java.util.stream.Collectors;
 
 import javax.management.InstanceAlreadyExistsException;
@@ -31,6 +32,7 @@ import javax.management.ObjectName;
 import org.apache.commons.collections.MapUtils;
 import org.codice.alliance.video.stream.mpegts.StreamMonitor;
 import org.codice.alliance.video.stream.mpegts.UdpStreamMonitor;
+import org.codice.alliance.video.stream.mpegts.ingest.UdpTransport;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
@@ -49,6 +51,14 @@ public class StreamMonitorHelper implements StreamMonitorHelperMBean {
 
     private static final String ID = "id";
 
+    private static final String TRANSPORT = "transport";
+
+    private static final String KERNEL_DROP_COUNT = "kernelDropCount";
+
+    private static final String CONTINUITY_ERROR_COUNT = "continuityErrorCount";
+
+    private static final String MISSING_PACKET_COUNT = "missingPacketCount";
+
     private ObjectName objectName;
 
     private MBeanServer mBeanServer;
@@ -128,11 +138,53 @@ public class StreamMonitorHelper implements StreamMonitorHelperMBean {
                     map.put(START_TIME, udpStreamMonitor.getStartDateAsString());
                     map.put(UdpStreamMonitor.METATYPE_FILENAME_TEMPLATE,
                             udpStreamMonitor.getFileNameTemplate());
+                    putLossCounters(map, udpStreamMonitor);
                     return map;
                 })
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<Map<String, Object>> streamMetrics() {
+        Map<String, StreamMonitor> udpStreamMonitors = getUdpStreamMonitorServices();
+
+        if (MapUtils.isEmpty(udpStreamMonitors)) {
+            return null;
+        }
+
+        return udpStreamMonitors.entrySet()
+                .stream()
+                .filter(entry -> entry.getValue() instanceof UdpStreamMonitor)
+                .map(stringStreamMonitorEntry -> {
+                    UdpStreamMonitor udpStreamMonitor =
+                            (UdpStreamMonitor) stringStreamMonitorEntry.getValue();
+                    Map<String, Object> map = new HashMap<>();
+                    map.put(ID, stringStreamMonitorEntry.getKey());
+                    map.put(MONITORING, udpStreamMonitor.isMonitoring());
+                    map.putAll(udpStreamMonitor.getStreamMetrics()
+                            .toMap());
+                    return map;
+                })
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The kernel drop count is the number of datagrams discarded by the local sockets, and the
+     * continuity counters count the packets missing from the stream for any reason, so the
+     * difference between them is the loss that happened before the datagrams reached this host.
+     */
+    private void putLossCounters(Map<String, Object> map, UdpStreamMonitor udpStreamMonitor) {
+        map.put(TRANSPORT,
+                udpStreamMonitor.getTransport()
+                        .map(UdpTransport::name)
+                        .orElse(null));
+        OptionalLong kernelDropCount = udpStreamMonitor.getKernelDropCount();
+        map.put(KERNEL_DROP_COUNT,
+                kernelDropCount.isPresent() ? kernelDropCount.getAsLong() : null);
+        map.put(CONTINUITY_ERROR_COUNT, udpStreamMonitor.getContinuityErrorCount());
+        map.put(MISSING_PACKET_COUNT, udpStreamMonitor.getMissingPacketCount());
+    }
+
     public void init() {
         registerMbean();
     }
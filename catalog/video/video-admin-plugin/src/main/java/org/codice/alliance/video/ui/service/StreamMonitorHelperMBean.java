@@ -39,4 +39,12 @@ public interface StreamMonitorHelperMBean {
      */
     List<Map<String, Object>> udpStreamMonitors();
 
+    /**
+     * Gets the throughput and latency metrics of all the existing
+     * {@link org.codice.alliance.video.stream.mpegts.UdpStreamMonitor}s
+     *
+     * @return a list of metrics, each with the id of the monitor
+     */
+    List<Map<String, Object>> streamMetrics();
+
 }
@@ -66,7 +66,10 @@ define(['backbone',
                             running: value.monitoring,
                             fileNameTemplate : value.filenameTemplate,
                             distanceTolerance : value.distanceTolerance,
-                            metacardUpdateInitialDelay : value.metacardUpdateInitialDelay });
+                            metacardUpdateInitialDelay : value.metacardUpdateInitialDelay,
+                            transport : value.transport,
+                            kernelDropCount : value.kernelDropCount !== null ? value.kernelDropCount : 'n/a',
+                            missingPacketCount : value.missingPacketCount });
                     });
                    return parsedData;
             },
@@ -30,9 +30,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import org.codice.alliance.video.stream.mpegts.StreamMonitor;
 import org.codice.alliance.video.stream.mpegts.UdpStreamMonitor;
+import org.codice.alliance.video.stream.mpegts.ingest.UdpTransport;
+import org.codice.alliance.video.stream.mpegts.metrics.StreamMetrics;
 import org.codice.alliance.video.ui.service.StreamMonitorHelper;
 import org.junit.Before;
 import org.junit.Test;
@@ -51,6 +54,8 @@ public class StreamMonitorHelperTest {
 
     private boolean isMonitoring;
 
+    private StreamMetrics streamMetrics;
+
     private class OtherStreamMonitor implements StreamMonitor {
 
         @Override
@@ -95,6 +100,12 @@ public class StreamMonitorHelperTest {
                 serviceReferences);
         when(udpStreamMonitor.getTitle()).thenReturn(Optional.of("test"));
         when(udpStreamMonitor.getStreamUri()).thenReturn(Optional.of(uri));
+        when(udpStreamMonitor.getTransport()).thenReturn(Optional.of(UdpTransport.EPOLL));
+        when(udpStreamMonitor.getKernelDropCount()).thenReturn(OptionalLong.of(3));
+        when(udpStreamMonitor.getContinuityErrorCount()).thenReturn(2L);
+        when(udpStreamMonitor.getMissingPacketCount()).thenReturn(21L);
+        streamMetrics = new StreamMetrics();
+        when(udpStreamMonitor.getStreamMetrics()).thenReturn(streamMetrics);
         //when(udpStreamMonitor.startMonitoring()).thenReturn(Optional.of(uri));
         doAnswer(invocation -> {
             isMonitoring = true;
@@ -144,6 +155,39 @@ public class StreamMonitorHelperTest {
         assertThat(objectMap.get(UdpStreamMonitor.METATYPE_MONITORED_ADDRESS), is(TEST_URL));
     }
 
+    @Test
+    public void testStreamMonitorsLossCounters() {
+        Map<String, Object> objectMap = stream.udpStreamMonitors()
+                .get(0);
+        assertThat(objectMap.get("transport"), is("EPOLL"));
+        assertThat(objectMap.get("kernelDropCount"), is(3L));
+        assertThat(objectMap.get("continuityErrorCount"), is(2L));
+        assertThat(objectMap.get("missingPacketCount"), is(21L));
+    }
+
+    @Test
+    public void testStreamMonitorsStopped() {
+        when(udpStreamMonitor.getTransport()).thenReturn(Optional.empty());
+        when(udpStreamMonitor.getKernelDropCount()).thenReturn(OptionalLong.empty());
+        Map<String, Object> objectMap = stream.udpStreamMonitors()
+                .get(0);
+        assertThat(objectMap.get("transport"), nullValue());
+        assertThat(objectMap.get("kernelDropCount"), nullValue());
+    }
+
+    @Test
+    public void testStreamMetrics() {
+        streamMetrics.datagramReceived(1316);
+        streamMetrics.catalogRetry();
+        List<Map<String, Object>> list = stream.streamMetrics();
+        assertThat(list, hasSize(1));
+        Map<String, Object> objectMap = list.get(0);
+        assertThat(objectMap.get("id"), is(StreamMonitorHelper.SERVICE_PID));
+        assertThat(objectMap.get(StreamMetrics.DATAGRAM_COUNT), is(1L));
+        assertThat(objectMap.get(StreamMetrics.BYTE_COUNT), is(1316L));
+        assertThat(objectMap.get(StreamMetrics.CATALOG_RETRY_COUNT), is(1L));
+    }
+
     @Test
     public void testStreamMonitorsNullBundleContext() {
         StreamMonitorHelper stream = new StreamMonitorHelper();
@@ -17,17 +17,27 @@ import static org.apache.commons.lang3.Validate.inclusiveBetween;
 import static org.apache.commons.lang3.Validate.notBlank;
 import static org.apache.commons.lang3.Validate.notNull;
 
+import java.io.IOException;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
+import org.codice.alliance.video.stream.mpegts.ingest.KernelUdpDropCounter;
+import org.codice.alliance.video.stream.mpegts.ingest.UdpIngestHost;
+import org.codice.alliance.video.stream.mpegts.ingest.UdpSocketOptions;
+import org.codice.alliance.video.stream.mpegts.ingest.UdpTransport;
 import org.codice.alliance.video.stream.mpegts.metacard.MetacardUpdater;
+import org.codice.alliance.video.stream.mpegts.metrics.StreamMetrics;
+import org.codice.alliance.video.stream.mpegts.metrics.StreamMetricsRegistry;
+import org.codice.alliance.video.stream.mpegts.netty.PacketBuffer;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamCreationPlugin;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamShutdownPlugin;
@@ -37,11 +47,8 @@ import org.slf4j.LoggerFactory;
 
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.data.MetacardType;
-import io.netty.bootstrap.Bootstrap;
-import io.netty.channel.ChannelInitializer;
+import io.netty.channel.Channel;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioDatagramChannel;
 
 /**
  * Starts a Netty server with a pipeline specified by {@link UdpStreamProcessor}. The following
@@ -54,6 +61,16 @@ import io.netty.channel.socket.nio.NioDatagramChannel;
  * <li>{@link #setMetacardTypeList(List)}
  * <li>{@link #setCatalogFramework(CatalogFramework)}
  * </ul>
+ * If a {@link UdpIngestHost} is set, then the stream is bound on the shared event loop group of
+ * the host. Otherwise the monitor starts its own event loop group and server thread, using the
+ * native epoll transport if {@link #setNativeTransport(Boolean)} is enabled and the transport is
+ * available.
+ * <p>
+ * Two loss counters are reported while the stream is monitored. The kernel drop count is the
+ * number of datagrams that the local socket discarded because its receive buffer was full, which
+ * means the stream was not processed fast enough. The continuity counter gaps count the transport
+ * stream packets that never arrived, whether they were lost on the network or dropped by the
+ * socket.
  */
 public class UdpStreamMonitor implements StreamMonitor {
 
@@ -100,6 +117,36 @@ public class UdpStreamMonitor implements StreamMonitor {
 
     public static final String METATYPE_DISTANCE_TOLERANCE = "distanceTolerance";
 
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_ASYNCHRONOUS_ROLLOVER = "asynchronousRollover";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_ROLLOVER_QUEUE_SIZE = "rolloverQueueSize";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_ROLLOVER_SHUTDOWN_TIMEOUT = "rolloverShutdownTimeout";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_NATIVE_TRANSPORT = "nativeTransport";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_RECEIVE_BUFFER_SIZE = "receiveBufferSize";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_READER_COUNT = "readerCount";
+
     static final int MONITORED_PORT_MIN = 1;
 
     static final int MONITORED_PORT_MAX = 65535;
@@ -121,6 +168,30 @@ public class UdpStreamMonitor implements StreamMonitor {
 
     private Thread serverThread;
 
+    private UdpIngestHost udpIngestHost;
+
+    private List<Channel> ingestChannels = Collections.emptyList();
+
+    private KernelUdpDropCounter kernelUdpDropCounter = new KernelUdpDropCounter();
+
+    private StreamMetricsRegistry streamMetricsRegistry;
+
+    /**
+     * The name the metrics are registered with, or null if the metrics are not registered.
+     */
+    private String registeredMetricsName;
+
+    private Boolean nativeTransport = false;
+
+    private Integer receiveBufferSize = UdpSocketOptions.RECEIVE_BUFFER_SIZE_MIN;
+
+    private Integer readerCount = UdpSocketOptions.READER_COUNT_MIN;
+
+    /**
+     * The transport of the running stream, or null if the stream is not running.
+     */
+    private volatile UdpTransport transport;
+
     private String parentTitle;
 
     private Integer byteCountRolloverCondition;
@@ -153,6 +224,119 @@ public class UdpStreamMonitor implements StreamMonitor {
         udpStreamProcessor.setStreamShutdownPlugin(streamShutdownPlugin);
     }
 
+    /**
+     * @param udpIngestHost may be null, in which case the monitor uses its own event loop group
+     */
+    public void setUdpIngestHost(UdpIngestHost udpIngestHost) {
+        this.udpIngestHost = udpIngestHost;
+    }
+
+    /**
+     * @param streamMetricsRegistry may be null, in which case the stream metrics are not registered
+     */
+    public void setStreamMetricsRegistry(StreamMetricsRegistry streamMetricsRegistry) {
+        this.streamMetricsRegistry = streamMetricsRegistry;
+    }
+
+    /**
+     * @param kernelUdpDropCounter must be non-null
+     */
+    void setKernelUdpDropCounter(KernelUdpDropCounter kernelUdpDropCounter) {
+        notNull(kernelUdpDropCounter, "kernelUdpDropCounter must be non-null");
+        this.kernelUdpDropCounter = kernelUdpDropCounter;
+    }
+
+    public Boolean getNativeTransport() {
+        return nativeTransport;
+    }
+
+    /**
+     * Use the native epoll transport when the monitor runs its own event loop group. Ignored when
+     * a {@link UdpIngestHost} is set, because the host selects the transport.
+     *
+     * @param nativeTransport must be non-null
+     */
+    public void setNativeTransport(Boolean nativeTransport) {
+        notNull(nativeTransport, "nativeTransport must be non-null");
+        this.nativeTransport = nativeTransport;
+    }
+
+    public Integer getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    /**
+     * @param receiveBufferSize must be non-null and &gt;={@link UdpSocketOptions#RECEIVE_BUFFER_SIZE_MIN}, zero keeps the system default
+     */
+    public void setReceiveBufferSize(Integer receiveBufferSize) {
+        notNull(receiveBufferSize, "receiveBufferSize must be non-null");
+        inclusiveBetween(UdpSocketOptions.RECEIVE_BUFFER_SIZE_MIN,
+                UdpSocketOptions.RECEIVE_BUFFER_SIZE_MAX,
+                receiveBufferSize,
+                String.format("receiveBufferSize must be >=%d",
+                        UdpSocketOptions.RECEIVE_BUFFER_SIZE_MIN));
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public Integer getReaderCount() {
+        return readerCount;
+    }
+
+    /**
+     * @param readerCount must be non-null and &gt;={@link UdpSocketOptions#READER_COUNT_MIN} and &lt;={@link UdpSocketOptions#READER_COUNT_MAX}
+     */
+    public void setReaderCount(Integer readerCount) {
+        notNull(readerCount, "readerCount must be non-null");
+        inclusiveBetween(UdpSocketOptions.READER_COUNT_MIN,
+                UdpSocketOptions.READER_COUNT_MAX,
+                readerCount,
+                String.format("readerCount must be >=%d and <=%d",
+                        UdpSocketOptions.READER_COUNT_MIN,
+                        UdpSocketOptions.READER_COUNT_MAX));
+        this.readerCount = readerCount;
+    }
+
+    /**
+     * @return the transport of the running stream, or empty if the stream is not running
+     */
+    public Optional<UdpTransport> getTransport() {
+        return Optional.ofNullable(transport);
+    }
+
+    /**
+     * @return the total number of datagrams dropped by the sockets bound to the monitored address
+     * and port, or empty if the stream is not running or the count is not available on this
+     * platform
+     */
+    public OptionalLong getKernelDropCount() {
+        if (!monitoring || monitoredAddress == null || monitoredPort == null) {
+            return OptionalLong.empty();
+        }
+        return kernelUdpDropCounter.getDropCount(monitoredAddress, monitoredPort);
+    }
+
+    /**
+     * @return the number of continuity counter gaps since the stream was started
+     */
+    public long getContinuityErrorCount() {
+        return udpStreamProcessor.getContinuityErrorCount();
+    }
+
+    /**
+     * @return the number of transport stream packets missing from the continuity counter gaps
+     * since the stream was started
+     */
+    public long getMissingPacketCount() {
+        return udpStreamProcessor.getMissingPacketCount();
+    }
+
+    /**
+     * @return non-null throughput and latency metrics of the stream
+     */
+    public StreamMetrics getStreamMetrics() {
+        return udpStreamProcessor.getStreamMetrics();
+    }
+
     public Boolean getStartImmediately() {
         return this.startImmediately;
     }
@@ -188,6 +372,47 @@ public class UdpStreamMonitor implements StreamMonitor {
         udpStreamProcessor.setMetacardUpdateInitialDelay(metacardUpdateInitialDelay);
     }
 
+    public Boolean getAsynchronousRollover() {
+        return udpStreamProcessor.isAsynchronousRollover();
+    }
+
+    /**
+     * @param asynchronousRollover must be non-null
+     */
+    public void setAsynchronousRollover(Boolean asynchronousRollover) {
+        udpStreamProcessor.setAsynchronousRollover(asynchronousRollover);
+    }
+
+    public Integer getRolloverQueueSize() {
+        return udpStreamProcessor.getRolloverQueueSize();
+    }
+
+    /**
+     * @param rolloverQueueSize must be non-null and &gt;={@link org.codice.alliance.video.stream.mpegts.rollover.AsyncRolloverAction#MIN_QUEUE_SIZE} and &lt;={@link org.codice.alliance.video.stream.mpegts.rollover.AsyncRolloverAction#MAX_QUEUE_SIZE}
+     */
+    public void setRolloverQueueSize(Integer rolloverQueueSize) {
+        udpStreamProcessor.setRolloverQueueSize(rolloverQueueSize);
+    }
+
+    public Integer getRolloverShutdownTimeout() {
+        return udpStreamProcessor.getRolloverShutdownTimeout();
+    }
+
+    /**
+     * @param rolloverShutdownTimeout must be non-null and &gt;={@link org.codice.alliance.video.stream.mpegts.rollover.AsyncRolloverAction#MIN_SHUTDOWN_TIMEOUT_SECONDS} and &lt;={@link org.codice.alliance.video.stream.mpegts.rollover.AsyncRolloverAction#MAX_SHUTDOWN_TIMEOUT_SECONDS}
+     */
+    public void setRolloverShutdownTimeout(Integer rolloverShutdownTimeout) {
+        udpStreamProcessor.setRolloverShutdownTimeout(rolloverShutdownTimeout);
+    }
+
+    /**
+     * @param packetBuffer must be non-null
+     */
+    public void setPacketBuffer(PacketBuffer packetBuffer) {
+        notNull(packetBuffer, "packetBuffer must be non-null");
+        udpStreamProcessor.setPacketBuffer(packetBuffer);
+    }
+
     /**
      * @param filenameGenerator must be non-null
      */
@@ -244,10 +469,15 @@ public class UdpStreamMonitor implements StreamMonitor {
         shutdown();
         if (isReady()) {
             udpStreamProcessor.init();
-            serverThread = new Thread(new Server());
-            serverThread.start();
+            if (udpIngestHost != null) {
+                bindToIngestHost();
+            } else {
+                serverThread = new Thread(new Server());
+                serverThread.start();
+            }
             monitoring = true;
             startTime = new Date();
+            registerStreamMetrics();
         } else {
             throw new RuntimeException(String.format(
                     "the udp stream monitor cannot be initialized because it is not properly configured: monitoredAddress=%s, monitoredPort=%s, udpStreamProcessor=%s",
@@ -257,6 +487,42 @@ public class UdpStreamMonitor implements StreamMonitor {
         }
     }
 
+    private void bindToIngestHost() {
+        LOGGER.debug("binding to the udp ingest host: address={} port={}",
+                monitoredAddress,
+                monitoredPort);
+        try {
+            ingestChannels = udpIngestHost.bind(monitoredAddress,
+                    monitoredPort,
+                    getSocketOptions(),
+                    udpStreamProcessor::createChannelHandlers);
+            transport = udpIngestHost.getTransport();
+        } catch (IOException e) {
+            throw new RuntimeException(String.format(
+                    "the udp stream monitor could not bind to the monitored address: monitoredAddress=%s, monitoredPort=%s",
+                    monitoredAddress,
+                    monitoredPort), e);
+        }
+    }
+
+    private void registerStreamMetrics() {
+        if (streamMetricsRegistry != null && streamUri != null) {
+            registeredMetricsName = streamUri.toString();
+            streamMetricsRegistry.register(registeredMetricsName, getStreamMetrics());
+        }
+    }
+
+    private void unregisterStreamMetrics() {
+        if (streamMetricsRegistry != null && registeredMetricsName != null) {
+            streamMetricsRegistry.unregister(registeredMetricsName, getStreamMetrics());
+        }
+        registeredMetricsName = null;
+    }
+
+    private UdpSocketOptions getSocketOptions() {
+        return new UdpSocketOptions(receiveBufferSize, readerCount);
+    }
+
     @Override
     public void stopMonitoring() {
         LOGGER.debug("stop monitoring the udp stream");
@@ -323,6 +589,18 @@ public class UdpStreamMonitor implements StreamMonitor {
     }
 
     private void shutdown() {
+        unregisterStreamMetrics();
+
+        if (!ingestChannels.isEmpty()) {
+            LOGGER.debug("unbinding from the udp ingest host");
+            ingestChannels.forEach(udpIngestHost::unbind);
+            ingestChannels = Collections.emptyList();
+            monitoring = false;
+            startTime = null;
+        }
+
+        transport = null;
+
         if(eventLoopGroup != null) {
             eventLoopGroup.shutdownGracefully();
         }
@@ -397,6 +675,47 @@ public class UdpStreamMonitor implements StreamMonitor {
                 return;
             }
 
+            if (properties.get(METATYPE_ASYNCHRONOUS_ROLLOVER) != null && !checkMetaTypeClass(
+                    properties,
+                    METATYPE_ASYNCHRONOUS_ROLLOVER,
+                    Boolean.class)) {
+                return;
+            }
+
+            if (properties.get(METATYPE_ROLLOVER_QUEUE_SIZE) != null && !checkMetaTypeClass(
+                    properties,
+                    METATYPE_ROLLOVER_QUEUE_SIZE,
+                    Integer.class)) {
+                return;
+            }
+
+            if (properties.get(METATYPE_ROLLOVER_SHUTDOWN_TIMEOUT) != null && !checkMetaTypeClass(
+                    properties,
+                    METATYPE_ROLLOVER_SHUTDOWN_TIMEOUT,
+                    Integer.class)) {
+                return;
+            }
+
+            if (properties.get(METATYPE_NATIVE_TRANSPORT) != null && !checkMetaTypeClass(
+                    properties,
+                    METATYPE_NATIVE_TRANSPORT,
+                    Boolean.class)) {
+                return;
+            }
+
+            if (properties.get(METATYPE_RECEIVE_BUFFER_SIZE) != null && !checkMetaTypeClass(
+                    properties,
+                    METATYPE_RECEIVE_BUFFER_SIZE,
+                    Integer.class)) {
+                return;
+            }
+
+            if (properties.get(METATYPE_READER_COUNT) != null && !checkMetaTypeClass(properties,
+                    METATYPE_READER_COUNT,
+                    Integer.class)) {
+                return;
+            }
+
             setMonitoredAddress((String) properties.get(METATYPE_MONITORED_ADDRESS));
             setByteCountRolloverCondition((Integer) properties.get(
                     METATYPE_BYTE_COUNT_ROLLOVER_CONDITION));
@@ -408,6 +727,31 @@ public class UdpStreamMonitor implements StreamMonitor {
             setParentTitle((String) properties.get(METATYPE_PARENT_TITLE));
             setDistanceTolerance((Double) properties.get(METATYPE_DISTANCE_TOLERANCE));
 
+            if (properties.get(METATYPE_ASYNCHRONOUS_ROLLOVER) != null) {
+                setAsynchronousRollover((Boolean) properties.get(METATYPE_ASYNCHRONOUS_ROLLOVER));
+            }
+
+            if (properties.get(METATYPE_ROLLOVER_QUEUE_SIZE) != null) {
+                setRolloverQueueSize((Integer) properties.get(METATYPE_ROLLOVER_QUEUE_SIZE));
+            }
+
+            if (properties.get(METATYPE_ROLLOVER_SHUTDOWN_TIMEOUT) != null) {
+                setRolloverShutdownTimeout((Integer) properties.get(
+                        METATYPE_ROLLOVER_SHUTDOWN_TIMEOUT));
+            }
+
+            if (properties.get(METATYPE_NATIVE_TRANSPORT) != null) {
+                setNativeTransport((Boolean) properties.get(METATYPE_NATIVE_TRANSPORT));
+            }
+
+            if (properties.get(METATYPE_RECEIVE_BUFFER_SIZE) != null) {
+                setReceiveBufferSize((Integer) properties.get(METATYPE_RECEIVE_BUFFER_SIZE));
+            }
+
+            if (properties.get(METATYPE_READER_COUNT) != null) {
+                setReaderCount((Integer) properties.get(METATYPE_READER_COUNT));
+            }
+
             init();
         }
     }
@@ -498,31 +842,31 @@ public class UdpStreamMonitor implements StreamMonitor {
         @Override
         public void run() {
 
-            LOGGER.debug("starting udp listening thread: address={} port={}",
-                    monitoredAddress,
-                    monitoredPort);
-
-            Bootstrap bootstrap = new Bootstrap();
+            UdpTransport serverTransport = UdpTransport.select(nativeTransport);
 
-            eventLoopGroup = new NioEventLoopGroup();
+            LOGGER.debug("starting udp listening thread: address={} port={} transport={}",
+                    monitoredAddress,
+                    monitoredPort,
+                    serverTransport);
 
-            bootstrap.group(eventLoopGroup)
-                    .channel(NioDatagramChannel.class)
-                    .handler(new ChannelInitializer<NioDatagramChannel>() {
+            eventLoopGroup = serverTransport.createEventLoopGroup(0);
 
-                        @Override
-                        protected void initChannel(NioDatagramChannel nioDatagramChannel)
-                                throws Exception {
-                            nioDatagramChannel.pipeline()
-                                    .addLast(udpStreamProcessor.createChannelHandlers());
-                        }
-                    });
             try {
-                bootstrap.bind(monitoredAddress, monitoredPort)
-                        .sync()
-                        .channel()
-                        .closeFuture()
-                        .await();
+                List<Channel> channels = serverTransport.bind(eventLoopGroup,
+                        monitoredAddress,
+                        monitoredPort,
+                        getSocketOptions(),
+                        udpStreamProcessor::createChannelHandlers);
+                transport = serverTransport;
+                for (Channel channel : channels) {
+                    channel.closeFuture()
+                            .await();
+                }
+            } catch (IOException e) {
+                LOGGER.warn("unable to bind the monitored address: address={} port={}",
+                        monitoredAddress,
+                        monitoredPort,
+                        e);
             } catch (InterruptedException e) {
                 LOGGER.debug("interrupted while waiting for shutdown", e);
             }
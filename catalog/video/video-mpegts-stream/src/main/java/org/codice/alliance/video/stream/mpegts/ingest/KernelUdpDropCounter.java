@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.ingest;
+
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.OptionalLong;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the number of datagrams the Linux kernel dropped because a socket receive buffer was
+ * full. These datagrams never reach the application, so they are counted here rather than by the
+ * stream pipeline. The counts are read from the socket tables in <code>/proc/net</code>, where the
+ * last column of each socket is its drop counter. The counter of a socket starts at zero when the
+ * socket is created. The local address of each socket is the hexadecimal dump of the address
+ * words in host byte order followed by the hexadecimal port, so an IPv4 address is matched in both
+ * its own form and its IPv4-mapped form, which is how it appears when bound by an IPv6 socket.
+ */
+public class KernelUdpDropCounter {
+
+    public static final List<Path> DEFAULT_SOCKET_TABLES = Arrays.asList(Paths.get("/proc/net/udp"),
+            Paths.get("/proc/net/udp6"));
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KernelUdpDropCounter.class);
+
+    private static final int LOCAL_ADDRESS_COLUMN = 1;
+
+    private static final int DROPS_COLUMN = 12;
+
+    private static final int PORT_RADIX = 16;
+
+    private static final int ADDRESS_WORD_LENGTH = 4;
+
+    private static final byte[] IPV4_MAPPED_PREFIX =
+            new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xff, (byte) 0xff};
+
+    private static final byte[] IPV6_ANY_ADDRESS = new byte[16];
+
+    private final List<Path> socketTables;
+
+    public KernelUdpDropCounter() {
+        this(DEFAULT_SOCKET_TABLES);
+    }
+
+    /**
+     * @param socketTables must be non-null, tables that do not exist are ignored
+     */
+    public KernelUdpDropCounter(List<Path> socketTables) {
+        notNull(socketTables, "socketTables must be non-null");
+        this.socketTables = socketTables;
+    }
+
+    /**
+     * Sum the drop counters of every socket bound to the local address and port. This is a total
+     * for the address and port rather than for a single socket, because it includes all of the
+     * readers that share the port with SO_REUSEPORT.
+     *
+     * @param address must be non-null, the local address the sockets are bound to
+     * @param port    must be &gt;=1 and &lt;=65535
+     * @return the number of dropped datagrams, or empty if the address could not be resolved or
+     * no socket table could be read
+     */
+    public OptionalLong getDropCount(String address, int port) {
+        notNull(address, "address must be non-null");
+        inclusiveBetween(1, 65535, port, "port must be >=1 and <=65535");
+
+        Set<String> localAddresses;
+        try {
+            localAddresses = getLocalAddresses(InetAddress.getByName(address), port);
+        } catch (UnknownHostException e) {
+            LOGGER.debug("unable to resolve the local address: address={}", address, e);
+            return OptionalLong.empty();
+        }
+
+        boolean found = false;
+        long drops = 0;
+
+        for (Path socketTable : socketTables) {
+            if (!Files.isReadable(socketTable)) {
+                continue;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(socketTable,
+                    StandardCharsets.US_ASCII)) {
+                found = true;
+                drops += sumDrops(reader, localAddresses);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.debug("unable to read the socket table: path={}", socketTable, e);
+            }
+        }
+
+        return found ? OptionalLong.of(drops) : OptionalLong.empty();
+    }
+
+    private long sumDrops(BufferedReader reader, Set<String> localAddresses) throws IOException {
+
+        long drops = 0;
+
+        // the first line is the column header
+        String line = reader.readLine();
+
+        while ((line = reader.readLine()) != null) {
+            String[] columns = line.trim()
+                    .split("\\s+");
+            if (columns.length > DROPS_COLUMN && localAddresses.contains(
+                    columns[LOCAL_ADDRESS_COLUMN].toUpperCase(Locale.ROOT))) {
+                drops += Long.parseLong(columns[DROPS_COLUMN]);
+            }
+        }
+
+        return drops;
+    }
+
+    /**
+     * The IPv4 wildcard address is also matched as the IPv6 wildcard address, because an IPv6
+     * socket bound to the IPv4 wildcard address is bound to the IPv6 wildcard address.
+     */
+    private Set<String> getLocalAddresses(InetAddress address, int port) {
+        String hexPort = String.format("%04X", port);
+        byte[] bytes = address.getAddress();
+
+        Set<String> localAddresses = new HashSet<>();
+        localAddresses.add(toHex(bytes) + ":" + hexPort);
+
+        if (bytes.length == ADDRESS_WORD_LENGTH) {
+            ByteBuffer mapped = ByteBuffer.allocate(IPV6_ANY_ADDRESS.length);
+            mapped.put(IPV4_MAPPED_PREFIX)
+                    .put(bytes);
+            localAddresses.add(toHex(mapped.array()) + ":" + hexPort);
+            if (address.isAnyLocalAddress()) {
+                localAddresses.add(toHex(IPV6_ANY_ADDRESS) + ":" + hexPort);
+            }
+        }
+
+        return localAddresses;
+    }
+
+    /**
+     * The kernel prints the address as 32-bit words in host byte order.
+     */
+    private String toHex(byte[] address) {
+        ByteBuffer buffer = ByteBuffer.wrap(address)
+                .order(ByteOrder.nativeOrder());
+        StringBuilder hex = new StringBuilder();
+        while (buffer.remaining() >= ADDRESS_WORD_LENGTH) {
+            hex.append(String.format("%08X", buffer.getInt()));
+        }
+        return hex.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "KernelUdpDropCounter{" +
+                "socketTables=" + socketTables +
+                '}';
+    }
+}
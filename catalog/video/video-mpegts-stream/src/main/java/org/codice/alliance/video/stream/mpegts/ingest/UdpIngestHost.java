@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.ingest;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Supplier;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+
+/**
+ * Hosts the UDP channels of many stream monitors on a single, bounded event loop group. Each
+ * registered address gets its own datagram channel and pipeline, so datagrams are dispatched to the
+ * stream that owns the address. Implementations must be thread-safe.
+ */
+public interface UdpIngestHost {
+
+    /**
+     * Bind a datagram channel to the address with the default socket options and install the
+     * channel handlers.
+     *
+     * @param address         must be non-null
+     * @param port            the port number
+     * @param channelHandlers must be non-null, called once to create the pipeline
+     * @return the bound channel
+     * @throws IOException if the channel could not be bound
+     */
+    default Channel bind(String address, int port, Supplier<ChannelHandler[]> channelHandlers)
+            throws IOException {
+        return bind(address, port, UdpSocketOptions.DEFAULT, channelHandlers).get(0);
+    }
+
+    /**
+     * Bind one datagram channel per reader to the address and install the channel handlers on
+     * each. Fewer channels than requested are bound if the transport does not support
+     * SO_REUSEPORT.
+     *
+     * @param address         must be non-null
+     * @param port            the port number
+     * @param options         must be non-null
+     * @param channelHandlers must be non-null, called once per channel to create the pipeline
+     * @return non-null, non-empty list of bound channels
+     * @throws IOException if the channels could not be bound
+     */
+    List<Channel> bind(String address, int port, UdpSocketOptions options,
+            Supplier<ChannelHandler[]> channelHandlers) throws IOException;
+
+    /**
+     * Close a channel that was returned by {@link #bind(String, int, UdpSocketOptions, Supplier)}
+     * and wait for it to close.
+     *
+     * @param channel must be non-null
+     */
+    void unbind(Channel channel);
+
+    /**
+     * @return the number of channels that are currently bound
+     */
+    int getChannelCount();
+
+    /**
+     * @return non-null transport used by the channels that are bound next
+     */
+    UdpTransport getTransport();
+
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.ingest;
+
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.EventLoopGroup;
+
+/**
+ * Netty implementation of {@link UdpIngestHost}. The event loop group is created when the first
+ * channel is bound and lives until {@link #destroy()} is called. A change to the number of event
+ * loop threads or to the transport is applied immediately if no channels are bound, otherwise it
+ * is applied the next time all channels have been unbound.
+ */
+public class UdpIngestHostImpl implements UdpIngestHost {
+
+    public static final int EVENT_LOOP_THREADS_MIN = 1;
+
+    public static final int EVENT_LOOP_THREADS_MAX = 1024;
+
+    public static final int DEFAULT_EVENT_LOOP_THREADS = 4;
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_EVENT_LOOP_THREADS = "eventLoopThreads";
+
+    /**
+     * This is the id string used in metatype.xml.
+     */
+    public static final String METATYPE_NATIVE_TRANSPORT = "nativeTransport";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UdpIngestHostImpl.class);
+
+    private final Set<Channel> channels = new HashSet<>();
+
+    private int eventLoopThreads = DEFAULT_EVENT_LOOP_THREADS;
+
+    private boolean nativeTransport = false;
+
+    private EventLoopGroup eventLoopGroup;
+
+    private int eventLoopGroupThreads;
+
+    /**
+     * The transport of the current event loop group, or the transport of the next event loop group
+     * if there is no current group.
+     */
+    private UdpTransport transport = UdpTransport.NIO;
+
+    /**
+     * Number of bind operations that are in progress. The event loop group must not be shutdown
+     * while a bind is in progress.
+     */
+    private int pendingBinds = 0;
+
+    public synchronized Integer getEventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    /**
+     * @param eventLoopThreads must be non-null and &gt;={@link #EVENT_LOOP_THREADS_MIN} and &lt;={@link #EVENT_LOOP_THREADS_MAX}
+     */
+    public synchronized void setEventLoopThreads(Integer eventLoopThreads) {
+        notNull(eventLoopThreads, "eventLoopThreads must be non-null");
+        inclusiveBetween(EVENT_LOOP_THREADS_MIN,
+                EVENT_LOOP_THREADS_MAX,
+                eventLoopThreads,
+                String.format("eventLoopThreads must be >=%d and <=%d",
+                        EVENT_LOOP_THREADS_MIN,
+                        EVENT_LOOP_THREADS_MAX));
+        this.eventLoopThreads = eventLoopThreads;
+        if (isIdle()) {
+            shutdownEventLoopGroup();
+        } else if (eventLoopGroupThreads != eventLoopThreads) {
+            LOGGER.debug(
+                    "the event loop thread count will change when all streams have been stopped: current={} requested={}",
+                    eventLoopGroupThreads,
+                    eventLoopThreads);
+        }
+    }
+
+    public synchronized Boolean getNativeTransport() {
+        return nativeTransport;
+    }
+
+    /**
+     * Use the native epoll transport when it is available. Otherwise nio is used.
+     *
+     * @param nativeTransport must be non-null
+     */
+    public synchronized void setNativeTransport(Boolean nativeTransport) {
+        notNull(nativeTransport, "nativeTransport must be non-null");
+        this.nativeTransport = nativeTransport;
+        if (isIdle()) {
+            shutdownEventLoopGroup();
+        } else {
+            LOGGER.debug(
+                    "the transport will change when all streams have been stopped: current={} nativeTransport={}",
+                    transport,
+                    nativeTransport);
+        }
+    }
+
+    /**
+     * The lock is not held while waiting for the bind to complete, because the close listeners of
+     * other channels run on the event loop threads and need the lock.
+     */
+    @Override
+    public List<Channel> bind(String address, int port, UdpSocketOptions options,
+            Supplier<ChannelHandler[]> channelHandlers) throws IOException {
+        notNull(address, "address must be non-null");
+        notNull(options, "options must be non-null");
+        notNull(channelHandlers, "channelHandlers must be non-null");
+
+        EventLoopGroup group;
+        UdpTransport groupTransport;
+        synchronized (this) {
+            group = getEventLoopGroup();
+            groupTransport = transport;
+            pendingBinds++;
+        }
+
+        List<Channel> boundChannels;
+        try {
+            boundChannels = groupTransport.bind(group, address, port, options, channelHandlers);
+        } catch (IOException e) {
+            synchronized (this) {
+                pendingBinds--;
+                if (isIdle()) {
+                    shutdownEventLoopGroup();
+                }
+            }
+            throw e;
+        }
+
+        synchronized (this) {
+            pendingBinds--;
+
+            for (Channel channel : boundChannels) {
+                channels.add(channel);
+                channel.closeFuture()
+                        .addListener(future -> removeChannel(channel));
+            }
+
+            LOGGER.debug(
+                    "bound udp channels: address={} port={} transport={} readers={} channelCount={}",
+                    address,
+                    port,
+                    groupTransport,
+                    boundChannels.size(),
+                    channels.size());
+
+            return boundChannels;
+        }
+    }
+
+    @Override
+    public void unbind(Channel channel) {
+        notNull(channel, "channel must be non-null");
+        channel.close()
+                .awaitUninterruptibly();
+        removeChannel(channel);
+    }
+
+    @Override
+    public synchronized int getChannelCount() {
+        return channels.size();
+    }
+
+    @Override
+    public synchronized UdpTransport getTransport() {
+        return eventLoopGroup != null ? transport : UdpTransport.select(nativeTransport);
+    }
+
+    /**
+     * Called by osgi to close all channels and release the event loop threads.
+     */
+    public void destroy() {
+        List<Channel> openChannels;
+        synchronized (this) {
+            openChannels = new ArrayList<>(channels);
+        }
+        openChannels.forEach(this::unbind);
+        synchronized (this) {
+            shutdownEventLoopGroup();
+        }
+    }
+
+    private synchronized void removeChannel(Channel channel) {
+        if (channels.remove(channel) && isIdle() && isEventLoopGroupStale()) {
+            shutdownEventLoopGroup();
+        }
+    }
+
+    private boolean isIdle() {
+        return channels.isEmpty() && pendingBinds == 0;
+    }
+
+    /**
+     * @return <code>true</code> if the configuration changed since the event loop group was created
+     */
+    private boolean isEventLoopGroupStale() {
+        return eventLoopGroupThreads != eventLoopThreads
+                || transport != UdpTransport.select(nativeTransport);
+    }
+
+    private EventLoopGroup getEventLoopGroup() {
+        if (eventLoopGroup == null) {
+            transport = UdpTransport.select(nativeTransport);
+            LOGGER.debug("creating udp ingest event loop group: threads={} transport={}",
+                    eventLoopThreads,
+                    transport);
+            eventLoopGroup = transport.createEventLoopGroup(eventLoopThreads);
+            eventLoopGroupThreads = eventLoopThreads;
+        }
+        return eventLoopGroup;
+    }
+
+    private void shutdownEventLoopGroup() {
+        if (eventLoopGroup != null) {
+            eventLoopGroup.shutdownGracefully();
+            eventLoopGroup = null;
+            eventLoopGroupThreads = 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UdpIngestHostImpl{" +
+                "eventLoopThreads=" + eventLoopThreads +
+                ", nativeTransport=" + nativeTransport +
+                ", channelCount=" + getChannelCount() +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.ingest;
+
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+
+/**
+ * Socket options of the datagram channels that receive a stream. Instances are immutable.
+ */
+public class UdpSocketOptions {
+
+    /**
+     * A receive buffer size of zero leaves the operating system default in place.
+     */
+    public static final int RECEIVE_BUFFER_SIZE_MIN = 0;
+
+    public static final int RECEIVE_BUFFER_SIZE_MAX = Integer.MAX_VALUE;
+
+    public static final int READER_COUNT_MIN = 1;
+
+    public static final int READER_COUNT_MAX = 64;
+
+    public static final UdpSocketOptions DEFAULT = new UdpSocketOptions(RECEIVE_BUFFER_SIZE_MIN,
+            READER_COUNT_MIN);
+
+    private final int receiveBufferSize;
+
+    private final int readerCount;
+
+    /**
+     * @param receiveBufferSize the requested SO_RCVBUF in bytes, or zero for the system default,
+     *                          must be &gt;={@link #RECEIVE_BUFFER_SIZE_MIN}
+     * @param readerCount       the number of channels bound to a unicast address with
+     *                          SO_REUSEPORT, must be &gt;={@link #READER_COUNT_MIN} and &lt;={@link #READER_COUNT_MAX}
+     */
+    public UdpSocketOptions(int receiveBufferSize, int readerCount) {
+        inclusiveBetween(RECEIVE_BUFFER_SIZE_MIN,
+                RECEIVE_BUFFER_SIZE_MAX,
+                receiveBufferSize,
+                String.format("receiveBufferSize must be >=%d", RECEIVE_BUFFER_SIZE_MIN));
+        inclusiveBetween(READER_COUNT_MIN,
+                READER_COUNT_MAX,
+                readerCount,
+                String.format("readerCount must be >=%d and <=%d",
+                        READER_COUNT_MIN,
+                        READER_COUNT_MAX));
+        this.receiveBufferSize = receiveBufferSize;
+        this.readerCount = readerCount;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public int getReaderCount() {
+        return readerCount;
+    }
+
+    @Override
+    public String toString() {
+        return "UdpSocketOptions{" +
+                "receiveBufferSize=" + receiveBufferSize +
+                ", readerCount=" + readerCount +
+                '}';
+    }
+}
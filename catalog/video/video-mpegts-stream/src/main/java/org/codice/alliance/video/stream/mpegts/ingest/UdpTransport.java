@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.ingest;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+
+/**
+ * The Netty transport used to receive datagrams. The native epoll transport is only available on
+ * Linux and is the only transport that supports SO_REUSEPORT, which lets several readers share
+ * one address. The kernel distributes unicast datagrams among the readers by flow, so the
+ * datagrams of a single sender are always handled by the same reader and stay in order. Several
+ * readers therefore only help when a stream has several unicast senders. Multicast datagrams are
+ * delivered to every socket bound to the group, so a multicast address is always bound with a
+ * single reader.
+ */
+public enum UdpTransport {
+
+    NIO {
+        @Override
+        public EventLoopGroup createEventLoopGroup(int threads) {
+            return new NioEventLoopGroup(threads);
+        }
+
+        @Override
+        Class<? extends Channel> getChannelClass() {
+            return NioDatagramChannel.class;
+        }
+
+        @Override
+        boolean isReusePortSupported() {
+            return false;
+        }
+
+        @Override
+        void enableReusePort(Bootstrap bootstrap) {
+            throw new UnsupportedOperationException("SO_REUSEPORT is not supported by nio");
+        }
+    },
+
+    EPOLL {
+        @Override
+        public EventLoopGroup createEventLoopGroup(int threads) {
+            return new EpollEventLoopGroup(threads);
+        }
+
+        @Override
+        Class<? extends Channel> getChannelClass() {
+            return EpollDatagramChannel.class;
+        }
+
+        @Override
+        boolean isReusePortSupported() {
+            return true;
+        }
+
+        @Override
+        void enableReusePort(Bootstrap bootstrap) {
+            bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+    };
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UdpTransport.class);
+
+    /**
+     * Select the native transport if it was requested and can be loaded, otherwise nio.
+     *
+     * @param nativeTransport <code>true</code> to prefer the native transport
+     * @return non-null transport
+     */
+    public static UdpTransport select(boolean nativeTransport) {
+        if (!nativeTransport) {
+            return NIO;
+        }
+        if (Epoll.isAvailable()) {
+            return EPOLL;
+        }
+        LOGGER.info("the native epoll transport is not available, falling back to nio");
+        LOGGER.debug("the native epoll transport is not available",
+                Epoll.unavailabilityCause());
+        return NIO;
+    }
+
+    /**
+     * @param threads the number of threads, or zero for the Netty default
+     * @return non-null event loop group that can host the channels of this transport
+     */
+    public abstract EventLoopGroup createEventLoopGroup(int threads);
+
+    abstract Class<? extends Channel> getChannelClass();
+
+    abstract boolean isReusePortSupported();
+
+    abstract void enableReusePort(Bootstrap bootstrap);
+
+    /**
+     * Bind one datagram channel per reader to the address and install the channel handlers on
+     * each. If the transport does not support SO_REUSEPORT or the address is a multicast group,
+     * then a single channel is bound. If the port is zero, then all readers share the port that was
+     * assigned to the first reader.
+     *
+     * @param eventLoopGroup  must be non-null and created by this transport
+     * @param address         must be non-null
+     * @param port            the port number
+     * @param options         must be non-null
+     * @param channelHandlers must be non-null, called once per channel to create the pipeline
+     * @return non-null, non-empty list of bound channels
+     * @throws IOException if a channel could not be bound, in which case no channels are left open
+     */
+    public List<Channel> bind(EventLoopGroup eventLoopGroup, String address, int port,
+            UdpSocketOptions options, Supplier<ChannelHandler[]> channelHandlers)
+            throws IOException {
+        notNull(eventLoopGroup, "eventLoopGroup must be non-null");
+        notNull(address, "address must be non-null");
+        notNull(options, "options must be non-null");
+        notNull(channelHandlers, "channelHandlers must be non-null");
+
+        int readerCount = getReaderCount(address, port, options.getReaderCount());
+
+        Bootstrap bootstrap = new Bootstrap();
+
+        bootstrap.group(eventLoopGroup)
+                .channel(getChannelClass())
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel channel) throws Exception {
+                        channel.pipeline()
+                                .addLast(channelHandlers.get());
+                    }
+                });
+
+        if (options.getReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, options.getReceiveBufferSize());
+        }
+
+        if (readerCount > 1) {
+            enableReusePort(bootstrap);
+        }
+
+        List<Channel> channels = new ArrayList<>(readerCount);
+        int bindPort = port;
+
+        for (int i = 0; i < readerCount; i++) {
+            ChannelFuture bindFuture = bootstrap.bind(address, bindPort)
+                    .awaitUninterruptibly();
+
+            if (!bindFuture.isSuccess()) {
+                channels.forEach(channel -> channel.close()
+                        .awaitUninterruptibly());
+                throw new IOException(String.format(
+                        "unable to bind udp channel: address=%s port=%d transport=%s",
+                        address,
+                        bindPort,
+                        this), bindFuture.cause());
+            }
+
+            Channel channel = bindFuture.channel();
+            checkReceiveBufferSize(channel, options.getReceiveBufferSize());
+            channels.add(channel);
+            bindPort = ((InetSocketAddress) channel.localAddress()).getPort();
+        }
+
+        return channels;
+    }
+
+    /**
+     * Multiple readers are only bound for a unicast address on a transport that supports
+     * SO_REUSEPORT. Every socket bound to a multicast group receives a copy of each datagram, so
+     * several readers would decode every packet several times.
+     *
+     * @return the number of channels to bind
+     */
+    int getReaderCount(String address, int port, int readerCount) {
+        if (readerCount <= 1) {
+            return readerCount;
+        }
+        if (!isReusePortSupported()) {
+            LOGGER.warn(
+                    "multiple readers require the native transport, binding a single reader: address={} port={} readerCount={}",
+                    address,
+                    port,
+                    readerCount);
+            return 1;
+        }
+        if (isMulticastAddress(address)) {
+            LOGGER.warn(
+                    "multiple readers would each receive every multicast datagram, binding a single reader: address={} port={} readerCount={}",
+                    address,
+                    port,
+                    readerCount);
+            return 1;
+        }
+        return readerCount;
+    }
+
+    /**
+     * An address that cannot be resolved is not a multicast address, and binding it will fail.
+     */
+    private boolean isMulticastAddress(String address) {
+        try {
+            return InetAddress.getByName(address)
+                    .isMulticastAddress();
+        } catch (UnknownHostException e) {
+            LOGGER.debug("unable to resolve the address: address={}", address, e);
+            return false;
+        }
+    }
+
+    /**
+     * The kernel silently caps SO_RCVBUF at net.core.rmem_max, so report a buffer that is smaller
+     * than requested.
+     */
+    private void checkReceiveBufferSize(Channel channel, int requested) {
+        if (requested == 0) {
+            return;
+        }
+        Integer actual = channel.config()
+                .getOption(ChannelOption.SO_RCVBUF);
+        if (actual != null && actual < requested) {
+            LOGGER.warn(
+                    "the udp receive buffer is smaller than requested, check the net.core.rmem_max setting: requested={} actual={}",
+                    requested,
+                    actual);
+        }
+    }
+
+}
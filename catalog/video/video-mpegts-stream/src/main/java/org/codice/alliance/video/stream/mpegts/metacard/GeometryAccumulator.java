@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metacard;
+
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.simplify.TopologyPreservingSimplifier;
+
+/**
+ * Holds the footprint of a stream as a live {@link Geometry}, so that each new location only has
+ * to be unioned with the current footprint instead of re-parsing the footprint from WKT. Locations
+ * that are already covered by the footprint are ignored. When the footprint has more than
+ * {@link #getMaxVertices()} coordinates it is simplified with a
+ * {@link TopologyPreservingSimplifier}, starting with the distance tolerance and doubling it until
+ * the footprint fits, which keeps the cost of each union bounded over a long stream.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class GeometryAccumulator {
+
+    public static final int DEFAULT_MAX_VERTICES = 5000;
+
+    public static final int MIN_MAX_VERTICES = 16;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeometryAccumulator.class);
+
+    private static final int MAX_SIMPLIFY_ATTEMPTS = 16;
+
+    private Geometry geometry;
+
+    private int maxVertices = DEFAULT_MAX_VERTICES;
+
+    private double distanceTolerance = 0;
+
+    public Optional<Geometry> getGeometry() {
+        return Optional.ofNullable(geometry);
+    }
+
+    public boolean isEmpty() {
+        return geometry == null;
+    }
+
+    /**
+     * Replace the footprint.
+     *
+     * @param geometry may be null to clear the footprint
+     */
+    public void reset(Geometry geometry) {
+        this.geometry = geometry;
+        if (geometry != null) {
+            enforceVertexBudget();
+        }
+    }
+
+    /**
+     * Union a geometry with the footprint.
+     *
+     * @param delta must be non-null
+     * @return <code>true</code> if the footprint changed
+     */
+    public boolean add(Geometry delta) {
+        notNull(delta, "delta must be non-null");
+
+        if (geometry == null) {
+            geometry = delta;
+        } else if (covers(delta)) {
+            return false;
+        } else {
+            geometry = geometry.union(delta);
+        }
+
+        enforceVertexBudget();
+
+        return true;
+    }
+
+    private boolean covers(Geometry delta) {
+        return geometry.getEnvelopeInternal()
+                .covers(delta.getEnvelopeInternal()) && geometry.covers(delta);
+    }
+
+    private void enforceVertexBudget() {
+        if (geometry.getNumPoints() <= maxVertices) {
+            return;
+        }
+
+        int before = geometry.getNumPoints();
+        double tolerance = distanceTolerance > 0 ? distanceTolerance : initialTolerance();
+
+        for (int attempt = 0; attempt < MAX_SIMPLIFY_ATTEMPTS
+                && geometry.getNumPoints() > maxVertices; attempt++) {
+            geometry = TopologyPreservingSimplifier.simplify(geometry, tolerance);
+            tolerance *= 2;
+        }
+
+        LOGGER.debug("simplified footprint: old vertex count={} new vertex count={}",
+                before,
+                geometry.getNumPoints());
+    }
+
+    /**
+     * Used when no distance tolerance is configured: the size of the footprint divided by the
+     * vertex budget.
+     */
+    private double initialTolerance() {
+        Envelope envelope = geometry.getEnvelopeInternal();
+        double size = Math.max(envelope.getWidth(), envelope.getHeight());
+        return size > 0 ? size / maxVertices : Double.MIN_NORMAL;
+    }
+
+    public int getMaxVertices() {
+        return maxVertices;
+    }
+
+    /**
+     * @param maxVertices must be &gt;={@link #MIN_MAX_VERTICES}
+     */
+    public void setMaxVertices(int maxVertices) {
+        inclusiveBetween(MIN_MAX_VERTICES,
+                Integer.MAX_VALUE,
+                maxVertices,
+                String.format("maxVertices must be >=%d", MIN_MAX_VERTICES));
+        this.maxVertices = maxVertices;
+    }
+
+    public double getDistanceTolerance() {
+        return distanceTolerance;
+    }
+
+    /**
+     * @param distanceTolerance may be null, must be non-negative, units are degrees
+     */
+    public void setDistanceTolerance(Double distanceTolerance) {
+        if (distanceTolerance != null) {
+            inclusiveBetween(0,
+                    Double.MAX_VALUE,
+                    distanceTolerance,
+                    "distanceTolerance must be non-negative");
+        }
+        this.distanceTolerance = distanceTolerance == null ? 0 : distanceTolerance;
+    }
+
+    @Override
+    public String toString() {
+        return "GeometryAccumulator{" +
+                "maxVertices=" + maxVertices +
+                ", distanceTolerance=" + distanceTolerance +
+                ", vertexCount=" + (geometry == null ? 0 : geometry.getNumPoints()) +
+                '}';
+    }
+}
@@ -31,6 +31,11 @@ public class ListMetacardUpdater implements MetacardUpdater {
         metacardUpdaterList.forEach(metacardUpdater -> metacardUpdater.update(parent, child));
     }
 
+    @Override
+    public void beforePersist(Metacard parent) {
+        metacardUpdaterList.forEach(metacardUpdater -> metacardUpdater.beforePersist(parent));
+    }
+
     @Override
     public String toString() {
         return "ListMetacardUpdater{" +
@@ -13,8 +13,8 @@
  */
 package org.codice.alliance.video.stream.mpegts.metacard;
 
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Stream;
 
 import org.codice.alliance.libs.klv.GeometryOperator;
 import org.codice.alliance.libs.klv.GeometryUtility;
@@ -26,12 +26,38 @@ import com.vividsolutions.jts.io.WKTWriter;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.impl.AttributeImpl;
 
+/**
+ * Sets the parent location to the union of the parent and child locations. The union is kept in
+ * a {@link GeometryAccumulator} between updates and the parent location is only written in
+ * {@link #beforePersist(Metacard)}. The parent WKT is parsed again only if the parent location no
+ * longer matches the last location written by this updater, so each instance should be used for a
+ * single stream.
+ */
 public class LocationMetacardUpdater implements MetacardUpdater {
 
     private final GeometryOperator preUnionGeometryOperator;
 
     private final GeometryOperator postUnionGeometryOperator;
 
+    private final GeometryAccumulator geometryAccumulator = new GeometryAccumulator();
+
+    private final WKTReader wktReader = new WKTReader();
+
+    private final WKTWriter wktWriter = new WKTWriter();
+
+    /**
+     * The parent location that matches the accumulated geometry.
+     */
+    private String parentLocation;
+
+    /**
+     * The WKT of the only child location in the accumulated geometry, used as-is instead of
+     * writing the geometry.
+     */
+    private String firstChildLocation;
+
+    private boolean dirty = false;
+
     public LocationMetacardUpdater(GeometryOperator preUnionGeometryOperator,
             GeometryOperator postUnionGeometryOperator) {
         this.preUnionGeometryOperator = preUnionGeometryOperator;
@@ -47,39 +73,73 @@ public class LocationMetacardUpdater implements MetacardUpdater {
         return "LocationMetacardUpdater{" +
                 "postUnionGeometryOperator=" + postUnionGeometryOperator +
                 ", preUnionGeometryOperator=" + preUnionGeometryOperator +
+                ", geometryAccumulator=" + geometryAccumulator +
                 '}';
     }
 
     @Override
     public void update(Metacard parent, Metacard child) {
-        if (parent.getLocation() == null) {
-            setParentLocation(parent, child.getLocation());
-        } else if (child.getLocation() != null) {
-            locationUnion(parent, child).ifPresent(wkt -> setParentLocation(parent, wkt));
+        String childLocation = child.getLocation();
+        if (childLocation == null) {
+            return;
         }
-    }
 
-    private void setParentLocation(Metacard parent, String location) {
-        parent.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, location));
+        synchronizeWithParent(parent);
+
+        Optional<Geometry> childGeometry = GeometryUtility.wktToGeometry(childLocation, wktReader);
+        if (!childGeometry.isPresent()) {
+            return;
+        }
+
+        boolean wasEmpty = geometryAccumulator.isEmpty();
+
+        if (geometryAccumulator.add(preUnionGeometryOperator.apply(childGeometry.get()))) {
+            firstChildLocation = wasEmpty ? childLocation : null;
+            dirty = true;
+        }
     }
 
-    private Optional<String> locationUnion(Metacard metacard1, Metacard metacard2) {
+    @Override
+    public void beforePersist(Metacard parent) {
+        if (!dirty) {
+            return;
+        }
 
-        WKTReader wktReader = new WKTReader();
-        WKTWriter wktWriter = new WKTWriter();
+        String location = firstChildLocation != null ?
+                firstChildLocation :
+                geometryAccumulator.getGeometry()
+                        .map(postUnionGeometryOperator)
+                        .map(wktWriter::write)
+                        .orElse(null);
 
-        Optional<Geometry> parentGeometry = GeometryUtility.wktToGeometry(metacard1.getLocation(),
-                wktReader);
-        Optional<Geometry> childGeometry = GeometryUtility.wktToGeometry(metacard2.getLocation(),
-                wktReader);
+        if (location != null) {
+            parent.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, location));
+        }
 
-        return Stream.of(parentGeometry, childGeometry)
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .map(preUnionGeometryOperator)
-                .reduce(Geometry::union)
-                .map(postUnionGeometryOperator)
-                .map(wktWriter::write);
+        parentLocation = location;
+        firstChildLocation = null;
+        dirty = false;
+    }
+
+    /**
+     * Rebuild the accumulated geometry if the parent location was not written by this updater,
+     * for example when a new parent metacard is created.
+     */
+    private void synchronizeWithParent(Metacard parent) {
+        String location = parent.getLocation();
+        if (Objects.equals(location, parentLocation)) {
+            return;
+        }
+
+        geometryAccumulator.reset(location == null ?
+                null :
+                GeometryUtility.wktToGeometry(location, wktReader)
+                        .map(preUnionGeometryOperator)
+                        .orElse(null));
+
+        parentLocation = location;
+        firstChildLocation = null;
+        dirty = false;
     }
 
     @Override
@@ -94,4 +154,18 @@ public class LocationMetacardUpdater implements MetacardUpdater {
     public GeometryOperator getPostUnionGeometryOperator() {
         return postUnionGeometryOperator;
     }
+
+    /**
+     * @param distanceTolerance may be null, must be non-negative, units are degrees
+     */
+    public void setDistanceTolerance(Double distanceTolerance) {
+        geometryAccumulator.setDistanceTolerance(distanceTolerance);
+    }
+
+    /**
+     * @param maxVertices must be &gt;={@link GeometryAccumulator#MIN_MAX_VERTICES}
+     */
+    public void setMaxVertices(int maxVertices) {
+        geometryAccumulator.setMaxVertices(maxVertices);
+    }
 }
@@ -19,6 +19,15 @@ public interface MetacardUpdater {
 
     void update(Metacard parent, Metacard child);
 
+    /**
+     * Called before the parent metacard is submitted to the catalog. Updaters that keep state
+     * between calls to {@link #update(Metacard, Metacard)} write it to the parent here.
+     *
+     * @param parent must be non-null
+     */
+    default void beforePersist(Metacard parent) {
+    }
+
     void accept(Visitor visitor);
 
     interface Visitor {
@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * A lock-free histogram of non-negative values. Values are counted in power-of-two buckets, so
+ * recording never allocates and the percentiles are reported as the upper bound of the bucket
+ * that contains them, which is within a factor of two of the exact value. The count, sum, minimum
+ * and maximum are exact. This class is thread-safe.
+ */
+public class Histogram {
+
+    public static final String COUNT = "count";
+
+    public static final String MIN = "min";
+
+    public static final String MAX = "max";
+
+    public static final String MEAN = "mean";
+
+    public static final String P50 = "p50";
+
+    public static final String P95 = "p95";
+
+    public static final String P99 = "p99";
+
+    private static final int BUCKET_COUNT = Long.SIZE;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong sum = new AtomicLong();
+
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value negative values are recorded as zero
+     */
+    public void record(long value) {
+        long nonNegative = Math.max(value, 0);
+        buckets.incrementAndGet(bucketIndex(nonNegative));
+        sum.addAndGet(nonNegative);
+        min.accumulate(nonNegative);
+        max.accumulate(nonNegative);
+        count.incrementAndGet();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return the smallest recorded value, or 0 if nothing has been recorded
+     */
+    public long getMin() {
+        return count.get() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return the mean of the recorded values, or 0 if nothing has been recorded
+     */
+    public long getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / n;
+    }
+
+    /**
+     * @param percentile must be &gt;0 and &lt;=100
+     * @return an upper bound of the percentile, never more than {@link #getMax()}, or 0 if nothing
+     * has been recorded
+     */
+    public long getPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be >0 and <=100");
+        }
+
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * @return non-null map of the count, min, max, mean and the 50th, 95th and 99th percentiles
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put(COUNT, getCount());
+        map.put(MIN, getMin());
+        map.put(MAX, getMax());
+        map.put(MEAN, getMean());
+        map.put(P50, getPercentile(50));
+        map.put(P95, getPercentile(95));
+        map.put(P99, getPercentile(99));
+        return map;
+    }
+
+    /**
+     * Bucket 0 holds zero, bucket i holds the values in [2^(i-1), 2^i).
+     */
+    private static int bucketIndex(long value) {
+        return Math.min(BUCKET_COUNT - Long.numberOfLeadingZeros(value), BUCKET_COUNT - 1);
+    }
+
+    private static long bucketUpperBound(int index) {
+        return index == 0 ? 0 : index >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << index) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "Histogram" + toMap();
+    }
+}
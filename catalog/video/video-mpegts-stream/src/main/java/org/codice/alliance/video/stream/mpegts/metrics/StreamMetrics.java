@@ -0,0 +1,286 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metrics;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.codice.alliance.video.stream.mpegts.netty.PacketBuffer;
+
+/**
+ * Counters and histograms for a single stream, recorded by the stream pipeline and the rollover
+ * actions. Recording never blocks. The per-second rates are computed when the
+ * {@link StreamMetricsRegistry} samples the counters, so they are zero until the stream has been
+ * registered and sampled twice. This class is thread-safe.
+ */
+public class StreamMetrics {
+
+    public static final String DATAGRAMS_PER_SECOND = "datagramsPerSecond";
+
+    public static final String BYTES_PER_SECOND = "bytesPerSecond";
+
+    public static final String DATAGRAM_COUNT = "datagramCount";
+
+    public static final String BYTE_COUNT = "byteCount";
+
+    public static final String SYNC_SKIPPED_BYTES = "syncSkippedBytes";
+
+    public static final String DROPPED_PACKET_COUNT = "droppedPacketCount";
+
+    public static final String FRAMES_COMPLETED = "framesCompleted";
+
+    public static final String FRAMESET_FLUSH_BYTES = "framesetFlushBytes";
+
+    public static final String FRAMESET_FLUSH_MICROS = "framesetFlushMicros";
+
+    public static final String ROLLOVER_MILLIS = "rolloverMillis";
+
+    public static final String CATALOG_RETRY_COUNT = "catalogRetryCount";
+
+    private static final int TS_PACKET_SIZE = 188;
+
+    /**
+     * The phases of a rollover that submit requests to the catalog.
+     */
+    public enum RolloverPhase {
+        /**
+         * Store the child content and create the child metacard.
+         */
+        CREATE,
+
+        /**
+         * Link the child metacard to the parent metacard.
+         */
+        LINK,
+
+        /**
+         * Submit the parent metacard with the merged child metadata.
+         */
+        PARENT_UPDATE
+    }
+
+    private final AtomicLong datagramCount = new AtomicLong();
+
+    private final AtomicLong byteCount = new AtomicLong();
+
+    private final AtomicLong syncSkippedBytes = new AtomicLong();
+
+    private final AtomicLong droppedPacketCount = new AtomicLong();
+
+    private final AtomicLongArray framesCompleted =
+            new AtomicLongArray(PacketBuffer.FrameType.values().length);
+
+    private final Histogram framesetFlushBytes = new Histogram();
+
+    private final Histogram framesetFlushMicros = new Histogram();
+
+    private final Map<RolloverPhase, Histogram> rolloverMillis = new EnumMap<>(RolloverPhase.class);
+
+    private final AtomicLong catalogRetryCount = new AtomicLong();
+
+    private volatile double datagramsPerSecond = 0;
+
+    private volatile double bytesPerSecond = 0;
+
+    private long lastSampleNanos = -1;
+
+    private long lastSampleDatagrams;
+
+    private long lastSampleBytes;
+
+    public StreamMetrics() {
+        for (RolloverPhase rolloverPhase : RolloverPhase.values()) {
+            rolloverMillis.put(rolloverPhase, new Histogram());
+        }
+    }
+
+    /**
+     * @param bytes the size of the datagram
+     */
+    public void datagramReceived(int bytes) {
+        datagramCount.incrementAndGet();
+        byteCount.addAndGet(bytes);
+    }
+
+    /**
+     * Record data that was discarded while searching for the MPEG-TS sync byte. Every run of
+     * discarded data held at least one packet.
+     *
+     * @param bytes the number of bytes that were skipped, must be &gt;0
+     */
+    public void syncBytesSkipped(int bytes) {
+        syncSkippedBytes.addAndGet(bytes);
+        droppedPacketCount.addAndGet((bytes + TS_PACKET_SIZE - 1) / TS_PACKET_SIZE);
+    }
+
+    /**
+     * Record a packet that started with the sync byte but could not be parsed.
+     */
+    public void packetDropped() {
+        droppedPacketCount.incrementAndGet();
+    }
+
+    /**
+     * @param frameType must be non-null
+     */
+    public void frameCompleted(PacketBuffer.FrameType frameType) {
+        notNull(frameType, "frameType must be non-null");
+        framesCompleted.incrementAndGet(frameType.ordinal());
+    }
+
+    /**
+     * @param bytes the number of bytes written to the temporary file
+     * @param nanos the time it took to write the frameset
+     */
+    public void framesetFlushed(long bytes, long nanos) {
+        framesetFlushBytes.record(bytes);
+        framesetFlushMicros.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * @param rolloverPhase must be non-null
+     * @param nanos         the duration of the phase, including retries
+     */
+    public void rolloverPhaseCompleted(RolloverPhase rolloverPhase, long nanos) {
+        notNull(rolloverPhase, "rolloverPhase must be non-null");
+        rolloverMillis.get(rolloverPhase)
+                .record(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /**
+     * Record a catalog request that failed and will be attempted again.
+     */
+    public void catalogRetry() {
+        catalogRetryCount.incrementAndGet();
+    }
+
+    /**
+     * Update the per-second rates from the change of the counters since the previous sample.
+     * Called periodically by a single thread.
+     *
+     * @param nanoTime the current value of {@link System#nanoTime()}
+     */
+    synchronized void sample(long nanoTime) {
+        long datagrams = datagramCount.get();
+        long bytes = byteCount.get();
+        if (lastSampleNanos >= 0 && nanoTime > lastSampleNanos) {
+            double seconds = (nanoTime - lastSampleNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+            datagramsPerSecond = (datagrams - lastSampleDatagrams) / seconds;
+            bytesPerSecond = (bytes - lastSampleBytes) / seconds;
+        }
+        lastSampleNanos = nanoTime;
+        lastSampleDatagrams = datagrams;
+        lastSampleBytes = bytes;
+    }
+
+    public double getDatagramsPerSecond() {
+        return datagramsPerSecond;
+    }
+
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    public long getDatagramCount() {
+        return datagramCount.get();
+    }
+
+    public long getByteCount() {
+        return byteCount.get();
+    }
+
+    public long getSyncSkippedBytes() {
+        return syncSkippedBytes.get();
+    }
+
+    /**
+     * @return the number of packets discarded by the sync search, or because they were malformed
+     */
+    public long getDroppedPacketCount() {
+        return droppedPacketCount.get();
+    }
+
+    /**
+     * @param frameType must be non-null
+     * @return the number of frames of the type that were completed
+     */
+    public long getFramesCompleted(PacketBuffer.FrameType frameType) {
+        notNull(frameType, "frameType must be non-null");
+        return framesCompleted.get(frameType.ordinal());
+    }
+
+    public Histogram getFramesetFlushBytes() {
+        return framesetFlushBytes;
+    }
+
+    public Histogram getFramesetFlushMicros() {
+        return framesetFlushMicros;
+    }
+
+    /**
+     * @param rolloverPhase must be non-null
+     * @return non-null histogram of the phase durations in milliseconds
+     */
+    public Histogram getRolloverMillis(RolloverPhase rolloverPhase) {
+        notNull(rolloverPhase, "rolloverPhase must be non-null");
+        return rolloverMillis.get(rolloverPhase);
+    }
+
+    public long getCatalogRetryCount() {
+        return catalogRetryCount.get();
+    }
+
+    /**
+     * The values are numbers, or nested maps for the frame counts and the histograms, so the map
+     * can be returned over JMX.
+     *
+     * @return non-null snapshot of the metrics
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put(DATAGRAMS_PER_SECOND, getDatagramsPerSecond());
+        map.put(BYTES_PER_SECOND, getBytesPerSecond());
+        map.put(DATAGRAM_COUNT, getDatagramCount());
+        map.put(BYTE_COUNT, getByteCount());
+        map.put(SYNC_SKIPPED_BYTES, getSyncSkippedBytes());
+        map.put(DROPPED_PACKET_COUNT, getDroppedPacketCount());
+
+        Map<String, Object> frames = new LinkedHashMap<>();
+        for (PacketBuffer.FrameType frameType : PacketBuffer.FrameType.values()) {
+            frames.put(frameType.name(), getFramesCompleted(frameType));
+        }
+        map.put(FRAMES_COMPLETED, frames);
+
+        map.put(FRAMESET_FLUSH_BYTES, framesetFlushBytes.toMap());
+        map.put(FRAMESET_FLUSH_MICROS, framesetFlushMicros.toMap());
+
+        Map<String, Object> rollover = new LinkedHashMap<>();
+        rolloverMillis.forEach((phase, histogram) -> rollover.put(phase.name(), histogram.toMap()));
+        map.put(ROLLOVER_MILLIS, rollover);
+
+        map.put(CATALOG_RETRY_COUNT, getCatalogRetryCount());
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamMetrics" + toMap();
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metrics;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-process registry of the {@link StreamMetrics} of the running streams. A single scheduler
+ * thread, shared by all streams, samples the per-second rates of every registered stream and
+ * periodically logs the stream activity. This class is thread-safe.
+ */
+public class StreamMetricsRegistry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamMetricsRegistry.class);
+
+    private static final long DEFAULT_SAMPLE_PERIOD_MILLIS = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * The number of samples between activity log messages.
+     */
+    private static final int SAMPLES_PER_ACTIVITY_LOG = 10;
+
+    private final Map<String, StreamMetrics> streams = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    private int sampleCount = 0;
+
+    public StreamMetricsRegistry() {
+        this(Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stream-metrics");
+            thread.setDaemon(true);
+            return thread;
+        }), DEFAULT_SAMPLE_PERIOD_MILLIS);
+    }
+
+    /**
+     * @param scheduledExecutorService must be non-null
+     * @param samplePeriodMillis       must be &gt;0
+     */
+    StreamMetricsRegistry(ScheduledExecutorService scheduledExecutorService,
+            long samplePeriodMillis) {
+        notNull(scheduledExecutorService, "scheduledExecutorService must be non-null");
+        isTrue(samplePeriodMillis > 0, "samplePeriodMillis must be >0");
+        this.scheduledExecutorService = scheduledExecutorService;
+        scheduledExecutorService.scheduleAtFixedRate(this::sample,
+                samplePeriodMillis,
+                samplePeriodMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Register the metrics of a stream. A previous registration with the same name is replaced.
+     *
+     * @param name          must be non-null
+     * @param streamMetrics must be non-null
+     */
+    public void register(String name, StreamMetrics streamMetrics) {
+        notNull(name, "name must be non-null");
+        notNull(streamMetrics, "streamMetrics must be non-null");
+        streams.put(name, streamMetrics);
+    }
+
+    /**
+     * Unregister the metrics of a stream. Nothing is removed if the name has since been registered
+     * with different metrics.
+     *
+     * @param name          must be non-null
+     * @param streamMetrics must be non-null
+     */
+    public void unregister(String name, StreamMetrics streamMetrics) {
+        notNull(name, "name must be non-null");
+        notNull(streamMetrics, "streamMetrics must be non-null");
+        streams.remove(name, streamMetrics);
+    }
+
+    /**
+     * @param name must be non-null
+     * @return the metrics registered with the name
+     */
+    public Optional<StreamMetrics> get(String name) {
+        notNull(name, "name must be non-null");
+        return Optional.ofNullable(streams.get(name));
+    }
+
+    /**
+     * @return non-null, unmodifiable snapshot of the registered metrics keyed by name
+     */
+    public Map<String, StreamMetrics> getAll() {
+        return Collections.unmodifiableMap(new HashMap<>(streams));
+    }
+
+    /**
+     * Called by the scheduler thread.
+     */
+    void sample() {
+        try {
+            long now = System.nanoTime();
+            streams.values()
+                    .forEach(streamMetrics -> streamMetrics.sample(now));
+            if (++sampleCount % SAMPLES_PER_ACTIVITY_LOG == 0 && LOGGER.isDebugEnabled()) {
+                streams.forEach((name, streamMetrics) -> LOGGER.debug(
+                        "stream activity: name={} datagramsPerSecond={} bytesPerSecond={} droppedPacketCount={}",
+                        name,
+                        streamMetrics.getDatagramsPerSecond(),
+                        streamMetrics.getBytesPerSecond(),
+                        streamMetrics.getDroppedPacketCount()));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.debug("unable to sample the stream metrics", e);
+        }
+    }
+
+    /**
+     * Called by osgi to stop the scheduler.
+     */
+    public void destroy() {
+        scheduledExecutorService.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "StreamMetricsRegistry{" +
+                "streams=" + streams.keySet() +
+                '}';
+    }
+}
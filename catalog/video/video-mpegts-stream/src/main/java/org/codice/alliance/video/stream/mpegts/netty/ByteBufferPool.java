@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.netty;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of fixed size {@link ByteBuffer}s. Buffers that are released while the pool is
+ * full are left for the garbage collector. This implementation is thread-safe.
+ */
+public class ByteBufferPool {
+
+    private final Queue<ByteBuffer> freeBuffers = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger freeCount = new AtomicInteger();
+
+    private final int bufferSize;
+
+    private final int maxPooledBuffers;
+
+    private final boolean direct;
+
+    /**
+     * @param bufferSize       must be &gt;0
+     * @param maxPooledBuffers must be &gt;=0
+     * @param direct           <code>true</code> to allocate direct buffers
+     */
+    public ByteBufferPool(int bufferSize, int maxPooledBuffers, boolean direct) {
+        isTrue(bufferSize > 0, "bufferSize must be >0");
+        isTrue(maxPooledBuffers >= 0, "maxPooledBuffers must be >=0");
+        this.bufferSize = bufferSize;
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.direct = direct;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return the number of buffers that are available for reuse
+     */
+    public int getFreeCount() {
+        return freeCount.get();
+    }
+
+    /**
+     * Get a cleared buffer from the pool, or allocate a new buffer if the pool is empty.
+     *
+     * @return non-null buffer with a capacity of {@link #getBufferSize()}
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = freeBuffers.poll();
+        if (buffer == null) {
+            return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        }
+        freeCount.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Return a buffer to the pool. Buffers that were not created by this pool are ignored.
+     *
+     * @param buffer must be non-null
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferSize || buffer.isDirect() != direct) {
+            return;
+        }
+        if (freeCount.incrementAndGet() > maxPooledBuffers) {
+            freeCount.decrementAndGet();
+            return;
+        }
+        freeBuffers.offer(buffer);
+    }
+
+    @Override
+    public String toString() {
+        return "ByteBufferPool{" +
+                "bufferSize=" + bufferSize +
+                ", maxPooledBuffers=" + maxPooledBuffers +
+                ", direct=" + direct +
+                ", freeCount=" + freeCount +
+                '}';
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.netty;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Tracks the 4-bit continuity counter of every PID in a transport stream and reports the number of
+ * packets that are missing between consecutive packets of the same PID. The counter only
+ * increments on packets that carry a payload, a single repeated packet is allowed, and the
+ * discontinuity indicator of the adaptation field resets the expected value. Null packets are
+ * ignored. This class is not thread-safe, each channel must use its own instance.
+ */
+class ContinuityCounterChecker {
+
+    private static final int PID_COUNT = 0x2000;
+
+    private static final int NULL_PID = 0x1FFF;
+
+    private static final int COUNTER_MODULUS = 16;
+
+    private static final int UNKNOWN = -1;
+
+    private static final int MIN_HEADER_SIZE = 4;
+
+    private final byte[] lastCounters = new byte[PID_COUNT];
+
+    ContinuityCounterChecker() {
+        Arrays.fill(lastCounters, (byte) UNKNOWN);
+    }
+
+    /**
+     * Check the continuity counter of a packet. The position of the buffer is not changed.
+     *
+     * @param packet must be non-null, starts with the sync byte
+     * @return the number of packets of the same PID that are missing before this packet
+     */
+    int check(ByteBuffer packet) {
+
+        int offset = packet.position();
+
+        if (packet.remaining() < MIN_HEADER_SIZE) {
+            return 0;
+        }
+
+        int pid = ((packet.get(offset + 1) & 0x1F) << 8) | (packet.get(offset + 2) & 0xFF);
+
+        if (pid == NULL_PID) {
+            return 0;
+        }
+
+        int flags = packet.get(offset + 3) & 0xFF;
+        int adaptationFieldControl = (flags >> 4) & 0x03;
+        int counter = flags & 0x0F;
+        boolean hasPayload = (adaptationFieldControl & 0x01) != 0;
+
+        int last = lastCounters[pid];
+        lastCounters[pid] = (byte) counter;
+
+        if (last == UNKNOWN || isDiscontinuity(packet, offset, adaptationFieldControl)) {
+            return 0;
+        }
+
+        if (!hasPayload || counter == last) {
+            return Math.floorMod(counter - last, COUNTER_MODULUS);
+        }
+
+        return Math.floorMod(counter - last - 1, COUNTER_MODULUS);
+    }
+
+    private boolean isDiscontinuity(ByteBuffer packet, int offset, int adaptationFieldControl) {
+        boolean hasAdaptationField = (adaptationFieldControl & 0x02) != 0;
+        return hasAdaptationField && packet.remaining() > MIN_HEADER_SIZE + 1
+                && (packet.get(offset + MIN_HEADER_SIZE) & 0xFF) > 0
+                && (packet.get(offset + MIN_HEADER_SIZE + 1) & 0x80) != 0;
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.netty;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Storage strategy used by {@link PacketBuffer} to hold the raw packet data of each frame and to
+ * append completed framesets to the temporary file. Packet data is always consumed in the order it
+ * was appended. Implementations are not required to be thread-safe, the caller is responsible for
+ * synchronization.
+ */
+interface FrameStore {
+
+    /**
+     * Append raw packet data to the current incomplete frame.
+     *
+     * @param rawPacket must be non-null
+     */
+    void append(byte[] rawPacket);
+
+    /**
+     * Append the remaining bytes of a buffer to the current incomplete frame. The buffer may be
+     * reused by the caller after this call returns, so implementations must copy the data.
+     *
+     * @param rawPacket must be non-null
+     */
+    void append(ByteBuffer rawPacket);
+
+    /**
+     * @return <code>true</code> if no data has been appended since the last call to {@link #takeIncompleteFrame()}
+     */
+    boolean isIncompleteFrameEmpty();
+
+    /**
+     * Detach the packet data of the current incomplete frame and start a new incomplete frame.
+     *
+     * @return non-null list of packet data
+     */
+    List<ByteBuffer> takeIncompleteFrame();
+
+    /**
+     * Append the packet data to a file. The packet data must not be used after this call.
+     *
+     * @param file    must be non-null
+     * @param packets must be non-null
+     * @return the number of bytes written
+     * @throws IOException
+     */
+    long write(File file, List<ByteBuffer> packets) throws IOException;
+
+    /**
+     * Release any resources associated with the current file. Called when the file is handed off
+     * by {@link PacketBuffer#rotate(org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition)}.
+     */
+    void closeFile();
+
+    /**
+     * Discard all stored data and release any resources.
+     */
+    void clear();
+}
@@ -19,13 +19,12 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -35,6 +34,7 @@ import java.util.stream.Collectors;
 import org.codice.alliance.video.stream.mpegts.OutputStreamFactory;
 import org.codice.alliance.video.stream.mpegts.filename.TempFileGenerator;
 import org.codice.alliance.video.stream.mpegts.filename.TempFileGeneratorImpl;
+import org.codice.alliance.video.stream.mpegts.metrics.StreamMetrics;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,8 +44,10 @@ import org.slf4j.LoggerFactory;
  * written is on a clean IDR boundary. If an IDR boundary cannot be found, the data will be
  * eventually flush on a arbitrary point to avoid memory exhaustion. This implementation
  * is thread-safe.
- *
- *  NOTE: This implementation could probably be improved by using some kind of circular buffer with read and write pointers 
+ * <p>
+ * Each packet is stored as its own array and every flush opens the temporary file through the
+ * {@link OutputStreamFactory}. See {@link PooledPacketBuffer} for an implementation that avoids the
+ * per-packet allocations and the per-flush file open.
  */
 public class PacketBuffer {
 
@@ -85,13 +87,9 @@ public class PacketBuffer {
         }
     };
 
-    private static final long ACTIVITY_LOG_PERIOD = TimeUnit.SECONDS.toMillis(10);
-
-    private final Timer timer = new Timer();
-
     private List<Frame> frames = new ArrayList<>();
 
-    private List<byte[]> incompleteFrame = new ArrayList<>();
+    private final FrameStore frameStore;
 
     private Lock lock = new ReentrantLock();
 
@@ -109,13 +107,7 @@ public class PacketBuffer {
 
     private OutputStreamFactory outputStreamFactory = FileOutputStream::new;
 
-    private long bytesReceived = 0;
-
-    private long packetsReceived = 0;
-
-    private long bytesWritten = 0;
-
-    private long filesWritten = 0;
+    private StreamMetrics streamMetrics = new StreamMetrics();
 
     /**
      * Timestamp of most recent activity. Updated to current time when a packet is sent to the
@@ -129,17 +121,25 @@ public class PacketBuffer {
     private Supplier<Date> dateSupplier = Date::new;
 
     public PacketBuffer() {
-        timer.schedule(new TimerTask() {
-            @Override
-            public void run() {
-                LOGGER.debug(
-                        "packet buffer activity: bytesReceived={} packetsReceived={} bytesWritten={} filesWritten={}",
-                        bytesReceived,
-                        packetsReceived,
-                        bytesWritten,
-                        filesWritten);
-            }
-        }, 0, ACTIVITY_LOG_PERIOD);
+        frameStore = new OutputStreamFrameStore();
+    }
+
+    /**
+     * @param frameStore must be non-null
+     */
+    PacketBuffer(FrameStore frameStore) {
+        notNull(frameStore, "frameStore must be non-null");
+        this.frameStore = frameStore;
+    }
+
+    /**
+     * The completed frames and the frameset flushes are recorded in the stream metrics.
+     *
+     * @param streamMetrics must be non-null
+     */
+    public void setStreamMetrics(StreamMetrics streamMetrics) {
+        notNull(streamMetrics, "streamMetrics must be non-null");
+        this.streamMetrics = streamMetrics;
     }
 
     /**
@@ -181,7 +181,7 @@ public class PacketBuffer {
         lock.lock();
         try {
             frames.clear();
-            incompleteFrame.clear();
+            frameStore.clear();
             currentTempFile = null;
             tempFileCreateTime = null;
             bytesWrittenToTempFile = 0;
@@ -232,22 +232,45 @@ public class PacketBuffer {
         }
         lock.lock();
         try {
-            lastActivity = System.currentTimeMillis();
-            incompleteFrame.add(rawPacket);
-            incompleteFrameBytes += rawPacket.length;
-            bytesReceived += rawPacket.length;
-            packetsReceived++;
-            if (incompleteFrameBytes > maxIncompleteFrameBytes) {
-                frames.add(new Frame(FrameType.UNKNOWN, incompleteFrame));
-                incompleteFrame = new ArrayList<>();
-                incompleteFrameBytes = 0;
-                flushIfDataAvailable();
-            }
+            frameStore.append(rawPacket);
+            packetWritten(rawPacket.length);
         } finally {
             lock.unlock();
         }
     }
 
+    /**
+     * Write the remaining bytes of a buffer into the packet buffer. The data is copied, so the
+     * caller may reuse the buffer after this method returns. The position of the buffer is not
+     * modified. Otherwise behaves like {@link #write(byte[])}.
+     *
+     * @param rawPacket may be null or empty
+     */
+    public void write(ByteBuffer rawPacket) {
+
+        if (rawPacket == null || !rawPacket.hasRemaining()) {
+            return;
+        }
+        lock.lock();
+        try {
+            int length = rawPacket.remaining();
+            frameStore.append(rawPacket.duplicate());
+            packetWritten(length);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void packetWritten(int length) {
+        lastActivity = System.currentTimeMillis();
+        incompleteFrameBytes += length;
+        if (incompleteFrameBytes > maxIncompleteFrameBytes) {
+            frames.add(new Frame(FrameType.UNKNOWN, frameStore.takeIncompleteFrame()));
+            incompleteFrameBytes = 0;
+            flushIfDataAvailable();
+        }
+    }
+
     /**
      * Tell the packet buffer that the recently written data represents a complete frame. A flush
      * to disk will be attempted.
@@ -258,8 +281,8 @@ public class PacketBuffer {
         notNull(frameType, "frameType must be non-null");
         lock.lock();
         try {
-            frames.add(new Frame(frameType, incompleteFrame));
-            incompleteFrame = new ArrayList<>();
+            frames.add(new Frame(frameType, frameStore.takeIncompleteFrame()));
+            streamMetrics.frameCompleted(frameType);
 
             flushIfDataAvailable();
 
@@ -287,21 +310,18 @@ public class PacketBuffer {
      */
     private void flushFrameset(int index) throws IOException {
 
-        try (OutputStream os = outputStreamFactory.create(getTempFile(), true)) {
+        File tempFile = getTempFile();
 
-            List<byte[]> outgoingPackets = frames.subList(0, index + 1)
-                    .stream()
-                    .flatMap(frame -> frame.packets.stream())
-                    .collect(Collectors.toList());
-            frames = new ArrayList<>(frames.subList(index + 1, frames.size()));
+        List<ByteBuffer> outgoingPackets = frames.subList(0, index + 1)
+                .stream()
+                .flatMap(frame -> frame.packets.stream())
+                .collect(Collectors.toList());
+        frames = new ArrayList<>(frames.subList(index + 1, frames.size()));
 
-            for (byte[] outgoingPacket : outgoingPackets) {
-                os.write(outgoingPacket);
-                bytesWrittenToTempFile += outgoingPacket.length;
-                bytesWritten += outgoingPacket.length;
-            }
-
-        }
+        long start = System.nanoTime();
+        long byteCount = frameStore.write(tempFile, outgoingPackets);
+        streamMetrics.framesetFlushed(byteCount, System.nanoTime() - start);
+        bytesWrittenToTempFile += byteCount;
 
     }
 
@@ -319,7 +339,7 @@ public class PacketBuffer {
         try {
             if (isActivityTimeout()) {
                 LOGGER.debug("activity timeout detected, flushing data and rolling over file");
-                if (!incompleteFrame.isEmpty()) {
+                if (!frameStore.isIncompleteFrameEmpty()) {
                     flushIncompleteFrames();
                 }
                 flushIfDataAvailable();
@@ -342,14 +362,14 @@ public class PacketBuffer {
 
     private Optional<File> getFile() {
         File tempFile = currentTempFile;
+        frameStore.closeFile();
         currentTempFile = null;
         bytesWrittenToTempFile = 0;
         return Optional.of(tempFile);
     }
 
     private void flushIncompleteFrames() {
-        frames.add(new Frame(FrameType.UNKNOWN, incompleteFrame));
-        incompleteFrame = new ArrayList<>();
+        frames.add(new Frame(FrameType.UNKNOWN, frameStore.takeIncompleteFrame()));
     }
 
     /**
@@ -363,7 +383,7 @@ public class PacketBuffer {
         lock.lock();
         try {
 
-            if (!incompleteFrame.isEmpty()) {
+            if (!frameStore.isIncompleteFrameEmpty()) {
                 flushIncompleteFrames();
             }
 
@@ -377,17 +397,12 @@ public class PacketBuffer {
         }
     }
 
-    public void cancelTimer() {
-        timer.cancel();
-    }
-
     private File getTempFile() throws IOException {
         if (currentTempFile == null) {
             tempFileCreateTime = dateSupplier.get()
                     .getTime();
             bytesWrittenToTempFile = 0;
             currentTempFile = tempFileGenerator.generate();
-            filesWritten++;
         }
         return currentTempFile;
     }
@@ -467,14 +482,71 @@ public class PacketBuffer {
      */
     private static class Frame {
 
-        private List<byte[]> packets;
+        private List<ByteBuffer> packets;
 
         private FrameType frameType;
 
-        public Frame(FrameType frameType, List<byte[]> packets) {
+        public Frame(FrameType frameType, List<ByteBuffer> packets) {
             this.frameType = frameType;
             this.packets = packets;
         }
     }
 
+    /**
+     * Keeps a reference to each packet array and opens the temporary file through the
+     * {@link OutputStreamFactory} for every write.
+     */
+    private class OutputStreamFrameStore implements FrameStore {
+
+        private List<ByteBuffer> incompleteFrame = new ArrayList<>();
+
+        @Override
+        public void append(byte[] rawPacket) {
+            incompleteFrame.add(ByteBuffer.wrap(rawPacket));
+        }
+
+        @Override
+        public void append(ByteBuffer rawPacket) {
+            byte[] copy = new byte[rawPacket.remaining()];
+            rawPacket.get(copy);
+            append(copy);
+        }
+
+        @Override
+        public boolean isIncompleteFrameEmpty() {
+            return incompleteFrame.isEmpty();
+        }
+
+        @Override
+        public List<ByteBuffer> takeIncompleteFrame() {
+            List<ByteBuffer> packets = incompleteFrame;
+            incompleteFrame = new ArrayList<>();
+            return packets;
+        }
+
+        /**
+         * Every buffer wraps an entire packet array, so the backing array is written as-is.
+         */
+        @Override
+        public long write(File file, List<ByteBuffer> packets) throws IOException {
+            long byteCount = 0;
+            try (OutputStream os = outputStreamFactory.create(file, true)) {
+                for (ByteBuffer packet : packets) {
+                    os.write(packet.array());
+                    byteCount += packet.remaining();
+                }
+            }
+            return byteCount;
+        }
+
+        @Override
+        public void closeFile() {
+        }
+
+        @Override
+        public void clear() {
+            incompleteFrame.clear();
+        }
+    }
+
 }
@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.netty;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.codice.alliance.libs.mpegts.Constants;
+import org.codice.alliance.video.stream.mpegts.OutputStreamFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link PacketBuffer} that copies packet data into contiguous buffers borrowed from a
+ * {@link ByteBufferPool} and appends framesets to the temporary file with gathering writes on a
+ * single {@link FileChannel}. The channel stays open until the temporary file is rotated. The
+ * frameset, rollover and incomplete frame semantics are identical to {@link PacketBuffer}. The
+ * {@link OutputStreamFactory} is not used by this implementation.
+ */
+public class PooledPacketBuffer extends PacketBuffer {
+
+    /**
+     * Each pooled buffer holds a whole number of MPEG-TS packets.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = Constants.TS_PACKET_SIZE * 1024;
+
+    public static final int DEFAULT_MAX_POOLED_BUFFERS = 256;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledPacketBuffer.class);
+
+    private static final ByteBufferPool SHARED_POOL = new ByteBufferPool(DEFAULT_BUFFER_SIZE,
+            DEFAULT_MAX_POOLED_BUFFERS,
+            true);
+
+    /**
+     * Use direct buffers from a pool that is shared by all instances.
+     */
+    public PooledPacketBuffer() {
+        this(SHARED_POOL);
+    }
+
+    /**
+     * @param byteBufferPool must be non-null
+     */
+    public PooledPacketBuffer(ByteBufferPool byteBufferPool) {
+        super(new PooledFrameStore(byteBufferPool));
+    }
+
+    /**
+     * A pooled buffer and the number of bytes that have been appended to it and consumed from it.
+     */
+    private static class Chunk {
+
+        private final ByteBuffer buffer;
+
+        private final boolean pooled;
+
+        private int filled = 0;
+
+        private int drained = 0;
+
+        Chunk(ByteBuffer buffer, boolean pooled) {
+            this.buffer = buffer;
+            this.pooled = pooled;
+        }
+
+        private int remaining() {
+            return buffer.capacity() - filled;
+        }
+
+        private boolean isDrained() {
+            return drained == filled;
+        }
+    }
+
+    /**
+     * Packet data is appended to the newest chunk, and consecutive packets in the same chunk are
+     * coalesced into a single buffer view. Because the {@link PacketBuffer} always consumes data in
+     * the order it was appended, a chunk can be returned to the pool as soon as it is no longer the
+     * newest chunk and all of its data has been consumed.
+     */
+    private static class PooledFrameStore implements FrameStore {
+
+        private final ByteBufferPool byteBufferPool;
+
+        private final Deque<Chunk> chunks = new ArrayDeque<>();
+
+        private List<ByteBuffer> incompleteFrame = new ArrayList<>();
+
+        private ByteBuffer lastSegment;
+
+        private Chunk lastSegmentChunk;
+
+        private FileChannel fileChannel;
+
+        private File channelFile;
+
+        PooledFrameStore(ByteBufferPool byteBufferPool) {
+            notNull(byteBufferPool, "byteBufferPool must be non-null");
+            this.byteBufferPool = byteBufferPool;
+        }
+
+        @Override
+        public void append(byte[] rawPacket) {
+            append(ByteBuffer.wrap(rawPacket));
+        }
+
+        @Override
+        public void append(ByteBuffer rawPacket) {
+
+            int length = rawPacket.remaining();
+
+            Chunk chunk = chunks.peekLast();
+            if (chunk == null || chunk.remaining() < length) {
+                chunk = newChunk(length);
+                chunks.addLast(chunk);
+                releaseDrainedChunks();
+            }
+
+            int offset = chunk.filled;
+            chunk.buffer.position(offset);
+            chunk.buffer.put(rawPacket);
+            chunk.filled += length;
+
+            if (lastSegmentChunk == chunk && lastSegment.limit() == offset) {
+                lastSegment.limit(chunk.filled);
+            } else {
+                ByteBuffer segment = chunk.buffer.duplicate();
+                segment.position(offset);
+                segment.limit(chunk.filled);
+                incompleteFrame.add(segment);
+                lastSegment = segment;
+                lastSegmentChunk = chunk;
+            }
+        }
+
+        private Chunk newChunk(int minimumSize) {
+            if (minimumSize > byteBufferPool.getBufferSize()) {
+                return new Chunk(ByteBuffer.allocate(minimumSize), false);
+            }
+            return new Chunk(byteBufferPool.acquire(), true);
+        }
+
+        @Override
+        public boolean isIncompleteFrameEmpty() {
+            return incompleteFrame.isEmpty();
+        }
+
+        @Override
+        public List<ByteBuffer> takeIncompleteFrame() {
+            List<ByteBuffer> packets = incompleteFrame;
+            incompleteFrame = new ArrayList<>();
+            lastSegment = null;
+            lastSegmentChunk = null;
+            return packets;
+        }
+
+        @Override
+        public long write(File file, List<ByteBuffer> packets) throws IOException {
+
+            ByteBuffer[] buffers = packets.toArray(new ByteBuffer[packets.size()]);
+
+            int[] lengths = new int[buffers.length];
+            long byteCount = 0;
+            for (int i = 0; i < buffers.length; i++) {
+                lengths[i] = buffers[i].remaining();
+                byteCount += lengths[i];
+            }
+
+            try {
+                FileChannel channel = getFileChannel(file);
+                long remaining = byteCount;
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+            } finally {
+                drain(lengths);
+            }
+
+            return byteCount;
+        }
+
+        private void drain(int[] lengths) {
+            for (int length : lengths) {
+                Chunk chunk = chunks.peekFirst();
+                if (chunk != null) {
+                    chunk.drained += length;
+                }
+                releaseDrainedChunks();
+            }
+        }
+
+        /**
+         * Return fully consumed chunks to the pool, except for the newest chunk which may still
+         * receive data.
+         */
+        private void releaseDrainedChunks() {
+            while (chunks.size() > 1 && chunks.peekFirst()
+                    .isDrained()) {
+                release(chunks.pollFirst());
+            }
+        }
+
+        private void release(Chunk chunk) {
+            if (chunk.pooled) {
+                byteBufferPool.release(chunk.buffer);
+            }
+        }
+
+        private FileChannel getFileChannel(File file) throws IOException {
+            if (fileChannel != null && file.equals(channelFile)) {
+                return fileChannel;
+            }
+            closeFile();
+            fileChannel = FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            channelFile = file;
+            return fileChannel;
+        }
+
+        @Override
+        public void closeFile() {
+            if (fileChannel != null) {
+                try {
+                    fileChannel.close();
+                } catch (IOException e) {
+                    LOGGER.debug("unable to close temp file: file={}", channelFile, e);
+                }
+            }
+            fileChannel = null;
+            channelFile = null;
+        }
+
+        @Override
+        public void clear() {
+            chunks.forEach(this::release);
+            chunks.clear();
+            incompleteFrame = new ArrayList<>();
+            lastSegment = null;
+            lastSegmentChunk = null;
+            closeFile();
+        }
+    }
+
+}
@@ -15,12 +15,13 @@ package org.codice.alliance.video.stream.mpegts.netty;
 
 import static org.apache.commons.lang3.Validate.notNull;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.codice.alliance.libs.mpegts.Constants;
 import org.codice.alliance.video.security.token.videographer.VideographerAuthenticationToken;
+import org.codice.alliance.video.stream.mpegts.metrics.StreamMetrics;
 import org.codice.ddf.security.common.Security;
 import org.codice.ddf.security.handler.api.BaseAuthenticationToken;
 import org.osgi.framework.Bundle;
@@ -30,10 +31,6 @@ import org.osgi.framework.ServiceReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.taktik.mpegts.MTSPacket;
-import org.taktik.mpegts.sources.MTSSources;
-import org.taktik.mpegts.sources.ResettableMTSSource;
-
-import com.google.common.io.ByteSource;
 
 import ddf.security.Subject;
 import ddf.security.service.SecurityManager;
@@ -42,10 +39,21 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.util.ReferenceCountUtil;
 
 /**
  * Converts datagrams to a series of MTSPackets. Will discard data while looking for the MPEG-TS
  * sync byte.
+ * <p>
+ * Packets that lie entirely within a datagram are parsed from a view of the datagram content, so
+ * no per-packet byte arrays are allocated. Only a packet that spans two datagrams is assembled in
+ * an intermediate buffer. The datagram is retained until the packets produced from it have been
+ * passed down the pipeline, which means handlers further down the pipeline must not hold on to the
+ * {@link MTSPacket#getPayload()} buffer after they return.
+ * <p>
+ * The continuity counters of the packets are checked, and gaps are reported to the
+ * {@link UdpStreamProcessor} so that packets lost before they reached this host can be told apart
+ * from datagrams dropped by the local socket.
  */
 class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacket> {
 
@@ -67,10 +75,15 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
 
     private PacketBuffer packetBuffer;
 
-    private MTSParser mtsParser = MTSSources::from;
+    private MTSPacketFactory mtsPacketFactory = MTSPacket::new;
 
     private UdpStreamProcessor udpStreamProcessor;
 
+    private final ContinuityCounterChecker continuityCounterChecker =
+            new ContinuityCounterChecker();
+
+    private final StreamMetrics streamMetrics;
+
     /**
      * Milliseconds since the subject token was checked for expiration.
      */
@@ -78,8 +91,20 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
 
     public RawUdpDataToMTSPacketDecoder(PacketBuffer packetBuffer,
             UdpStreamProcessor udpStreamProcessor) {
+        this(packetBuffer, udpStreamProcessor, new StreamMetrics());
+    }
+
+    /**
+     * @param packetBuffer       must be non-null
+     * @param udpStreamProcessor must be non-null
+     * @param streamMetrics      must be non-null, records the datagrams and the discarded data
+     */
+    public RawUdpDataToMTSPacketDecoder(PacketBuffer packetBuffer,
+            UdpStreamProcessor udpStreamProcessor, StreamMetrics streamMetrics) {
+        notNull(streamMetrics, "streamMetrics must be non-null");
         this.packetBuffer = packetBuffer;
         this.udpStreamProcessor = udpStreamProcessor;
+        this.streamMetrics = streamMetrics;
     }
 
     @Override
@@ -135,6 +160,22 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
         return System.currentTimeMillis() - lastTokenCheck > TOKEN_CHECK_PERIOD;
     }
 
+    /**
+     * The packets emitted by {@link #decode(ChannelHandlerContext, DatagramPacket, List)} are
+     * views of the datagram content, and {@link MessageToMessageDecoder} releases the datagram
+     * before the packets are passed on. Hold an extra reference until the pipeline has handled
+     * them.
+     */
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        ReferenceCountUtil.retain(msg);
+        try {
+            super.channelRead(ctx, msg);
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
     @Override
     protected void decode(ChannelHandlerContext ctx, DatagramPacket msg, List<Object> outputList)
             throws Exception {
@@ -145,35 +186,73 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
 
         checkSecuritySubject(msg);
 
-        byteBuf.writeBytes(msg.content());
+        ByteBuf content = msg.content();
 
-        skipToSyncByte();
+        streamMetrics.datagramReceived(content.readableBytes());
 
-        while (byteBuf.readableBytes() >= TS_PACKET_SIZE) {
+        if (byteBuf.isReadable()) {
+            completeSpanningPacket(content, outputList);
+        }
 
-            byte[] payload = new byte[TS_PACKET_SIZE];
+        skipToSyncByte(content);
 
-            byteBuf.readBytes(payload);
+        while (content.readableBytes() >= TS_PACKET_SIZE) {
 
-            ResettableMTSSource src = mtsParser.parse(ByteSource.wrap(payload));
+            handlePacket(content.nioBuffer(content.readerIndex(), TS_PACKET_SIZE), outputList);
 
-            MTSPacket packet = null;
-            try {
-                packet = src.nextPacket();
-            } catch (IOException e) {
-                LOGGER.debug("unable to parse mpegst packet", e);
-            }
+            content.skipBytes(TS_PACKET_SIZE);
 
-            if (packet != null) {
-                packetBuffer.write(payload);
-                outputList.add(packet);
-            }
+            skipToSyncByte(content);
+        }
 
-            skipToSyncByte();
+        if (content.isReadable() && content.getByte(content.readerIndex()) == TS_SYNC) {
+            byteBuf.writeBytes(content);
         }
 
-        byteBuf.discardReadBytes();
+    }
 
+    /**
+     * The intermediate buffer starts with a sync byte and contains the start of a packet from the
+     * previous datagram. Fill it from the new datagram and handle the packet once it is complete.
+     */
+    private void completeSpanningPacket(ByteBuf content, List<Object> outputList) {
+
+        byteBuf.writeBytes(content,
+                Math.min(TS_PACKET_SIZE - byteBuf.readableBytes(), content.readableBytes()));
+
+        if (byteBuf.readableBytes() < TS_PACKET_SIZE) {
+            return;
+        }
+
+        ByteBuffer packetData = ByteBuffer.allocate(TS_PACKET_SIZE);
+        byteBuf.readBytes(packetData);
+        packetData.flip();
+        byteBuf.clear();
+
+        handlePacket(packetData, outputList);
+    }
+
+    private void handlePacket(ByteBuffer packetData, List<Object> outputList) {
+
+        MTSPacket packet = null;
+        try {
+            packet = mtsPacketFactory.create(packetData.duplicate());
+        } catch (RuntimeException e) {
+            // the header parser signals malformed packets with unchecked exceptions
+            LOGGER.debug("unable to parse mpegst packet", e);
+        }
+
+        if (packet == null) {
+            streamMetrics.packetDropped();
+        } else {
+            int missingPackets = continuityCounterChecker.check(packetData);
+            if (missingPackets > 0) {
+                LOGGER.trace("continuity counter gap: missingPackets={}", missingPackets);
+                udpStreamProcessor.continuityError(missingPackets);
+            }
+            packetBuffer.write(packetData);
+            outputList.add(packet);
+        }
     }
 
     private void checkSecuritySubject(DatagramPacket msg) throws SecurityServiceException {
@@ -195,20 +274,31 @@ class RawUdpDataToMTSPacketDecoder extends MessageToMessageDecoder<DatagramPacke
                 .getHostAddress();
     }
 
-    private void skipToSyncByte() {
+    /**
+     * Skip to the next sync byte. If there is no sync byte, then all of the data is skipped.
+     */
+    private void skipToSyncByte(ByteBuf data) {
 
-        int bytesBefore;
+        int bytesBefore = data.bytesBefore(TS_SYNC);
 
-        if ((bytesBefore = byteBuf.bytesBefore(TS_SYNC)) > 0) {
+        if (bytesBefore < 0) {
+            bytesBefore = data.readableBytes();
+        }
+
+        if (bytesBefore > 0) {
             LOGGER.trace("skipping bytes in raw data stream, looking for MPEG-TS sync {}",
                     bytesBefore);
-            byteBuf.skipBytes(bytesBefore);
+            data.skipBytes(bytesBefore);
+            streamMetrics.syncBytesSkipped(bytesBefore);
         }
 
     }
 
-    public interface MTSParser {
-        ResettableMTSSource parse(ByteSource byteSource) throws IOException;
+    /**
+     * Parses the header of a single MPEG-TS packet. The packet may keep a reference to the buffer.
+     */
+    public interface MTSPacketFactory {
+        MTSPacket create(ByteBuffer packetData);
     }
 
 }
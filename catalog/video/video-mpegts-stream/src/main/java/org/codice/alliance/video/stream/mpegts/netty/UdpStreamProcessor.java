@@ -24,6 +24,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Timer;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.Validate;
 import org.codice.alliance.libs.klv.GeometryOperator;
@@ -44,6 +45,7 @@ import org.codice.alliance.video.stream.mpegts.metacard.TemporalEndMetacardUpdat
 import org.codice.alliance.video.stream.mpegts.metacard.TemporalStartMetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.metacard.UnionMetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.metacard.UnionSingleMetacardUpdater;
+import org.codice.alliance.video.stream.mpegts.metrics.StreamMetrics;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamCreationException;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamCreationPlugin;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamShutdownException;
@@ -51,6 +53,7 @@ import org.codice.alliance.video.stream.mpegts.plugins.StreamShutdownPlugin;
 import org.codice.alliance.video.stream.mpegts.rollover.BooleanOrRolloverCondition;
 import org.codice.alliance.video.stream.mpegts.rollover.ByteCountRolloverCondition;
 import org.codice.alliance.video.stream.mpegts.rollover.ElapsedTimeRolloverCondition;
+import org.codice.alliance.video.stream.mpegts.rollover.AsyncRolloverAction;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverAction;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverActionException;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
@@ -79,6 +82,8 @@ public class UdpStreamProcessor implements StreamProcessor {
 
     private final Context context;
 
+    private final StreamMetrics streamMetrics = new StreamMetrics();
+
     private PacketBuffer packetBuffer = new PacketBuffer();
 
     private RolloverCondition rolloverCondition;
@@ -111,9 +116,28 @@ public class UdpStreamProcessor implements StreamProcessor {
 
     private Double distanceTolerance;
 
+    private boolean asynchronousRollover = false;
+
+    private int rolloverQueueSize = AsyncRolloverAction.DEFAULT_QUEUE_SIZE;
+
+    private int rolloverShutdownTimeout = AsyncRolloverAction.DEFAULT_SHUTDOWN_TIMEOUT_SECONDS;
+
+    private final AtomicLong continuityErrorCount = new AtomicLong();
+
+    private final AtomicLong missingPacketCount = new AtomicLong();
+
     public UdpStreamProcessor(StreamMonitor streamMonitor) {
         this.streamMonitor = streamMonitor;
         context = new Context(this);
+        packetBuffer.setStreamMetrics(streamMetrics);
+    }
+
+    /**
+     * @return non-null metrics of the stream, shared by the channel handlers, the packet buffer and
+     * the rollover actions
+     */
+    public StreamMetrics getStreamMetrics() {
+        return streamMetrics;
     }
 
     public Subject getSubject() {
@@ -174,6 +198,7 @@ public class UdpStreamProcessor implements StreamProcessor {
                         .accept(geometryFunctionVisitor);
                 locationMetacardUpdater.getPostUnionGeometryOperator()
                         .accept(geometryFunctionVisitor);
+                locationMetacardUpdater.setDistanceTolerance(distanceTolerance);
             }
 
             @Override
@@ -228,6 +253,61 @@ public class UdpStreamProcessor implements StreamProcessor {
         this.metacardUpdateInitialDelay = metacardUpdateInitialDelay;
     }
 
+    public boolean isAsynchronousRollover() {
+        return asynchronousRollover;
+    }
+
+    /**
+     * Takes effect the next time the stream is started.
+     *
+     * @param asynchronousRollover must be non-null
+     */
+    public void setAsynchronousRollover(Boolean asynchronousRollover) {
+        notNull(asynchronousRollover, "asynchronousRollover must be non-null");
+        this.asynchronousRollover = asynchronousRollover;
+    }
+
+    public int getRolloverQueueSize() {
+        return rolloverQueueSize;
+    }
+
+    /**
+     * Takes effect the next time the stream is started.
+     *
+     * @param rolloverQueueSize must be non-null and &gt;={@link AsyncRolloverAction#MIN_QUEUE_SIZE} and &lt;={@link AsyncRolloverAction#MAX_QUEUE_SIZE}
+     */
+    public void setRolloverQueueSize(Integer rolloverQueueSize) {
+        notNull(rolloverQueueSize, "rolloverQueueSize must be non-null");
+        inclusiveBetween(AsyncRolloverAction.MIN_QUEUE_SIZE,
+                AsyncRolloverAction.MAX_QUEUE_SIZE,
+                rolloverQueueSize,
+                String.format("rolloverQueueSize must be >=%d and <=%d",
+                        AsyncRolloverAction.MIN_QUEUE_SIZE,
+                        AsyncRolloverAction.MAX_QUEUE_SIZE));
+        this.rolloverQueueSize = rolloverQueueSize;
+    }
+
+    public int getRolloverShutdownTimeout() {
+        return rolloverShutdownTimeout;
+    }
+
+    /**
+     * The number of seconds to wait for the queued rollover files to be ingested when the stream
+     * is stopped. The files that are still waiting afterwards are left on disk.
+     *
+     * @param rolloverShutdownTimeout must be non-null and &gt;={@link AsyncRolloverAction#MIN_SHUTDOWN_TIMEOUT_SECONDS} and &lt;={@link AsyncRolloverAction#MAX_SHUTDOWN_TIMEOUT_SECONDS}
+     */
+    public void setRolloverShutdownTimeout(Integer rolloverShutdownTimeout) {
+        notNull(rolloverShutdownTimeout, "rolloverShutdownTimeout must be non-null");
+        inclusiveBetween(AsyncRolloverAction.MIN_SHUTDOWN_TIMEOUT_SECONDS,
+                AsyncRolloverAction.MAX_SHUTDOWN_TIMEOUT_SECONDS,
+                rolloverShutdownTimeout,
+                String.format("rolloverShutdownTimeout must be >=%d and <=%d",
+                        AsyncRolloverAction.MIN_SHUTDOWN_TIMEOUT_SECONDS,
+                        AsyncRolloverAction.MAX_SHUTDOWN_TIMEOUT_SECONDS));
+        this.rolloverShutdownTimeout = rolloverShutdownTimeout;
+    }
+
     @Override
     public Optional<URI> getStreamUri() {
         return streamMonitor.getStreamUri();
@@ -248,6 +328,9 @@ public class UdpStreamProcessor implements StreamProcessor {
                 ", rolloverCondition=" + rolloverCondition +
                 ", metacardUpdateInitialDelay=" + metacardUpdateInitialDelay +
                 ", parentMetacardUpdater=" + parentMetacardUpdater +
+                ", asynchronousRollover=" + asynchronousRollover +
+                ", rolloverQueueSize=" + rolloverQueueSize +
+                ", rolloverShutdownTimeout=" + rolloverShutdownTimeout +
                 '}';
     }
 
@@ -305,6 +388,17 @@ public class UdpStreamProcessor implements StreamProcessor {
         return packetBuffer;
     }
 
+    /**
+     * Replace the packet buffer. Must be called before the channel handlers are created.
+     *
+     * @param packetBuffer must be non-null
+     */
+    public void setPacketBuffer(PacketBuffer packetBuffer) {
+        notNull(packetBuffer, "packetBuffer must be non-null");
+        packetBuffer.setStreamMetrics(streamMetrics);
+        this.packetBuffer = packetBuffer;
+    }
+
     /**
      * Shutdown the stream processor. Attempts to flush and ingest any partial stream data regardless
      * of IDR boundaries.
@@ -312,7 +406,6 @@ public class UdpStreamProcessor implements StreamProcessor {
     public void shutdown() {
         try {
             LOGGER.trace("Shutting down stream processor.");
-            packetBuffer.cancelTimer();
             streamShutdownPlugin.onShutdown(context);
         } catch (StreamShutdownException e) {
             LOGGER.debug("unable to shutdown", e);
@@ -331,7 +424,7 @@ public class UdpStreamProcessor implements StreamProcessor {
         } catch (RolloverActionException e) {
             LOGGER.debug("unable handle rollover file: tempFile={}", tempFile, e);
         } finally {
-            if (!tempFile.delete()) {
+            if (tempFile.exists() && !tempFile.delete()) {
                 LOGGER.debug("unable to delete temp file: filename={}", tempFile);
             }
         }
@@ -357,6 +450,10 @@ public class UdpStreamProcessor implements StreamProcessor {
                 parentMetacardUpdater));
     }
 
+    public RolloverAction getRolloverAction() {
+        return rolloverAction;
+    }
+
     public void setRolloverAction(RolloverAction rolloverAction) {
         this.rolloverAction = rolloverAction;
     }
@@ -432,6 +529,9 @@ public class UdpStreamProcessor implements StreamProcessor {
      */
     public void init() {
 
+        continuityErrorCount.set(0);
+        missingPacketCount.set(0);
+
         Security.runAsAdmin(() -> {
 
             if (streamCreationSubject == null) {
@@ -459,13 +559,41 @@ public class UdpStreamProcessor implements StreamProcessor {
         this.rolloverCondition = rolloverCondition;
     }
 
+    /**
+     * Called by the pipeline when a continuity counter gap is detected. The channels of the stream
+     * may call this concurrently.
+     *
+     * @param missingPackets the number of packets that are missing, must be &gt;0
+     */
+    void continuityError(int missingPackets) {
+        continuityErrorCount.incrementAndGet();
+        missingPacketCount.addAndGet(missingPackets);
+    }
+
+    /**
+     * @return the number of continuity counter gaps since the processor was initialized
+     */
+    public long getContinuityErrorCount() {
+        return continuityErrorCount.get();
+    }
+
+    /**
+     * @return the number of transport stream packets that were missing from the continuity counter
+     * gaps since the processor was initialized
+     */
+    public long getMissingPacketCount() {
+        return missingPacketCount.get();
+    }
+
     /**
      * Returns an array of ChannelHandler objects used by Netty as the pipeline.
      *
      * @return non-null array of channel handlers
      */
     public ChannelHandler[] createChannelHandlers() {
-        return new ChannelHandler[] {new RawUdpDataToMTSPacketDecoder(packetBuffer, this),
+        return new ChannelHandler[] {new RawUdpDataToMTSPacketDecoder(packetBuffer,
+                this,
+                streamMetrics),
                 new MTSPacketToPESPacketDecoder(), new PESPacketToApplicationDataDecoder(),
                 new DecodedStreamDataHandler(packetBuffer)};
     }
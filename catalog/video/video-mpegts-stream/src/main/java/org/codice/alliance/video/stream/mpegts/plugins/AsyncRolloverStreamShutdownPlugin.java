@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.plugins;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.video.stream.mpegts.Context;
+import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
+import org.codice.alliance.video.stream.mpegts.rollover.AsyncRolloverAction;
+import org.codice.alliance.video.stream.mpegts.rollover.RolloverAction;
+
+/**
+ * Waits for an {@link AsyncRolloverAction} to finish the queued rollover files and stops its
+ * worker thread. Waits at most for the rollover shutdown timeout of the stream, see
+ * {@link UdpStreamProcessor#setRolloverShutdownTimeout(Integer)}. Must run after the packet
+ * buffer has been flushed.
+ */
+public class AsyncRolloverStreamShutdownPlugin extends BaseStreamShutdownPlugin {
+
+    @Override
+    protected void doOnShutdown(Context context) throws StreamShutdownException {
+        UdpStreamProcessor udpStreamProcessor = context.getUdpStreamProcessor();
+        RolloverAction rolloverAction = udpStreamProcessor.getRolloverAction();
+        if (rolloverAction instanceof AsyncRolloverAction) {
+            ((AsyncRolloverAction) rolloverAction).shutdown(TimeUnit.SECONDS.toMillis(
+                    udpStreamProcessor.getRolloverShutdownTimeout()));
+        }
+    }
+}
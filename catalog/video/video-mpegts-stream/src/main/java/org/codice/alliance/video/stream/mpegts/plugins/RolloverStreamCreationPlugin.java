@@ -17,21 +17,38 @@ import java.util.Arrays;
 
 import org.codice.alliance.video.stream.mpegts.Context;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
+import org.codice.alliance.video.stream.mpegts.rollover.AsyncRolloverAction;
 import org.codice.alliance.video.stream.mpegts.rollover.CatalogRolloverAction;
 import org.codice.alliance.video.stream.mpegts.rollover.CreateMetacardRolloverAction;
 import org.codice.alliance.video.stream.mpegts.rollover.ListRolloverAction;
+import org.codice.alliance.video.stream.mpegts.rollover.RolloverAction;
 
 public class RolloverStreamCreationPlugin extends BaseStreamCreationPlugin {
 
     @Override
     protected void doOnCreate(Context context) throws StreamCreationException {
         UdpStreamProcessor udpStreamProcessor = context.getUdpStreamProcessor();
-        udpStreamProcessor.setRolloverAction(new ListRolloverAction(Arrays.asList(new CreateMetacardRolloverAction(
-                        udpStreamProcessor.getMetacardTypeList()),
-                new CatalogRolloverAction(udpStreamProcessor.getFilenameGenerator(),
-                        udpStreamProcessor.getFilenameTemplate(),
-                        udpStreamProcessor.getCatalogFramework(),
-                        context,
-                        udpStreamProcessor.getParentMetacardUpdater()))));
+
+        CatalogRolloverAction catalogRolloverAction = new CatalogRolloverAction(
+                udpStreamProcessor.getFilenameGenerator(),
+                udpStreamProcessor.getFilenameTemplate(),
+                udpStreamProcessor.getCatalogFramework(),
+                context,
+                udpStreamProcessor.getParentMetacardUpdater());
+        catalogRolloverAction.setStreamMetrics(udpStreamProcessor.getStreamMetrics());
+
+        RolloverAction rolloverAction = new ListRolloverAction(Arrays.asList(new CreateMetacardRolloverAction(
+                udpStreamProcessor.getMetacardTypeList()), catalogRolloverAction));
+
+        if (udpStreamProcessor.isAsynchronousRollover()) {
+            rolloverAction = new AsyncRolloverAction(rolloverAction,
+                    catalogRolloverAction,
+                    udpStreamProcessor.getRolloverQueueSize(),
+                    udpStreamProcessor.getStreamUri()
+                            .map(Object::toString)
+                            .orElse("stream"));
+        }
+
+        udpStreamProcessor.setRolloverAction(rolloverAction);
     }
 }
@@ -0,0 +1,335 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.rollover;
+
+import static org.apache.commons.lang3.Validate.inclusiveBetween;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ddf.catalog.data.impl.MetacardImpl;
+
+/**
+ * Hands rollover files to a single worker thread through a bounded queue, so the caller does not
+ * wait for the catalog. Because there is one worker, files are processed in the order they were
+ * rolled over. The worker takes every file that is waiting in the queue as one batch and notifies
+ * the {@link RolloverBatchListener} before and after the batch, which allows the parent metacard
+ * to be updated once per batch instead of once per file.
+ * <p>
+ * When the queue is full, {@link #doAction(MetacardImpl, File)} blocks until the worker has made
+ * room. After {@link #shutdown(long)} the action is performed on the calling thread.
+ * <p>
+ * The files that are still waiting when the shutdown timeout expires are not processed, and are
+ * left on disk with the {@value #QUEUED_FILE_SUFFIX} suffix so that the recordings are not lost.
+ * <p>
+ * The temp file is renamed before {@link #doAction(MetacardImpl, File)} returns and the renamed
+ * file is deleted once it has been processed. Callers may still try to delete the original temp
+ * file. The metacard returned by {@link #doAction(MetacardImpl, File)} is always the metacard that
+ * was passed in.
+ */
+public class AsyncRolloverAction extends BaseRolloverAction {
+
+    public static final int DEFAULT_QUEUE_SIZE = 16;
+
+    public static final int MIN_QUEUE_SIZE = 1;
+
+    public static final int MAX_QUEUE_SIZE = 1024;
+
+    public static final int DEFAULT_SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    public static final int MIN_SHUTDOWN_TIMEOUT_SECONDS = 0;
+
+    public static final int MAX_SHUTDOWN_TIMEOUT_SECONDS = 3600;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncRolloverAction.class);
+
+    static final String QUEUED_FILE_SUFFIX = ".queued";
+
+    private static final long POLL_MILLISECONDS = 100;
+
+    private final RolloverAction rolloverAction;
+
+    private final RolloverBatchListener batchListener;
+
+    private final BlockingQueue<QueuedRollover> queue;
+
+    private final RolloverMetrics rolloverMetrics;
+
+    private final Thread worker;
+
+    /**
+     * Held while a batch is processed, so that work done on the calling thread after shutdown
+     * cannot interleave with the worker.
+     */
+    private final Object lock = new Object();
+
+    private volatile boolean stopped = false;
+
+    private volatile boolean abandoned = false;
+
+    /**
+     * @param rolloverAction must be non-null
+     * @param batchListener  must be non-null
+     * @param queueSize      must be &gt;={@link #MIN_QUEUE_SIZE} and &lt;={@link #MAX_QUEUE_SIZE}
+     * @param name           must be non-null, used to name the worker thread
+     */
+    public AsyncRolloverAction(RolloverAction rolloverAction, RolloverBatchListener batchListener,
+            int queueSize, String name) {
+        notNull(rolloverAction, "rolloverAction must be non-null");
+        notNull(batchListener, "batchListener must be non-null");
+        inclusiveBetween(MIN_QUEUE_SIZE,
+                MAX_QUEUE_SIZE,
+                queueSize,
+                String.format("queueSize must be >=%d and <=%d", MIN_QUEUE_SIZE, MAX_QUEUE_SIZE));
+        notNull(name, "name must be non-null");
+
+        this.rolloverAction = rolloverAction;
+        this.batchListener = batchListener;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.rolloverMetrics = new RolloverMetrics(queue::size);
+
+        worker = new Thread(this::processQueue, "rollover-" + name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public RolloverMetrics getRolloverMetrics() {
+        return rolloverMetrics;
+    }
+
+    @Override
+    public MetacardImpl doAction(MetacardImpl metacard, File tempFile)
+            throws RolloverActionException {
+
+        if (stopped) {
+            LOGGER.debug("rollover queue is shutdown, performing action on the calling thread: tempFile={}",
+                    tempFile);
+            synchronized (lock) {
+                return rolloverAction.doAction(metacard, tempFile);
+            }
+        }
+
+        QueuedRollover queuedRollover = new QueuedRollover(metacard,
+                claimFile(tempFile),
+                System.currentTimeMillis());
+
+        try {
+            if (!queue.offer(queuedRollover)) {
+                rolloverMetrics.blocked();
+                LOGGER.debug("rollover queue is full, waiting for the catalog: {}",
+                        rolloverMetrics);
+                queue.put(queuedRollover);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            deleteFile(queuedRollover.file);
+            throw new RolloverActionException(String.format(
+                    "interrupted while waiting for room in the rollover queue: tempFile=%s",
+                    tempFile), e);
+        }
+
+        rolloverMetrics.queued();
+
+        if (stopped && queue.remove(queuedRollover)) {
+            processBatch(queuedRollover);
+        }
+
+        return metacard;
+    }
+
+    /**
+     * Stop accepting new work and wait for the queued rollover files to be processed. Files that
+     * have not been processed when the timeout expires are left on disk and logged. A timeout of 0
+     * leaves the waiting files immediately.
+     *
+     * @param timeoutMillis must be &gt;=0
+     */
+    public void shutdown(long timeoutMillis) {
+        inclusiveBetween(0, Long.MAX_VALUE, timeoutMillis, "timeoutMillis must be >=0");
+
+        stopped = true;
+
+        try {
+            if (timeoutMillis > 0) {
+                worker.join(timeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("interrupted while waiting for the rollover queue to drain", e);
+            Thread.currentThread()
+                    .interrupt();
+        }
+
+        if (worker.isAlive()) {
+            LOGGER.warn(
+                    "rollover queue did not drain before the timeout, leaving the waiting files on disk: {}",
+                    rolloverMetrics);
+            abandoned = true;
+            worker.interrupt();
+        }
+
+        QueuedRollover queuedRollover;
+        while ((queuedRollover = queue.poll()) != null) {
+            leave(queuedRollover);
+        }
+
+        LOGGER.debug("rollover queue shutdown: {}", rolloverMetrics);
+    }
+
+    private void processQueue() {
+        List<QueuedRollover> batch = new ArrayList<>();
+        try {
+            while (!abandoned && !(stopped && queue.isEmpty())) {
+                QueuedRollover first = queue.poll(POLL_MILLISECONDS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                    processBatch(batch.toArray(new QueuedRollover[batch.size()]));
+                    batch.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            LOGGER.debug("rollover worker interrupted", e);
+        }
+    }
+
+    private void processBatch(QueuedRollover... batch) {
+        synchronized (lock) {
+            doProcessBatch(batch);
+        }
+    }
+
+    private void doProcessBatch(QueuedRollover... batch) {
+
+        rolloverMetrics.batch();
+
+        List<QueuedRollover> completed = new ArrayList<>(batch.length);
+
+        batchListener.batchStarted();
+        try {
+            for (QueuedRollover queuedRollover : batch) {
+                if (abandoned) {
+                    leave(queuedRollover);
+                } else if (process(queuedRollover)) {
+                    completed.add(queuedRollover);
+                }
+            }
+        } finally {
+            try {
+                batchListener.batchFinished();
+            } catch (RolloverActionException | RuntimeException e) {
+                LOGGER.debug("unable to finish rollover batch: batchSize={}", batch.length, e);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        completed.forEach(queuedRollover -> rolloverMetrics.completed(
+                now - queuedRollover.queuedMillis));
+
+        LOGGER.debug("processed rollover batch: batchSize={} {}", batch.length, rolloverMetrics);
+    }
+
+    /**
+     * The file is deleted once it has been processed, unless the action was interrupted by the
+     * shutdown timeout.
+     *
+     * @return <code>true</code> if the action succeeded
+     */
+    private boolean process(QueuedRollover queuedRollover) {
+        try {
+            rolloverAction.doAction(queuedRollover.metacard, queuedRollover.file);
+            deleteFile(queuedRollover.file);
+            return true;
+        } catch (RolloverActionException | RuntimeException e) {
+            rolloverMetrics.failed();
+            LOGGER.debug("unable to handle rollover file: file={}", queuedRollover.file, e);
+            if (abandoned) {
+                logLeftFile(queuedRollover);
+            } else {
+                deleteFile(queuedRollover.file);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Keep the file of a rollover that will not be processed, so it can be ingested manually.
+     */
+    private void leave(QueuedRollover queuedRollover) {
+        rolloverMetrics.failed();
+        logLeftFile(queuedRollover);
+    }
+
+    private void logLeftFile(QueuedRollover queuedRollover) {
+        LOGGER.warn("rollover file was not ingested, leaving it on disk: file={}",
+                queuedRollover.file);
+    }
+
+    /**
+     * Rename the temp file so the caller can't delete it before it has been processed.
+     */
+    private File claimFile(File tempFile) throws RolloverActionException {
+        File queuedFile = new File(tempFile.getPath() + QUEUED_FILE_SUFFIX);
+        try {
+            Files.move(tempFile.toPath(),
+                    queuedFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RolloverActionException(String.format(
+                    "unable to move temp file to the rollover queue: tempFile=%s",
+                    tempFile), e);
+        }
+        return queuedFile;
+    }
+
+    private void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            LOGGER.debug("unable to delete queued rollover file: file={}", file);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncRolloverAction{" +
+                "rolloverAction=" + rolloverAction +
+                ", rolloverMetrics=" + rolloverMetrics +
+                '}';
+    }
+
+    private static class QueuedRollover {
+
+        private final MetacardImpl metacard;
+
+        private final File file;
+
+        private final long queuedMillis;
+
+        QueuedRollover(MetacardImpl metacard, File file, long queuedMillis) {
+            this.metacard = metacard;
+            this.file = file;
+            this.queuedMillis = queuedMillis;
+        }
+    }
+}
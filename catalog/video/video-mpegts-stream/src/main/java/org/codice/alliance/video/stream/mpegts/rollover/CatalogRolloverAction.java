@@ -27,6 +27,7 @@ import org.codice.alliance.video.stream.mpegts.Constants;
 import org.codice.alliance.video.stream.mpegts.Context;
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
 import org.codice.alliance.video.stream.mpegts.metacard.MetacardUpdater;
+import org.codice.alliance.video.stream.mpegts.metrics.StreamMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,8 +54,15 @@ import ddf.security.SubjectUtils;
 /**
  * Stores the child content, links the child to the parent, and updates the parent's
  * location with the union of the child's location.
+ * <p>
+ * Between {@link #batchStarted()} and {@link #batchFinished()} the child metadata is merged into
+ * the parent metacard in memory and the parent is submitted to the catalog once when the batch is
+ * finished. Outside of a batch the parent is submitted after every child.
+ * <p>
+ * The duration of the create, link and parent update phases, and the number of catalog retries,
+ * are recorded in the {@link StreamMetrics}.
  */
-public class CatalogRolloverAction extends BaseRolloverAction {
+public class CatalogRolloverAction extends BaseRolloverAction implements RolloverBatchListener {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CatalogRolloverAction.class);
 
@@ -72,6 +80,12 @@ public class CatalogRolloverAction extends BaseRolloverAction {
 
     private String filenameTemplate;
 
+    private boolean batching = false;
+
+    private boolean parentUpdatePending = false;
+
+    private StreamMetrics streamMetrics = new StreamMetrics();
+
     /**
      * @param filenameGenerator     must be non-null
      * @param filenameTemplate      must be non-null
@@ -95,6 +109,14 @@ public class CatalogRolloverAction extends BaseRolloverAction {
         this.parentMetacardUpdater = parentMetacardUpdater;
     }
 
+    /**
+     * @param streamMetrics must be non-null
+     */
+    public void setStreamMetrics(StreamMetrics streamMetrics) {
+        notNull(streamMetrics, "streamMetrics must be non-null");
+        this.streamMetrics = streamMetrics;
+    }
+
     @Override
     public String toString() {
         return "CatalogRolloverAction{" +
@@ -128,12 +150,18 @@ public class CatalogRolloverAction extends BaseRolloverAction {
 
             CreateStorageRequest createStorageRequest = createStorageRequest(contentItem);
 
+            long start = System.nanoTime();
             CreateResponse createResponse = submitStorageCreateRequest(createStorageRequest);
+            streamMetrics.rolloverPhaseCompleted(StreamMetrics.RolloverPhase.CREATE,
+                    System.nanoTime() - start);
 
             for (Metacard childMetacard : createResponse.getCreatedMetacards()) {
                 LOGGER.trace("created catalog content with id={}", childMetacard.getId());
 
+                start = System.nanoTime();
                 linkChildToParent(childMetacard);
+                streamMetrics.rolloverPhaseCompleted(StreamMetrics.RolloverPhase.LINK,
+                        System.nanoTime() - start);
 
                 updateParentWithChildMetadata(childMetacard);
 
@@ -144,6 +172,35 @@ public class CatalogRolloverAction extends BaseRolloverAction {
 
     }
 
+    @Override
+    public void batchStarted() {
+        batching = true;
+    }
+
+    @Override
+    public void batchFinished() {
+        batching = false;
+
+        if (!parentUpdatePending) {
+            return;
+        }
+
+        parentUpdatePending = false;
+
+        Subject subject = context.getUdpStreamProcessor()
+                .getSubject();
+
+        if (subject == null) {
+            LOGGER.debug("no security subject available, cannot update parent metacard");
+            return;
+        }
+
+        subject.execute(() -> {
+            submitParentUpdate();
+            return null;
+        });
+    }
+
     private String generateFilename() {
         return filenameGenerator.generateFilename(filenameTemplate);
     }
@@ -155,9 +212,26 @@ public class CatalogRolloverAction extends BaseRolloverAction {
             Metacard parentMetacard = context.getParentMetacard()
                     .get();
             parentMetacardUpdater.update(parentMetacard, childMetacard);
+            if (batching) {
+                parentUpdatePending = true;
+            } else {
+                submitParentUpdate();
+            }
+        }
+    }
+
+    private void submitParentUpdate() throws RolloverActionException {
+        if (context.getParentMetacard()
+                .isPresent()) {
+            Metacard parentMetacard = context.getParentMetacard()
+                    .get();
+            long start = System.nanoTime();
+            parentMetacardUpdater.beforePersist(parentMetacard);
             UpdateRequest updateRequest = createUpdateRequest(parentMetacard.getId(),
                     parentMetacard);
             submitParentUpdateRequest(updateRequest);
+            streamMetrics.rolloverPhaseCompleted(StreamMetrics.RolloverPhase.PARENT_UPDATE,
+                    System.nanoTime() - start);
         }
     }
 
@@ -217,6 +291,7 @@ public class CatalogRolloverAction extends BaseRolloverAction {
                     throw e;
                 } else {
                     LOGGER.debug("failed to update catalog, will retry in {} milliseconds", wait);
+                    streamMetrics.catalogRetry();
                     if (sleep(wait)) {
                         return;
                     }
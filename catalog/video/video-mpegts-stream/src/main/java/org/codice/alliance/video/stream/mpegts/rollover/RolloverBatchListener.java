@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.rollover;
+
+/**
+ * Notified by {@link AsyncRolloverAction} before and after each batch of queued rollover files is
+ * processed. Implementations may defer work, such as catalog updates, until the end of a batch.
+ */
+public interface RolloverBatchListener {
+
+    RolloverBatchListener NONE = new RolloverBatchListener() {
+        @Override
+        public void batchStarted() {
+        }
+
+        @Override
+        public void batchFinished() {
+        }
+    };
+
+    /**
+     * Called before the first rollover file of a batch is processed.
+     */
+    void batchStarted();
+
+    /**
+     * Called after the last rollover file of a batch is processed, even if some of the files
+     * failed.
+     *
+     * @throws RolloverActionException
+     */
+    void batchFinished() throws RolloverActionException;
+
+}
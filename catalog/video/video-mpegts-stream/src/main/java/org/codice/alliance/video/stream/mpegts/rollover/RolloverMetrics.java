@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.rollover;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters for an {@link AsyncRolloverAction}. The latency of a rollover file is the time from
+ * when the file was queued until the child and the parent metacards were submitted to the
+ * catalog. This class is thread-safe.
+ */
+public class RolloverMetrics {
+
+    private final IntSupplier queueDepthSupplier;
+
+    private final AtomicLong queuedCount = new AtomicLong();
+
+    private final AtomicLong completedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    private final AtomicLong blockedCount = new AtomicLong();
+
+    private final AtomicLong batchCount = new AtomicLong();
+
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    private final AtomicLong lastLatencyMillis = new AtomicLong();
+
+    /**
+     * @param queueDepthSupplier must be non-null
+     */
+    public RolloverMetrics(IntSupplier queueDepthSupplier) {
+        notNull(queueDepthSupplier, "queueDepthSupplier must be non-null");
+        this.queueDepthSupplier = queueDepthSupplier;
+    }
+
+    /**
+     * @return the number of rollover files waiting to be processed
+     */
+    public int getQueueDepth() {
+        return queueDepthSupplier.getAsInt();
+    }
+
+    /**
+     * @return the number of rollover files that have been queued
+     */
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    /**
+     * @return the number of rollover files that were processed without error
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * @return the number of rollover files that could not be processed
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return the number of times the caller had to wait for space in the queue
+     */
+    public long getBlockedCount() {
+        return blockedCount.get();
+    }
+
+    /**
+     * @return the number of batches, which is also the number of parent metacard updates
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    public long getLastLatencyMillis() {
+        return lastLatencyMillis.get();
+    }
+
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis.get();
+    }
+
+    /**
+     * @return the mean latency of the completed rollover files, or 0 if none have completed
+     */
+    public long getMeanLatencyMillis() {
+        long completed = completedCount.get();
+        return completed == 0 ? 0 : totalLatencyMillis.get() / completed;
+    }
+
+    void queued() {
+        queuedCount.incrementAndGet();
+    }
+
+    void blocked() {
+        blockedCount.incrementAndGet();
+    }
+
+    void batch() {
+        batchCount.incrementAndGet();
+    }
+
+    void failed() {
+        failedCount.incrementAndGet();
+    }
+
+    void completed(long latencyMillis) {
+        completedCount.incrementAndGet();
+        totalLatencyMillis.addAndGet(latencyMillis);
+        lastLatencyMillis.set(latencyMillis);
+        maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+    }
+
+    @Override
+    public String toString() {
+        return "RolloverMetrics{" +
+                "queueDepth=" + getQueueDepth() +
+                ", queuedCount=" + queuedCount +
+                ", completedCount=" + completedCount +
+                ", failedCount=" + failedCount +
+                ", blockedCount=" + blockedCount +
+                ", batchCount=" + batchCount +
+                ", lastLatencyMillis=" + lastLatencyMillis +
+                ", maxLatencyMillis=" + maxLatencyMillis +
+                ", meanLatencyMillis=" + getMeanLatencyMillis() +
+                '}';
+    }
+}
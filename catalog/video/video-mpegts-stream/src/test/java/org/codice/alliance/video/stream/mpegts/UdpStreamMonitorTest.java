@@ -15,20 +15,35 @@ package org.codice.alliance.video.stream.mpegts;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.OptionalLong;
 
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
+import org.codice.alliance.video.stream.mpegts.ingest.KernelUdpDropCounter;
+import org.codice.alliance.video.stream.mpegts.ingest.UdpIngestHost;
+import org.codice.alliance.video.stream.mpegts.ingest.UdpSocketOptions;
+import org.codice.alliance.video.stream.mpegts.ingest.UdpTransport;
+import org.codice.alliance.video.stream.mpegts.metrics.StreamMetrics;
+import org.codice.alliance.video.stream.mpegts.metrics.StreamMetricsRegistry;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
+import org.hamcrest.Description;
+import org.hamcrest.TypeSafeMatcher;
 import org.junit.Before;
 import org.junit.Test;
 
 import ddf.catalog.CatalogFramework;
 import ddf.catalog.data.MetacardType;
+import io.netty.channel.Channel;
 
 public class UdpStreamMonitorTest {
 
@@ -203,4 +218,135 @@ public class UdpStreamMonitorTest {
         verify(udpStreamProcessor).setFilenameGenerator(filenameGenerator);
     }
 
+    @Test
+    public void testStartAndStopMonitoringWithIngestHost() throws Exception {
+        UdpIngestHost udpIngestHost = mock(UdpIngestHost.class);
+        Channel channel = mock(Channel.class);
+        when(udpIngestHost.bind(anyString(),
+                anyInt(),
+                any(UdpSocketOptions.class),
+                any())).thenReturn(Collections.singletonList(channel));
+        when(udpIngestHost.getTransport()).thenReturn(UdpTransport.NIO);
+        when(udpStreamProcessor.isReady()).thenReturn(true);
+
+        udpStreamMonitor.setUdpIngestHost(udpIngestHost);
+        udpStreamMonitor.setMonitoredAddress("udp://127.0.0.1:50000");
+
+        udpStreamMonitor.startMonitoring();
+        verify(udpIngestHost).bind(anyString(), anyInt(), any(UdpSocketOptions.class), any());
+        assertThat(udpStreamMonitor.isMonitoring(), is(true));
+        assertThat(udpStreamMonitor.getTransport()
+                .get(), is(UdpTransport.NIO));
+
+        udpStreamMonitor.stopMonitoring();
+        verify(udpIngestHost).unbind(channel);
+        assertThat(udpStreamMonitor.isMonitoring(), is(false));
+        assertThat(udpStreamMonitor.getTransport()
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void testSocketOptionsPassedToIngestHost() throws Exception {
+        UdpIngestHost udpIngestHost = mock(UdpIngestHost.class);
+        when(udpIngestHost.bind(anyString(),
+                anyInt(),
+                any(UdpSocketOptions.class),
+                any())).thenReturn(Collections.singletonList(mock(Channel.class)));
+        when(udpStreamProcessor.isReady()).thenReturn(true);
+
+        udpStreamMonitor.setUdpIngestHost(udpIngestHost);
+        udpStreamMonitor.setMonitoredAddress("udp://127.0.0.1:50000");
+        udpStreamMonitor.setReceiveBufferSize(1 << 24);
+        udpStreamMonitor.setReaderCount(4);
+
+        udpStreamMonitor.startMonitoring();
+
+        verify(udpIngestHost).bind(anyString(),
+                anyInt(),
+                argThat(new TypeSafeMatcher<UdpSocketOptions>() {
+                    @Override
+                    protected boolean matchesSafely(UdpSocketOptions options) {
+                        return options.getReceiveBufferSize() == 1 << 24
+                                && options.getReaderCount() == 4;
+                    }
+
+                    @Override
+                    public void describeTo(Description description) {
+                        description.appendText("socket options");
+                    }
+                }),
+                any());
+    }
+
+    @Test
+    public void testStreamMetricsRegistered() throws Exception {
+        UdpIngestHost udpIngestHost = mock(UdpIngestHost.class);
+        when(udpIngestHost.bind(anyString(),
+                anyInt(),
+                any(UdpSocketOptions.class),
+                any())).thenReturn(Collections.singletonList(mock(Channel.class)));
+        when(udpStreamProcessor.isReady()).thenReturn(true);
+        StreamMetrics streamMetrics = new StreamMetrics();
+        when(udpStreamProcessor.getStreamMetrics()).thenReturn(streamMetrics);
+        StreamMetricsRegistry streamMetricsRegistry = mock(StreamMetricsRegistry.class);
+
+        udpStreamMonitor.setStreamMetricsRegistry(streamMetricsRegistry);
+        udpStreamMonitor.setUdpIngestHost(udpIngestHost);
+        udpStreamMonitor.setMonitoredAddress("udp://127.0.0.1:50000");
+
+        udpStreamMonitor.startMonitoring();
+        verify(streamMetricsRegistry).register("udp://127.0.0.1:50000", streamMetrics);
+
+        udpStreamMonitor.stopMonitoring();
+        verify(streamMetricsRegistry).unregister("udp://127.0.0.1:50000", streamMetrics);
+    }
+
+    @Test
+    public void testKernelDropCount() throws Exception {
+        UdpIngestHost udpIngestHost = mock(UdpIngestHost.class);
+        when(udpIngestHost.bind(anyString(),
+                anyInt(),
+                any(UdpSocketOptions.class),
+                any())).thenReturn(Collections.singletonList(mock(Channel.class)));
+        when(udpStreamProcessor.isReady()).thenReturn(true);
+        KernelUdpDropCounter kernelUdpDropCounter = mock(KernelUdpDropCounter.class);
+        when(kernelUdpDropCounter.getDropCount("127.0.0.1", 50000)).thenReturn(OptionalLong.of(
+                7));
+
+        udpStreamMonitor.setKernelUdpDropCounter(kernelUdpDropCounter);
+        udpStreamMonitor.setUdpIngestHost(udpIngestHost);
+        udpStreamMonitor.setMonitoredAddress("udp://127.0.0.1:50000");
+
+        assertThat(udpStreamMonitor.getKernelDropCount()
+                .isPresent(), is(false));
+
+        udpStreamMonitor.startMonitoring();
+
+        assertThat(udpStreamMonitor.getKernelDropCount()
+                .getAsLong(), is(7L));
+    }
+
+    @Test
+    public void testContinuityCounts() {
+        when(udpStreamProcessor.getContinuityErrorCount()).thenReturn(2L);
+        when(udpStreamProcessor.getMissingPacketCount()).thenReturn(9L);
+        assertThat(udpStreamMonitor.getContinuityErrorCount(), is(2L));
+        assertThat(udpStreamMonitor.getMissingPacketCount(), is(9L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetReaderCountAboveRange() {
+        udpStreamMonitor.setReaderCount(UdpSocketOptions.READER_COUNT_MAX + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetReceiveBufferSizeBelowRange() {
+        udpStreamMonitor.setReceiveBufferSize(-1);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testSetNativeTransportNullArg() {
+        udpStreamMonitor.setNativeTransport(null);
+    }
+
 }
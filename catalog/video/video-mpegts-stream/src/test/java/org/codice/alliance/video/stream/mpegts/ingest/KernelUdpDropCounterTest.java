@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.ingest;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KernelUdpDropCounterTest {
+
+    private static final String HEADER = "   sl  local_address rem_address   st tx_queue rx_queue "
+            + "tr tm->when retrnsmt   uid  timeout inode ref pointer drops";
+
+    private static final String UDP_50000 = "  412: 00000000:C350 00000000:0000 07 "
+            + "00000000:00034000 00:00000000 00000000  1000        0 81234 2 ffff8d2e4a1b6c00 17";
+
+    private static final String UDP_50000_READER = "  412: 00000000:C350 00000000:0000 07 "
+            + "00000000:00000000 00:00000000 00000000  1000        0 81235 2 ffff8d2e4a1b6800 4";
+
+    private static final String UDP_LOOPBACK_50000 = "  412: 0100007F:C350 00000000:0000 07 "
+            + "00000000:00000000 00:00000000 00000000  1000        0 81236 2 ffff8d2e4a1b6400 5";
+
+    private static final String UDP_53 = "  110: 3500007F:0035 00000000:0000 07 "
+            + "00000000:00000000 00:00000000 00000000   101        0 20311 2 ffff8d2e41c58400 99";
+
+    private static final String UDP6_50000 = "  412: 00000000000000000000000000000000:C350 "
+            + "00000000000000000000000000000000:0000 07 00000000:00000000 00:00000000 00000000  "
+            + "1000        0 81240 2 ffff8d2e4a1b7000 1";
+
+    private static final String UDP6_MAPPED_LOOPBACK_50000 =
+            "  412: 0000000000000000FFFF00000100007F:C350 "
+                    + "00000000000000000000000000000000:0000 07 00000000:00000000 00:00000000 "
+                    + "00000000  1000        0 81241 2 ffff8d2e4a1b7400 2";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * The addresses in the tables are written in the little-endian host byte order.
+     */
+    @Before
+    public void setup() {
+        assumeThat(ByteOrder.nativeOrder(), is(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    @Test
+    public void testSumsSocketsOnAddressAndPort() throws IOException {
+        KernelUdpDropCounter counter = new KernelUdpDropCounter(Arrays.asList(table(HEADER,
+                UDP_53,
+                UDP_50000,
+                UDP_50000_READER,
+                UDP_LOOPBACK_50000).toPath(), table(HEADER, UDP6_50000).toPath()));
+
+        assertThat(counter.getDropCount("0.0.0.0", 50000)
+                .getAsLong(), is(22L));
+        assertThat(counter.getDropCount("127.0.0.53", 53)
+                .getAsLong(), is(99L));
+    }
+
+    @Test
+    public void testOtherAddressOnPortIsNotCounted() throws IOException {
+        KernelUdpDropCounter counter = new KernelUdpDropCounter(Arrays.asList(table(HEADER,
+                UDP_50000,
+                UDP_LOOPBACK_50000).toPath(), table(HEADER,
+                UDP6_50000,
+                UDP6_MAPPED_LOOPBACK_50000).toPath()));
+
+        assertThat(counter.getDropCount("127.0.0.1", 50000)
+                .getAsLong(), is(7L));
+        assertThat(counter.getDropCount("127.0.0.53", 50000)
+                .getAsLong(), is(0L));
+    }
+
+    @Test
+    public void testNoSocketOnPort() throws IOException {
+        KernelUdpDropCounter counter =
+                new KernelUdpDropCounter(Collections.singletonList(table(HEADER,
+                        UDP_53).toPath()));
+
+        assertThat(counter.getDropCount("127.0.0.53", 50000)
+                .getAsLong(), is(0L));
+    }
+
+    @Test
+    public void testMissingTables() {
+        File missing = new File(temporaryFolder.getRoot(), "missing");
+        KernelUdpDropCounter counter =
+                new KernelUdpDropCounter(Collections.singletonList(missing.toPath()));
+
+        assertThat(counter.getDropCount("127.0.0.1", 50000)
+                .isPresent(), is(false));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullAddress() {
+        new KernelUdpDropCounter().getDropCount(null, 50000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPortOutOfRange() {
+        new KernelUdpDropCounter().getDropCount("127.0.0.1", 0);
+    }
+
+    private File table(String... lines) throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.US_ASCII);
+        return file;
+    }
+
+}
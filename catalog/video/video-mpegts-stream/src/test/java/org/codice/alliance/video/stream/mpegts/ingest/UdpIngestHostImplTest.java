@@ -0,0 +1,204 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.ingest;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.util.ReferenceCountUtil;
+
+public class UdpIngestHostImplTest {
+
+    private static final String ADDRESS = "127.0.0.1";
+
+    private UdpIngestHostImpl udpIngestHost;
+
+    @Before
+    public void setup() {
+        udpIngestHost = new UdpIngestHostImpl();
+        udpIngestHost.setEventLoopThreads(1);
+    }
+
+    @After
+    public void teardown() {
+        udpIngestHost.destroy();
+    }
+
+    /**
+     * Two streams share one event loop thread and each receives only its own datagrams.
+     */
+    @Test
+    public void testDispatchToStreams() throws Exception {
+
+        CountingHandler handler1 = new CountingHandler(2);
+        CountingHandler handler2 = new CountingHandler(3);
+
+        Channel channel1 = udpIngestHost.bind(ADDRESS, 0, () -> new ChannelHandler[] {handler1});
+        Channel channel2 = udpIngestHost.bind(ADDRESS, 0, () -> new ChannelHandler[] {handler2});
+
+        assertThat(udpIngestHost.getChannelCount(), is(2));
+        assertThat(channel1.eventLoop() == channel2.eventLoop(), is(true));
+
+        send(channel1, 2);
+        send(channel2, 3);
+
+        assertThat(handler1.await(), is(true));
+        assertThat(handler2.await(), is(true));
+        assertThat(handler1.count.get(), is(2));
+        assertThat(handler2.count.get(), is(3));
+    }
+
+    @Test
+    public void testUnbind() throws Exception {
+
+        Channel channel = udpIngestHost.bind(ADDRESS,
+                0,
+                () -> new ChannelHandler[] {new CountingHandler(0)});
+
+        udpIngestHost.unbind(channel);
+
+        assertThat(channel.isOpen(), is(false));
+        assertThat(udpIngestHost.getChannelCount(), is(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void testBindAddressInUse() throws Exception {
+
+        Channel channel = udpIngestHost.bind(ADDRESS,
+                0,
+                () -> new ChannelHandler[] {new CountingHandler(0)});
+
+        udpIngestHost.bind(ADDRESS,
+                ((InetSocketAddress) channel.localAddress()).getPort(),
+                () -> new ChannelHandler[] {new CountingHandler(0)});
+    }
+
+    /**
+     * Nio does not support SO_REUSEPORT, so a single reader is bound with the receive buffer size.
+     */
+    @Test
+    public void testBindWithSocketOptions() throws Exception {
+
+        CountingHandler handler = new CountingHandler(2);
+
+        List<Channel> channels = udpIngestHost.bind(ADDRESS,
+                0,
+                new UdpSocketOptions(1 << 20, 4),
+                () -> new ChannelHandler[] {handler});
+
+        assertThat(channels.size(), is(1));
+        assertThat(udpIngestHost.getTransport(), is(UdpTransport.NIO));
+        assertThat(channels.get(0)
+                .config()
+                .getOption(ChannelOption.SO_RCVBUF) > 0, is(true));
+
+        send(channels.get(0), 2);
+
+        assertThat(handler.await(), is(true));
+    }
+
+    /**
+     * The native transport is used when it is available, otherwise the host falls back to nio.
+     */
+    @Test
+    public void testNativeTransport() throws Exception {
+
+        udpIngestHost.setNativeTransport(true);
+
+        CountingHandler handler = new CountingHandler(1);
+
+        Channel channel = udpIngestHost.bind(ADDRESS, 0, () -> new ChannelHandler[] {handler});
+
+        assertThat(udpIngestHost.getTransport(), is(UdpTransport.select(true)));
+
+        send(channel, 1);
+
+        assertThat(handler.await(), is(true));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testSetNativeTransportNullArg() {
+        udpIngestHost.setNativeTransport(null);
+    }
+
+    /**
+     * The default must match the default in metatype.xml.
+     */
+    @Test
+    public void testDefaultEventLoopThreads() {
+        assertThat(new UdpIngestHostImpl().getEventLoopThreads(),
+                is(UdpIngestHostImpl.DEFAULT_EVENT_LOOP_THREADS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetEventLoopThreadsBelowRange() {
+        udpIngestHost.setEventLoopThreads(UdpIngestHostImpl.EVENT_LOOP_THREADS_MIN - 1);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testSetEventLoopThreadsNullArg() {
+        udpIngestHost.setEventLoopThreads(null);
+    }
+
+    private void send(Channel channel, int count) throws IOException {
+        InetSocketAddress address = (InetSocketAddress) channel.localAddress();
+        try (DatagramSocket socket = new DatagramSocket()) {
+            for (int i = 0; i < count; i++) {
+                byte[] data = new byte[] {0x47};
+                socket.send(new DatagramPacket(data, data.length, address));
+            }
+        }
+    }
+
+    @ChannelHandler.Sharable
+    private static class CountingHandler extends ChannelInboundHandlerAdapter {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private final CountDownLatch latch;
+
+        CountingHandler(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            count.incrementAndGet();
+            latch.countDown();
+            ReferenceCountUtil.release(msg);
+        }
+
+        private boolean await() throws InterruptedException {
+            return latch.await(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.ingest;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+
+public class UdpTransportTest {
+
+    private static final String MULTICAST_ADDRESS = "239.255.42.99";
+
+    private static final String UNICAST_ADDRESS = "127.0.0.1";
+
+    @Test
+    public void testUnicastKeepsReaders() {
+        assertThat(UdpTransport.EPOLL.getReaderCount(UNICAST_ADDRESS, 50000, 2), is(2));
+    }
+
+    /**
+     * Every socket bound to a multicast group receives each datagram, so a second reader would
+     * decode every packet twice.
+     */
+    @Test
+    public void testMulticastUsesSingleReader() {
+        assertThat(UdpTransport.EPOLL.getReaderCount(MULTICAST_ADDRESS, 50000, 2), is(1));
+    }
+
+    @Test
+    public void testNioUsesSingleReader() {
+        assertThat(UdpTransport.NIO.getReaderCount(UNICAST_ADDRESS, 50000, 2), is(1));
+    }
+
+    @Test
+    public void testUnresolvedAddressKeepsReaders() {
+        assertThat(UdpTransport.EPOLL.getReaderCount("unresolved.invalid", 50000, 2), is(2));
+    }
+
+    /**
+     * A multicast stream with two readers binds one channel, so each datagram reaches a single
+     * pipeline and no packet is decoded twice.
+     */
+    @Test
+    public void testMulticastBindsSingleChannel() throws Exception {
+        assumeTrue(Epoll.isAvailable());
+
+        EventLoopGroup eventLoopGroup = UdpTransport.EPOLL.createEventLoopGroup(1);
+        try {
+            List<Channel> channels = UdpTransport.EPOLL.bind(eventLoopGroup,
+                    MULTICAST_ADDRESS,
+                    0,
+                    new UdpSocketOptions(0, 2),
+                    () -> new ChannelHandler[] {new ChannelInboundHandlerAdapter()});
+
+            assertThat(channels.size(), is(1));
+
+            channels.forEach(channel -> channel.close()
+                    .awaitUninterruptibly());
+        } finally {
+            eventLoopGroup.shutdownGracefully()
+                    .awaitUninterruptibly();
+        }
+    }
+
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metacard;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.codice.alliance.libs.klv.GeometryOperator;
+import org.codice.alliance.libs.klv.GeometryUtility;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.io.WKTWriter;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.AttributeImpl;
+import ddf.catalog.data.impl.MetacardImpl;
+
+public class GeometryAccumulatorTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GeometryAccumulatorTest.class);
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private static final int CHUNK_COUNT = 1000;
+
+    private static final int CHUNKS_PER_LEG = 50;
+
+    private static final double CHUNK_LENGTH = 0.01;
+
+    private static final double SWATH_WIDTH = 0.008;
+
+    @Test
+    public void testFirstGeometry() {
+        GeometryAccumulator geometryAccumulator = new GeometryAccumulator();
+        Geometry geometry = square(0, 0, 1);
+
+        assertThat(geometryAccumulator.isEmpty(), is(true));
+        assertThat(geometryAccumulator.add(geometry), is(true));
+        assertThat(geometryAccumulator.getGeometry()
+                .get(), is(geometry));
+    }
+
+    @Test
+    public void testCoveredGeometryIsIgnored() {
+        GeometryAccumulator geometryAccumulator = new GeometryAccumulator();
+        geometryAccumulator.add(square(0, 0, 1));
+
+        assertThat(geometryAccumulator.add(square(0.25, 0.25, 0.5)), is(false));
+    }
+
+    @Test
+    public void testUnion() {
+        GeometryAccumulator geometryAccumulator = new GeometryAccumulator();
+        geometryAccumulator.add(square(0, 0, 1));
+
+        assertThat(geometryAccumulator.add(square(0.5, 0.5, 1)), is(true));
+        assertThat(geometryAccumulator.getGeometry()
+                .get()
+                .getArea(), is(1.75));
+    }
+
+    @Test
+    public void testReset() {
+        GeometryAccumulator geometryAccumulator = new GeometryAccumulator();
+        geometryAccumulator.add(square(0, 0, 1));
+        geometryAccumulator.reset(null);
+
+        assertThat(geometryAccumulator.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testVertexBudget() {
+        GeometryAccumulator geometryAccumulator = new GeometryAccumulator();
+        geometryAccumulator.setMaxVertices(GeometryAccumulator.MIN_MAX_VERTICES);
+
+        Random random = new Random(0);
+        for (int i = 0; i < 20; i++) {
+            geometryAccumulator.add(chunk(i, random));
+        }
+
+        assertThat(geometryAccumulator.getGeometry()
+                .get()
+                .getNumPoints(), lessThanOrEqualTo(GeometryAccumulator.MIN_MAX_VERTICES));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxVerticesTooSmall() {
+        new GeometryAccumulator().setMaxVertices(GeometryAccumulator.MIN_MAX_VERTICES - 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeDistanceTolerance() {
+        new GeometryAccumulator().setDistanceTolerance(-1.0);
+    }
+
+    /**
+     * Simulate the parent location updates of a long stream: 1,000 sequential chunks along a
+     * serpentine flight path, with the parent persisted after every chunk. The footprint must
+     * stay within the vertex budget and the parent must cover the whole flight path.
+     */
+    @Test(timeout = 30000)
+    public void testThousandSequentialChunks() {
+        WKTWriter wktWriter = new WKTWriter();
+        Random random = new Random(0);
+
+        List<Geometry> chunks = new ArrayList<>(CHUNK_COUNT);
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            chunks.add(chunk(i, random));
+        }
+
+        LocationMetacardUpdater updater = new LocationMetacardUpdater(GeometryOperator.IDENTITY,
+                GeometryOperator.IDENTITY);
+        updater.setMaxVertices(1000);
+        updater.setDistanceTolerance(0.0001);
+
+        Metacard parent = new MetacardImpl();
+
+        long start = System.nanoTime();
+
+        for (Geometry chunk : chunks) {
+            MetacardImpl child = new MetacardImpl();
+            child.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, wktWriter.write(chunk)));
+
+            updater.update(parent, child);
+            updater.beforePersist(parent);
+
+            // the catalog returns a new parent metacard after each update
+            Metacard persistedParent = new MetacardImpl();
+            persistedParent.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY,
+                    parent.getLocation()));
+            parent = persistedParent;
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        Geometry footprint = GeometryUtility.wktToGeometry(parent.getLocation(), new WKTReader())
+                .get();
+
+        LOGGER.info("{} chunks in {} ms, {} vertices",
+                CHUNK_COUNT,
+                elapsedMillis,
+                footprint.getNumPoints());
+
+        assertThat(footprint.getNumPoints(), lessThanOrEqualTo(1000));
+        assertThat(footprint.getEnvelopeInternal()
+                .covers(chunks.get(CHUNK_COUNT - 1)
+                        .getCentroid()
+                        .getCoordinate()), is(true));
+        assertThat(footprint.getEnvelopeInternal()
+                .covers(chunks.get(0)
+                        .getCentroid()
+                        .getCoordinate()), is(true));
+    }
+
+    private static Geometry square(double x, double y, double size) {
+        return polygon(new Coordinate[] {new Coordinate(x, y), new Coordinate(x + size, y),
+                new Coordinate(x + size, y + size), new Coordinate(x, y + size),
+                new Coordinate(x, y)});
+    }
+
+    /**
+     * The ground footprint of a chunk, a jittered swath between two consecutive points of a
+     * serpentine flight path.
+     */
+    private static Geometry chunk(int index, Random random) {
+        Coordinate from = pathPosition(index);
+        Coordinate to = pathPosition(index + 1);
+
+        List<Coordinate> coordinates = new ArrayList<>();
+        int samples = 4;
+        for (int i = 0; i <= samples; i++) {
+            coordinates.add(swathEdge(from, to, (double) i / samples, SWATH_WIDTH, random));
+        }
+        for (int i = samples; i >= 0; i--) {
+            coordinates.add(swathEdge(from, to, (double) i / samples, -SWATH_WIDTH, random));
+        }
+        coordinates.add(new Coordinate(coordinates.get(0)));
+
+        return polygon(coordinates.toArray(new Coordinate[coordinates.size()]));
+    }
+
+    private static Geometry polygon(Coordinate[] coordinates) {
+        return GEOMETRY_FACTORY.createPolygon(GEOMETRY_FACTORY.createLinearRing(coordinates),
+                null);
+    }
+
+    private static Coordinate pathPosition(int index) {
+        int leg = index / CHUNKS_PER_LEG;
+        int step = index % CHUNKS_PER_LEG;
+        double x = (leg % 2 == 0 ? step : CHUNKS_PER_LEG - step) * CHUNK_LENGTH;
+        double y = leg * SWATH_WIDTH * 1.5 + step * CHUNK_LENGTH * 0.01;
+        return new Coordinate(x, y);
+    }
+
+    private static Coordinate swathEdge(Coordinate from, Coordinate to, double fraction,
+            double offset, Random random) {
+        double x = from.x + (to.x - from.x) * fraction;
+        double y = from.y + (to.y - from.y) * fraction;
+        double jitter = 1 + (random.nextDouble() - 0.5) * 0.2;
+        return new Coordinate(x, y + offset * jitter);
+    }
+
+}
@@ -46,6 +46,24 @@ public class ListMetacardUpdaterTest {
 
     }
 
+    @Test
+    public void testBeforePersist() {
+
+        MetacardUpdater updater1 = mock(MetacardUpdater.class);
+        MetacardUpdater updater2 = mock(MetacardUpdater.class);
+
+        ListMetacardUpdater listMetacardUpdater = new ListMetacardUpdater(Arrays.asList(updater1,
+                updater2));
+
+        Metacard parent = mock(Metacard.class);
+
+        listMetacardUpdater.beforePersist(parent);
+
+        verify(updater1).beforePersist(parent);
+        verify(updater2).beforePersist(parent);
+
+    }
+
     @Test
     public void testToString() {
         ListMetacardUpdater listMetacardUpdater = new ListMetacardUpdater(Collections.emptyList());
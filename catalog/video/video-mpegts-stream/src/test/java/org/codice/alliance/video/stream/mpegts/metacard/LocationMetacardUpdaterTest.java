@@ -15,15 +15,32 @@ package org.codice.alliance.video.stream.mpegts.metacard;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import org.codice.alliance.libs.klv.GeometryOperator;
 import org.junit.Test;
 
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.io.WKTWriter;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.AttributeImpl;
+import ddf.catalog.data.impl.MetacardImpl;
+
 public class LocationMetacardUpdaterTest {
 
+    private static final String CHILD1_WKT = "POLYGON ((0 0, 1 0, 1 1, 0 1, 0 0))";
+
+    private static final String CHILD2_WKT = "POLYGON ((0.5 0.5, 1.5 0.5, 1.5 1.5, 0.5 1.5, 0.5 0.5))";
+
     @Test
     public void testDefaultCtor() {
         LocationMetacardUpdater locationMetacardUpdater = new LocationMetacardUpdater();
@@ -56,4 +73,110 @@ public class LocationMetacardUpdaterTest {
         verify(visitor).visit(updater);
     }
 
+    @Test
+    public void testFirstChildLocationIsUsedAsIs() {
+        LocationMetacardUpdater updater = new LocationMetacardUpdater();
+        Metacard parent = new MetacardImpl();
+
+        updater.update(parent, child(CHILD1_WKT));
+        updater.beforePersist(parent);
+
+        assertThat(parent.getLocation(), is(CHILD1_WKT));
+    }
+
+    @Test
+    public void testLocationWrittenOnlyBeforePersist() throws ParseException {
+        LocationMetacardUpdater updater = new LocationMetacardUpdater();
+        Metacard parent = new MetacardImpl();
+
+        updater.update(parent, child(CHILD1_WKT));
+        updater.update(parent, child(CHILD2_WKT));
+
+        assertThat(parent.getLocation(), nullValue());
+
+        updater.beforePersist(parent);
+
+        assertThat(normalize(parent.getLocation()), is(union(CHILD1_WKT, CHILD2_WKT)));
+    }
+
+    @Test
+    public void testAccumulatesAcrossPersists() throws ParseException {
+        LocationMetacardUpdater updater = new LocationMetacardUpdater();
+        Metacard parent = new MetacardImpl();
+
+        updater.update(parent, child(CHILD1_WKT));
+        updater.beforePersist(parent);
+        updater.update(parent, child(CHILD2_WKT));
+        updater.beforePersist(parent);
+
+        assertThat(normalize(parent.getLocation()), is(union(CHILD1_WKT, CHILD2_WKT)));
+    }
+
+    /**
+     * The parent location is read when it was not written by the updater.
+     */
+    @Test
+    public void testExistingParentLocation() throws ParseException {
+        LocationMetacardUpdater updater = new LocationMetacardUpdater();
+        Metacard parent = new MetacardImpl();
+        parent.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, CHILD1_WKT));
+
+        updater.update(parent, child(CHILD2_WKT));
+        updater.beforePersist(parent);
+
+        assertThat(normalize(parent.getLocation()), is(union(CHILD1_WKT, CHILD2_WKT)));
+    }
+
+    /**
+     * A new parent metacard does not inherit the location of the previous parent.
+     */
+    @Test
+    public void testNewParent() {
+        LocationMetacardUpdater updater = new LocationMetacardUpdater();
+        Metacard parent1 = new MetacardImpl();
+
+        updater.update(parent1, child(CHILD1_WKT));
+        updater.beforePersist(parent1);
+
+        Metacard parent2 = new MetacardImpl();
+        updater.update(parent2, child(CHILD2_WKT));
+        updater.beforePersist(parent2);
+
+        assertThat(parent2.getLocation(), is(CHILD2_WKT));
+    }
+
+    @Test
+    public void testCoveredChildDoesNotChangeParent() {
+        LocationMetacardUpdater updater = new LocationMetacardUpdater();
+        Metacard parent = new MetacardImpl();
+
+        updater.update(parent, child(CHILD1_WKT));
+        updater.beforePersist(parent);
+
+        Metacard persistedParent = spy(new MetacardImpl());
+        persistedParent.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, CHILD1_WKT));
+        updater.update(persistedParent, child("POINT (0.5 0.5)"));
+        updater.beforePersist(persistedParent);
+
+        verify(persistedParent, times(1)).setAttribute(any(Attribute.class));
+    }
+
+    private Metacard child(String wkt) {
+        Metacard child = new MetacardImpl();
+        child.setAttribute(new AttributeImpl(Metacard.GEOGRAPHY, wkt));
+        return child;
+    }
+
+    private String union(String wkt1, String wkt2) throws ParseException {
+        WKTReader wktReader = new WKTReader();
+        return new WKTWriter().write(wktReader.read(wkt1)
+                .union(wktReader.read(wkt2))
+                .norm());
+    }
+
+    private String normalize(String wkt) throws ParseException {
+        return new WKTWriter().write(new WKTReader().read(wkt)
+                .norm());
+    }
+
 }
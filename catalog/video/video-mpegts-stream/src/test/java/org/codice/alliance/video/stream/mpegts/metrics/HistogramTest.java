@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metrics;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void testEmpty() {
+        Histogram histogram = new Histogram();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMin(), is(0L));
+        assertThat(histogram.getMax(), is(0L));
+        assertThat(histogram.getMean(), is(0L));
+        assertThat(histogram.getPercentile(99), is(0L));
+    }
+
+    @Test
+    public void testRecord() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.getCount(), is(100L));
+        assertThat(histogram.getMin(), is(1L));
+        assertThat(histogram.getMax(), is(100L));
+        assertThat(histogram.getMean(), is(50L));
+    }
+
+    /**
+     * The percentiles are the upper bound of the power of two bucket, capped at the maximum.
+     */
+    @Test
+    public void testPercentile() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertThat(histogram.getPercentile(50), is(63L));
+        assertThat(histogram.getPercentile(99), is(100L));
+        assertThat(histogram.getPercentile(100), is(100L));
+    }
+
+    @Test
+    public void testNegativeRecordedAsZero() {
+        Histogram histogram = new Histogram();
+        histogram.record(-5);
+        assertThat(histogram.getMin(), is(0L));
+        assertThat(histogram.getMax(), is(0L));
+        assertThat(histogram.getPercentile(50), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new Histogram().getPercentile(0);
+    }
+
+    @Test
+    public void testToMap() {
+        Histogram histogram = new Histogram();
+        histogram.record(10);
+        Map<String, Object> map = histogram.toMap();
+        assertThat(map.get(Histogram.COUNT), is(1L));
+        assertThat(map.get(Histogram.MIN), is(10L));
+        assertThat(map.get(Histogram.MAX), is(10L));
+        assertThat(map.get(Histogram.P99), is(10L));
+    }
+}
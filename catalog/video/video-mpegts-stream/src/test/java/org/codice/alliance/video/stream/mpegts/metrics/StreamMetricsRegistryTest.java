@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metrics;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class StreamMetricsRegistryTest {
+
+    private static final String NAME = "udp://127.0.0.1:50000";
+
+    private ScheduledExecutorService scheduledExecutorService;
+
+    private StreamMetricsRegistry streamMetricsRegistry;
+
+    @Before
+    public void setup() {
+        scheduledExecutorService = mock(ScheduledExecutorService.class);
+        streamMetricsRegistry = new StreamMetricsRegistry(scheduledExecutorService, 1000);
+    }
+
+    @Test
+    public void testSchedulesSampling() {
+        verify(scheduledExecutorService).scheduleAtFixedRate(any(Runnable.class),
+                anyLong(),
+                eq(1000L),
+                eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testRegister() {
+        StreamMetrics streamMetrics = new StreamMetrics();
+        streamMetricsRegistry.register(NAME, streamMetrics);
+        assertThat(streamMetricsRegistry.get(NAME)
+                .get(), is(streamMetrics));
+        assertThat(streamMetricsRegistry.getAll()
+                .size(), is(1));
+    }
+
+    @Test
+    public void testUnregister() {
+        StreamMetrics streamMetrics = new StreamMetrics();
+        streamMetricsRegistry.register(NAME, streamMetrics);
+        streamMetricsRegistry.unregister(NAME, streamMetrics);
+        assertThat(streamMetricsRegistry.get(NAME)
+                .isPresent(), is(false));
+    }
+
+    /**
+     * A stream that was restarted with new metrics is not removed by the old registration.
+     */
+    @Test
+    public void testUnregisterReplaced() {
+        StreamMetrics first = new StreamMetrics();
+        StreamMetrics second = new StreamMetrics();
+        streamMetricsRegistry.register(NAME, first);
+        streamMetricsRegistry.register(NAME, second);
+        streamMetricsRegistry.unregister(NAME, first);
+        assertThat(streamMetricsRegistry.get(NAME)
+                .get(), is(second));
+    }
+
+    @Test
+    public void testSample() {
+        StreamMetrics streamMetrics = new StreamMetrics();
+        streamMetricsRegistry.register(NAME, streamMetrics);
+        streamMetricsRegistry.sample();
+        streamMetrics.datagramReceived(100);
+        streamMetricsRegistry.sample();
+        assertThat(streamMetrics.getDatagramsPerSecond() > 0, is(true));
+    }
+
+    @Test
+    public void testDestroy() {
+        streamMetricsRegistry.destroy();
+        verify(scheduledExecutorService).shutdownNow();
+    }
+}
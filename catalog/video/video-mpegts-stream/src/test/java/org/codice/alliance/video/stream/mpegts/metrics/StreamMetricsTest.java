@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.metrics;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.video.stream.mpegts.netty.PacketBuffer;
+import org.junit.Test;
+
+public class StreamMetricsTest {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testDatagramCounts() {
+        StreamMetrics streamMetrics = new StreamMetrics();
+        streamMetrics.datagramReceived(1316);
+        streamMetrics.datagramReceived(188);
+        assertThat(streamMetrics.getDatagramCount(), is(2L));
+        assertThat(streamMetrics.getByteCount(), is(1504L));
+    }
+
+    @Test
+    public void testRatesRequireTwoSamples() {
+        StreamMetrics streamMetrics = new StreamMetrics();
+        streamMetrics.sample(0);
+        streamMetrics.datagramReceived(1000);
+        assertThat(streamMetrics.getDatagramsPerSecond(), is(0.0));
+
+        streamMetrics.datagramReceived(1000);
+        streamMetrics.sample(2 * ONE_SECOND);
+        assertThat(streamMetrics.getDatagramsPerSecond(), closeTo(1.0, 0.0001));
+        assertThat(streamMetrics.getBytesPerSecond(), closeTo(1000.0, 0.0001));
+    }
+
+    /**
+     * A partial packet of skipped data counts as a dropped packet.
+     */
+    @Test
+    public void testSyncBytesSkipped() {
+        StreamMetrics streamMetrics = new StreamMetrics();
+        streamMetrics.syncBytesSkipped(200);
+        streamMetrics.packetDropped();
+        assertThat(streamMetrics.getSyncSkippedBytes(), is(200L));
+        assertThat(streamMetrics.getDroppedPacketCount(), is(3L));
+    }
+
+    @Test
+    public void testFramesCompleted() {
+        StreamMetrics streamMetrics = new StreamMetrics();
+        streamMetrics.frameCompleted(PacketBuffer.FrameType.IDR);
+        streamMetrics.frameCompleted(PacketBuffer.FrameType.NON_IDR);
+        streamMetrics.frameCompleted(PacketBuffer.FrameType.NON_IDR);
+        assertThat(streamMetrics.getFramesCompleted(PacketBuffer.FrameType.IDR), is(1L));
+        assertThat(streamMetrics.getFramesCompleted(PacketBuffer.FrameType.NON_IDR), is(2L));
+    }
+
+    @Test
+    public void testFramesetAndRollover() {
+        StreamMetrics streamMetrics = new StreamMetrics();
+        streamMetrics.framesetFlushed(4096, TimeUnit.MICROSECONDS.toNanos(250));
+        streamMetrics.rolloverPhaseCompleted(StreamMetrics.RolloverPhase.LINK,
+                TimeUnit.MILLISECONDS.toNanos(40));
+        streamMetrics.catalogRetry();
+
+        assertThat(streamMetrics.getFramesetFlushBytes()
+                .getMax(), is(4096L));
+        assertThat(streamMetrics.getFramesetFlushMicros()
+                .getMax(), is(250L));
+        assertThat(streamMetrics.getRolloverMillis(StreamMetrics.RolloverPhase.LINK)
+                .getMax(), is(40L));
+        assertThat(streamMetrics.getRolloverMillis(StreamMetrics.RolloverPhase.CREATE)
+                .getCount(), is(0L));
+        assertThat(streamMetrics.getCatalogRetryCount(), is(1L));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testToMap() {
+        StreamMetrics streamMetrics = new StreamMetrics();
+        streamMetrics.frameCompleted(PacketBuffer.FrameType.IDR);
+        streamMetrics.rolloverPhaseCompleted(StreamMetrics.RolloverPhase.CREATE,
+                TimeUnit.MILLISECONDS.toNanos(5));
+
+        Map<String, Object> map = streamMetrics.toMap();
+
+        Map<String, Object> frames = (Map<String, Object>) map.get(StreamMetrics.FRAMES_COMPLETED);
+        assertThat(frames.get(PacketBuffer.FrameType.IDR.name()), is(1L));
+        Map<String, Object> rollover = (Map<String, Object>) map.get(StreamMetrics.ROLLOVER_MILLIS);
+        Map<String, Object> create =
+                (Map<String, Object>) rollover.get(StreamMetrics.RolloverPhase.CREATE.name());
+        assertThat(create.get(Histogram.MAX), is(5L));
+    }
+}
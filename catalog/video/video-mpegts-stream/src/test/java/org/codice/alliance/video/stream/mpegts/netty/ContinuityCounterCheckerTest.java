@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.netty;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContinuityCounterCheckerTest {
+
+    private static final int PID = 0x101;
+
+    private static final int PAYLOAD_ONLY = 0x01;
+
+    private static final int ADAPTATION_ONLY = 0x02;
+
+    private static final int ADAPTATION_AND_PAYLOAD = 0x03;
+
+    private ContinuityCounterChecker checker;
+
+    @Before
+    public void setup() {
+        checker = new ContinuityCounterChecker();
+    }
+
+    @Test
+    public void testContinuousPackets() {
+        for (int i = 0; i < 40; i++) {
+            assertThat(checker.check(packet(PID, PAYLOAD_ONLY, i % 16)), is(0));
+        }
+    }
+
+    @Test
+    public void testGap() {
+        checker.check(packet(PID, PAYLOAD_ONLY, 3));
+        assertThat(checker.check(packet(PID, PAYLOAD_ONLY, 7)), is(3));
+        assertThat(checker.check(packet(PID, PAYLOAD_ONLY, 8)), is(0));
+    }
+
+    @Test
+    public void testGapAcrossWrap() {
+        checker.check(packet(PID, PAYLOAD_ONLY, 14));
+        assertThat(checker.check(packet(PID, PAYLOAD_ONLY, 1)), is(2));
+    }
+
+    @Test
+    public void testDuplicatePacket() {
+        checker.check(packet(PID, PAYLOAD_ONLY, 5));
+        assertThat(checker.check(packet(PID, PAYLOAD_ONLY, 5)), is(0));
+        assertThat(checker.check(packet(PID, PAYLOAD_ONLY, 6)), is(0));
+    }
+
+    /**
+     * The counter does not increment on packets without a payload.
+     */
+    @Test
+    public void testAdaptationFieldOnly() {
+        checker.check(packet(PID, PAYLOAD_ONLY, 5));
+        assertThat(checker.check(packet(PID, ADAPTATION_ONLY, 5)), is(0));
+        assertThat(checker.check(packet(PID, ADAPTATION_AND_PAYLOAD, 6)), is(0));
+    }
+
+    @Test
+    public void testDiscontinuityIndicator() {
+        checker.check(packet(PID, PAYLOAD_ONLY, 5));
+        ByteBuffer packet = packet(PID, ADAPTATION_AND_PAYLOAD, 12);
+        packet.put(4, (byte) 1);
+        packet.put(5, (byte) 0x80);
+        assertThat(checker.check(packet), is(0));
+        assertThat(checker.check(packet(PID, PAYLOAD_ONLY, 13)), is(0));
+    }
+
+    @Test
+    public void testPidsAreIndependent() {
+        checker.check(packet(PID, PAYLOAD_ONLY, 0));
+        checker.check(packet(PID + 1, PAYLOAD_ONLY, 9));
+        assertThat(checker.check(packet(PID, PAYLOAD_ONLY, 1)), is(0));
+        assertThat(checker.check(packet(PID + 1, PAYLOAD_ONLY, 12)), is(2));
+    }
+
+    @Test
+    public void testNullPacketsIgnored() {
+        checker.check(packet(0x1FFF, PAYLOAD_ONLY, 0));
+        assertThat(checker.check(packet(0x1FFF, PAYLOAD_ONLY, 9)), is(0));
+    }
+
+    @Test
+    public void testPositionUnchanged() {
+        ByteBuffer packet = packet(PID, PAYLOAD_ONLY, 0);
+        checker.check(packet);
+        assertThat(packet.position(), is(0));
+    }
+
+    private ByteBuffer packet(int pid, int adaptationFieldControl, int counter) {
+        ByteBuffer packet = ByteBuffer.allocate(RawUdpDataToMTSPacketDecoder.TS_PACKET_SIZE);
+        packet.put(0, RawUdpDataToMTSPacketDecoder.TS_SYNC);
+        packet.put(1, (byte) ((pid >> 8) & 0x1F));
+        packet.put(2, (byte) (pid & 0xFF));
+        packet.put(3, (byte) ((adaptationFieldControl << 4) | counter));
+        return packet;
+    }
+
+}
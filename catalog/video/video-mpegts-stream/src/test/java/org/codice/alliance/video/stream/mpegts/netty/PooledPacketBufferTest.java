@@ -0,0 +1,229 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.netty;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+
+import org.codice.alliance.video.stream.mpegts.filename.TempFileGenerator;
+import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PooledPacketBufferTest {
+
+    private static final int BUFFER_SIZE = 4;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PooledPacketBuffer packetBuffer;
+
+    private ByteBufferPool byteBufferPool;
+
+    private RolloverCondition rolloverCondition;
+
+    @Before
+    public void setup() throws IOException {
+        TempFileGenerator tempFileGenerator = mock(TempFileGenerator.class);
+        when(tempFileGenerator.generate()).thenReturn(temporaryFolder.newFile(),
+                temporaryFolder.newFile());
+        byteBufferPool = new ByteBufferPool(BUFFER_SIZE, 10, true);
+        packetBuffer = new PooledPacketBuffer(byteBufferPool);
+        packetBuffer.setTempFileGenerator(tempFileGenerator);
+        rolloverCondition = mock(RolloverCondition.class);
+        when(rolloverCondition.isRolloverReady(any())).thenReturn(true);
+    }
+
+    @Test
+    public void testRotateWithNoData() {
+        assertThat(packetBuffer.rotate(rolloverCondition)
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void testWriteWithOnlyUnknownFrames() throws IOException {
+        packetBuffer.setMaxIncompleteFrameBytes(1);
+        packetBuffer.write(new byte[] {0x01, 0x02});
+
+        assertThat(readRotatedFile(), is(new byte[] {0x01, 0x02}));
+    }
+
+    /**
+     * Only the complete frameset is written, the trailing IDR frame starts the next frameset.
+     */
+    @Test
+    public void testWriteWithVideoData() throws IOException {
+
+        completeVideoSequence(new byte[] {0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09,
+                0x0a, 0x0b, 0x0c});
+
+        assertThat(readRotatedFile(),
+                is(new byte[] {0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09}));
+    }
+
+    @Test
+    public void testWriteWithIncompleteFrameset() {
+
+        writePacket((byte) 0x01);
+        idr();
+        writePacket((byte) 0x02);
+        nonidr();
+
+        assertThat(packetBuffer.getByteCount(), is(0L));
+        assertThat(packetBuffer.rotate(rolloverCondition)
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void testFlushAndRotate() throws IOException {
+
+        completeVideoSequence(new byte[] {0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09,
+                0x0a, 0x0b, 0x0c});
+        writePacket((byte) 0x0d);
+
+        Optional<File> file = packetBuffer.flushAndRotate();
+
+        assertThat(file.isPresent(), is(true));
+        assertThat(Files.readAllBytes(file.get()
+                        .toPath()),
+                is(new byte[] {0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09, 0x0a, 0x0b,
+                        0x0c, 0x0d}));
+    }
+
+    /**
+     * After a rotation the data is written to a new temp file.
+     */
+    @Test
+    public void testRotateStartsNewFile() throws IOException {
+
+        completeVideoSequence(new byte[] {0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09,
+                0x0a, 0x0b, 0x0c});
+        File first = packetBuffer.rotate(rolloverCondition)
+                .get();
+
+        completeVideoSequence(new byte[] {0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17, 0x18, 0x19,
+                0x1a, 0x1b, 0x1c});
+        File second = packetBuffer.rotate(rolloverCondition)
+                .get();
+
+        assertThat(first.equals(second), is(false));
+        assertThat(Files.readAllBytes(first.toPath()),
+                is(new byte[] {0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09}));
+        assertThat(Files.readAllBytes(second.toPath()),
+                is(new byte[] {0x0a, 0x0b, 0x0c, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17, 0x18,
+                        0x19}));
+    }
+
+    @Test
+    public void testBuffersReturnedToPool() throws IOException {
+
+        completeVideoSequence(new byte[] {0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07, 0x08, 0x09,
+                0x0a, 0x0b, 0x0c});
+
+        assertThat(byteBufferPool.getFreeCount(), greaterThan(0));
+    }
+
+    @Test
+    public void testPacketLargerThanBuffer() throws IOException {
+
+        byte[] payload = new byte[BUFFER_SIZE * 3];
+        for (int i = 0; i < payload.length; i++) {
+            payload[i] = (byte) i;
+        }
+
+        packetBuffer.write(new byte[] {0x7f});
+        packetBuffer.write(payload);
+
+        Optional<File> file = packetBuffer.flushAndRotate();
+
+        byte[] expected = new byte[payload.length + 1];
+        expected[0] = 0x7f;
+        System.arraycopy(payload, 0, expected, 1, payload.length);
+
+        assertThat(Files.readAllBytes(file.get()
+                .toPath()), is(expected));
+    }
+
+    @Test
+    public void testReset() throws IOException {
+
+        writePacket((byte) 0x01);
+        idr();
+        packetBuffer.reset();
+
+        writePacket((byte) 0x02);
+
+        assertThat(readRotatedFile(), is(new byte[] {0x02}));
+    }
+
+    private byte[] readRotatedFile() throws IOException {
+        Optional<File> file = packetBuffer.flushAndRotate();
+        assertThat(file.isPresent(), is(true));
+        return Files.readAllBytes(file.get()
+                .toPath());
+    }
+
+    private void writePacket(byte b) {
+        packetBuffer.write(new byte[] {b});
+    }
+
+    private void idr() {
+        packetBuffer.frameComplete(PacketBuffer.FrameType.IDR);
+    }
+
+    private void nonidr() {
+        packetBuffer.frameComplete(PacketBuffer.FrameType.NON_IDR);
+    }
+
+    /**
+     * Always call with an array of 12 elements!
+     */
+    private void completeVideoSequence(byte[] data) {
+
+        assertThat(data.length, is(12));
+
+        writePacket(data[0]);
+        writePacket(data[1]);
+        writePacket(data[2]);
+        idr();
+
+        writePacket(data[3]);
+        writePacket(data[4]);
+        writePacket(data[5]);
+        nonidr();
+
+        writePacket(data[6]);
+        writePacket(data[7]);
+        writePacket(data[8]);
+        nonidr();
+
+        writePacket(data[9]);
+        writePacket(data[10]);
+        writePacket(data[11]);
+        idr();
+    }
+
+}
@@ -14,17 +14,23 @@
 package org.codice.alliance.video.stream.mpegts.netty;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.junit.Test;
+import org.taktik.mpegts.MTSPacket;
 
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -50,6 +56,74 @@ public class RawUdpDataToMTSPacketDecoderTest {
 
         assertThat(outputList, hasSize(packetCount));
 
+        verify(packetBuffer, times(packetCount)).write(any(ByteBuffer.class));
+
+    }
+
+    /**
+     * Packets that span datagrams and junk data between packets must not change the packet
+     * sequence.
+     */
+    @Test
+    public void testPacketOrderWithSpanningPacketsAndJunk() throws Exception {
+
+        int packetCount = 50;
+
+        List<byte[]> packets = createTsPackets(packetCount);
+        for (int i = 0; i < packetCount; i++) {
+            setPid(packets.get(i), i + 1);
+        }
+
+        List<byte[]> data = new LinkedList<>();
+        data.add(new byte[] {0x01, 0x02, 0x03});
+        for (int i = 0; i < packetCount; i++) {
+            data.add(packets.get(i));
+            if (i == packetCount / 2) {
+                data.add(new byte[] {0x00, 0x00});
+            }
+        }
+
+        PacketBuffer packetBuffer = mock(PacketBuffer.class);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RawUdpDataToMTSPacketDecoder(packetBuffer,
+                mock(UdpStreamProcessor.class)));
+
+        toDatagrams(flatten(data)).forEach(channel::writeInbound);
+
+        List<Object> outputList = NettyUtility.read(channel);
+
+        assertThat(outputList, hasSize(packetCount));
+        for (int i = 0; i < packetCount; i++) {
+            assertThat(((MTSPacket) outputList.get(i)).getPid(), is(i + 1));
+        }
+
+    }
+
+    @Test
+    public void testContinuityCounterGap() throws Exception {
+
+        List<byte[]> packets = createTsPackets(10);
+        for (int i = 0; i < packets.size(); i++) {
+            setPid(packets.get(i), 0x101);
+            // payload only, skip counter 4 and 5
+            packets.get(i)[3] = (byte) (0x10 | ((i < 4 ? i : i + 2) & 0x0F));
+        }
+
+        UdpStreamProcessor udpStreamProcessor = mock(UdpStreamProcessor.class);
+
+        EmbeddedChannel channel = new EmbeddedChannel(new RawUdpDataToMTSPacketDecoder(mock(
+                PacketBuffer.class), udpStreamProcessor));
+
+        toDatagrams(flatten(packets)).forEach(channel::writeInbound);
+
+        assertThat(NettyUtility.read(channel), hasSize(10));
+
+        verify(udpStreamProcessor).continuityError(2);
+    }
+
+    private void setPid(byte[] packet, int pid) {
+        packet[1] = (byte) ((pid >> 8) & 0x1F);
+        packet[2] = (byte) (pid & 0xFF);
     }
 
     /**
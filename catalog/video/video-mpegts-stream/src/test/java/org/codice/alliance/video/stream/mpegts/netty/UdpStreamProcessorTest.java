@@ -13,6 +13,7 @@
  */
 package org.codice.alliance.video.stream.mpegts.netty;
 
+import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -28,6 +29,7 @@ import org.codice.alliance.video.stream.mpegts.StreamMonitor;
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
 import org.codice.alliance.video.stream.mpegts.metacard.MetacardUpdater;
 import org.codice.alliance.video.stream.mpegts.plugins.StreamShutdownPlugin;
+import org.codice.alliance.video.stream.mpegts.rollover.AsyncRolloverAction;
 import org.codice.alliance.video.stream.mpegts.rollover.RolloverCondition;
 import org.junit.Test;
 
@@ -66,4 +68,19 @@ public class UdpStreamProcessorTest {
         }
     }
 
+    /**
+     * The default must match the default in metatype.xml.
+     */
+    @Test
+    public void testDefaultRolloverShutdownTimeout() {
+        assertThat(new UdpStreamProcessor(mock(StreamMonitor.class)).getRolloverShutdownTimeout(),
+                is(AsyncRolloverAction.DEFAULT_SHUTDOWN_TIMEOUT_SECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetRolloverShutdownTimeoutAboveRange() {
+        new UdpStreamProcessor(mock(StreamMonitor.class)).setRolloverShutdownTimeout(
+                AsyncRolloverAction.MAX_SHUTDOWN_TIMEOUT_SECONDS + 1);
+    }
+
 }
@@ -13,16 +13,24 @@
  */
 package org.codice.alliance.video.stream.mpegts.plugins;
 
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Optional;
+
 import org.codice.alliance.video.stream.mpegts.Context;
 import org.codice.alliance.video.stream.mpegts.filename.FilenameGenerator;
 import org.codice.alliance.video.stream.mpegts.metacard.MetacardUpdater;
+import org.codice.alliance.video.stream.mpegts.metrics.StreamMetrics;
 import org.codice.alliance.video.stream.mpegts.netty.UdpStreamProcessor;
+import org.codice.alliance.video.stream.mpegts.rollover.AsyncRolloverAction;
+import org.codice.alliance.video.stream.mpegts.rollover.RolloverAction;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import ddf.catalog.CatalogFramework;
 
@@ -39,6 +47,7 @@ public class RolloverStreamCreationPluginTest {
         when(udpStreamProcessor.getFilenameTemplate()).thenReturn("template");
         when(udpStreamProcessor.getCatalogFramework()).thenReturn(mock(CatalogFramework.class));
         when(udpStreamProcessor.getParentMetacardUpdater()).thenReturn(mock(MetacardUpdater.class));
+        when(udpStreamProcessor.getStreamMetrics()).thenReturn(new StreamMetrics());
 
         RolloverStreamCreationPlugin rolloverStreamCreationPlugin =
                 new RolloverStreamCreationPlugin();
@@ -49,4 +58,30 @@ public class RolloverStreamCreationPluginTest {
 
     }
 
+    @Test
+    public void testOnCreateAsynchronous() throws StreamCreationException {
+
+        Context context = mock(Context.class);
+        UdpStreamProcessor udpStreamProcessor = mock(UdpStreamProcessor.class);
+
+        when(context.getUdpStreamProcessor()).thenReturn(udpStreamProcessor);
+        when(udpStreamProcessor.getFilenameGenerator()).thenReturn(mock(FilenameGenerator.class));
+        when(udpStreamProcessor.getFilenameTemplate()).thenReturn("template");
+        when(udpStreamProcessor.getCatalogFramework()).thenReturn(mock(CatalogFramework.class));
+        when(udpStreamProcessor.getParentMetacardUpdater()).thenReturn(mock(MetacardUpdater.class));
+        when(udpStreamProcessor.getStreamMetrics()).thenReturn(new StreamMetrics());
+        when(udpStreamProcessor.isAsynchronousRollover()).thenReturn(true);
+        when(udpStreamProcessor.getRolloverQueueSize()).thenReturn(4);
+        when(udpStreamProcessor.getStreamUri()).thenReturn(Optional.empty());
+
+        new RolloverStreamCreationPlugin().onCreate(context);
+
+        ArgumentCaptor<RolloverAction> captor = ArgumentCaptor.forClass(RolloverAction.class);
+        verify(udpStreamProcessor).setRolloverAction(captor.capture());
+
+        assertThat(captor.getValue(), instanceOf(AsyncRolloverAction.class));
+
+        ((AsyncRolloverAction) captor.getValue()).shutdown(0);
+    }
+
 }
@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.video.stream.mpegts.rollover;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ddf.catalog.data.impl.MetacardImpl;
+
+public class AsyncRolloverActionTest {
+
+    private static final long TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private RecordingRolloverAction recordingRolloverAction;
+
+    private RolloverBatchListener batchListener;
+
+    private AsyncRolloverAction asyncRolloverAction;
+
+    @Before
+    public void setup() {
+        recordingRolloverAction = new RecordingRolloverAction();
+        batchListener = mock(RolloverBatchListener.class);
+    }
+
+    @After
+    public void teardown() {
+        recordingRolloverAction.release();
+        if (asyncRolloverAction != null) {
+            asyncRolloverAction.shutdown(TIMEOUT);
+        }
+    }
+
+    @Test
+    public void testFilesProcessedInOrderAndDeleted() throws Exception {
+        asyncRolloverAction = createAction(4);
+        recordingRolloverAction.release();
+
+        List<File> files = Arrays.asList(newFile("a"), newFile("b"), newFile("c"));
+        for (File file : files) {
+            asyncRolloverAction.doAction(file);
+        }
+
+        asyncRolloverAction.shutdown(TIMEOUT);
+
+        assertThat(recordingRolloverAction.getContents(), contains("a", "b", "c"));
+        assertThat(recordingRolloverAction.getFiles()
+                .stream()
+                .anyMatch(File::exists), is(false));
+        assertThat(asyncRolloverAction.getRolloverMetrics()
+                .getCompletedCount(), is(3L));
+        assertThat(asyncRolloverAction.getRolloverMetrics()
+                .getQueueDepth(), is(0));
+    }
+
+    /**
+     * The caller may delete the original temp file as soon as doAction returns.
+     */
+    @Test
+    public void testCallerMayDeleteTempFile() throws Exception {
+        asyncRolloverAction = createAction(4);
+
+        File file = newFile("a");
+        asyncRolloverAction.doAction(file);
+
+        assertThat(file.exists(), is(false));
+
+        recordingRolloverAction.release();
+        asyncRolloverAction.shutdown(TIMEOUT);
+
+        assertThat(recordingRolloverAction.getContents(), contains("a"));
+    }
+
+    /**
+     * Files that arrive while the worker is busy are processed as one batch.
+     */
+    @Test
+    public void testWaitingFilesAreBatched() throws Exception {
+        asyncRolloverAction = createAction(4);
+
+        asyncRolloverAction.doAction(newFile("a"));
+        recordingRolloverAction.awaitStarted();
+
+        asyncRolloverAction.doAction(newFile("b"));
+        asyncRolloverAction.doAction(newFile("c"));
+        asyncRolloverAction.doAction(newFile("d"));
+
+        assertThat(asyncRolloverAction.getRolloverMetrics()
+                .getQueueDepth(), is(3));
+
+        recordingRolloverAction.release();
+        asyncRolloverAction.shutdown(TIMEOUT);
+
+        assertThat(recordingRolloverAction.getContents(), contains("a", "b", "c", "d"));
+        assertThat(asyncRolloverAction.getRolloverMetrics()
+                .getBatchCount(), is(2L));
+        verify(batchListener, times(2)).batchStarted();
+        verify(batchListener, times(2)).batchFinished();
+    }
+
+    @Test
+    public void testFullQueueBlocksCaller() throws Exception {
+        asyncRolloverAction = createAction(1);
+
+        asyncRolloverAction.doAction(newFile("a"));
+        recordingRolloverAction.awaitStarted();
+        asyncRolloverAction.doAction(newFile("b"));
+
+        File c = newFile("c");
+        Thread producer = new Thread(() -> {
+            try {
+                asyncRolloverAction.doAction(c);
+            } catch (RolloverActionException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        producer.start();
+
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (asyncRolloverAction.getRolloverMetrics()
+                .getBlockedCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(asyncRolloverAction.getRolloverMetrics()
+                .getBlockedCount(), is(1L));
+        assertThat(producer.isAlive(), is(true));
+
+        recordingRolloverAction.release();
+        producer.join(TIMEOUT);
+        asyncRolloverAction.shutdown(TIMEOUT);
+
+        assertThat(recordingRolloverAction.getContents(), contains("a", "b", "c"));
+    }
+
+    @Test
+    public void testFailedActionIsCounted() throws Exception {
+        asyncRolloverAction = createAction(4);
+        recordingRolloverAction.release();
+        recordingRolloverAction.failOn("b");
+
+        asyncRolloverAction.doAction(newFile("a"));
+        asyncRolloverAction.doAction(newFile("b"));
+        asyncRolloverAction.doAction(newFile("c"));
+
+        asyncRolloverAction.shutdown(TIMEOUT);
+
+        assertThat(recordingRolloverAction.getContents(), contains("a", "b", "c"));
+        assertThat(asyncRolloverAction.getRolloverMetrics()
+                .getFailedCount(), is(1L));
+        assertThat(asyncRolloverAction.getRolloverMetrics()
+                .getCompletedCount(), is(2L));
+        assertThat(recordingRolloverAction.getFiles()
+                .stream()
+                .anyMatch(File::exists), is(false));
+    }
+
+    @Test
+    public void testShutdownPerformsActionOnCallingThread() throws Exception {
+        asyncRolloverAction = createAction(4);
+        recordingRolloverAction.release();
+        asyncRolloverAction.shutdown(TIMEOUT);
+
+        File file = newFile("a");
+        MetacardImpl metacard = new MetacardImpl();
+
+        assertThat(asyncRolloverAction.doAction(metacard, file) == metacard, is(true));
+        assertThat(recordingRolloverAction.getFiles(), contains(file));
+        assertThat(recordingRolloverAction.getThreads(), contains(Thread.currentThread()));
+    }
+
+    /**
+     * The files that are still waiting when the timeout expires are not ingested, so they are left
+     * on disk rather than losing the recording.
+     */
+    @Test
+    public void testShutdownTimeoutLeavesWaitingFiles() throws Exception {
+        asyncRolloverAction = createAction(4);
+
+        asyncRolloverAction.doAction(newFile("a"));
+        recordingRolloverAction.awaitStarted();
+        File b = newFile("b");
+        asyncRolloverAction.doAction(b);
+
+        asyncRolloverAction.shutdown(0);
+
+        assertThat(asyncRolloverAction.getRolloverMetrics()
+                .getQueueDepth(), is(0));
+        File queuedB = new File(b.getPath() + AsyncRolloverAction.QUEUED_FILE_SUFFIX);
+        assertThat(queuedB.exists(), is(true));
+        assertThat(new String(Files.readAllBytes(queuedB.toPath())), is("b"));
+        assertThat(recordingRolloverAction.getContents()
+                .contains("b"), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQueueSizeTooSmall() {
+        new AsyncRolloverAction(recordingRolloverAction,
+                batchListener,
+                AsyncRolloverAction.MIN_QUEUE_SIZE - 1,
+                "test");
+    }
+
+    private AsyncRolloverAction createAction(int queueSize) {
+        return new AsyncRolloverAction(recordingRolloverAction, batchListener, queueSize, "test");
+    }
+
+    private File newFile(String content) throws IOException {
+        File file = temporaryFolder.newFile();
+        Files.write(file.toPath(), content.getBytes());
+        return file;
+    }
+
+    /**
+     * Records the content of each file. Waits for {@link #release()} before processing.
+     */
+    private static class RecordingRolloverAction extends BaseRolloverAction {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        private final List<String> contents = Collections.synchronizedList(new ArrayList<>());
+
+        private final List<File> files = Collections.synchronizedList(new ArrayList<>());
+
+        private final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile String failOn;
+
+        @Override
+        public MetacardImpl doAction(MetacardImpl metacard, File tempFile)
+                throws RolloverActionException {
+            started.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                throw new RolloverActionException("interrupted", e);
+            }
+            files.add(tempFile);
+            threads.add(Thread.currentThread());
+            String content;
+            try {
+                content = new String(Files.readAllBytes(tempFile.toPath()));
+            } catch (IOException e) {
+                throw new RolloverActionException("unable to read", e);
+            }
+            contents.add(content);
+            if (content.equals(failOn)) {
+                throw new RolloverActionException("failed", null);
+            }
+            return metacard;
+        }
+
+        void failOn(String content) {
+            failOn = content;
+        }
+
+        void awaitStarted() throws InterruptedException {
+            assertThat(started.await(TIMEOUT, TimeUnit.MILLISECONDS), is(true));
+        }
+
+        void release() {
+            released.countDown();
+        }
+
+        List<String> getContents() {
+            return contents;
+        }
+
+        List<File> getFiles() {
+            return files;
+        }
+
+        List<Thread> getThreads() {
+            return threads;
+        }
+    }
+}
@@ -312,4 +312,41 @@ public class CatalogRolloverActionTest {
 
     }
 
+    /**
+     * Within a batch, each child is linked to the parent but the parent is only updated once.
+     */
+    @Test
+    public void testBatchCoalescesParentUpdates()
+            throws RolloverActionException, SourceUnavailableException, IngestException {
+
+        catalogRolloverAction.batchStarted();
+        catalogRolloverAction.doAction(tempFile);
+        catalogRolloverAction.doAction(tempFile);
+
+        verify(catalogFramework, times(2)).update(any(UpdateRequest.class));
+
+        catalogRolloverAction.batchFinished();
+
+        ArgumentCaptor<UpdateRequest> argumentCaptor = ArgumentCaptor.forClass(UpdateRequest.class);
+
+        verify(catalogFramework, times(3)).update(argumentCaptor.capture());
+
+        List<UpdateRequest> updateRequests = argumentCaptor.getAllValues();
+
+        assertThat(updateRequests.get(2)
+                .getUpdates()
+                .get(0)
+                .getValue() == createdParentMetacard, is(true));
+    }
+
+    @Test
+    public void testBatchWithoutChildrenDoesNotUpdateParent()
+            throws RolloverActionException, SourceUnavailableException, IngestException {
+
+        catalogRolloverAction.batchStarted();
+        catalogRolloverAction.batchFinished();
+
+        verify(catalogFramework, times(0)).update(any(UpdateRequest.class));
+    }
+
 }
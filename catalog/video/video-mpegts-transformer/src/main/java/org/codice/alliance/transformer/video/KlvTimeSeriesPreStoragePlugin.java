@@ -0,0 +1,150 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.video;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.codice.alliance.libs.klv.AttributeNameConstants;
+import org.codice.alliance.libs.klv.KlvTimeSeries;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteSource;
+
+import ddf.catalog.content.data.ContentItem;
+import ddf.catalog.content.data.impl.ContentItemImpl;
+import ddf.catalog.content.operation.CreateStorageRequest;
+import ddf.catalog.content.operation.UpdateStorageRequest;
+import ddf.catalog.content.plugin.PreCreateStoragePlugin;
+import ddf.catalog.content.plugin.PreUpdateStoragePlugin;
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.AttributeImpl;
+import ddf.catalog.data.types.Core;
+import ddf.catalog.plugin.PluginExecutionException;
+
+/**
+ * This pre-storage plugin moves the encoded {@link KlvTimeSeries} that is set on the metacard by
+ * {@link MpegTsInputTransformer} into a derived resource, so it is stored in the content store
+ * next to the video instead of with the metacard. This applies both to ingested videos and to the
+ * chunks of a video stream.
+ */
+public class KlvTimeSeriesPreStoragePlugin
+        implements PreCreateStoragePlugin, PreUpdateStoragePlugin {
+
+    public static final String QUALIFIER = "klv-time-series";
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(KlvTimeSeriesPreStoragePlugin.class);
+
+    private static final String FILENAME_EXTENSION = "klvt";
+
+    @Override
+    public CreateStorageRequest process(CreateStorageRequest createStorageRequest)
+            throws PluginExecutionException {
+        if (createStorageRequest == null) {
+            throw new PluginExecutionException(
+                    "process(): argument 'createStorageRequest' may not be null.");
+        }
+
+        process(createStorageRequest.getContentItems());
+        return createStorageRequest;
+    }
+
+    @Override
+    public UpdateStorageRequest process(UpdateStorageRequest updateStorageRequest)
+            throws PluginExecutionException {
+        if (updateStorageRequest == null) {
+            throw new PluginExecutionException(
+                    "process(): argument 'updateStorageRequest' may not be null.");
+        }
+
+        process(updateStorageRequest.getContentItems());
+        return updateStorageRequest;
+    }
+
+    private void process(List<ContentItem> contentItems) {
+        List<ContentItem> newContentItems = new ArrayList<>();
+        contentItems.forEach(contentItem -> process(contentItem, newContentItems));
+        contentItems.addAll(newContentItems);
+    }
+
+    private void process(ContentItem contentItem, List<ContentItem> contentItems) {
+        Metacard metacard = contentItem.getMetacard();
+
+        if (metacard == null || StringUtils.isNotEmpty(contentItem.getQualifier())) {
+            return;
+        }
+
+        Attribute attribute = metacard.getAttribute(AttributeNameConstants.KLV_TIME_SERIES);
+
+        if (attribute == null) {
+            return;
+        }
+
+        // a null value removes the attribute, it is not part of the metacard type
+        metacard.setAttribute(new AttributeImpl(AttributeNameConstants.KLV_TIME_SERIES,
+                (Serializable) null));
+
+        if (!(attribute.getValue() instanceof byte[])) {
+            LOGGER.debug("the klv time series is not a byte array: metacardId={}",
+                    metacard.getId());
+            return;
+        }
+
+        byte[] timeSeries = (byte[]) attribute.getValue();
+
+        ContentItem timeSeriesContentItem = new ContentItemImpl(contentItem.getId(),
+                QUALIFIER,
+                ByteSource.wrap(timeSeries),
+                KlvTimeSeries.MIME_TYPE,
+                buildFilename(contentItem.getFilename()),
+                timeSeries.length,
+                metacard);
+
+        addDerivedResourceAttribute(metacard, timeSeriesContentItem);
+
+        contentItems.add(timeSeriesContentItem);
+
+        LOGGER.trace("created klv time series content item: id={} size={}",
+                contentItem.getId(),
+                timeSeries.length);
+    }
+
+    String buildFilename(String filename) {
+        String baseName = FilenameUtils.getBaseName(filename);
+        if (StringUtils.isBlank(baseName)) {
+            return String.format("%s.%s", QUALIFIER, FILENAME_EXTENSION);
+        }
+        return String.format("%s-%s.%s", QUALIFIER, baseName, FILENAME_EXTENSION);
+    }
+
+    private void addDerivedResourceAttribute(Metacard metacard, ContentItem contentItem) {
+        Attribute attribute = metacard.getAttribute(Core.DERIVED_RESOURCE_URI);
+        if (attribute == null) {
+            attribute = new AttributeImpl(Core.DERIVED_RESOURCE_URI, contentItem.getUri());
+        } else {
+            AttributeImpl newAttribute = new AttributeImpl(attribute);
+            newAttribute.addValue(contentItem.getUri());
+            attribute = newAttribute;
+        }
+
+        metacard.setAttribute(attribute);
+    }
+
+}
@@ -18,29 +18,45 @@ import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.codice.alliance.libs.klv.AttributeNameConstants;
 import org.codice.alliance.libs.klv.KlvHandler;
 import org.codice.alliance.libs.klv.KlvHandlerFactory;
 import org.codice.alliance.libs.klv.KlvProcessor;
+import org.codice.alliance.libs.klv.KlvTimeSeriesHandler;
 import org.codice.alliance.libs.klv.Stanag4609ParseException;
 import org.codice.alliance.libs.klv.Stanag4609Parser;
 import org.codice.alliance.libs.klv.Stanag4609Processor;
 import org.codice.alliance.libs.klv.StanagParserFactory;
 import org.codice.alliance.libs.mpegts.MpegStreamType;
+import org.codice.alliance.libs.mpegts.MpegTsDecoderImpl;
 import org.codice.alliance.libs.mpegts.PESPacket;
 import org.codice.alliance.libs.mpegts.TSStream;
 import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvContext;
 import org.codice.ddf.platform.util.TemporaryFileBackedOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.io.ByteSource;
+
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.MetacardType;
 import ddf.catalog.data.impl.AttributeImpl;
@@ -56,6 +72,10 @@ public class MpegTsInputTransformer implements InputTransformer {
 
     private static final Integer DEFAULT_SUBSAMPLE_COUNT = 50;
 
+    private static final int DEFAULT_KLV_DECODE_QUEUE_DEPTH = 256;
+
+    private static final AtomicInteger KLV_DECODE_THREAD_COUNT = new AtomicInteger();
+
     private final InputTransformer innerTransformer;
 
     private final List<MetacardType> metacardTypes;
@@ -77,8 +97,27 @@ public class MpegTsInputTransformer implements InputTransformer {
 
     private Integer subsampleCount = DEFAULT_SUBSAMPLE_COUNT;
 
+    private double subsampleTolerance = 0;
+
+    private int subsampleMaxGap = 0;
+
     private Function<MpegStreamType, String> streamTypeToString = MpegStreamType::toString;
 
+    private boolean singlePassDemultiplexing = false;
+
+    private boolean demandDrivenKlvDecoding = false;
+
+    private boolean klvTimeSeries = false;
+
+    private int klvDecodeThreads = 0;
+
+    private int klvDecodeQueueDepth = DEFAULT_KLV_DECODE_QUEUE_DEPTH;
+
+    /**
+     * Null when the KLV metadata is decoded on the ingest thread.
+     */
+    private ExecutorService klvDecodeExecutor;
+
     /**
      * @param inputTransformer    inner input transformer (must be non-null)
      * @param metacardTypes       list of usable metacard types (must be non-null)
@@ -115,6 +154,137 @@ public class MpegTsInputTransformer implements InputTransformer {
         this.subsampleCount = subsampleCount;
     }
 
+    /**
+     * The distance in degrees that a footprint corner must move before another footprint is used
+     * to calculate the location. When set to 0, the location is calculated from a fixed number of
+     * evenly spaced footprints. In either case, at most the subsample count of footprints is used.
+     * Defaults to 0.
+     *
+     * @param subsampleTolerance may be null, must be non-negative
+     */
+    public void setSubsampleTolerance(Double subsampleTolerance) {
+        double tolerance = subsampleTolerance != null ? subsampleTolerance : 0;
+        inclusiveBetween(0,
+                Double.MAX_VALUE,
+                tolerance,
+                "subsampleTolerance must be non-negative");
+        this.subsampleTolerance = tolerance;
+    }
+
+    /**
+     * The maximum number of consecutive footprints that may be skipped when the subsample
+     * tolerance is greater than 0. When set to 0, there is no limit.
+     * Defaults to 0.
+     *
+     * @param subsampleMaxGap may be null, must be non-negative
+     */
+    public void setSubsampleMaxGap(Integer subsampleMaxGap) {
+        int maxGap = subsampleMaxGap != null ? subsampleMaxGap : 0;
+        inclusiveBetween(0, Integer.MAX_VALUE, maxGap, "subsampleMaxGap must be non-negative");
+        this.subsampleMaxGap = maxGap;
+    }
+
+    /**
+     * When enabled, the KLV metadata and the media encodings are extracted while the input is
+     * being copied, instead of reading the copy once for each of them. The resulting metacard is
+     * the same.
+     * Disabled by default.
+     *
+     * @param singlePassDemultiplexing <code>true</code> to demultiplex the input in a single pass
+     */
+    public void setSinglePassDemultiplexing(boolean singlePassDemultiplexing) {
+        this.singlePassDemultiplexing = singlePassDemultiplexing;
+    }
+
+    /**
+     * When enabled, only the KLV fields that are read by the klv processors, or that are needed to
+     * calculate them, are decoded. The other fields are skipped without being decoded, so they are
+     * not passed to the default handler. The resulting metacard is the same. Disable it to decode
+     * every supported field, for example to log the unhandled fields while diagnosing a video.
+     * Disabled by default.
+     *
+     * @param demandDrivenKlvDecoding <code>true</code> to only decode the required KLV fields
+     */
+    public void setDemandDrivenKlvDecoding(boolean demandDrivenKlvDecoding) {
+        this.demandDrivenKlvDecoding = demandDrivenKlvDecoding;
+    }
+
+    /**
+     * When enabled, the timestamp, frame center and sensor position of every KLV metadata packet
+     * are collected into a compact, time-indexed {@link org.codice.alliance.libs.klv.KlvTimeSeries}
+     * that is set on the metacard, so a position can be looked up by time without parsing the
+     * video again. The time series is stored as a derived resource by
+     * {@link KlvTimeSeriesPreStoragePlugin}.
+     * Disabled by default.
+     *
+     * @param klvTimeSeries <code>true</code> to create the KLV time series
+     */
+    public void setKlvTimeSeries(boolean klvTimeSeries) {
+        this.klvTimeSeries = klvTimeSeries;
+    }
+
+    /**
+     * The number of threads that decode the KLV metadata packets of a video. The decoded packets
+     * are still processed in the order they appear in the video, so the resulting metacard is the
+     * same. The threads are shared by all of the videos that are being transformed. When set to 0,
+     * the packets are decoded on the ingest thread.
+     * Defaults to 0.
+     *
+     * @param klvDecodeThreads may be null, must be non-negative
+     */
+    public synchronized void setKlvDecodeThreads(Integer klvDecodeThreads) {
+        int threads = klvDecodeThreads != null ? klvDecodeThreads : 0;
+        inclusiveBetween(0,
+                Integer.MAX_VALUE,
+                threads,
+                "klvDecodeThreads must be non-negative");
+
+        if (threads == this.klvDecodeThreads) {
+            return;
+        }
+
+        shutdownKlvDecodeExecutor();
+        this.klvDecodeThreads = threads;
+        if (threads > 0) {
+            klvDecodeExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable,
+                        "klv-decode-" + KLV_DECODE_THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * The maximum number of KLV metadata packets of a video that are being decoded or waiting to
+     * be processed. Only used when {@link #setKlvDecodeThreads(Integer)} is greater than 0.
+     * Defaults to 256.
+     *
+     * @param klvDecodeQueueDepth may be null, must be &gt;0
+     */
+    public synchronized void setKlvDecodeQueueDepth(Integer klvDecodeQueueDepth) {
+        int queueDepth =
+                klvDecodeQueueDepth != null ? klvDecodeQueueDepth : DEFAULT_KLV_DECODE_QUEUE_DEPTH;
+        inclusiveBetween(1, Integer.MAX_VALUE, queueDepth, "klvDecodeQueueDepth must be >0");
+        this.klvDecodeQueueDepth = queueDepth;
+    }
+
+    /**
+     * Stop the KLV decoding threads. Transforms that are still running decode the remaining
+     * packets on the ingest thread.
+     */
+    public synchronized void destroy() {
+        shutdownKlvDecodeExecutor();
+        klvDecodeThreads = 0;
+    }
+
+    private void shutdownKlvDecodeExecutor() {
+        if (klvDecodeExecutor != null) {
+            klvDecodeExecutor.shutdown();
+            klvDecodeExecutor = null;
+        }
+    }
+
     /**
      * @param distanceTolerance may be null, must be non-negative
      */
@@ -140,6 +310,10 @@ public class MpegTsInputTransformer implements InputTransformer {
 
         try (TemporaryFileBackedOutputStream fileBackedOutputStream = new TemporaryFileBackedOutputStream()) {
 
+            if (singlePassDemultiplexing) {
+                return transformSinglePass(inputStream, id, fileBackedOutputStream);
+            }
+
             populateFileBackedOutputStream(inputStream, fileBackedOutputStream);
 
             MetacardImpl metacard = extractInnerTransformerMetadata(id, fileBackedOutputStream);
@@ -153,23 +327,122 @@ public class MpegTsInputTransformer implements InputTransformer {
 
     }
 
+    /**
+     * Demultiplex the transport stream while it is copied to the file backed output stream. The
+     * copy is only read again by the inner transformer.
+     */
+    private Metacard transformSinglePass(InputStream inputStream, String id,
+            TemporaryFileBackedOutputStream fileBackedOutputStream)
+            throws IOException, CatalogTransformerException {
+
+        Map<String, KlvHandler> handlers = createStanag4609Handlers();
+
+        TransportStreamDemultiplexer demultiplexer = createDemultiplexer(createStanag4609Callback(
+                handlers), createKlvContext(handlers));
+
+        populateFileBackedOutputStream(inputStream,
+                new TeeOutputStream(fileBackedOutputStream, demultiplexer));
+
+        demultiplexer.close();
+
+        MetacardImpl metacard = extractInnerTransformerMetadata(id, fileBackedOutputStream);
+
+        try {
+            demultiplexer.checkDemultiplexed();
+        } catch (Stanag4609ParseException e) {
+            throw new CatalogTransformerException("failed to extract STANAG 4609 metadata", e);
+        }
+
+        processKlvHandlers(metacard, handlers);
+
+        setMediaEncodings(metacard,
+                demultiplexer.getStreamTypes()
+                        .stream());
+
+        return metacard;
+    }
+
+    private synchronized TransportStreamDemultiplexer createDemultiplexer(
+            BiConsumer<Integer, DecodedKLVMetadataPacket> metadataCallback,
+            KlvContext klvContext) {
+        if (klvDecodeExecutor == null) {
+            return new TransportStreamDemultiplexer(new MpegTsDecoderImpl(),
+                    metadataCallback,
+                    klvContext);
+        }
+        return new TransportStreamDemultiplexer(new MpegTsDecoderImpl(),
+                metadataCallback,
+                klvContext,
+                klvDecodeExecutor,
+                klvDecodeQueueDepth);
+    }
+
+    private synchronized Stanag4609Parser createStanag4609Parser(ByteSource byteSource,
+            KlvContext klvContext) {
+        if (klvDecodeExecutor == null) {
+            return stanagParserFactory.createParser(byteSource, klvContext);
+        }
+        return stanagParserFactory.createParser(byteSource,
+                klvContext,
+                klvDecodeExecutor,
+                klvDecodeQueueDepth);
+    }
+
+    /**
+     * @return the handlers of the STANAG 4609 fields, with the KLV time series handler when it is
+     * enabled
+     */
+    private Map<String, KlvHandler> createStanag4609Handlers() {
+        Map<String, KlvHandler> handlers = klvHandlerFactory.createStanag4609Handlers();
+        if (!klvTimeSeries) {
+            return handlers;
+        }
+        Map<String, KlvHandler> handlersWithTimeSeries = new HashMap<>(handlers);
+        handlersWithTimeSeries.put(KlvTimeSeriesHandler.FIELD_NAME, new KlvTimeSeriesHandler());
+        return handlersWithTimeSeries;
+    }
+
+    /**
+     * When demand driven decoding is enabled, only the fields that are read by the klv processors
+     * are decoded, otherwise every supported field is decoded.
+     *
+     * @param handlers the handlers that will be passed to the klv processors
+     * @return the KLV context definition used to decode the packets
+     */
+    private KlvContext createKlvContext(Map<String, KlvHandler> handlers) {
+        if (!demandDrivenKlvDecoding) {
+            return Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT;
+        }
+
+        Set<String> fieldNames = stanag4609Processor.getRequiredFieldNames(
+                klvProcessor.getRequiredFieldNames(handlers));
+
+        LOGGER.debug("decoding the KLV fields required by the klv processors: {}", fieldNames);
+
+        return Stanag4609TransportStreamParser.createUasDatalinkLocalSetContext(fieldNames);
+    }
+
     private void extractMediaEncodings(Metacard metacard, TemporaryFileBackedOutputStream fbos)
             throws IOException {
+        setMediaEncodings(metacard,
+                TSStream.from(fbos.asByteSource())
+                        .map(PESPacket::getStreamType)
+                        .distinct());
+    }
+
+    private void setMediaEncodings(Metacard metacard, Stream<MpegStreamType> streamTypes) {
 
-        List<Serializable> serializables = TSStream.from(fbos.asByteSource())
-                .map(PESPacket::getStreamType)
-                .distinct()
-                .map(streamTypeToString)
+        List<Serializable> serializables = streamTypes.map(streamTypeToString)
                 .collect(Collectors.<Serializable>toList());
 
         metacard.setAttribute(new AttributeImpl(AttributeNameConstants.MEDIA_ENCODING,
                 serializables));
     }
 
-    private void populateFileBackedOutputStream(InputStream inputStream,
-            TemporaryFileBackedOutputStream fbos) throws CatalogTransformerException {
+    private void populateFileBackedOutputStream(InputStream inputStream, OutputStream outputStream)
+            throws CatalogTransformerException {
         try {
-            int c = IOUtils.copy(inputStream, fbos);
+            int c = IOUtils.copy(inputStream, outputStream);
             LOGGER.debug("copied {} bytes from input stream to file backed output stream", c);
         } catch (IOException e) {
             throw new CatalogTransformerException("Could not copy bytes of content message.", e);
@@ -212,21 +485,39 @@ public class MpegTsInputTransformer implements InputTransformer {
     private void extractStanag4609Metadata(MetacardImpl metacard,
             TemporaryFileBackedOutputStream fbos) throws IOException, CatalogTransformerException {
 
-        Stanag4609Parser stanag4609Parser = stanagParserFactory.createParser(fbos.asByteSource());
+        Map<String, KlvHandler> handlers = createStanag4609Handlers();
+
+        Stanag4609Parser stanag4609Parser = createStanag4609Parser(fbos.asByteSource(),
+                createKlvContext(handlers));
 
-        Map<Integer, List<DecodedKLVMetadataPacket>> decodedMetadata;
         try {
-            decodedMetadata = stanag4609Parser.parse();
+            stanag4609Parser.parse(createStanag4609Callback(handlers));
         } catch (Stanag4609ParseException e) {
             throw new CatalogTransformerException("failed to extract STANAG 4609 metadata", e);
         }
 
-        Map<String, KlvHandler> handlers = klvHandlerFactory.createStanag4609Handlers();
+        processKlvHandlers(metacard, handlers);
+    }
+
+    /**
+     * The decoded packets are passed to the handlers as they are parsed, so they are not retained
+     * for the whole stream. The handlers are resolved once per stream by the packet handler.
+     */
+    private BiConsumer<Integer, DecodedKLVMetadataPacket> createStanag4609Callback(
+            Map<String, KlvHandler> handlers) {
+        Consumer<DecodedKLVMetadataPacket> packetHandler =
+                stanag4609Processor.createPacketHandler(handlers, defaultKlvHandler);
+        return (packetId, decodedKLVMetadataPacket) -> packetHandler.accept(
+                decodedKLVMetadataPacket);
+    }
 
-        stanag4609Processor.handle(handlers, defaultKlvHandler, decodedMetadata);
+    private void processKlvHandlers(MetacardImpl metacard, Map<String, KlvHandler> handlers) {
 
         KlvProcessor.Configuration klvProcessConfiguration = new KlvProcessor.Configuration();
         klvProcessConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_COUNT, subsampleCount);
+        klvProcessConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_TOLERANCE,
+                subsampleTolerance);
+        klvProcessConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_MAX_GAP, subsampleMaxGap);
 
         klvProcessor.process(handlers, metacard, klvProcessConfiguration);
 
@@ -21,6 +21,7 @@ import org.codice.alliance.libs.klv.FrameCenterKlvProcessor;
 import org.codice.alliance.libs.klv.GeometryOperator;
 import org.codice.alliance.libs.klv.GeometryReducer;
 import org.codice.alliance.libs.klv.KlvProcessor;
+import org.codice.alliance.libs.klv.KlvTimeSeriesKlvProcessor;
 import org.codice.alliance.libs.klv.LocationKlvProcessor;
 import org.codice.alliance.libs.klv.NormalizeGeometry;
 import org.codice.alliance.libs.klv.SensorAltitudeKlvProcessor;
@@ -105,4 +106,9 @@ class SetDistanceToleranceVisitor implements KlvProcessor.Visitor {
     public void visit(SensorAltitudeKlvProcessor sensorAltitudeKlvProcessor) {
 
     }
+
+    @Override
+    public void visit(KlvTimeSeriesKlvProcessor klvTimeSeriesKlvProcessor) {
+
+    }
 }
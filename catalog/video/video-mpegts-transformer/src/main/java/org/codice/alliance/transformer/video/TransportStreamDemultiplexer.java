@@ -0,0 +1,370 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.video;
+
+import static org.apache.commons.lang3.Validate.notNull;
+import static org.apache.commons.lang3.Validate.validState;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+import org.codice.alliance.libs.klv.Stanag4609ParseException;
+import org.codice.alliance.libs.mpegts.Constants;
+import org.codice.alliance.libs.mpegts.MpegStreamType;
+import org.codice.alliance.libs.mpegts.MpegTsDecoder;
+import org.codice.alliance.libs.mpegts.MpegTsDecoderImpl;
+import org.codice.alliance.libs.mpegts.PESPacket;
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.alliance.libs.stanag4609.OrderedKlvPacketDecoder;
+import org.codice.alliance.libs.stanag4609.PESUtilities;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvContext;
+import org.codice.ddf.libs.klv.KlvDecoder;
+import org.codice.ddf.libs.klv.KlvDecodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.taktik.mpegts.MTSPacket;
+
+/**
+ * Demultiplexes an MPEG-TS as it is written, so the KLV metadata and the elementary stream types
+ * can be collected from a single traversal of the TS packets. The results are available after the
+ * stream is closed and match what {@link Stanag4609TransportStreamParser} and
+ * {@link org.codice.alliance.libs.mpegts.TSStream} produce for the same bytes:
+ * <ul>
+ * <li>the stream types are those of the complete PES packets, in the order they are first
+ * encountered</li>
+ * <li>the KLV metadata is decoded from the PES packets of the private data and metadata streams,
+ * including the PES packets that are still incomplete at the end of the stream</li>
+ * </ul>
+ * A TS packet is only decoded if it starts with the sync byte and is followed by another sync
+ * byte or by the end of the stream. Otherwise the bytes up to the next sync byte are discarded, so
+ * leading garbage and lost or extra bytes only affect the packets around them. A trailing partial
+ * TS packet is ignored. If a TS packet cannot be decoded or the metadata callback throws an
+ * exception, the rest of the stream is ignored and {@link #checkDemultiplexed()} and
+ * {@link #getDecodedMetadata()} throw the failure.
+ * <p>
+ * When a metadata callback is given, each decoded KLV packet is passed to the callback as soon as
+ * it is found instead of being collected, so only the PES packets that are still being assembled
+ * are held in memory.
+ * <p>
+ * When a decode executor is given, the KLV packets are decoded on the executor and passed to the
+ * metadata callback in the order they were encountered, on the writing thread. The last packets are
+ * passed to the callback by {@link #close()}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class TransportStreamDemultiplexer extends OutputStream {
+
+    private static final Logger LOGGER =
+            LoggerFactory.getLogger(TransportStreamDemultiplexer.class);
+
+    private static final byte TS_SYNC = (byte) 0x47;
+
+    /**
+     * One TS packet and the first byte of the next packet, which must be a sync byte.
+     */
+    private final byte[] packetBytes = new byte[Constants.TS_PACKET_SIZE + 1];
+
+    private final MpegTsDecoder mpegTsDecoder;
+
+    private final KlvDecoder klvDecoder;
+
+    private final Set<MpegStreamType> streamTypes = new LinkedHashSet<>();
+
+    private final Map<Integer, List<DecodedKLVMetadataPacket>> decodedMetadata = new HashMap<>();
+
+    private final BiConsumer<Integer, DecodedKLVMetadataPacket> metadataCallback;
+
+    private final OrderedKlvPacketDecoder orderedKlvPacketDecoder;
+
+    private int packetLength = 0;
+
+    private Exception failure;
+
+    private boolean closed = false;
+
+    public TransportStreamDemultiplexer() {
+        this(new MpegTsDecoderImpl());
+    }
+
+    /**
+     * @param mpegTsDecoder must be non-null
+     */
+    public TransportStreamDemultiplexer(MpegTsDecoder mpegTsDecoder) {
+        notNull(mpegTsDecoder, "mpegTsDecoder must be non-null");
+        this.mpegTsDecoder = mpegTsDecoder;
+        this.klvDecoder =
+                new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT);
+        this.metadataCallback = (packetId, packet) -> decodedMetadata.computeIfAbsent(packetId,
+                key -> new ArrayList<>())
+                .add(packet);
+        this.orderedKlvPacketDecoder = null;
+    }
+
+    /**
+     * @param mpegTsDecoder    must be non-null
+     * @param metadataCallback called with the packet ID of the metadata stream and each decoded KLV
+     *                         packet, must be non-null
+     */
+    public TransportStreamDemultiplexer(MpegTsDecoder mpegTsDecoder,
+            BiConsumer<Integer, DecodedKLVMetadataPacket> metadataCallback) {
+        this(mpegTsDecoder,
+                metadataCallback,
+                Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT);
+    }
+
+    /**
+     * @param mpegTsDecoder    must be non-null
+     * @param metadataCallback called with the packet ID of the metadata stream and each decoded KLV
+     *                         packet, must be non-null
+     * @param klvContext       the KLV context definition, data elements that it does not define are
+     *                         skipped, must be non-null
+     */
+    public TransportStreamDemultiplexer(MpegTsDecoder mpegTsDecoder,
+            BiConsumer<Integer, DecodedKLVMetadataPacket> metadataCallback,
+            KlvContext klvContext) {
+        notNull(mpegTsDecoder, "mpegTsDecoder must be non-null");
+        notNull(metadataCallback, "metadataCallback must be non-null");
+        notNull(klvContext, "klvContext must be non-null");
+        this.mpegTsDecoder = mpegTsDecoder;
+        this.klvDecoder = new KlvDecoder(klvContext);
+        this.metadataCallback = metadataCallback;
+        this.orderedKlvPacketDecoder = null;
+    }
+
+    /**
+     * @param mpegTsDecoder     must be non-null
+     * @param metadataCallback  called with the packet ID of the metadata stream and each decoded
+     *                          KLV packet, must be non-null
+     * @param klvContext        the KLV context definition, data elements that it does not define
+     *                          are skipped, must be non-null
+     * @param decodeExecutor    runs the KLV decoding tasks, must be non-null
+     * @param maxPendingPackets the maximum number of KLV packets that are decoding or waiting to
+     *                          be passed to the callback, must be &gt;0
+     */
+    public TransportStreamDemultiplexer(MpegTsDecoder mpegTsDecoder,
+            BiConsumer<Integer, DecodedKLVMetadataPacket> metadataCallback, KlvContext klvContext,
+            Executor decodeExecutor, int maxPendingPackets) {
+        notNull(mpegTsDecoder, "mpegTsDecoder must be non-null");
+        notNull(metadataCallback, "metadataCallback must be non-null");
+        notNull(klvContext, "klvContext must be non-null");
+        this.mpegTsDecoder = mpegTsDecoder;
+        this.klvDecoder = new KlvDecoder(klvContext);
+        this.metadataCallback = metadataCallback;
+        this.orderedKlvPacketDecoder = new OrderedKlvPacketDecoder(klvContext,
+                decodeExecutor,
+                maxPendingPackets,
+                metadataCallback);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        validState(!closed, "the demultiplexer is closed");
+        packetBytes[packetLength++] = (byte) b;
+        if (packetLength == packetBytes.length) {
+            nextPacket();
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        validState(!closed, "the demultiplexer is closed");
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            int length = Math.min(remaining, packetBytes.length - packetLength);
+            System.arraycopy(b, offset, packetBytes, packetLength, length);
+            packetLength += length;
+            offset += length;
+            remaining -= length;
+            if (packetLength == packetBytes.length) {
+                nextPacket();
+            }
+        }
+    }
+
+    /**
+     * Decode the KLV metadata of the PES packets that are still incomplete, and wait for the
+     * packets that are being decoded on the decode executor. Nothing may be written after the
+     * stream is closed.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (packetLength == Constants.TS_PACKET_SIZE && packetBytes[0] == TS_SYNC) {
+            handlePacket();
+        }
+        if (failure == null) {
+            flushIncompletePackets();
+        }
+        if (orderedKlvPacketDecoder != null) {
+            if (failure == null) {
+                finishDecoding();
+            } else {
+                orderedKlvPacketDecoder.cancel();
+            }
+        }
+    }
+
+    /**
+     * Must be called after {@link #close()}.
+     *
+     * @return the distinct stream types of the PES packets, in the order they were first
+     * encountered
+     */
+    public List<MpegStreamType> getStreamTypes() {
+        validState(closed, "the demultiplexer must be closed");
+        return new ArrayList<>(streamTypes);
+    }
+
+    /**
+     * Must be called after {@link #close()}.
+     *
+     * @return a {@link Map} whose keys are the packet IDs of the metadata streams and whose values
+     * are the decoded KLV metadata packets belonging to that stream, in the order they were
+     * encountered, or an empty map if the packets were passed to a metadata callback
+     * @throws Stanag4609ParseException if the transport stream could not be demultiplexed
+     */
+    public Map<Integer, List<DecodedKLVMetadataPacket>> getDecodedMetadata()
+            throws Stanag4609ParseException {
+        checkDemultiplexed();
+        return decodedMetadata;
+    }
+
+    /**
+     * Must be called after {@link #close()}.
+     *
+     * @throws Stanag4609ParseException if the transport stream could not be demultiplexed
+     */
+    public void checkDemultiplexed() throws Stanag4609ParseException {
+        validState(closed, "the demultiplexer must be closed");
+        if (failure != null) {
+            throw new Stanag4609ParseException("unable to parse stanag 4609 data", failure);
+        }
+    }
+
+    private void flushIncompletePackets() {
+        try {
+            mpegTsDecoder.flush(this::handleMetadataPacket);
+        } catch (RuntimeException e) {
+            LOGGER.debug("unable to handle the incomplete PES packets", e);
+            failure = e;
+        }
+    }
+
+    private void finishDecoding() {
+        try {
+            orderedKlvPacketDecoder.finish();
+        } catch (CancellationException e) {
+            LOGGER.debug("interrupted while decoding the KLV metadata", e);
+            failure = e;
+        } catch (RuntimeException e) {
+            LOGGER.debug("unable to handle the decoded KLV metadata", e);
+            failure = e;
+        }
+    }
+
+    /**
+     * Called when the buffer holds a whole packet and the first byte of the next packet.
+     */
+    private void nextPacket() {
+        if (packetBytes[0] == TS_SYNC && packetBytes[Constants.TS_PACKET_SIZE] == TS_SYNC) {
+            handlePacket();
+            packetBytes[0] = TS_SYNC;
+            packetLength = 1;
+        } else {
+            resynchronize();
+        }
+    }
+
+    /**
+     * Discard the bytes before the next sync byte after the start of the buffer.
+     */
+    private void resynchronize() {
+        int start = 1;
+        while (start < packetLength && packetBytes[start] != TS_SYNC) {
+            start++;
+        }
+        LOGGER.debug("the transport stream is not aligned, discarding {} bytes", start);
+        System.arraycopy(packetBytes, start, packetBytes, 0, packetLength - start);
+        packetLength -= start;
+    }
+
+    private void handlePacket() {
+        if (failure != null) {
+            return;
+        }
+
+        try {
+            mpegTsDecoder.read(new MTSPacket(ByteBuffer.wrap(packetBytes,
+                    0,
+                    Constants.TS_PACKET_SIZE)
+                    .slice()), this::handlePESPacket);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("unable to demultiplex the transport stream, ignoring the remaining data",
+                    e);
+            failure = e;
+        }
+    }
+
+    private void handlePESPacket(PESPacket pesPacket) {
+        streamTypes.add(pesPacket.getStreamType());
+        handleMetadataPacket(pesPacket);
+    }
+
+    private void handleMetadataPacket(PESPacket pesPacket) {
+        if (!isMetadataStream(pesPacket.getStreamType())) {
+            return;
+        }
+
+        if (orderedKlvPacketDecoder != null) {
+            orderedKlvPacketDecoder.accept(pesPacket.getPacketId(), pesPacket.getPayload());
+            return;
+        }
+
+        DecodedKLVMetadataPacket decodedKLVMetadataPacket;
+        try {
+            decodedKLVMetadataPacket =
+                    PESUtilities.handlePESPacketBytes(pesPacket.getPayload(), klvDecoder);
+        } catch (KlvDecodingException e) {
+            LOGGER.debug("The KLV could not be decoded.", e);
+            return;
+        } catch (RuntimeException e) {
+            LOGGER.debug("An error occurred while handling the metadata packet bytes.", e);
+            return;
+        }
+
+        if (decodedKLVMetadataPacket != null) {
+            metadataCallback.accept(pesPacket.getPacketId(), decodedKLVMetadataPacket);
+        }
+    }
+
+    private boolean isMetadataStream(MpegStreamType streamType) {
+        return streamType == MpegStreamType.PRIVATE_DATA || streamType == MpegStreamType.META_PES;
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.video;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.codice.alliance.libs.klv.AttributeNameConstants;
+import org.codice.alliance.libs.klv.KlvTimeSeries;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteSource;
+
+import ddf.catalog.content.data.ContentItem;
+import ddf.catalog.content.data.impl.ContentItemImpl;
+import ddf.catalog.content.operation.CreateStorageRequest;
+import ddf.catalog.data.impl.AttributeImpl;
+import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.data.types.Core;
+import ddf.catalog.plugin.PluginExecutionException;
+
+public class KlvTimeSeriesPreStoragePluginTest {
+
+    private KlvTimeSeriesPreStoragePlugin plugin;
+
+    private MetacardImpl metacard;
+
+    private List<ContentItem> contentItems;
+
+    private CreateStorageRequest createStorageRequest;
+
+    @Before
+    public void setup() {
+        plugin = new KlvTimeSeriesPreStoragePlugin();
+        metacard = new MetacardImpl();
+        metacard.setId("id");
+        contentItems = new ArrayList<>();
+        contentItems.add(new ContentItemImpl("id",
+                ByteSource.wrap(new byte[] {0x47}),
+                "video/mp2t",
+                "chunk.ts",
+                1L,
+                metacard));
+        createStorageRequest = mock(CreateStorageRequest.class);
+        when(createStorageRequest.getContentItems()).thenReturn(contentItems);
+    }
+
+    @Test
+    public void testProcess() throws Exception {
+
+        byte[] timeSeries = new KlvTimeSeries.Builder().add(1000L, 1, 2, 3, 4)
+                .build();
+        metacard.setAttribute(new AttributeImpl(AttributeNameConstants.KLV_TIME_SERIES,
+                timeSeries));
+
+        plugin.process(createStorageRequest);
+
+        assertThat(contentItems.size(), is(2));
+
+        ContentItem timeSeriesContentItem = contentItems.get(1);
+
+        assertThat(timeSeriesContentItem.getId(), is("id"));
+        assertThat(timeSeriesContentItem.getQualifier(),
+                is(KlvTimeSeriesPreStoragePlugin.QUALIFIER));
+        assertThat(timeSeriesContentItem.getMimeTypeRawData(), is(KlvTimeSeries.MIME_TYPE));
+        assertThat(timeSeriesContentItem.getFilename(), is("klv-time-series-chunk.klvt"));
+        assertThat(KlvTimeSeries.read(IOUtils.toByteArray(timeSeriesContentItem.getInputStream()))
+                .getTimestamp(0), is(1000L));
+        assertThat(metacard.getAttribute(Core.DERIVED_RESOURCE_URI)
+                .getValue(), is(timeSeriesContentItem.getUri()));
+        assertThat(metacard.getAttribute(AttributeNameConstants.KLV_TIME_SERIES), nullValue());
+    }
+
+    @Test
+    public void testProcessWithoutTimeSeries() throws PluginExecutionException {
+
+        plugin.process(createStorageRequest);
+
+        assertThat(contentItems.size(), is(1));
+        assertThat(metacard.getAttribute(Core.DERIVED_RESOURCE_URI), nullValue());
+    }
+
+    @Test(expected = PluginExecutionException.class)
+    public void testNullCreateStorageRequest() throws PluginExecutionException {
+        plugin.process((CreateStorageRequest) null);
+    }
+
+    @Test
+    public void testBuildFilenameWithoutBaseName() {
+        assertThat(plugin.buildFilename(null), is("klv-time-series.klvt"));
+    }
+
+}
@@ -14,8 +14,11 @@
 package org.codice.alliance.transformer.video;
 
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -23,31 +26,49 @@ import static org.mockito.Mockito.when;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
+import org.codice.alliance.libs.klv.AttributeNameConstants;
 import org.codice.alliance.libs.klv.FrameCenterKlvProcessor;
 import org.codice.alliance.libs.klv.GeometryOperator;
 import org.codice.alliance.libs.klv.KlvHandler;
 import org.codice.alliance.libs.klv.KlvHandlerFactory;
+import org.codice.alliance.libs.klv.KlvHandlerFactoryImpl;
 import org.codice.alliance.libs.klv.KlvProcessor;
+import org.codice.alliance.libs.klv.KlvTimeSeries;
+import org.codice.alliance.libs.klv.KlvTimeSeriesKlvProcessor;
+import org.codice.alliance.libs.klv.KlvTimeSeriesPostProcessor;
 import org.codice.alliance.libs.klv.ListKlvProcessor;
+import org.codice.alliance.libs.klv.ListPostProcessor;
 import org.codice.alliance.libs.klv.LocationKlvProcessor;
+import org.codice.alliance.libs.klv.LoggingKlvHandler;
+import org.codice.alliance.libs.klv.MissionIdKlvProcessor;
+import org.codice.alliance.libs.klv.OffsetCenterPostProcessor;
+import org.codice.alliance.libs.klv.SetDatesKlvProcessor;
 import org.codice.alliance.libs.klv.SimplifyGeometryFunction;
 import org.codice.alliance.libs.klv.Stanag4609ParseException;
 import org.codice.alliance.libs.klv.Stanag4609Processor;
+import org.codice.alliance.libs.klv.Stanag4609ProcessorImpl;
 import org.codice.alliance.libs.klv.StanagParserFactory;
+import org.codice.alliance.libs.klv.StanagParserFactoryImpl;
+import org.codice.alliance.libs.klv.TrimmingPostProcessor;
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.junit.Before;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import ddf.catalog.data.Attribute;
 import ddf.catalog.data.Metacard;
 import ddf.catalog.data.MetacardType;
 import ddf.catalog.data.impl.BasicTypes;
 import ddf.catalog.data.impl.MetacardImpl;
+import ddf.catalog.data.types.Core;
 import ddf.catalog.transform.CatalogTransformerException;
 import ddf.catalog.transform.InputTransformer;
 
@@ -55,6 +76,9 @@ public class MpegTsInputTransformerTest {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(MpegTsInputTransformerTest.class);
 
+    private static final List<String> SAMPLE_STREAMS = Arrays.asList("dayflight.mpg",
+            "nightflight.mpg");
+
     private List<MetacardType> metacardTypes;
 
     private Stanag4609Processor stanag4609Processor;
@@ -85,15 +109,15 @@ public class MpegTsInputTransformerTest {
         stanagParserFactory = mock(StanagParserFactory.class);
         klvProcessor = mock(KlvProcessor.class);
         when(inputTransformer.transform(any(), any())).thenReturn(metacard);
-        when(stanagParserFactory.createParser(any())).thenReturn(() -> {
-                    try {
-                        return streamParser.parse();
-                    } catch (Exception e) {
-                        throw new Stanag4609ParseException(e);
-                    }
-                }
-
-        );
+        Stanag4609Parser stanag4609Parser = () -> {
+            try {
+                return streamParser.parse();
+            } catch (Exception e) {
+                throw new Stanag4609ParseException(e);
+            }
+        };
+        when(stanagParserFactory.createParser(any())).thenReturn(stanag4609Parser);
+        when(stanagParserFactory.createParser(any(), any())).thenReturn(stanag4609Parser);
     }
 
     @Test
@@ -184,4 +208,277 @@ public class MpegTsInputTransformerTest {
                 .get(), closeTo(value, 0.1));
 
     }
-}
\ No newline at end of file
+
+    /**
+     * The single pass and the multiple pass extraction must produce the same metacard.
+     */
+    @Test
+    public void testSinglePassMetacardIsIdentical() throws Exception {
+
+        TestTransportStream stream = new TestTransportStream();
+        for (int i = 0; i < 20; i++) {
+            if (i % 5 == 0) {
+                stream.writeTables();
+            }
+            stream.writeVideo(i * 3000, new byte[1000 + i * 37])
+                    .writeKlv(i * 3000,
+                            1245257585099653L + i * 100000,
+                            "mission",
+                            54.0 + i * 0.001,
+                            -110.0 + i * 0.002,
+                            0.01);
+        }
+        byte[] bytes = stream.toByteArray();
+
+        Metacard singlePassMetacard = transformWithStanagComponents(bytes, true);
+
+        assertThat(singlePassMetacard.getAttribute(AttributeNameConstants.GEOGRAPHY),
+                notNullValue());
+        assertThat(singlePassMetacard.getAttribute(AttributeNameConstants.MEDIA_ENCODING)
+                .getValues(), contains("VIDEO_H264", "PRIVATE_DATA"));
+
+        assertSameAttributes(singlePassMetacard, transformWithStanagComponents(bytes, false));
+    }
+
+    /**
+     * Decoding only the KLV fields that are required by the klv processors must produce the same
+     * metacard as decoding every field, for both the single pass and the multiple pass extraction.
+     */
+    @Test
+    public void testDemandDrivenKlvDecodingMetacardIsIdentical() throws Exception {
+
+        TestTransportStream stream = new TestTransportStream();
+        for (int i = 0; i < 20; i++) {
+            if (i % 5 == 0) {
+                stream.writeTables();
+            }
+            stream.writeVideo(i * 3000, new byte[500 + i * 37])
+                    .writeKlv(i * 3000,
+                            1245257585099653L + i * 100000,
+                            "mission",
+                            54.0 + i * 0.001,
+                            -110.0 - i * 0.002,
+                            0.01);
+        }
+        byte[] bytes = stream.toByteArray();
+
+        Metacard expected = transformWithStanagComponents(bytes, false);
+
+        assertSameAttributes(transformWithStanagComponents(bytes, false, true, 0, 1), expected);
+        assertSameAttributes(transformWithStanagComponents(bytes, true, true, 0, 1), expected);
+        assertSameAttributes(transformWithStanagComponents(bytes, true, true, 2, 4), expected);
+    }
+
+    /**
+     * Decoding the KLV on several threads must produce the same metacard as decoding it on the
+     * ingest thread, for both the single pass and the multiple pass extraction. The queue depth is
+     * smaller than the number of KLV packets so the decoding has to wait for the callback.
+     */
+    @Test
+    public void testParallelKlvDecodingMetacardIsIdentical() throws Exception {
+
+        TestTransportStream stream = new TestTransportStream();
+        for (int i = 0; i < 40; i++) {
+            if (i % 5 == 0) {
+                stream.writeTables();
+            }
+            stream.writeVideo(i * 3000, new byte[500 + i * 37])
+                    .writeKlv(i * 3000,
+                            1245257585099653L + i * 100000,
+                            "mission",
+                            54.0 + i * 0.001,
+                            -110.0 - i * 0.002,
+                            0.01);
+        }
+        byte[] bytes = stream.toByteArray();
+
+        Metacard expected = transformWithStanagComponents(bytes, false);
+
+        assertSameAttributes(transformWithStanagComponents(bytes, false, false, 4, 3), expected);
+        assertSameAttributes(transformWithStanagComponents(bytes, true, false, 4, 3), expected);
+    }
+
+    /**
+     * The time series has a record for every KLV packet, even though the timestamp attribute only
+     * keeps the first and last dates, and only the required KLV fields are decoded.
+     */
+    @Test
+    public void testKlvTimeSeries() throws Exception {
+
+        TestTransportStream stream = new TestTransportStream();
+        for (int i = 0; i < 20; i++) {
+            if (i % 5 == 0) {
+                stream.writeTables();
+            }
+            stream.writeVideo(i * 3000, new byte[500])
+                    .writeKlv(i * 3000,
+                            1245257585099653L + i * 100000,
+                            "mission",
+                            54.0 + i * 0.001,
+                            -110.0 - i * 0.002,
+                            0.01);
+        }
+
+        MpegTsInputTransformer t = createTransformerWithStanagComponents();
+        t.setSinglePassDemultiplexing(true);
+        t.setDemandDrivenKlvDecoding(true);
+        t.setKlvTimeSeries(true);
+
+        Metacard metacard;
+        try (InputStream inputStream = new ByteArrayInputStream(stream.toByteArray())) {
+            metacard = t.transform(inputStream);
+        } finally {
+            t.destroy();
+        }
+
+        KlvTimeSeries timeSeries = KlvTimeSeries.read((byte[]) metacard.getAttribute(
+                AttributeNameConstants.KLV_TIME_SERIES)
+                .getValue());
+
+        assertThat(timeSeries.size(), is(20));
+
+        int index = timeSeries.findIndex(1245257585099653L + 10 * 100000 + 1);
+
+        assertThat(index, is(10));
+        assertThat(timeSeries.getFrameCenterLatitude(index)
+                .getAsDouble(), closeTo(54.01, 0.0001));
+        assertThat(timeSeries.getSensorLongitude(index)
+                .getAsDouble(), closeTo(-110.02, 0.0001));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeKlvDecodeThreads() {
+        new MpegTsInputTransformer(inputTransformer,
+                metacardTypes,
+                stanag4609Processor,
+                klvHandlerFactory,
+                defaultKlvHandler,
+                stanagParserFactory,
+                klvProcessor).setKlvDecodeThreads(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroKlvDecodeQueueDepth() {
+        new MpegTsInputTransformer(inputTransformer,
+                metacardTypes,
+                stanag4609Processor,
+                klvHandlerFactory,
+                defaultKlvHandler,
+                stanagParserFactory,
+                klvProcessor).setKlvDecodeQueueDepth(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSubsampleTolerance() {
+        new MpegTsInputTransformer(inputTransformer,
+                metacardTypes,
+                stanag4609Processor,
+                klvHandlerFactory,
+                defaultKlvHandler,
+                stanagParserFactory,
+                klvProcessor).setSubsampleTolerance(-1.0);
+    }
+
+    /**
+     * Same as {@link #testSinglePassMetacardIsIdentical()} with the sample streams that are on the
+     * test classpath.
+     */
+    @Test
+    public void testSinglePassMetacardIsIdenticalForSampleStreams() throws Exception {
+
+        boolean found = false;
+
+        for (String sampleStream : SAMPLE_STREAMS) {
+            try (InputStream inputStream = getClass().getClassLoader()
+                    .getResourceAsStream(sampleStream)) {
+                if (inputStream == null) {
+                    continue;
+                }
+                found = true;
+                byte[] bytes = IOUtils.toByteArray(inputStream);
+                assertSameAttributes(transformWithStanagComponents(bytes, true),
+                        transformWithStanagComponents(bytes, false));
+            }
+        }
+
+        assumeTrue("no sample streams on the classpath", found);
+    }
+
+    private Metacard transformWithStanagComponents(byte[] bytes, boolean singlePass)
+            throws Exception {
+        return transformWithStanagComponents(bytes, singlePass, false, 0, 1);
+    }
+
+    private Metacard transformWithStanagComponents(byte[] bytes, boolean singlePass,
+            boolean demandDrivenKlvDecoding, int klvDecodeThreads, int klvDecodeQueueDepth)
+            throws Exception {
+
+        MpegTsInputTransformer t = createTransformerWithStanagComponents();
+        t.setSinglePassDemultiplexing(singlePass);
+        t.setDemandDrivenKlvDecoding(demandDrivenKlvDecoding);
+        t.setKlvDecodeThreads(klvDecodeThreads);
+        t.setKlvDecodeQueueDepth(klvDecodeQueueDepth);
+
+        try (InputStream inputStream = new ByteArrayInputStream(bytes)) {
+            return t.transform(inputStream);
+        } finally {
+            t.destroy();
+        }
+    }
+
+    private MpegTsInputTransformer createTransformerWithStanagComponents() throws Exception {
+
+        InputTransformer innerTransformer = mock(InputTransformer.class);
+        when(innerTransformer.transform(any(), any())).thenAnswer(invocation -> {
+            MetacardImpl innerMetacard = new MetacardImpl(BasicTypes.BASIC_METACARD);
+            innerMetacard.setMetadata("the metadata");
+            return innerMetacard;
+        });
+
+        return new MpegTsInputTransformer(innerTransformer,
+                Collections.singletonList(BasicTypes.BASIC_METACARD),
+                new Stanag4609ProcessorImpl(new ListPostProcessor(Arrays.asList(
+                        new TrimmingPostProcessor(),
+                        new OffsetCenterPostProcessor(),
+                        new KlvTimeSeriesPostProcessor()))),
+                new KlvHandlerFactoryImpl(),
+                new LoggingKlvHandler(),
+                new StanagParserFactoryImpl(),
+                new ListKlvProcessor(Arrays.asList(new LocationKlvProcessor(),
+                        new SetDatesKlvProcessor(),
+                        new MissionIdKlvProcessor(),
+                        new FrameCenterKlvProcessor(),
+                        new KlvTimeSeriesKlvProcessor())));
+    }
+
+    /**
+     * Compare the attributes that the transformer and the klv library may set.
+     */
+    private void assertSameAttributes(Metacard actual, Metacard expected)
+            throws IllegalAccessException {
+
+        List<String> attributeNames = new ArrayList<>(Arrays.asList(Core.MODIFIED,
+                Metacard.CONTENT_TYPE,
+                Metacard.METADATA));
+        for (Field field : AttributeNameConstants.class.getFields()) {
+            attributeNames.add((String) field.get(null));
+        }
+
+        for (String attributeName : attributeNames) {
+            Attribute actualAttribute = actual.getAttribute(attributeName);
+            Attribute expectedAttribute = expected.getAttribute(attributeName);
+            LOGGER.debug("comparing attribute {}: {} {}",
+                    attributeName,
+                    actualAttribute,
+                    expectedAttribute);
+            if (expectedAttribute == null) {
+                assertThat(attributeName, actualAttribute, is((Attribute) null));
+            } else {
+                assertThat(attributeName, actualAttribute, notNullValue());
+                assertThat(attributeName,
+                        actualAttribute.getValues(),
+                        is(expectedAttribute.getValues()));
+            }
+        }
+    }
+}
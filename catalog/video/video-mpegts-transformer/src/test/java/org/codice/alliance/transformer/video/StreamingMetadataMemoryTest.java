@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.video;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codice.alliance.libs.klv.StanagParserFactoryImpl;
+import org.codice.alliance.libs.mpegts.MpegTsDecoderImpl;
+import org.junit.Test;
+
+import com.google.common.io.ByteSource;
+
+/**
+ * Checks that the streaming KLV paths do not retain the decoded packets. Every packet passed to
+ * the callback is tracked with a weak reference. When the last packet is received, while the
+ * parser or demultiplexer is still handling the stream, none of the earlier packets may still be
+ * reachable.
+ */
+public class StreamingMetadataMemoryTest {
+
+    private static final int PACKET_COUNT = 1000;
+
+    private static final int WRITE_SIZE = 65536;
+
+    private static final int MAX_COLLECTION_ATTEMPTS = 20;
+
+    @Test
+    public void testParserDoesNotRetainPackets() throws Exception {
+        PacketTracker packetTracker = new PacketTracker();
+
+        new StanagParserFactoryImpl().createParser(ByteSource.wrap(createStream(PACKET_COUNT)))
+                .parse((packetId, packet) -> packetTracker.packetReceived(packet));
+
+        assertThat(packetTracker.packets.size(), is(PACKET_COUNT));
+        assertThat(packetTracker.retainedBeforeLast, is(0));
+    }
+
+    @Test
+    public void testDemultiplexerDoesNotRetainPackets() throws Exception {
+        byte[] bytes = createStream(PACKET_COUNT);
+
+        PacketTracker packetTracker = new PacketTracker();
+        TransportStreamDemultiplexer demultiplexer =
+                new TransportStreamDemultiplexer(new MpegTsDecoderImpl(),
+                        (packetId, packet) -> packetTracker.packetReceived(packet));
+        for (int offset = 0; offset < bytes.length; offset += WRITE_SIZE) {
+            demultiplexer.write(bytes, offset, Math.min(WRITE_SIZE, bytes.length - offset));
+        }
+        demultiplexer.close();
+        demultiplexer.checkDemultiplexed();
+
+        assertThat(packetTracker.packets.size(), is(PACKET_COUNT));
+        assertThat(packetTracker.retainedBeforeLast, is(0));
+    }
+
+    private byte[] createStream(int packetCount) {
+        TestTransportStream stream = new TestTransportStream();
+        for (int i = 0; i < packetCount; i++) {
+            stream.writeKlv(i * 3000L, 1245257585099653L + i * 33333L, "mission",
+                    54.0 + i * 0.00001, -110.0, 0.01);
+        }
+        return stream.toByteArray();
+    }
+
+    /**
+     * Keeps a weak reference to every packet it receives, and counts the earlier packets that are
+     * still reachable when the last packet is received.
+     */
+    private static class PacketTracker {
+
+        private final List<WeakReference<Object>> packets = new ArrayList<>();
+
+        private int retainedBeforeLast = -1;
+
+        private void packetReceived(Object packet) {
+            packets.add(new WeakReference<>(packet));
+            if (packets.size() == PACKET_COUNT) {
+                retainedBeforeLast = retainedCount(packets.subList(0, PACKET_COUNT - 1));
+            }
+        }
+
+        /**
+         * Requests collections until every packet has been collected or the attempts run out.
+         *
+         * @return the number of packets that are still reachable
+         */
+        private static int retainedCount(List<WeakReference<Object>> packets) {
+            int retained = countRetained(packets);
+            for (int attempt = 0; retained > 0 && attempt < MAX_COLLECTION_ATTEMPTS; attempt++) {
+                System.gc();
+                retained = countRetained(packets);
+            }
+            return retained;
+        }
+
+        private static int countRetained(List<WeakReference<Object>> packets) {
+            int retained = 0;
+            for (WeakReference<Object> packet : packets) {
+                if (packet.get() != null) {
+                    retained++;
+                }
+            }
+            return retained;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.video;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codice.alliance.libs.mpegts.Constants;
+
+/**
+ * Builds a single program MPEG-TS with an H.264 video stream and an asynchronous STANAG 4609 KLV
+ * stream.
+ */
+class TestTransportStream {
+
+    static final int PROGRAM_MAP_TABLE_PID = 0x100;
+
+    static final int VIDEO_PID = 0x101;
+
+    static final int KLV_PID = 0x102;
+
+    private static final int TS_PAYLOAD_SIZE = Constants.TS_PACKET_SIZE - 4;
+
+    private static final int STREAM_TYPE_PRIVATE_DATA = 0x06;
+
+    private static final int STREAM_TYPE_VIDEO_H264 = 0x1B;
+
+    private static final int VIDEO_STREAM_ID = 0xE0;
+
+    private static final int PRIVATE_STREAM_ID = 0xBD;
+
+    private static final byte[] UAS_DATALINK_LOCAL_SET_KEY =
+            {0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01, 0x0E, 0x01, 0x03, 0x01, 0x01, 0x00,
+                    0x00, 0x00};
+
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    private final Map<Integer, Integer> continuityCounters = new HashMap<>();
+
+    TestTransportStream() {
+        writeTables();
+    }
+
+    /**
+     * Write the program association table and the program map table. Real streams repeat them
+     * periodically.
+     */
+    TestTransportStream writeTables() {
+        writeSection(Constants.PROGRAM_ASSOCIATION_TABLE_PID,
+                new byte[] {0x00, (byte) 0xB0, 0x0D, 0x00, 0x01, (byte) 0xC1, 0x00, 0x00, 0x00,
+                        0x01, (byte) (0xE0 | (PROGRAM_MAP_TABLE_PID >> 8)),
+                        (byte) PROGRAM_MAP_TABLE_PID});
+        writeSection(PROGRAM_MAP_TABLE_PID,
+                new byte[] {0x02, (byte) 0xB0, 0x17, 0x00, 0x01, (byte) 0xC1, 0x00, 0x00,
+                        (byte) (0xE0 | (VIDEO_PID >> 8)), (byte) VIDEO_PID, (byte) 0xF0, 0x00,
+                        STREAM_TYPE_VIDEO_H264, (byte) (0xE0 | (VIDEO_PID >> 8)),
+                        (byte) VIDEO_PID, (byte) 0xF0, 0x00, STREAM_TYPE_PRIVATE_DATA,
+                        (byte) (0xE0 | (KLV_PID >> 8)), (byte) KLV_PID, (byte) 0xF0, 0x00});
+        return this;
+    }
+
+    /**
+     * Write a video PES packet that does not declare its length.
+     */
+    TestTransportStream writeVideo(long pts, byte[] data) {
+        writePesPacket(VIDEO_PID, VIDEO_STREAM_ID, pts, data, false);
+        return this;
+    }
+
+    /**
+     * Write a KLV PES packet with a UAS Datalink Local Set.
+     *
+     * @param timestamp   microseconds since the epoch
+     * @param missionId   mission id
+     * @param latitude    frame center latitude
+     * @param longitude   frame center longitude
+     * @param cornerDelta offset of the corners from the frame center, less than 0.075 degrees
+     */
+    TestTransportStream writeKlv(long pts, long timestamp, String missionId, double latitude,
+            double longitude, double cornerDelta) {
+
+        ByteArrayOutputStream localSet = new ByteArrayOutputStream();
+        writeItem(localSet, 2, toBytes(timestamp, 8));
+        writeItem(localSet, 3, missionId.getBytes());
+        writeItem(localSet, 13, encodeInt(latitude, 90));
+        writeItem(localSet, 14, encodeInt(longitude, 180));
+        writeItem(localSet, 23, encodeInt(latitude, 90));
+        writeItem(localSet, 24, encodeInt(longitude, 180));
+        writeItem(localSet, 26, encodeShort(-cornerDelta));
+        writeItem(localSet, 27, encodeShort(-cornerDelta));
+        writeItem(localSet, 28, encodeShort(-cornerDelta));
+        writeItem(localSet, 29, encodeShort(cornerDelta));
+        writeItem(localSet, 30, encodeShort(cornerDelta));
+        writeItem(localSet, 31, encodeShort(cornerDelta));
+        writeItem(localSet, 32, encodeShort(cornerDelta));
+        writeItem(localSet, 33, encodeShort(-cornerDelta));
+
+        ByteArrayOutputStream klv = new ByteArrayOutputStream();
+        klv.write(UAS_DATALINK_LOCAL_SET_KEY, 0, UAS_DATALINK_LOCAL_SET_KEY.length);
+        klv.write(localSet.size() + 4);
+        klv.write(localSet.toByteArray(), 0, localSet.size());
+        klv.write(1);
+        klv.write(2);
+
+        byte[] klvBytes = klv.toByteArray();
+        short checksum = 0;
+        for (int i = 0; i < klvBytes.length; ++i) {
+            checksum += (klvBytes[i] & 0xFF) << (8 * ((i + 1) % 2));
+        }
+        klv.write(toBytes(checksum, 2), 0, 2);
+
+        writePesPacket(KLV_PID, PRIVATE_STREAM_ID, pts, klv.toByteArray(), true);
+        return this;
+    }
+
+    /**
+     * Append raw bytes, e.g. a partial TS packet.
+     */
+    TestTransportStream writeRaw(byte[] bytes) {
+        outputStream.write(bytes, 0, bytes.length);
+        return this;
+    }
+
+    byte[] toByteArray() {
+        return outputStream.toByteArray();
+    }
+
+    private void writeItem(ByteArrayOutputStream localSet, int tag, byte[] value) {
+        localSet.write(tag);
+        localSet.write(value.length);
+        localSet.write(value, 0, value.length);
+    }
+
+    private static byte[] encodeInt(double value, double limit) {
+        long encodedMin = Integer.MIN_VALUE + 1L;
+        long encodedMax = Integer.MAX_VALUE;
+        return toBytes(Math.round((value + limit) / (2 * limit) * (encodedMax - encodedMin)
+                + encodedMin), 4);
+    }
+
+    private static byte[] encodeShort(double value) {
+        long encodedMin = Short.MIN_VALUE + 1L;
+        long encodedMax = Short.MAX_VALUE;
+        double limit = 0.075;
+        return toBytes(Math.round((value + limit) / (2 * limit) * (encodedMax - encodedMin)
+                + encodedMin), 2);
+    }
+
+    private static byte[] toBytes(long value, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (value >> (8 * (length - i - 1)));
+        }
+        return bytes;
+    }
+
+    private void writePesPacket(int pid, int streamId, long pts, byte[] data,
+            boolean declareLength) {
+
+        ByteArrayOutputStream pesPacket = new ByteArrayOutputStream();
+        pesPacket.write(0x00);
+        pesPacket.write(0x00);
+        pesPacket.write(0x01);
+        pesPacket.write(streamId);
+        int length = declareLength ? 8 + data.length : 0;
+        pesPacket.write(length >> 8);
+        pesPacket.write(length);
+        pesPacket.write(0x80);
+        pesPacket.write(0x80);
+        pesPacket.write(0x05);
+        pesPacket.write(0x21 | (int) ((pts >> 29) & 0x0E));
+        pesPacket.write((int) (pts >> 22));
+        pesPacket.write((int) ((pts >> 14) & 0xFE) | 0x01);
+        pesPacket.write((int) (pts >> 7));
+        pesPacket.write((int) ((pts << 1) & 0xFE) | 0x01);
+        pesPacket.write(data, 0, data.length);
+
+        byte[] bytes = pesPacket.toByteArray();
+        for (int offset = 0; offset < bytes.length; offset += TS_PAYLOAD_SIZE) {
+            int end = Math.min(bytes.length, offset + TS_PAYLOAD_SIZE);
+            byte[] payload = new byte[end - offset];
+            System.arraycopy(bytes, offset, payload, 0, payload.length);
+            writeTsPacket(pid, offset == 0, payload);
+        }
+    }
+
+    private void writeSection(int pid, byte[] section) {
+        byte[] payload = new byte[TS_PAYLOAD_SIZE];
+        Arrays.fill(payload, (byte) 0xFF);
+        payload[0] = 0x00;
+        System.arraycopy(section, 0, payload, 1, section.length);
+        System.arraycopy(toBytes(crc32(section), 4), 0, payload, 1 + section.length, 4);
+        writeTsPacket(pid, true, payload);
+    }
+
+    /**
+     * Write a TS packet. Payloads shorter than a full packet are padded with an adaptation field.
+     */
+    private void writeTsPacket(int pid, boolean isStart, byte[] payload) {
+
+        int continuityCounter = continuityCounters.merge(pid, 1, (a, b) -> (a + b) & 0x0F);
+
+        outputStream.write(0x47);
+        outputStream.write((isStart ? 0x40 : 0x00) | ((pid >> 8) & 0x1F));
+        outputStream.write(pid & 0xFF);
+
+        int stuffing = TS_PAYLOAD_SIZE - payload.length;
+        if (stuffing == 0) {
+            outputStream.write(0x10 | continuityCounter);
+        } else {
+            outputStream.write(0x30 | continuityCounter);
+            outputStream.write(stuffing - 1);
+            if (stuffing > 1) {
+                outputStream.write(0x00);
+                for (int i = 2; i < stuffing; i++) {
+                    outputStream.write(0xFF);
+                }
+            }
+        }
+        outputStream.write(payload, 0, payload.length);
+    }
+
+    private static long crc32(byte[] bytes) {
+        int crc = 0xFFFFFFFF;
+        for (byte b : bytes) {
+            crc ^= (b & 0xFF) << 24;
+            for (int i = 0; i < 8; i++) {
+                crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04C11DB7 : crc << 1;
+            }
+        }
+        return crc & 0xFFFFFFFFL;
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.transformer.video;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import org.codice.alliance.libs.klv.Stanag4609ParseException;
+import org.codice.alliance.libs.mpegts.Constants;
+import org.codice.alliance.libs.mpegts.MpegStreamType;
+import org.codice.alliance.libs.mpegts.MpegTsDecoder;
+import org.codice.alliance.libs.mpegts.MpegTsDecoderImpl;
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.junit.Test;
+import org.taktik.mpegts.MTSPacket;
+
+public class TransportStreamDemultiplexerTest {
+
+    private static final int PACKET_COUNT = 3;
+
+    /**
+     * The KLV packet that is still incomplete at the end of the stream is decoded, but only the
+     * complete PES packets contribute stream types.
+     */
+    @Test
+    public void testDemultiplex() throws Exception {
+
+        TransportStreamDemultiplexer demultiplexer = new TransportStreamDemultiplexer();
+        byte[] bytes = createStream();
+        demultiplexer.write(bytes, 0, bytes.length);
+        demultiplexer.close();
+
+        assertThat(demultiplexer.getStreamTypes(),
+                contains(MpegStreamType.VIDEO_H264, MpegStreamType.PRIVATE_DATA));
+
+        Map<Integer, List<DecodedKLVMetadataPacket>> decodedMetadata =
+                demultiplexer.getDecodedMetadata();
+        assertThat(decodedMetadata.size(), is(1));
+        assertThat(decodedMetadata, hasKey(TestTransportStream.KLV_PID));
+        assertThat(decodedMetadata.get(TestTransportStream.KLV_PID), hasSize(PACKET_COUNT));
+    }
+
+    @Test
+    public void testWriteOneByteAtATime() throws Exception {
+
+        TransportStreamDemultiplexer demultiplexer = new TransportStreamDemultiplexer();
+        for (byte b : createStream()) {
+            demultiplexer.write(b);
+        }
+        demultiplexer.close();
+
+        assertThat(demultiplexer.getStreamTypes(),
+                contains(MpegStreamType.VIDEO_H264, MpegStreamType.PRIVATE_DATA));
+        assertThat(demultiplexer.getDecodedMetadata()
+                .get(TestTransportStream.KLV_PID), hasSize(PACKET_COUNT));
+    }
+
+    /**
+     * The decoded packets are passed to the callback instead of being collected.
+     */
+    @Test
+    public void testMetadataCallback() throws Exception {
+
+        List<Integer> packetIds = new ArrayList<>();
+        TransportStreamDemultiplexer demultiplexer =
+                new TransportStreamDemultiplexer(new MpegTsDecoderImpl(),
+                        (packetId, packet) -> packetIds.add(packetId));
+        byte[] bytes = createStream();
+        demultiplexer.write(bytes, 0, bytes.length);
+        demultiplexer.close();
+
+        assertThat(packetIds, hasSize(PACKET_COUNT));
+        assertThat(packetIds, everyItem(is(TestTransportStream.KLV_PID)));
+        assertThat(demultiplexer.getDecodedMetadata()
+                .isEmpty(), is(true));
+    }
+
+    /**
+     * A failure of the callback stops the demultiplexing and is thrown by the demultiplexer
+     * instead of being logged.
+     */
+    @Test
+    public void testMetadataCallbackFailure() throws Exception {
+
+        List<Integer> packetIds = new ArrayList<>();
+        TransportStreamDemultiplexer demultiplexer =
+                new TransportStreamDemultiplexer(new MpegTsDecoderImpl(), (packetId, packet) -> {
+                    packetIds.add(packetId);
+                    throw new IllegalStateException("handler failure");
+                });
+        byte[] bytes = createStream();
+        demultiplexer.write(bytes, 0, bytes.length);
+        demultiplexer.close();
+
+        assertThat(packetIds, hasSize(1));
+        try {
+            demultiplexer.checkDemultiplexed();
+            fail("the callback failure must be thrown");
+        } catch (Stanag4609ParseException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+    }
+
+    /**
+     * A failure of the callback is thrown the same way when the packets are decoded on an
+     * executor.
+     */
+    @Test(expected = Stanag4609ParseException.class)
+    public void testMetadataCallbackFailureWithDecodeExecutor() throws Exception {
+
+        BiConsumer<Integer, DecodedKLVMetadataPacket> callback = (packetId, packet) -> {
+            throw new IllegalStateException("handler failure");
+        };
+        TransportStreamDemultiplexer demultiplexer =
+                new TransportStreamDemultiplexer(new MpegTsDecoderImpl(),
+                        callback,
+                        Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT,
+                        Runnable::run,
+                        2);
+        byte[] bytes = createStream();
+        demultiplexer.write(bytes, 0, bytes.length);
+        demultiplexer.close();
+
+        demultiplexer.checkDemultiplexed();
+    }
+
+    /**
+     * Leading garbage that contains a sync byte, and a packet that lost a byte, are skipped
+     * without affecting the packets that follow them.
+     */
+    @Test
+    public void testMisalignedStream() throws Exception {
+
+        byte[] stream = createStream();
+        int split = Constants.TS_PACKET_SIZE * 4;
+        byte[] damagedPacket = Arrays.copyOf(nullPackets(1), Constants.TS_PACKET_SIZE - 1);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.write(new byte[] {0x01, 0x47, 0x02, 0x03, 0x47, 0x00, 0x00});
+        outputStream.write(stream, 0, split);
+        outputStream.write(damagedPacket);
+        outputStream.write(stream, split, stream.length - split);
+        byte[] bytes = outputStream.toByteArray();
+
+        TransportStreamDemultiplexer demultiplexer = new TransportStreamDemultiplexer();
+        demultiplexer.write(bytes, 0, bytes.length);
+        demultiplexer.close();
+
+        assertThat(demultiplexer.getStreamTypes(),
+                contains(MpegStreamType.VIDEO_H264, MpegStreamType.PRIVATE_DATA));
+        assertThat(demultiplexer.getDecodedMetadata()
+                .get(TestTransportStream.KLV_PID), hasSize(PACKET_COUNT));
+    }
+
+    /**
+     * Only the aligned packets are passed to the decoder.
+     */
+    @Test
+    public void testLeadingGarbageIsSkipped() throws Exception {
+
+        MpegTsDecoder mpegTsDecoder = mock(MpegTsDecoder.class);
+
+        TransportStreamDemultiplexer demultiplexer =
+                new TransportStreamDemultiplexer(mpegTsDecoder);
+        byte[] packets = nullPackets(3);
+        demultiplexer.write(new byte[] {0x47, 0x00, 0x00});
+        for (byte b : packets) {
+            demultiplexer.write(b);
+        }
+        demultiplexer.close();
+
+        verify(mpegTsDecoder, times(3)).read(any(), any());
+    }
+
+    @Test
+    public void testTrailingPartialPacketIsIgnored() throws Exception {
+
+        MpegTsDecoder mpegTsDecoder = mock(MpegTsDecoder.class);
+
+        TransportStreamDemultiplexer demultiplexer =
+                new TransportStreamDemultiplexer(mpegTsDecoder);
+        byte[] bytes = nullPackets(3);
+        demultiplexer.write(bytes, 0, bytes.length - 88);
+        demultiplexer.close();
+
+        verify(mpegTsDecoder, times(2)).read(any(), any());
+        verify(mpegTsDecoder).flush(any());
+    }
+
+    /**
+     * After a TS packet fails to decode, the rest of the stream is ignored.
+     */
+    @Test(expected = Stanag4609ParseException.class)
+    public void testDecodeFailure() throws Exception {
+
+        MpegTsDecoder mpegTsDecoder = mock(MpegTsDecoder.class);
+        doThrow(new IOException()).when(mpegTsDecoder)
+                .read(any(MTSPacket.class), any());
+
+        TransportStreamDemultiplexer demultiplexer =
+                new TransportStreamDemultiplexer(mpegTsDecoder);
+        demultiplexer.write(nullPackets(3));
+        demultiplexer.close();
+
+        verify(mpegTsDecoder, times(1)).read(any(), any());
+        verify(mpegTsDecoder, never()).flush(any());
+
+        demultiplexer.getDecodedMetadata();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testWriteAfterClose() throws IOException {
+        TransportStreamDemultiplexer demultiplexer = new TransportStreamDemultiplexer();
+        demultiplexer.close();
+        demultiplexer.write(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetStreamTypesBeforeClose() {
+        new TransportStreamDemultiplexer().getStreamTypes();
+    }
+
+    /**
+     * @return null packets (PID 0x1FFF) with a payload of zeros
+     */
+    private byte[] nullPackets(int count) {
+        byte[] bytes = new byte[Constants.TS_PACKET_SIZE * count];
+        for (int offset = 0; offset < bytes.length; offset += Constants.TS_PACKET_SIZE) {
+            bytes[offset] = 0x47;
+            bytes[offset + 1] = 0x1F;
+            bytes[offset + 2] = (byte) 0xFF;
+            bytes[offset + 3] = 0x10;
+        }
+        return bytes;
+    }
+
+    private byte[] createStream() {
+        TestTransportStream stream = new TestTransportStream();
+        for (int i = 0; i < PACKET_COUNT; i++) {
+            stream.writeVideo(i * 3000, new byte[500])
+                    .writeKlv(i * 3000, 1245257585099653L + i * 100000, "mission", 54.0 + i * 0.01,
+                            -110.0, 0.01);
+        }
+        return stream.toByteArray();
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.libs.klv.BaseKlvHandler;
+import org.codice.alliance.libs.klv.GeoBoxHandler;
+import org.codice.alliance.libs.klv.KlvHandler;
+import org.codice.alliance.libs.klv.LatitudeLongitudeHandler;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvContext;
+import org.codice.ddf.libs.klv.KlvDataElement;
+import org.codice.ddf.libs.klv.KlvDecoder;
+import org.codice.ddf.libs.klv.KlvDecodingException;
+import org.codice.ddf.libs.klv.data.Klv;
+import org.codice.ddf.libs.klv.data.numerical.KlvInt;
+import org.codice.ddf.libs.klv.data.numerical.KlvIntegerEncodedFloatingPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ddf.catalog.data.Attribute;
+
+/**
+ * Compares {@link GeoBoxHandler} and {@link LatitudeLongitudeHandler} against copies of the
+ * previous implementations, which stored the values in lists of boxed doubles and formatted each
+ * geometry with {@link String#format(String, Object...)}. Each invocation feeds the coordinate
+ * fields of {@code packetCount} KLV packets to a new handler and generates the WKT attribute. The
+ * data elements are decoded once during setup and reused across packets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoordinateHandlerBenchmark {
+
+    public enum Implementation {
+        BOXED, PRIMITIVE
+    }
+
+    private static final int DISTINCT_VALUES = 1024;
+
+    private static final long SEED = 4609L;
+
+    private static final String[] CORNER_FIELDS = {
+            Stanag4609TransportStreamParser.CORNER_LATITUDE_1,
+            Stanag4609TransportStreamParser.CORNER_LONGITUDE_1,
+            Stanag4609TransportStreamParser.CORNER_LATITUDE_2,
+            Stanag4609TransportStreamParser.CORNER_LONGITUDE_2,
+            Stanag4609TransportStreamParser.CORNER_LATITUDE_3,
+            Stanag4609TransportStreamParser.CORNER_LONGITUDE_3,
+            Stanag4609TransportStreamParser.CORNER_LATITUDE_4,
+            Stanag4609TransportStreamParser.CORNER_LONGITUDE_4};
+
+    private static final String[] POINT_FIELDS = {
+            Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+            Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE};
+
+    @Param({"BOXED", "PRIMITIVE"})
+    private Implementation implementation;
+
+    @Param({"100000"})
+    private int packetCount;
+
+    private KlvDataElement[][] cornerElements;
+
+    private KlvDataElement[][] pointElements;
+
+    @Setup
+    public void setup() throws KlvDecodingException {
+        Random random = new Random(SEED);
+        cornerElements = createElements(CORNER_FIELDS, random);
+        pointElements = createElements(POINT_FIELDS, random);
+    }
+
+    @Benchmark
+    public Optional<Attribute> geoBox() {
+        KlvHandler klvHandler = implementation == Implementation.PRIMITIVE ?
+                new GeoBoxHandler("corner", CORNER_FIELDS[0], CORNER_FIELDS[1], CORNER_FIELDS[2],
+                        CORNER_FIELDS[3], CORNER_FIELDS[4], CORNER_FIELDS[5], CORNER_FIELDS[6],
+                        CORNER_FIELDS[7]) :
+                new BoxedGeoBoxHandler("corner", CORNER_FIELDS);
+        feed(klvHandler, cornerElements);
+        return klvHandler.asAttribute();
+    }
+
+    @Benchmark
+    public Optional<Attribute> latitudeLongitude() {
+        KlvHandler klvHandler = implementation == Implementation.PRIMITIVE ?
+                new LatitudeLongitudeHandler("frame-center", POINT_FIELDS[0], POINT_FIELDS[1]) :
+                new BoxedLatitudeLongitudeHandler("frame-center", POINT_FIELDS[0],
+                        POINT_FIELDS[1]);
+        feed(klvHandler, pointElements);
+        return klvHandler.asAttribute();
+    }
+
+    private void feed(KlvHandler klvHandler, KlvDataElement[][] elements) {
+        for (int packet = 0; packet < packetCount; packet++) {
+            int index = packet % DISTINCT_VALUES;
+            for (KlvDataElement[] field : elements) {
+                klvHandler.accept(field[index]);
+            }
+        }
+    }
+
+    /**
+     * Decode {@link #DISTINCT_VALUES} random coordinates for each field, latitudes and longitudes
+     * alternating.
+     */
+    private static KlvDataElement[][] createElements(String[] fieldNames, Random random)
+            throws KlvDecodingException {
+        KlvDataElement[][] elements = new KlvDataElement[fieldNames.length][DISTINCT_VALUES];
+        for (int field = 0; field < fieldNames.length; field++) {
+            long range = field % 2 == 0 ? 90 : 180;
+            for (int i = 0; i < DISTINCT_VALUES; i++) {
+                elements[field][i] = createElement(fieldNames[field],
+                        range,
+                        random.nextInt(Integer.MAX_VALUE) * (random.nextBoolean() ? 1 : -1));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Decode a 4-byte integer encoded floating point element in the range [-range, range].
+     */
+    private static KlvDataElement createElement(String name, long range, int encodedValue)
+            throws KlvDecodingException {
+        byte[] klvBytes = {-8, 4, (byte) (encodedValue >> 24), (byte) (encodedValue >> 16),
+                (byte) (encodedValue >> 8), (byte) encodedValue};
+        KlvContext klvContext = new KlvContext(Klv.KeyLength.OneByte, Klv.LengthEncoding.OneByte);
+        klvContext.addDataElement(new KlvIntegerEncodedFloatingPoint(new KlvInt(new byte[] {-8},
+                name), Integer.MIN_VALUE + 1, Integer.MAX_VALUE, -range, range));
+        return new KlvDecoder(klvContext).decode(klvBytes)
+                .getDataElementByName(name);
+    }
+
+    /**
+     * The previous implementation of {@link GeoBoxHandler}.
+     */
+    private static class BoxedGeoBoxHandler extends BaseKlvHandler {
+
+        private final String[] fieldNames;
+
+        private final Map<String, List<Double>> map = new HashMap<>();
+
+        BoxedGeoBoxHandler(String attributeName, String[] fieldNames) {
+            super(attributeName);
+            this.fieldNames = fieldNames;
+        }
+
+        @Override
+        public Optional<Attribute> asAttribute() {
+            int minimumListSize = getMinimumListSize(map.values());
+            List<String> polygonsWkts = new ArrayList<>();
+            for (int i = 0; i < minimumListSize; i++) {
+                polygonsWkts.add(String.format("POLYGON ((%f %f, %f %f, %f %f, %f %f, %f %f))",
+                        value(1, i),
+                        value(0, i),
+                        value(3, i),
+                        value(2, i),
+                        value(5, i),
+                        value(4, i),
+                        value(7, i),
+                        value(6, i),
+                        value(1, i),
+                        value(0, i)));
+            }
+            return asAttribute(polygonsWkts);
+        }
+
+        private Double value(int field, int index) {
+            return map.get(fieldNames[field])
+                    .get(index);
+        }
+
+        @Override
+        public void accept(KlvDataElement klvDataElement) {
+            if (klvDataElement instanceof KlvIntegerEncodedFloatingPoint) {
+                map.putIfAbsent(klvDataElement.getName(), new ArrayList<>());
+                map.get(klvDataElement.getName())
+                        .add(((KlvIntegerEncodedFloatingPoint) klvDataElement).getValue());
+            }
+        }
+
+        @Override
+        public void reset() {
+            map.clear();
+        }
+    }
+
+    /**
+     * The previous implementation of {@link LatitudeLongitudeHandler}.
+     */
+    private static class BoxedLatitudeLongitudeHandler extends BaseKlvHandler {
+
+        private final String latitudeFieldName;
+
+        private final String longitudeFieldName;
+
+        private final Map<String, List<Double>> map = new HashMap<>();
+
+        BoxedLatitudeLongitudeHandler(String attributeName, String latitudeFieldName,
+                String longitudeFieldName) {
+            super(attributeName);
+            this.latitudeFieldName = latitudeFieldName;
+            this.longitudeFieldName = longitudeFieldName;
+        }
+
+        @Override
+        public Optional<Attribute> asAttribute() {
+            int minimumListSize = getMinimumListSize(map.values());
+            List<String> pairs = new ArrayList<>();
+            for (int i = 0; i < minimumListSize; i++) {
+                pairs.add(String.format("POINT (%f %f)",
+                        map.get(longitudeFieldName)
+                                .get(i),
+                        map.get(latitudeFieldName)
+                                .get(i)));
+            }
+            return asAttribute(pairs);
+        }
+
+        @Override
+        public void accept(KlvDataElement klvDataElement) {
+            if (klvDataElement instanceof KlvIntegerEncodedFloatingPoint) {
+                map.putIfAbsent(klvDataElement.getName(), new ArrayList<>());
+                map.get(klvDataElement.getName())
+                        .add(((KlvIntegerEncodedFloatingPoint) klvDataElement).getValue());
+            }
+        }
+
+        @Override
+        public void reset() {
+            map.clear();
+        }
+    }
+
+}
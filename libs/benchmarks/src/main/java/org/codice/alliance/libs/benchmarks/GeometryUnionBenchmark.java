@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.benchmarks;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.libs.klv.GeometryUtility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.io.WKTWriter;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.impl.AttributeImpl;
+
+/**
+ * Compares {@link GeometryUtility#createUnionOfGeometryAttribute(WKTReader, WKTWriter, Attribute)}
+ * with folding the same footprints one at a time with {@link Geometry#union(Geometry)}. The
+ * footprints are overlapping quadrilaterals along a meandering flight path, generated from a fixed
+ * seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryUnionBenchmark {
+
+    private static final long SEED = 4609;
+
+    @Param({"10", "100", "10000"})
+    private int polygonCount;
+
+    private Attribute attribute;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SEED);
+        List<Serializable> wkts = new ArrayList<>(polygonCount);
+
+        double x = 0;
+        double y = 0;
+        double heading = 0;
+        for (int i = 0; i < polygonCount; i++) {
+            heading += (random.nextDouble() - 0.5) * 0.2;
+            x += Math.cos(heading) * 0.001;
+            y += Math.sin(heading) * 0.001;
+            double size = 0.005 + random.nextDouble() * 0.001;
+            wkts.add(String.format(Locale.US,
+                    "POLYGON ((%f %f, %f %f, %f %f, %f %f, %f %f))",
+                    x - size,
+                    y - size,
+                    x + size,
+                    y - size,
+                    x + size,
+                    y + size,
+                    x - size,
+                    y + size,
+                    x - size,
+                    y - size));
+        }
+
+        attribute = new AttributeImpl("location", wkts);
+    }
+
+    @Benchmark
+    public Optional<String> cascadedUnion() {
+        return GeometryUtility.createUnionOfGeometryAttribute(new WKTReader(),
+                new WKTWriter(),
+                attribute);
+    }
+
+    @Benchmark
+    public Optional<String> pairwiseUnion() {
+        WKTReader wktReader = new WKTReader();
+        WKTWriter wktWriter = new WKTWriter();
+        return attribute.getValues()
+                .stream()
+                .map(String.class::cast)
+                .map(wkt -> GeometryUtility.wktToGeometry(wkt, wktReader))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .reduce(Geometry::union)
+                .map(wktWriter::write);
+    }
+
+}
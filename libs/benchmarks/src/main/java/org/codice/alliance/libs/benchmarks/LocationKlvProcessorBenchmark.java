@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.benchmarks;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.libs.klv.GeometryOperatorList;
+import org.codice.alliance.libs.klv.GeometryReducer;
+import org.codice.alliance.libs.klv.KlvHandler;
+import org.codice.alliance.libs.klv.KlvHandlerFactoryImpl;
+import org.codice.alliance.libs.klv.KlvProcessor;
+import org.codice.alliance.libs.klv.ListPostProcessor;
+import org.codice.alliance.libs.klv.LocationKlvProcessor;
+import org.codice.alliance.libs.klv.LoggingKlvHandler;
+import org.codice.alliance.libs.klv.NormalizeGeometry;
+import org.codice.alliance.libs.klv.OffsetCenterPostProcessor;
+import org.codice.alliance.libs.klv.SimplifyGeometryFunction;
+import org.codice.alliance.libs.klv.Stanag4609ProcessorImpl;
+import org.codice.alliance.libs.klv.TrimmingPostProcessor;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteSource;
+
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.MetacardImpl;
+
+/**
+ * Measures the union path of {@link LocationKlvProcessor}, configured as in the MPEG-TS
+ * transformer, for the footprints of a synthetic stream. The handlers are filled once during
+ * setup and each invocation writes the location of a new metacard. A subsample tolerance of 0
+ * keeps the subsample count of evenly spaced footprints, a positive tolerance subsamples the
+ * footprints adaptively.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationKlvProcessorBenchmark {
+
+    @Param({"50", "500", "1800"})
+    private int subsampleCount;
+
+    @Param({"0", "0.001"})
+    private double subsampleTolerance;
+
+    private final KlvProcessor locationKlvProcessor =
+            new LocationKlvProcessor(new GeometryReducer(),
+                    new GeometryOperatorList(Arrays.asList(new SimplifyGeometryFunction(0.0001),
+                            new NormalizeGeometry())));
+
+    private final KlvProcessor.Configuration configuration = new KlvProcessor.Configuration();
+
+    private Map<String, KlvHandler> handlers;
+
+    @Setup
+    public void setup() throws Exception {
+        byte[] transportStream =
+                SyntheticTransportStream.generate(SyntheticTransportStream.VideoCodec.H264,
+                        SyntheticTransportStream.KlvMode.SYNCHRONOUS);
+
+        handlers = new KlvHandlerFactoryImpl().createStanag4609Handlers();
+
+        new Stanag4609ProcessorImpl(new ListPostProcessor(Arrays.asList(new TrimmingPostProcessor(),
+                new OffsetCenterPostProcessor()))).handle(handlers,
+                new LoggingKlvHandler(),
+                new Stanag4609TransportStreamParser(ByteSource.wrap(transportStream)).parse());
+
+        configuration.set(KlvProcessor.Configuration.SUBSAMPLE_COUNT, subsampleCount);
+        configuration.set(KlvProcessor.Configuration.SUBSAMPLE_TOLERANCE, subsampleTolerance);
+    }
+
+    @Benchmark
+    public Metacard process() {
+        Metacard metacard = new MetacardImpl();
+        locationKlvProcessor.process(handlers, metacard, configuration);
+        return metacard;
+    }
+
+}
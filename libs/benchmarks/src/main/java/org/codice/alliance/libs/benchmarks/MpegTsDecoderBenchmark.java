@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.codice.alliance.libs.mpegts.Constants;
+import org.codice.alliance.libs.mpegts.MpegTsDecoderImpl;
+import org.codice.alliance.libs.mpegts.PESPacket;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.taktik.mpegts.MTSPacket;
+
+/**
+ * Measures the PES packets per second that {@link MpegTsDecoderImpl} assembles from a synthetic
+ * transport stream. The TS packets are framed the same way the stream monitor frames datagrams.
+ * One invocation decodes the whole stream, which holds one video and one KLV PES packet per frame.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MpegTsDecoderBenchmark {
+
+    @Param({"H264", "MPEG2"})
+    private SyntheticTransportStream.VideoCodec videoCodec;
+
+    @Param({"SYNCHRONOUS", "ASYNCHRONOUS"})
+    private SyntheticTransportStream.KlvMode klvMode;
+
+    private byte[] transportStream;
+
+    @Setup
+    public void setup() {
+        transportStream = SyntheticTransportStream.generate(videoCodec, klvMode);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * SyntheticTransportStream.DEFAULT_FRAME_COUNT)
+    public void decode(Blackhole blackhole) throws IOException {
+        MpegTsDecoderImpl decoder = new MpegTsDecoderImpl();
+        Consumer<PESPacket> callback = blackhole::consume;
+        for (int offset = 0; offset + Constants.TS_PACKET_SIZE <= transportStream.length;
+                offset += Constants.TS_PACKET_SIZE) {
+            decoder.read(new MTSPacket(ByteBuffer.wrap(transportStream,
+                    offset,
+                    Constants.TS_PACKET_SIZE)
+                    .slice()), callback);
+        }
+        decoder.flush(callback);
+    }
+
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.codice.alliance.libs.klv.KlvHandler;
+import org.codice.alliance.libs.klv.KlvHandlerFactory;
+import org.codice.alliance.libs.klv.KlvHandlerFactoryImpl;
+import org.codice.alliance.libs.klv.ListPostProcessor;
+import org.codice.alliance.libs.klv.LoggingKlvHandler;
+import org.codice.alliance.libs.klv.OffsetCenterPostProcessor;
+import org.codice.alliance.libs.klv.Stanag4609Processor;
+import org.codice.alliance.libs.klv.Stanag4609ProcessorImpl;
+import org.codice.alliance.libs.klv.TrimmingPostProcessor;
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.io.ByteSource;
+
+/**
+ * Measures the KLV packets per second that {@link Stanag4609ProcessorImpl} dispatches to a fresh
+ * set of handlers, using the post processors of the MPEG-TS transformer. The KLV is decoded once
+ * during setup. {@link #handle()} and {@link #handlePacketHandler()} resolve the handlers by tag
+ * once per stream, while {@link #handleEachPacket()} resolves the handler of each data element by
+ * name, which was the only path before. Run with the allocation profiler of
+ * {@link BenchmarkRunner} to compare the bytes allocated per packet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Stanag4609ProcessorBenchmark {
+
+    private final KlvHandlerFactory klvHandlerFactory = new KlvHandlerFactoryImpl();
+
+    private final KlvHandler defaultKlvHandler = new LoggingKlvHandler();
+
+    private final Stanag4609Processor stanag4609Processor = new Stanag4609ProcessorImpl(
+            new ListPostProcessor(Arrays.asList(new TrimmingPostProcessor(),
+                    new OffsetCenterPostProcessor())));
+
+    private Map<Integer, List<DecodedKLVMetadataPacket>> decodedMetadata;
+
+    @Setup
+    public void setup() throws Exception {
+        decodedMetadata = new Stanag4609TransportStreamParser(ByteSource.wrap(
+                SyntheticTransportStream.generate(SyntheticTransportStream.VideoCodec.H264,
+                        SyntheticTransportStream.KlvMode.SYNCHRONOUS))).parse();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SyntheticTransportStream.DEFAULT_FRAME_COUNT)
+    public Map<String, KlvHandler> handle() {
+        Map<String, KlvHandler> handlers = klvHandlerFactory.createStanag4609Handlers();
+        stanag4609Processor.handle(handlers, defaultKlvHandler, decodedMetadata);
+        return handlers;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SyntheticTransportStream.DEFAULT_FRAME_COUNT)
+    public Map<String, KlvHandler> handlePacketHandler() {
+        Map<String, KlvHandler> handlers = klvHandlerFactory.createStanag4609Handlers();
+        Consumer<DecodedKLVMetadataPacket> packetHandler =
+                stanag4609Processor.createPacketHandler(handlers, defaultKlvHandler);
+        for (List<DecodedKLVMetadataPacket> packets : decodedMetadata.values()) {
+            packets.forEach(packetHandler);
+        }
+        return handlers;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SyntheticTransportStream.DEFAULT_FRAME_COUNT)
+    public Map<String, KlvHandler> handleEachPacket() {
+        Map<String, KlvHandler> handlers = klvHandlerFactory.createStanag4609Handlers();
+        for (List<DecodedKLVMetadataPacket> packets : decodedMetadata.values()) {
+            for (DecodedKLVMetadataPacket packet : packets) {
+                stanag4609Processor.handle(handlers, defaultKlvHandler, packet);
+            }
+        }
+        return handlers;
+    }
+
+}
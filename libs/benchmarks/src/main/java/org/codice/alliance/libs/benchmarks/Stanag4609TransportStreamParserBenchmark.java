@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.benchmarks;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.io.ByteSource;
+
+/**
+ * Measures the KLV packets per second decoded by {@link Stanag4609TransportStreamParser#parse()}
+ * from an in-memory synthetic transport stream with one KLV packet per video frame. The streaming
+ * variant passes each packet to a callback instead of collecting them, run with {@code -prof gc}
+ * to compare the allocation of the two. The parallel variant decodes the packets on one thread per
+ * available processor and passes them to the callback in order. The demand driven variant only
+ * decodes the timestamp and the frame center, and skips the other fields by their length.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Stanag4609TransportStreamParserBenchmark {
+
+    private static final int MAX_PENDING_PACKETS = 256;
+
+    @Param({"H264", "MPEG2"})
+    private SyntheticTransportStream.VideoCodec videoCodec;
+
+    @Param({"SYNCHRONOUS", "ASYNCHRONOUS"})
+    private SyntheticTransportStream.KlvMode klvMode;
+
+    private ByteSource byteSource;
+
+    private ExecutorService decodeExecutor;
+
+    private KlvContext demandDrivenContext;
+
+    @Setup
+    public void setup() {
+        byteSource = ByteSource.wrap(SyntheticTransportStream.generate(videoCodec, klvMode));
+        demandDrivenContext = Stanag4609TransportStreamParser.createUasDatalinkLocalSetContext(
+                new HashSet<>(Arrays.asList(Stanag4609TransportStreamParser.TIMESTAMP,
+                        Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                        Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE)));
+        decodeExecutor = Executors.newFixedThreadPool(Runtime.getRuntime()
+                .availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        decodeExecutor.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SyntheticTransportStream.DEFAULT_FRAME_COUNT)
+    public Map<Integer, List<DecodedKLVMetadataPacket>> parse() throws Exception {
+        return new Stanag4609TransportStreamParser(byteSource).parse();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SyntheticTransportStream.DEFAULT_FRAME_COUNT)
+    public void parseStreaming(Blackhole blackhole) throws Exception {
+        new Stanag4609TransportStreamParser(byteSource).parse((packetId, packet) -> {
+            blackhole.consume(packet);
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SyntheticTransportStream.DEFAULT_FRAME_COUNT)
+    public void parseStreamingDemandDriven(Blackhole blackhole) throws Exception {
+        new Stanag4609TransportStreamParser(byteSource,
+                demandDrivenContext).parse((packetId, packet) -> {
+            blackhole.consume(packet);
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SyntheticTransportStream.DEFAULT_FRAME_COUNT)
+    public void parseStreamingParallel(Blackhole blackhole) throws Exception {
+        new Stanag4609TransportStreamParser(byteSource,
+                decodeExecutor,
+                MAX_PENDING_PACKETS).parse((packetId, packet) -> {
+            blackhole.consume(packet);
+        });
+    }
+
+}
@@ -0,0 +1,350 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.benchmarks;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.codice.alliance.libs.mpegts.Constants;
+
+/**
+ * Generates a single program MPEG-TS with one video stream and one STANAG 4609 KLV stream. The
+ * output only depends on the arguments, so benchmark results can be reproduced without sample
+ * files. The video payload is random data behind a valid picture start, which is enough for the
+ * transport stream and PES layers. Each video frame is followed by a KLV packet that describes a
+ * straight flight path with a constant footprint, and the PAT and PMT are repeated once per
+ * second.
+ */
+public class SyntheticTransportStream {
+
+    public static final int DEFAULT_FRAME_COUNT = 1800;
+
+    public static final long DEFAULT_SEED = 4609;
+
+    static final int PROGRAM_MAP_TABLE_PID = 0x100;
+
+    static final int VIDEO_PID = 0x101;
+
+    static final int KLV_PID = 0x102;
+
+    private static final int FRAMES_PER_SECOND = 30;
+
+    private static final int PTS_PER_FRAME = 90000 / FRAMES_PER_SECOND;
+
+    private static final int TS_PAYLOAD_SIZE = Constants.TS_PACKET_SIZE - 4;
+
+    private static final int VIDEO_STREAM_ID = 0xE0;
+
+    private static final int KEY_FRAME_SIZE = 40000;
+
+    private static final int MIN_FRAME_SIZE = 2000;
+
+    private static final int MAX_FRAME_SIZE = 12000;
+
+    private static final long START_TIMESTAMP_MICROS = 1245257585099653L;
+
+    private static final byte[] UAS_DATALINK_LOCAL_SET_KEY =
+            {0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01, 0x0E, 0x01, 0x03, 0x01, 0x01, 0x00,
+                    0x00, 0x00};
+
+    public enum VideoCodec {
+        H264(0x1B, new byte[] {0x00, 0x00, 0x00, 0x01, 0x09, (byte) 0xF0}),
+        MPEG2(0x02, new byte[] {0x00, 0x00, 0x01, 0x00});
+
+        private final int streamType;
+
+        private final byte[] pictureStart;
+
+        VideoCodec(int streamType, byte[] pictureStart) {
+            this.streamType = streamType;
+            this.pictureStart = pictureStart;
+        }
+    }
+
+    /**
+     * Synchronous KLV is carried in metadata access units (stream type 0x15, stream id 0xFC) and
+     * asynchronous KLV is carried as private data (stream type 0x06, stream id 0xBD).
+     */
+    public enum KlvMode {
+        SYNCHRONOUS(0x15, 0xFC),
+        ASYNCHRONOUS(0x06, 0xBD);
+
+        private final int streamType;
+
+        private final int streamId;
+
+        KlvMode(int streamType, int streamId) {
+            this.streamType = streamType;
+            this.streamId = streamId;
+        }
+    }
+
+    private final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+    private final Map<Integer, Integer> continuityCounters = new HashMap<>();
+
+    private final VideoCodec videoCodec;
+
+    private final KlvMode klvMode;
+
+    private final Random random;
+
+    private int metadataSequenceNumber = 0;
+
+    private SyntheticTransportStream(VideoCodec videoCodec, KlvMode klvMode, long seed) {
+        this.videoCodec = videoCodec;
+        this.klvMode = klvMode;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param videoCodec must be non-null
+     * @param klvMode    must be non-null
+     * @param frameCount must be &gt;0
+     * @param seed       random seed of the video payload
+     * @return the transport stream
+     */
+    public static byte[] generate(VideoCodec videoCodec, KlvMode klvMode, int frameCount,
+            long seed) {
+        notNull(videoCodec, "videoCodec must be non-null");
+        notNull(klvMode, "klvMode must be non-null");
+        isTrue(frameCount > 0, "frameCount must be >0");
+
+        SyntheticTransportStream stream = new SyntheticTransportStream(videoCodec, klvMode, seed);
+        for (int frame = 0; frame < frameCount; frame++) {
+            if (frame % FRAMES_PER_SECOND == 0) {
+                stream.writeTables();
+            }
+            long pts = (long) frame * PTS_PER_FRAME;
+            stream.writeVideo(pts, frame % FRAMES_PER_SECOND == 0);
+            stream.writeKlv(pts, frame);
+        }
+        return stream.outputStream.toByteArray();
+    }
+
+    /**
+     * @return a stream of {@link #DEFAULT_FRAME_COUNT} frames generated with {@link #DEFAULT_SEED}
+     */
+    public static byte[] generate(VideoCodec videoCodec, KlvMode klvMode) {
+        return generate(videoCodec, klvMode, DEFAULT_FRAME_COUNT, DEFAULT_SEED);
+    }
+
+    private void writeTables() {
+        writeSection(Constants.PROGRAM_ASSOCIATION_TABLE_PID,
+                new byte[] {0x00, (byte) 0xB0, 0x0D, 0x00, 0x01, (byte) 0xC1, 0x00, 0x00, 0x00,
+                        0x01, (byte) (0xE0 | (PROGRAM_MAP_TABLE_PID >> 8)),
+                        (byte) PROGRAM_MAP_TABLE_PID});
+        writeSection(PROGRAM_MAP_TABLE_PID,
+                new byte[] {0x02, (byte) 0xB0, 0x17, 0x00, 0x01, (byte) 0xC1, 0x00, 0x00,
+                        (byte) (0xE0 | (VIDEO_PID >> 8)), (byte) VIDEO_PID, (byte) 0xF0, 0x00,
+                        (byte) videoCodec.streamType, (byte) (0xE0 | (VIDEO_PID >> 8)),
+                        (byte) VIDEO_PID, (byte) 0xF0, 0x00, (byte) klvMode.streamType,
+                        (byte) (0xE0 | (KLV_PID >> 8)), (byte) KLV_PID, (byte) 0xF0, 0x00});
+    }
+
+    /**
+     * Video PES packets do not declare their length.
+     */
+    private void writeVideo(long pts, boolean keyFrame) {
+        int size = keyFrame ?
+                KEY_FRAME_SIZE :
+                MIN_FRAME_SIZE + random.nextInt(MAX_FRAME_SIZE - MIN_FRAME_SIZE);
+        byte[] frame = new byte[size];
+        random.nextBytes(frame);
+        System.arraycopy(videoCodec.pictureStart, 0, frame, 0, videoCodec.pictureStart.length);
+        writePesPacket(VIDEO_PID, VIDEO_STREAM_ID, pts, frame, false);
+    }
+
+    private void writeKlv(long pts, int frame) {
+        double progress = frame / (double) FRAMES_PER_SECOND;
+        double latitude = 54.0 + progress * 0.0005;
+        double longitude = -110.0 + progress * 0.0008;
+
+        byte[] klv = createKlv(START_TIMESTAMP_MICROS + frame * 1000000L / FRAMES_PER_SECOND,
+                latitude,
+                longitude,
+                0.01);
+
+        if (klvMode == KlvMode.SYNCHRONOUS) {
+            byte[] accessUnit = new byte[5 + klv.length];
+            accessUnit[0] = 0x00;
+            accessUnit[1] = (byte) metadataSequenceNumber++;
+            accessUnit[2] = (byte) 0xDF;
+            accessUnit[3] = (byte) (klv.length >> 8);
+            accessUnit[4] = (byte) klv.length;
+            System.arraycopy(klv, 0, accessUnit, 5, klv.length);
+            klv = accessUnit;
+        }
+
+        writePesPacket(KLV_PID, klvMode.streamId, pts, klv, true);
+    }
+
+    /**
+     * Create a UAS Datalink Local Set with a timestamp, the sensor and frame center positions and
+     * the offset corners of the footprint.
+     */
+    private static byte[] createKlv(long timestamp, double latitude, double longitude,
+            double cornerDelta) {
+
+        ByteArrayOutputStream localSet = new ByteArrayOutputStream();
+        writeItem(localSet, 2, toBytes(timestamp, 8));
+        writeItem(localSet, 3, "SYNTHETIC".getBytes());
+        writeItem(localSet, 10, "BENCHMARK".getBytes());
+        writeItem(localSet, 11, "EO".getBytes());
+        writeItem(localSet, 12, "Geodetic WGS84".getBytes());
+        writeItem(localSet, 13, encodeInt(latitude - cornerDelta, 90));
+        writeItem(localSet, 14, encodeInt(longitude, 180));
+        writeItem(localSet, 15, toBytes(0x4000, 2));
+        writeItem(localSet, 23, encodeInt(latitude, 90));
+        writeItem(localSet, 24, encodeInt(longitude, 180));
+        writeItem(localSet, 26, encodeShort(-cornerDelta));
+        writeItem(localSet, 27, encodeShort(-cornerDelta));
+        writeItem(localSet, 28, encodeShort(-cornerDelta));
+        writeItem(localSet, 29, encodeShort(cornerDelta));
+        writeItem(localSet, 30, encodeShort(cornerDelta));
+        writeItem(localSet, 31, encodeShort(cornerDelta));
+        writeItem(localSet, 32, encodeShort(cornerDelta));
+        writeItem(localSet, 33, encodeShort(-cornerDelta));
+
+        ByteArrayOutputStream klv = new ByteArrayOutputStream();
+        klv.write(UAS_DATALINK_LOCAL_SET_KEY, 0, UAS_DATALINK_LOCAL_SET_KEY.length);
+        klv.write(localSet.size() + 4);
+        klv.write(localSet.toByteArray(), 0, localSet.size());
+        klv.write(1);
+        klv.write(2);
+
+        // 16-bit sum of everything up to and including the checksum length
+        byte[] klvBytes = klv.toByteArray();
+        short checksum = 0;
+        for (int i = 0; i < klvBytes.length; ++i) {
+            checksum += (klvBytes[i] & 0xFF) << (8 * ((i + 1) % 2));
+        }
+        klv.write(toBytes(checksum, 2), 0, 2);
+
+        return klv.toByteArray();
+    }
+
+    private static void writeItem(ByteArrayOutputStream localSet, int tag, byte[] value) {
+        localSet.write(tag);
+        localSet.write(value.length);
+        localSet.write(value, 0, value.length);
+    }
+
+    private static byte[] encodeInt(double value, double limit) {
+        long encodedMin = Integer.MIN_VALUE + 1L;
+        long encodedMax = Integer.MAX_VALUE;
+        return toBytes(Math.round((value + limit) / (2 * limit) * (encodedMax - encodedMin)
+                + encodedMin), 4);
+    }
+
+    private static byte[] encodeShort(double value) {
+        long encodedMin = Short.MIN_VALUE + 1L;
+        long encodedMax = Short.MAX_VALUE;
+        double limit = 0.075;
+        return toBytes(Math.round((value + limit) / (2 * limit) * (encodedMax - encodedMin)
+                + encodedMin), 2);
+    }
+
+    private static byte[] toBytes(long value, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (value >> (8 * (length - i - 1)));
+        }
+        return bytes;
+    }
+
+    private void writePesPacket(int pid, int streamId, long pts, byte[] data,
+            boolean declareLength) {
+
+        ByteArrayOutputStream pesPacket = new ByteArrayOutputStream(data.length + 14);
+        pesPacket.write(0x00);
+        pesPacket.write(0x00);
+        pesPacket.write(0x01);
+        pesPacket.write(streamId);
+        int length = declareLength ? 8 + data.length : 0;
+        pesPacket.write(length >> 8);
+        pesPacket.write(length);
+        pesPacket.write(0x80);
+        pesPacket.write(0x80);
+        pesPacket.write(0x05);
+        pesPacket.write(0x21 | (int) ((pts >> 29) & 0x0E));
+        pesPacket.write((int) (pts >> 22));
+        pesPacket.write((int) ((pts >> 14) & 0xFE) | 0x01);
+        pesPacket.write((int) (pts >> 7));
+        pesPacket.write((int) ((pts << 1) & 0xFE) | 0x01);
+        pesPacket.write(data, 0, data.length);
+
+        byte[] bytes = pesPacket.toByteArray();
+        for (int offset = 0; offset < bytes.length; offset += TS_PAYLOAD_SIZE) {
+            int end = Math.min(bytes.length, offset + TS_PAYLOAD_SIZE);
+            writeTsPacket(pid, offset == 0, Arrays.copyOfRange(bytes, offset, end));
+        }
+    }
+
+    private void writeSection(int pid, byte[] section) {
+        byte[] payload = new byte[TS_PAYLOAD_SIZE];
+        Arrays.fill(payload, (byte) 0xFF);
+        payload[0] = 0x00;
+        System.arraycopy(section, 0, payload, 1, section.length);
+        System.arraycopy(toBytes(crc32(section), 4), 0, payload, 1 + section.length, 4);
+        writeTsPacket(pid, true, payload);
+    }
+
+    /**
+     * Payloads shorter than a full packet are padded with an adaptation field.
+     */
+    private void writeTsPacket(int pid, boolean isStart, byte[] payload) {
+
+        int continuityCounter = continuityCounters.merge(pid, 1, (a, b) -> (a + b) & 0x0F);
+
+        outputStream.write(0x47);
+        outputStream.write((isStart ? 0x40 : 0x00) | ((pid >> 8) & 0x1F));
+        outputStream.write(pid & 0xFF);
+
+        int stuffing = TS_PAYLOAD_SIZE - payload.length;
+        if (stuffing == 0) {
+            outputStream.write(0x10 | continuityCounter);
+        } else {
+            outputStream.write(0x30 | continuityCounter);
+            outputStream.write(stuffing - 1);
+            if (stuffing > 1) {
+                outputStream.write(0x00);
+                for (int i = 2; i < stuffing; i++) {
+                    outputStream.write(0xFF);
+                }
+            }
+        }
+        outputStream.write(payload, 0, payload.length);
+    }
+
+    /**
+     * CRC-32/MPEG-2 of a PSI section.
+     */
+    private static long crc32(byte[] bytes) {
+        int crc = 0xFFFFFFFF;
+        for (byte b : bytes) {
+            crc ^= (b & 0xFF) << 24;
+            for (int i = 0; i < 8; i++) {
+                crc = (crc & 0x80000000) != 0 ? (crc << 1) ^ 0x04C11DB7 : crc << 1;
+            }
+        }
+        return crc & 0xFFFFFFFFL;
+    }
+}
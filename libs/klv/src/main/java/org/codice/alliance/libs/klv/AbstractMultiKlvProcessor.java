@@ -42,6 +42,11 @@ public abstract class AbstractMultiKlvProcessor implements KlvProcessor {
         doProcess(attributes, metacard);
     }
 
+    @Override
+    public Set<String> getRequiredFieldNames(Map<String, KlvHandler> handlers) {
+        return Utilities.findFieldNames(handlers, findKlvHandlers(handlers));
+    }
+
     protected abstract void doProcess(List<Attribute> attributes, Metacard metacard);
 
     private List<KlvHandler> findKlvHandlers(Map<String, KlvHandler> handlers) {
@@ -97,4 +97,10 @@ public class AttributeNameConstants {
 
     public static final String RELEASING_INSTRUCTIONS = Security.RELEASABILITY;
 
+    /**
+     * Holds the encoded {@link KlvTimeSeries} until it is moved to a derived resource, it is not
+     * stored with the metacard.
+     */
+    public static final String KLV_TIME_SERIES = "klv-time-series";
+
 }
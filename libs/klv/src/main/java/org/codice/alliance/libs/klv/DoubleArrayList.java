@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A growable list of primitive doubles. Values are stored unboxed, so appending a value does not
+ * allocate unless the backing array has to grow. This implementation is not thread-safe.
+ */
+class DoubleArrayList {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private double[] values;
+
+    private int size;
+
+    DoubleArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param initialCapacity must be &gt;=0
+     */
+    DoubleArrayList(int initialCapacity) {
+        isTrue(initialCapacity >= 0, "initialCapacity must be >=0");
+        values = new double[initialCapacity];
+    }
+
+    void add(double value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(DEFAULT_CAPACITY, size + (size >> 1)));
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * @param index must be &gt;=0 and &lt;{@link #size()}
+     */
+    double get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("index=" + index + ", size=" + size);
+        }
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Discard the values at and after {@code newSize}. The capacity is not changed.
+     *
+     * @param newSize must be &gt;=0
+     */
+    void truncate(int newSize) {
+        isTrue(newSize >= 0, "newSize must be >=0");
+        if (newSize < size) {
+            size = newSize;
+        }
+    }
+
+    /**
+     * Discard all values. The backing array is kept so the list can be refilled without growing.
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the values
+     */
+    double[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * @return a read-only view of the values that boxes each value as it is read
+     */
+    List<Double> asList() {
+        return new AbstractList<Double>() {
+            @Override
+            public Double get(int index) {
+                return DoubleArrayList.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -14,7 +14,7 @@
 package org.codice.alliance.libs.klv;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -28,6 +28,10 @@ import ddf.catalog.data.Attribute;
 
 /**
  * This handler expects four latitude-longitude pairs. It generates a WKT polygon for each four-pair set.
+ * <p>
+ * The values of each field are stored in primitive arrays and the polygons are written directly
+ * from those arrays, so a long stream of corner coordinates does not create a boxed value per
+ * coordinate.
  */
 public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
@@ -49,7 +53,9 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
 
     private String longitude4;
 
-    private Map<String, List<Double>> map = new HashMap<>();
+    private final Map<String, DoubleArrayList> map = new LinkedHashMap<>();
+
+    private final WktCoordinateWriter wktWriter = new WktCoordinateWriter();
 
     /**
      * @param attributeName the name of the metacard attribute being generated
@@ -113,39 +119,48 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
         return longitude4;
     }
 
+    /**
+     * @return a read-only view of the values of each field
+     */
     public Map<String, List<Double>> getRawGeoData() {
-        return map;
+        Map<String, List<Double>> view = new LinkedHashMap<>();
+        map.forEach((fieldName, values) -> view.put(fieldName, values.asList()));
+        return view;
+    }
+
+    /**
+     * @param fieldName the name of a field
+     * @return a copy of the values of the field, or null if the field has no values
+     */
+    double[] getValues(String fieldName) {
+        DoubleArrayList values = map.get(fieldName);
+        return values != null ? values.toArray() : null;
     }
 
     @Override
     public Optional<Attribute> asAttribute() {
 
-        int minimumListSize = getMinimumListSize();
-
-        List<String> polygonsWkts = new ArrayList<>();
-
-        for (int i = 0; i < minimumListSize; i++) {
-            polygonsWkts.add(String.format("POLYGON ((%f %f, %f %f, %f %f, %f %f, %f %f))",
-                    map.get(longitude1)
-                            .get(i),
-                    map.get(latitude1)
-                            .get(i),
-                    map.get(longitude2)
-                            .get(i),
-                    map.get(latitude2)
-                            .get(i),
-                    map.get(longitude3)
-                            .get(i),
-                    map.get(latitude3)
-                            .get(i),
-                    map.get(longitude4)
-                            .get(i),
-                    map.get(latitude4)
-                            .get(i),
-                    map.get(longitude1)
-                            .get(i),
-                    map.get(latitude1)
-                            .get(i)));
+        DoubleArrayList lat1 = map.get(latitude1);
+        DoubleArrayList lon1 = map.get(longitude1);
+        DoubleArrayList lat2 = map.get(latitude2);
+        DoubleArrayList lon2 = map.get(longitude2);
+        DoubleArrayList lat3 = map.get(latitude3);
+        DoubleArrayList lon3 = map.get(longitude3);
+        DoubleArrayList lat4 = map.get(latitude4);
+        DoubleArrayList lon4 = map.get(longitude4);
+
+        int polygonCount = getMinimumSize(lat1, lon1, lat2, lon2, lat3, lon3, lat4, lon4);
+
+        List<String> polygonsWkts = new ArrayList<>(polygonCount);
+
+        for (int i = 0; i < polygonCount; i++) {
+            wktWriter.startPolygon();
+            wktWriter.addCoordinate(lon1.get(i), lat1.get(i));
+            wktWriter.addCoordinate(lon2.get(i), lat2.get(i));
+            wktWriter.addCoordinate(lon3.get(i), lat3.get(i));
+            wktWriter.addCoordinate(lon4.get(i), lat4.get(i));
+            wktWriter.addCoordinate(lon1.get(i), lat1.get(i));
+            polygonsWkts.add(wktWriter.endPolygon());
         }
 
         return asAttribute(polygonsWkts);
@@ -156,19 +171,27 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
      */
     @Override
     public void trim() {
-
-        int minListSize = getMinimumListSize();
-
-        map.keySet()
-                .forEach(key -> map.computeIfPresent(key,
-                        (fieldName, list) -> list.size() > minListSize ?
-                                list.subList(0, minListSize) :
-                                list));
-
+        int minListSize = map.values()
+                .stream()
+                .mapToInt(DoubleArrayList::size)
+                .min()
+                .orElse(0);
+        map.values()
+                .forEach(values -> values.truncate(minListSize));
     }
 
-    private int getMinimumListSize() {
-        return getMinimumListSize(map.values());
+    /**
+     * @return the size of the smallest array, or 0 if an array is missing
+     */
+    private static int getMinimumSize(DoubleArrayList... arrays) {
+        int minimumSize = Integer.MAX_VALUE;
+        for (DoubleArrayList array : arrays) {
+            if (array == null) {
+                return 0;
+            }
+            minimumSize = Math.min(minimumSize, array.size());
+        }
+        return minimumSize;
     }
 
     @Override
@@ -191,8 +214,11 @@ public class GeoBoxHandler extends BaseKlvHandler implements Trimmable {
     }
 
     public void accept(String name, Double value) {
-        map.putIfAbsent(name, new ArrayList<>());
-        map.get(name)
+        accept(name, value.doubleValue());
+    }
+
+    public void accept(String name, double value) {
+        map.computeIfAbsent(name, fieldName -> new DoubleArrayList())
                 .add(value);
     }
 }
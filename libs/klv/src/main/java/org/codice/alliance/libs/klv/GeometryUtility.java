@@ -13,8 +13,10 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +25,7 @@ import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
+import com.vividsolutions.jts.operation.union.UnaryUnionOp;
 
 import ddf.catalog.data.Attribute;
 
@@ -51,6 +54,11 @@ public class GeometryUtility {
     /**
      * Create the union of multi-valued attribute that contains WKT. If the union cannot
      * be computed, then this method returns {@link Optional#empty()}
+     * <p>
+     * The geometries are merged with a cascaded union, which unions nearby geometries first, so
+     * the cost grows with the size of the merged geometry instead of with the number of values.
+     * Use the pre-union operator to reduce the precision or simplify the geometries before they
+     * are merged.
      *
      * @param wktReader                 non-null
      * @param wktWriter                 non-null
@@ -63,7 +71,7 @@ public class GeometryUtility {
             WKTWriter wktWriter, Attribute attribute,
             UnaryOperator<Geometry> postUnionGeometryOperator,
             UnaryOperator<Geometry> preUnionGeometryOperator) {
-        return attribute.getValues()
+        List<Geometry> geometries = attribute.getValues()
                 .stream()
                 .filter(String.class::isInstance)
                 .map(String.class::cast)
@@ -71,7 +79,13 @@ public class GeometryUtility {
                 .filter(Optional::isPresent)
                 .map(Optional::get)
                 .map(preUnionGeometryOperator)
-                .reduce(Geometry::union)
+                .collect(Collectors.toList());
+
+        if (geometries.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.ofNullable(UnaryUnionOp.union(geometries))
                 .map(postUnionGeometryOperator)
                 .map(wktWriter::write);
     }
@@ -13,6 +13,8 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.apache.commons.lang3.Validate.isTrue;
+
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,6 +26,33 @@ import org.codice.ddf.libs.klv.data.text.KlvString;
 
 public class KlvHandlerFactoryImpl implements KlvHandlerFactory {
 
+    private boolean aggregateDates = true;
+
+    private int dateSampleSize = 0;
+
+    /**
+     * When enabled, date fields are handled by a handler that only keeps the first and last dates
+     * plus an optional sample, so the memory use does not depend on the length of
+     * the video. When disabled, every date is kept in a list. The first and last dates are the same
+     * either way. The default is <code>true</code>.
+     *
+     * @param aggregateDates <code>true</code> to aggregate the dates
+     */
+    public void setAggregateDates(boolean aggregateDates) {
+        this.aggregateDates = aggregateDates;
+    }
+
+    /**
+     * Set the maximum number of dates that are sampled between the first and last dates when the
+     * dates are aggregated. The default is 0.
+     *
+     * @param dateSampleSize must be &gt;=0
+     */
+    public void setDateSampleSize(int dateSampleSize) {
+        isTrue(dateSampleSize >= 0, "dateSampleSize must be >=0");
+        this.dateSampleSize = dateSampleSize;
+    }
+
     @Override
     public Map<String, KlvHandler> createStanag4609Handlers() {
         final Map<String, KlvHandler> handlers = new HashMap<>();
@@ -67,7 +96,7 @@ public class KlvHandlerFactoryImpl implements KlvHandlerFactory {
                         KlvString.class));
 
         handlers.put(Stanag4609TransportStreamParser.EVENT_START_TIME,
-                new ListOfDatesHandler((AttributeNameConstants.EVENT_START_TIME)));
+                createDateHandler(AttributeNameConstants.EVENT_START_TIME));
 
         handlers.put(Stanag4609TransportStreamParser.OPERATIONAL_MODE,
                 new ListOfBasicKlvDataTypesHandler<>(AttributeNameConstants.OPERATIONAL_MODE,
@@ -112,7 +141,7 @@ public class KlvHandlerFactoryImpl implements KlvHandlerFactory {
                         KlvString.class));
 
         handlers.put(Stanag4609TransportStreamParser.TIMESTAMP,
-                new ListOfDatesHandler(AttributeNameConstants.TIMESTAMP));
+                createDateHandler(AttributeNameConstants.TIMESTAMP));
 
         handlers.put(Stanag4609TransportStreamParser.CHECKSUM,
                 new ListOfBasicKlvDataTypesHandler<>(AttributeNameConstants.CHECKSUM,
@@ -185,4 +214,11 @@ public class KlvHandlerFactoryImpl implements KlvHandlerFactory {
 
     }
 
+    private KlvHandler createDateHandler(String attributeName) {
+        if (aggregateDates) {
+            return new TemporalAggregateHandler(attributeName, dateSampleSize);
+        }
+        return new ListOfDatesHandler(attributeName);
+    }
+
 }
@@ -15,6 +15,7 @@ package org.codice.alliance.libs.klv;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import ddf.catalog.data.Metacard;
 
@@ -27,6 +28,19 @@ public interface KlvProcessor {
 
     void accept(Visitor visitor);
 
+    /**
+     * Get the names of the STANAG fields whose handlers are read by
+     * {@link #process(Map, Metacard, Configuration)}, so the other fields do not have to be
+     * decoded. The default implementation returns every field that has a handler.
+     *
+     * @param handlers map of STANAG field names to the handlers that will be passed to
+     *                 {@link #process(Map, Metacard, Configuration)}
+     * @return non-null set of STANAG field names
+     */
+    default Set<String> getRequiredFieldNames(Map<String, KlvHandler> handlers) {
+        return handlers.keySet();
+    }
+
     interface Visitor {
 
         void visit(DistinctKlvProcessor distinctKlvProcessor);
@@ -47,11 +61,27 @@ public interface KlvProcessor {
 
         void visit(SensorAltitudeKlvProcessor sensorAltitudeKlvProcessor);
 
+        void visit(KlvTimeSeriesKlvProcessor klvTimeSeriesKlvProcessor);
+
     }
 
     class Configuration {
         public static final String SUBSAMPLE_COUNT = "subsample-count";
 
+        /**
+         * The distance in degrees that a footprint corner must move before another footprint is
+         * kept by the adaptive subsampling of {@link LocationKlvProcessor}. When missing or not
+         * greater than 0, a fixed number of evenly spaced footprints is kept instead.
+         */
+        public static final String SUBSAMPLE_TOLERANCE = "subsample-tolerance";
+
+        /**
+         * The maximum number of consecutive footprints that the adaptive subsampling of
+         * {@link LocationKlvProcessor} may discard. When missing or not greater than 0, there is no
+         * limit.
+         */
+        public static final String SUBSAMPLE_MAX_GAP = "subsample-max-gap";
+
         private Map<String, Object> configuration = new HashMap<>();
 
         public void set(String name, Object value) {
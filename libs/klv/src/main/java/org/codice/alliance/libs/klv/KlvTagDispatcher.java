@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.ddf.libs.klv.KlvContext;
+import org.codice.ddf.libs.klv.KlvDataElement;
+import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
+
+/**
+ * Passes the data elements of decoded KLV packets to a fixed set of handlers. The handler of each
+ * tag of a local set is resolved from the {@link KlvContext} definition when the dispatcher is
+ * created and stored in an array indexed by the one-byte tag, so the data elements of a packet are
+ * passed straight to their handlers without looking up the handler by name. The data elements of
+ * the current packet are passed to the {@link PostProcessor} through a reused map that is backed
+ * by the same tags.
+ * <p>
+ * Data elements that are not described by the definition, e.g. tags added by a newer version of
+ * the standard, are handled by name like {@link Stanag4609ProcessorImpl#callDataElementHandlers(Map,
+ * KlvHandler, KlvDataElement, Map)}. The handler map must not be modified while the dispatcher is
+ * in use. This class is not thread-safe.
+ */
+class KlvTagDispatcher implements Consumer<DecodedKLVMetadataPacket> {
+
+    private static final int TAG_COUNT = 256;
+
+    private static final Level UNKNOWN_LEVEL = new Level();
+
+    private final Map<String, KlvHandler> handlers;
+
+    private final KlvHandler defaultHandler;
+
+    private final PostProcessor postProcessor;
+
+    private final PacketDataElements dataElements = new PacketDataElements();
+
+    private final Level rootLevel;
+
+    /**
+     * @param klvContextDefinition the context that the KLV is decoded with, must be non-null
+     * @param handlers             must be non-null
+     * @param defaultHandler       must be non-null
+     * @param postProcessor        must be non-null
+     */
+    KlvTagDispatcher(KlvContext klvContextDefinition, Map<String, KlvHandler> handlers,
+            KlvHandler defaultHandler, PostProcessor postProcessor) {
+        notNull(klvContextDefinition, "klvContextDefinition must be non-null");
+        notNull(handlers, "handlers must be non-null");
+        notNull(defaultHandler, "defaultHandler must be non-null");
+        notNull(postProcessor, "postProcessor must be non-null");
+
+        this.handlers = handlers;
+        this.defaultHandler = defaultHandler;
+        this.postProcessor = postProcessor;
+
+        rootLevel = compile(klvContextDefinition);
+        dataElements.allocate();
+    }
+
+    /**
+     * The data elements that are passed to the post processor are only valid until the next packet
+     * is dispatched.
+     */
+    @Override
+    public void accept(DecodedKLVMetadataPacket decodedKLVMetadataPacket) {
+        dataElements.clear();
+        dispatch(rootLevel, decodedKLVMetadataPacket.getDecodedKLV());
+        postProcessor.postProcess(dataElements, handlers);
+    }
+
+    private Level compile(KlvContext klvContext) {
+        Level level = new Level();
+        for (KlvDataElement klvDataElement : klvContext.getDataElements()
+                .values()) {
+            if (klvDataElement instanceof KlvLocalSet) {
+                level.localSetsByName.put(klvDataElement.getName(),
+                        compile(((KlvLocalSet) klvDataElement).getValue()));
+                continue;
+            }
+            int tag = getTag(klvDataElement);
+            if (tag >= 0) {
+                String name = klvDataElement.getName();
+                level.namesByTag[tag] = name;
+                level.handlersByTag[tag] = handlers.getOrDefault(name, defaultHandler);
+                level.slotsByTag[tag] = dataElements.addSlot(name);
+            }
+        }
+        return level;
+    }
+
+    private void dispatch(Level level, KlvContext klvContext) {
+        for (KlvDataElement klvDataElement : klvContext.getDataElements()
+                .values()) {
+            if (klvDataElement instanceof KlvLocalSet) {
+                dispatch(level.localSetsByName.getOrDefault(klvDataElement.getName(),
+                        UNKNOWN_LEVEL), ((KlvLocalSet) klvDataElement).getValue());
+            } else if (!klvDataElement.isErrorIndicated()) {
+                dispatch(level, klvDataElement);
+            }
+        }
+    }
+
+    private void dispatch(Level level, KlvDataElement klvDataElement) {
+        int tag = getTag(klvDataElement);
+        if (tag >= 0 && level.handlersByTag[tag] != null && klvDataElement.getName()
+                .equals(level.namesByTag[tag])) {
+            level.handlersByTag[tag].accept(klvDataElement);
+            dataElements.set(level.slotsByTag[tag], klvDataElement);
+        } else {
+            handlers.getOrDefault(klvDataElement.getName(), defaultHandler)
+                    .accept(klvDataElement);
+            dataElements.putByName(klvDataElement.getName(), klvDataElement);
+        }
+    }
+
+    /**
+     * @return the one-byte tag of a local set element, or -1 if the key is not a one-byte tag
+     */
+    private static int getTag(KlvDataElement klvDataElement) {
+        byte[] key = klvDataElement.getKey();
+        return key != null && key.length == 1 ? key[0] & 0xFF : -1;
+    }
+
+    /**
+     * The resolved handlers of one local set, indexed by tag.
+     */
+    private static class Level {
+
+        private final String[] namesByTag = new String[TAG_COUNT];
+
+        private final KlvHandler[] handlersByTag = new KlvHandler[TAG_COUNT];
+
+        private final int[] slotsByTag = new int[TAG_COUNT];
+
+        private final Map<String, Level> localSetsByName = new HashMap<>();
+    }
+
+    /**
+     * A read-only map of the data elements of the current packet. Each data element name of the
+     * definition has a slot in an array, and the slots that are filled by a packet are tracked so
+     * the map can be cleared without scanning every slot.
+     */
+    private static class PacketDataElements extends AbstractMap<String, KlvDataElement> {
+
+        private final Map<String, Integer> slotsByName = new HashMap<>();
+
+        private final List<String> slotNames = new ArrayList<>();
+
+        private final Map<String, KlvDataElement> unknownElements = new HashMap<>();
+
+        private KlvDataElement[] elements;
+
+        private int[] filledSlots;
+
+        private int filledCount;
+
+        private int addSlot(String name) {
+            return slotsByName.computeIfAbsent(name, slotName -> {
+                slotNames.add(slotName);
+                return slotNames.size() - 1;
+            });
+        }
+
+        private void allocate() {
+            elements = new KlvDataElement[slotNames.size()];
+            filledSlots = new int[slotNames.size()];
+        }
+
+        private void set(int slot, KlvDataElement klvDataElement) {
+            if (elements[slot] == null) {
+                filledSlots[filledCount++] = slot;
+            }
+            elements[slot] = klvDataElement;
+        }
+
+        private void putByName(String name, KlvDataElement klvDataElement) {
+            Integer slot = slotsByName.get(name);
+            if (slot != null) {
+                set(slot, klvDataElement);
+            } else {
+                unknownElements.put(name, klvDataElement);
+            }
+        }
+
+        @Override
+        public void clear() {
+            for (int i = 0; i < filledCount; i++) {
+                elements[filledSlots[i]] = null;
+            }
+            filledCount = 0;
+            if (!unknownElements.isEmpty()) {
+                unknownElements.clear();
+            }
+        }
+
+        @Override
+        public KlvDataElement get(Object key) {
+            Integer slot = slotsByName.get(key);
+            return slot != null ? elements[slot] : unknownElements.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return filledCount + unknownElements.size();
+        }
+
+        /**
+         * Only used when the map is iterated or compared, so the entries are copied.
+         */
+        @Override
+        public Set<Entry<String, KlvDataElement>> entrySet() {
+            Map<String, KlvDataElement> copy = new HashMap<>(unknownElements);
+            for (int i = 0; i < filledCount; i++) {
+                copy.put(slotNames.get(filledSlots[i]), elements[filledSlots[i]]);
+            }
+            return Collections.unmodifiableMap(copy)
+                    .entrySet();
+        }
+    }
+
+}
@@ -0,0 +1,311 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.OptionalDouble;
+import java.util.stream.IntStream;
+
+/**
+ * A compact, time-indexed series of the frame center and sensor positions of a video. The series
+ * is stored as a big-endian binary block with a 12 byte header followed by fixed size records that
+ * are sorted by timestamp, so a position can be found with a binary search and without decoding
+ * the whole block.
+ * <p>
+ * The header is the ASCII magic {@code KLVT}, a version byte, three reserved bytes and the number
+ * of records as an int. Each record is the timestamp in microseconds since epoch as a long,
+ * followed by the frame center latitude, frame center longitude, sensor latitude and sensor
+ * longitude as ints in units of 1e-7 degrees. A missing coordinate is stored as
+ * {@link Integer#MIN_VALUE}.
+ * <p>
+ * This class is immutable and thread-safe.
+ */
+public class KlvTimeSeries {
+
+    public static final String MIME_TYPE = "application/octet-stream";
+
+    public static final byte VERSION = 1;
+
+    static final int HEADER_SIZE = 12;
+
+    static final int RECORD_SIZE = 24;
+
+    private static final byte[] MAGIC = {'K', 'L', 'V', 'T'};
+
+    private static final int MISSING = Integer.MIN_VALUE;
+
+    private static final double SCALE = 1e7;
+
+    private static final int FRAME_CENTER_LATITUDE_OFFSET = 8;
+
+    private static final int FRAME_CENTER_LONGITUDE_OFFSET = 12;
+
+    private static final int SENSOR_LATITUDE_OFFSET = 16;
+
+    private static final int SENSOR_LONGITUDE_OFFSET = 20;
+
+    private final ByteBuffer records;
+
+    private final int size;
+
+    private KlvTimeSeries(ByteBuffer records, int size) {
+        this.records = records;
+        this.size = size;
+    }
+
+    /**
+     * @param bytes must be non-null and hold an encoded time series
+     * @return the time series, which reads directly from the byte array
+     * @throws IllegalArgumentException if the bytes are not an encoded time series
+     */
+    public static KlvTimeSeries read(byte[] bytes) {
+        notNull(bytes, "bytes must be non-null");
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * The time series is read from the position of the buffer. The buffer is not modified.
+     *
+     * @param buffer must be non-null and hold an encoded time series
+     * @return the time series, which reads directly from the buffer
+     * @throws IllegalArgumentException if the buffer does not hold an encoded time series
+     */
+    public static KlvTimeSeries read(ByteBuffer buffer) {
+        notNull(buffer, "buffer must be non-null");
+
+        ByteBuffer block = buffer.slice()
+                .order(ByteOrder.BIG_ENDIAN);
+
+        isTrue(block.remaining() >= HEADER_SIZE, "the time series header is incomplete");
+
+        byte[] magic = new byte[MAGIC.length];
+        block.get(magic);
+        isTrue(Arrays.equals(magic, MAGIC), "the buffer does not hold a klv time series");
+
+        byte version = block.get();
+        isTrue(version == VERSION, "unsupported klv time series version: %d", version);
+
+        int size = block.getInt(HEADER_SIZE - 4);
+        isTrue(size >= 0, "the record count must be >=0");
+        isTrue((long) size * RECORD_SIZE <= block.limit() - HEADER_SIZE,
+                "the time series records are incomplete");
+
+        block.position(HEADER_SIZE);
+        block.limit(HEADER_SIZE + size * RECORD_SIZE);
+
+        return new KlvTimeSeries(block.slice(), size);
+    }
+
+    /**
+     * @return the number of records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index must be &gt;=0 and &lt;{@link #size()}
+     * @return the timestamp in microseconds since epoch
+     */
+    public long getTimestamp(int index) {
+        return records.getLong(offset(index));
+    }
+
+    /**
+     * @param index must be &gt;=0 and &lt;{@link #size()}
+     * @return the frame center latitude in degrees, or empty if it was not supplied
+     */
+    public OptionalDouble getFrameCenterLatitude(int index) {
+        return getCoordinate(index, FRAME_CENTER_LATITUDE_OFFSET);
+    }
+
+    /**
+     * @param index must be &gt;=0 and &lt;{@link #size()}
+     * @return the frame center longitude in degrees, or empty if it was not supplied
+     */
+    public OptionalDouble getFrameCenterLongitude(int index) {
+        return getCoordinate(index, FRAME_CENTER_LONGITUDE_OFFSET);
+    }
+
+    /**
+     * @param index must be &gt;=0 and &lt;{@link #size()}
+     * @return the sensor latitude in degrees, or empty if it was not supplied
+     */
+    public OptionalDouble getSensorLatitude(int index) {
+        return getCoordinate(index, SENSOR_LATITUDE_OFFSET);
+    }
+
+    /**
+     * @param index must be &gt;=0 and &lt;{@link #size()}
+     * @return the sensor longitude in degrees, or empty if it was not supplied
+     */
+    public OptionalDouble getSensorLongitude(int index) {
+        return getCoordinate(index, SENSOR_LONGITUDE_OFFSET);
+    }
+
+    /**
+     * Find the record that was in effect at the given time with a binary search. When several
+     * records have the same timestamp, the last of them is returned.
+     *
+     * @param timestampMicros microseconds since epoch
+     * @return the index of the last record with a timestamp that is not after the given time, or
+     * -1 if the time is before the first record
+     */
+    public int findIndex(long timestampMicros) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (getTimestamp(middle) <= timestampMicros) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    private OptionalDouble getCoordinate(int index, int fieldOffset) {
+        int value = records.getInt(offset(index) + fieldOffset);
+        if (value == MISSING) {
+            return OptionalDouble.empty();
+        }
+        return OptionalDouble.of(value / SCALE);
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index=" + index + " size=" + size);
+        }
+        return index * RECORD_SIZE;
+    }
+
+    @Override
+    public String toString() {
+        return "KlvTimeSeries{" +
+                "size=" + size +
+                '}';
+    }
+
+    /**
+     * Collects the records of a time series and encodes them. The records may be added in any
+     * order, they are sorted by timestamp when the time series is encoded. This class is not
+     * thread-safe.
+     */
+    public static class Builder {
+
+        private static final int INITIAL_CAPACITY = 64;
+
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+
+        private int[] coordinates = new int[INITIAL_CAPACITY * 4];
+
+        private int size;
+
+        private boolean sorted = true;
+
+        /**
+         * Add a record. Use {@link Double#NaN} for a coordinate that was not supplied.
+         *
+         * @param timestampMicros      microseconds since epoch
+         * @param frameCenterLatitude  degrees, must be NaN or between -90 and 90
+         * @param frameCenterLongitude degrees, must be NaN or between -180 and 180
+         * @param sensorLatitude       degrees, must be NaN or between -90 and 90
+         * @param sensorLongitude      degrees, must be NaN or between -180 and 180
+         * @return this builder
+         */
+        public Builder add(long timestampMicros, double frameCenterLatitude,
+                double frameCenterLongitude, double sensorLatitude, double sensorLongitude) {
+
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                coordinates = Arrays.copyOf(coordinates, size * 2 * 4);
+            }
+
+            if (size > 0 && timestampMicros < timestamps[size - 1]) {
+                sorted = false;
+            }
+
+            timestamps[size] = timestampMicros;
+            coordinates[size * 4] = encode(frameCenterLatitude, 90);
+            coordinates[size * 4 + 1] = encode(frameCenterLongitude, 180);
+            coordinates[size * 4 + 2] = encode(sensorLatitude, 90);
+            coordinates[size * 4 + 3] = encode(sensorLongitude, 180);
+            size++;
+
+            return this;
+        }
+
+        /**
+         * @return the number of records that have been added
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the encoded time series
+         */
+        public byte[] build() {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + size * RECORD_SIZE)
+                    .order(ByteOrder.BIG_ENDIAN);
+
+            buffer.put(MAGIC);
+            buffer.put(VERSION);
+            buffer.put(new byte[3]);
+            buffer.putInt(size);
+
+            recordOrder().forEach(index -> {
+                buffer.putLong(timestamps[index]);
+                for (int i = 0; i < 4; i++) {
+                    buffer.putInt(coordinates[index * 4 + i]);
+                }
+            });
+
+            return buffer.array();
+        }
+
+        /**
+         * The sort is stable, so records with the same timestamp keep the order they were added.
+         */
+        private IntStream recordOrder() {
+            if (sorted) {
+                return IntStream.range(0, size);
+            }
+            return IntStream.range(0, size)
+                    .boxed()
+                    .sorted(Comparator.comparingLong(index -> timestamps[index]))
+                    .mapToInt(Integer::intValue);
+        }
+
+        private static int encode(double degrees, double limit) {
+            if (Double.isNaN(degrees)) {
+                return MISSING;
+            }
+            isTrue(degrees >= -limit && degrees <= limit,
+                    "coordinate must be between -%s and %s: %s",
+                    limit,
+                    limit,
+                    degrees);
+            return (int) Math.round(degrees * SCALE);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import java.util.Optional;
+
+import org.codice.ddf.libs.klv.KlvDataElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.impl.AttributeImpl;
+
+/**
+ * Collects one {@link KlvTimeSeries} record per klv metadata packet. The records are supplied by
+ * {@link KlvTimeSeriesPostProcessor}, because a record combines several fields of the same packet.
+ * The handler must be registered under {@link #FIELD_NAME}, which is not the name of a STANAG
+ * field, so it does not receive any data elements directly. The generated attribute holds the
+ * encoded time series.
+ */
+public class KlvTimeSeriesHandler extends BaseKlvHandler {
+
+    /**
+     * The key of this handler in the map of handlers.
+     */
+    public static final String FIELD_NAME = "klv time series";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KlvTimeSeriesHandler.class);
+
+    private KlvTimeSeries.Builder builder = new KlvTimeSeries.Builder();
+
+    public KlvTimeSeriesHandler() {
+        super(AttributeNameConstants.KLV_TIME_SERIES);
+    }
+
+    /**
+     * Use {@link Double#NaN} for a coordinate that was not supplied.
+     *
+     * @param timestampMicros microseconds since epoch
+     */
+    public void add(long timestampMicros, double frameCenterLatitude, double frameCenterLongitude,
+            double sensorLatitude, double sensorLongitude) {
+        builder.add(timestampMicros,
+                frameCenterLatitude,
+                frameCenterLongitude,
+                sensorLatitude,
+                sensorLongitude);
+    }
+
+    @Override
+    public Optional<Attribute> asAttribute() {
+        if (builder.size() == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new AttributeImpl(getAttributeName(), builder.build()));
+    }
+
+    @Override
+    public void accept(KlvDataElement klvDataElement) {
+        LOGGER.debug("data elements are not accepted by the KlvTimeSeriesHandler: name = {}",
+                klvDataElement.getName());
+    }
+
+    @Override
+    public void reset() {
+        builder = new KlvTimeSeries.Builder();
+    }
+
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+
+/**
+ * Set the encoded {@link KlvTimeSeries} on the metacard. The time series is only created when a
+ * {@link KlvTimeSeriesHandler} is registered under {@link KlvTimeSeriesHandler#FIELD_NAME}. The
+ * attribute is not part of the metacard type, it is expected to be moved to a derived resource
+ * before the metacard is stored.
+ */
+public class KlvTimeSeriesKlvProcessor extends SingleFieldKlvProcessor {
+
+    public KlvTimeSeriesKlvProcessor() {
+        super(KlvTimeSeriesHandler.FIELD_NAME);
+    }
+
+    @Override
+    protected void doProcess(Attribute attribute, Metacard metacard) {
+        metacard.setAttribute(attribute);
+    }
+
+    @Override
+    public void accept(Visitor visitor) {
+        visitor.visit(this);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvDataElement;
+import org.codice.ddf.libs.klv.data.numerical.KlvIntegerEncodedFloatingPoint;
+import org.codice.ddf.libs.klv.data.numerical.KlvLong;
+
+/**
+ * Add a record to the {@link KlvTimeSeriesHandler} for each klv metadata packet that has a
+ * timestamp. The positions come from the same packet, so they stay aligned with the timestamp even
+ * when some fields are missing from a packet.
+ */
+public class KlvTimeSeriesPostProcessor implements PostProcessor {
+
+    private static final Set<String> TIME_SERIES_FIELDS = Collections.unmodifiableSet(
+            new HashSet<>(Arrays.asList(Stanag4609TransportStreamParser.TIMESTAMP,
+                    Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                    Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+                    Stanag4609TransportStreamParser.SENSOR_LATITUDE,
+                    Stanag4609TransportStreamParser.SENSOR_LONGITUDE)));
+
+    /**
+     * The timestamp and the positions are required when the time series is required.
+     */
+    @Override
+    public Set<String> getRequiredFieldNames(Set<String> fieldNames) {
+        if (fieldNames.contains(KlvTimeSeriesHandler.FIELD_NAME)) {
+            return TIME_SERIES_FIELDS;
+        }
+        return Collections.emptySet();
+    }
+
+    @Override
+    public void postProcess(Map<String, KlvDataElement> dataElements,
+            Map<String, KlvHandler> handlers) {
+
+        KlvHandler handler = handlers.get(KlvTimeSeriesHandler.FIELD_NAME);
+
+        if (!(handler instanceof KlvTimeSeriesHandler)) {
+            return;
+        }
+
+        KlvDataElement timestamp = dataElements.get(Stanag4609TransportStreamParser.TIMESTAMP);
+
+        if (!(timestamp instanceof KlvLong)) {
+            return;
+        }
+
+        ((KlvTimeSeriesHandler) handler).add(((KlvLong) timestamp).getValue(),
+                getDegrees(dataElements, Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE),
+                getDegrees(dataElements, Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE),
+                getDegrees(dataElements, Stanag4609TransportStreamParser.SENSOR_LATITUDE),
+                getDegrees(dataElements, Stanag4609TransportStreamParser.SENSOR_LONGITUDE));
+    }
+
+    private double getDegrees(Map<String, KlvDataElement> dataElements, String fieldName) {
+        KlvDataElement dataElement = dataElements.get(fieldName);
+        if (dataElement instanceof KlvIntegerEncodedFloatingPoint) {
+            return ((KlvIntegerEncodedFloatingPoint) dataElement).getValue();
+        }
+        return Double.NaN;
+    }
+}
@@ -14,7 +14,7 @@
 package org.codice.alliance.libs.klv;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -27,13 +27,16 @@ import org.slf4j.LoggerFactory;
 import ddf.catalog.data.Attribute;
 
 /**
- * This handler expects pairs of latitude and longitude values. It generates WKT Points.
+ * This handler expects pairs of latitude and longitude values. It generates WKT Points. The values
+ * are stored in primitive arrays and the points are written directly from those arrays.
  */
 public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(LatitudeLongitudeHandler.class);
 
-    private Map<String, List<Double>> map = new HashMap<>();
+    private final Map<String, DoubleArrayList> map = new LinkedHashMap<>();
+
+    private final WktCoordinateWriter wktWriter = new WktCoordinateWriter();
 
     private String latitudeFieldName;
 
@@ -54,44 +57,48 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
         return latitudeFieldName;
     }
 
+    /**
+     * @return a read-only view of the values of each field
+     */
     public Map<String, List<Double>> getRawGeoData() {
-        return map;
+        Map<String, List<Double>> view = new LinkedHashMap<>();
+        map.forEach((fieldName, values) -> view.put(fieldName, values.asList()));
+        return view;
     }
 
     @Override
     public Optional<Attribute> asAttribute() {
 
-        int minimumListSize = getMinimumListSize();
+        DoubleArrayList latitudes = map.get(latitudeFieldName);
+        DoubleArrayList longitudes = map.get(longitudeFieldName);
+
+        if (latitudes == null || longitudes == null) {
+            return Optional.empty();
+        }
 
-        List<String> pairs = new ArrayList<>();
+        int pointCount = Math.min(latitudes.size(), longitudes.size());
 
-        for (int i = 0; i < minimumListSize; i++) {
-            pairs.add(String.format("POINT (%f %f)",
-                    map.get(longitudeFieldName)
-                            .get(i),
-                    map.get(latitudeFieldName)
-                            .get(i)));
+        List<String> pairs = new ArrayList<>(pointCount);
+
+        for (int i = 0; i < pointCount; i++) {
+            pairs.add(wktWriter.point(longitudes.get(i), latitudes.get(i)));
         }
 
         return asAttribute(pairs);
     }
 
-    private int getMinimumListSize() {
-        return getMinimumListSize(map.values());
-    }
-
     /**
      * Trim the arrays of lat and lon values to the same length.
      */
     @Override
     public void trim() {
-        int minListSize = getMinimumListSize();
-
-        map.keySet()
-                .forEach(key -> map.computeIfPresent(key,
-                        (fieldName, list) -> list.size() > minListSize ?
-                                list.subList(0, minListSize) :
-                                list));
+        int minListSize = map.values()
+                .stream()
+                .mapToInt(DoubleArrayList::size)
+                .min()
+                .orElse(0);
+        map.values()
+                .forEach(values -> values.truncate(minListSize));
     }
 
     @Override
@@ -103,8 +110,7 @@ public class LatitudeLongitudeHandler extends BaseKlvHandler implements Trimmabl
                     klvDataElement);
             return;
         }
-        map.putIfAbsent(klvDataElement.getName(), new ArrayList<>());
-        map.get(klvDataElement.getName())
+        map.computeIfAbsent(klvDataElement.getName(), fieldName -> new DoubleArrayList())
                 .add(((KlvIntegerEncodedFloatingPoint) klvDataElement).getValue());
     }
 
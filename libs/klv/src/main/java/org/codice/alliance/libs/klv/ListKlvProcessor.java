@@ -13,8 +13,10 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import ddf.catalog.data.Metacard;
 
@@ -37,6 +39,14 @@ public class ListKlvProcessor implements KlvProcessor {
                 configuration));
     }
 
+    @Override
+    public Set<String> getRequiredFieldNames(Map<String, KlvHandler> handlers) {
+        Set<String> fieldNames = new HashSet<>();
+        klvProcessorList.forEach(klvProcessor -> fieldNames.addAll(
+                klvProcessor.getRequiredFieldNames(handlers)));
+        return fieldNames;
+    }
+
     @Override
     public void accept(Visitor visitor) {
         for (KlvProcessor klvProcessor : klvProcessorList) {
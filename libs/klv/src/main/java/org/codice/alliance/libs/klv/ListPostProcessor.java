@@ -13,8 +13,10 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.codice.ddf.libs.klv.KlvDataElement;
 
@@ -33,6 +35,14 @@ public class ListPostProcessor implements PostProcessor {
                 handlers));
     }
 
+    @Override
+    public Set<String> getRequiredFieldNames(Set<String> fieldNames) {
+        Set<String> requiredFieldNames = new HashSet<>();
+        postProcessorList.forEach(postProcessor -> requiredFieldNames.addAll(
+                postProcessor.getRequiredFieldNames(fieldNames)));
+        return requiredFieldNames;
+    }
+
     @Override
     public String toString() {
         return "ListPostProcessor{" +
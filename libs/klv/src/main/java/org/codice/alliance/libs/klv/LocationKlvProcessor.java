@@ -15,8 +15,11 @@ package org.codice.alliance.libs.klv;
 
 import static org.apache.commons.lang3.Validate.notNull;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,11 +35,25 @@ import ddf.catalog.data.impl.AttributeImpl;
  * Generate the location metadata based on the klv corner data. Callers must supply a
  * {@link Configuration} that contains a postive (&gt;0)
  * Integer for {@link Configuration#SUBSAMPLE_COUNT}.
+ * <p>
+ * When the configuration contains a positive Double for {@link Configuration#SUBSAMPLE_TOLERANCE},
+ * the footprints are subsampled adaptively before the union. A footprint is kept when one of its
+ * corners has moved more than the tolerance from the last kept footprint, or when
+ * {@link Configuration#SUBSAMPLE_MAX_GAP} footprints have been discarded in a row. The first and
+ * last footprints are always kept. If more than {@link Configuration#SUBSAMPLE_COUNT} footprints
+ * would be kept, the tolerance is doubled until they fit, so a slow platform keeps few footprints
+ * and a fast or turning platform keeps the footprints that change the location the most.
  */
 public class LocationKlvProcessor implements KlvProcessor {
 
     public static final Integer MIN_SUBSAMPLE_COUNT = 1;
 
+    /**
+     * The tolerance is doubled at most this many times to reduce the number of footprints to the
+     * subsample count. Any footprints that remain above the count are then evenly subsampled.
+     */
+    private static final int MAX_TOLERANCE_DOUBLINGS = 32;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(LocationKlvProcessor.class);
 
     private final GeometryOperator postUnionGeometryOperator;
@@ -84,10 +101,16 @@ public class LocationKlvProcessor implements KlvProcessor {
         }
 
         Integer subsampleCount = (Integer) configuration.get(Configuration.SUBSAMPLE_COUNT);
+        double tolerance = getDouble(configuration, Configuration.SUBSAMPLE_TOLERANCE);
+        int maxGap = getInteger(configuration, Configuration.SUBSAMPLE_MAX_GAP);
 
         find(handlers, AttributeNameConstants.CORNER).ifPresent(cornerHandler -> {
             if (cornerHandler instanceof GeoBoxHandler) {
-                subsample((GeoBoxHandler) cornerHandler, subsampleCount).asAttribute()
+                GeoBoxHandler geoBoxHandler = (GeoBoxHandler) cornerHandler;
+                GeoBoxHandler subsampled = tolerance > 0 ?
+                        adaptiveSubsample(geoBoxHandler, subsampleCount, tolerance, maxGap) :
+                        subsample(geoBoxHandler, subsampleCount);
+                subsampled.asAttribute()
                         .ifPresent(attribute -> setLocationFromCornerAttribute(metacard,
                                 attribute));
             }
@@ -95,6 +118,13 @@ public class LocationKlvProcessor implements KlvProcessor {
 
     }
 
+    @Override
+    public Set<String> getRequiredFieldNames(Map<String, KlvHandler> handlers) {
+        return Utilities.findFieldNames(handlers,
+                find(handlers, AttributeNameConstants.CORNER).map(Collections::singletonList)
+                        .orElse(Collections.emptyList()));
+    }
+
     @Override
     public void accept(Visitor visitor) {
         visitor.visit(this);
@@ -115,6 +145,138 @@ public class LocationKlvProcessor implements KlvProcessor {
 
     }
 
+    private static double getDouble(Configuration configuration, String name) {
+        Object value = configuration.get(name);
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    private static int getInteger(Configuration configuration, String name) {
+        Object value = configuration.get(name);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    /**
+     * Keep the footprints that differ from the previously kept footprint by more than the
+     * tolerance. See the class documentation for details.
+     *
+     * @param geoBoxHandler  the footprints
+     * @param subsampleCount the maximum number of footprints to keep, must be &gt;0
+     * @param tolerance      the distance in degrees, must be &gt;0
+     * @param maxGap         the maximum number of consecutive footprints to discard, or &lt;=0 for
+     *                       no limit
+     * @return a handler with the kept footprints, or the original handler if every footprint is
+     * kept
+     */
+    GeoBoxHandler adaptiveSubsample(GeoBoxHandler geoBoxHandler, int subsampleCount,
+            double tolerance, int maxGap) {
+
+        String[] fieldNames = {geoBoxHandler.getLatitude1(), geoBoxHandler.getLongitude1(),
+                geoBoxHandler.getLatitude2(), geoBoxHandler.getLongitude2(),
+                geoBoxHandler.getLatitude3(), geoBoxHandler.getLongitude3(),
+                geoBoxHandler.getLatitude4(), geoBoxHandler.getLongitude4()};
+
+        double[][] coordinates = new double[fieldNames.length][];
+        for (int i = 0; i < fieldNames.length; i++) {
+            coordinates[i] = geoBoxHandler.getValues(fieldNames[i]);
+            if (coordinates[i] == null) {
+                return geoBoxHandler;
+            }
+        }
+
+        int size = Arrays.stream(coordinates)
+                .mapToInt(values -> values.length)
+                .min()
+                .orElse(0);
+
+        if (size <= 2) {
+            return geoBoxHandler;
+        }
+
+        double currentTolerance = tolerance;
+        int[] kept = selectFootprints(coordinates, size, currentTolerance, maxGap);
+        for (int i = 0; i < MAX_TOLERANCE_DOUBLINGS && kept.length > subsampleCount; i++) {
+            currentTolerance *= 2;
+            kept = selectFootprints(coordinates, size, currentTolerance, maxGap);
+        }
+
+        if (kept.length > subsampleCount) {
+            // spread the indices from the first to the last kept footprint
+            int[] evenlySpaced = new int[subsampleCount];
+            for (int i = 0; i < subsampleCount; i++) {
+                evenlySpaced[i] = subsampleCount == 1 ?
+                        kept[0] :
+                        kept[(int) ((long) i * (kept.length - 1) / (subsampleCount - 1))];
+            }
+            kept = evenlySpaced;
+        }
+
+        LOGGER.debug("adaptive subsampling kept {} of {} footprints: tolerance={}",
+                kept.length,
+                size,
+                currentTolerance);
+
+        if (kept.length == size) {
+            return geoBoxHandler;
+        }
+
+        GeoBoxHandler out = new GeoBoxHandler(geoBoxHandler.getAttributeName(),
+                geoBoxHandler.getLatitude1(),
+                geoBoxHandler.getLongitude1(),
+                geoBoxHandler.getLatitude2(),
+                geoBoxHandler.getLongitude2(),
+                geoBoxHandler.getLatitude3(),
+                geoBoxHandler.getLongitude3(),
+                geoBoxHandler.getLatitude4(),
+                geoBoxHandler.getLongitude4());
+
+        for (int index : kept) {
+            out.accept(geoBoxHandler.getLatitude1(), coordinates[0][index]);
+            out.accept(geoBoxHandler.getLongitude1(), coordinates[1][index]);
+            out.accept(geoBoxHandler.getLatitude2(), coordinates[2][index]);
+            out.accept(geoBoxHandler.getLongitude2(), coordinates[3][index]);
+            out.accept(geoBoxHandler.getLatitude3(), coordinates[4][index]);
+            out.accept(geoBoxHandler.getLongitude3(), coordinates[5][index]);
+            out.accept(geoBoxHandler.getLatitude4(), coordinates[6][index]);
+            out.accept(geoBoxHandler.getLongitude4(), coordinates[7][index]);
+        }
+
+        return out;
+    }
+
+    /**
+     * @param coordinates the latitude and longitude values of the four corners, in pairs
+     * @return the indices of the kept footprints in ascending order
+     */
+    private static int[] selectFootprints(double[][] coordinates, int size, double tolerance,
+            int maxGap) {
+        int[] kept = new int[size];
+        int keptCount = 0;
+        int lastKept = 0;
+        kept[keptCount++] = 0;
+
+        for (int i = 1; i < size - 1; i++) {
+            if ((maxGap > 0 && i - lastKept > maxGap)
+                    || maxCornerDistance(coordinates, lastKept, i) > tolerance) {
+                kept[keptCount++] = i;
+                lastKept = i;
+            }
+        }
+
+        kept[keptCount++] = size - 1;
+
+        return Arrays.copyOf(kept, keptCount);
+    }
+
+    private static double maxCornerDistance(double[][] coordinates, int from, int to) {
+        double max = 0;
+        for (int corner = 0; corner < coordinates.length; corner += 2) {
+            double deltaLatitude = coordinates[corner][to] - coordinates[corner][from];
+            double deltaLongitude = coordinates[corner + 1][to] - coordinates[corner + 1][from];
+            max = Math.max(max, Math.hypot(deltaLatitude, deltaLongitude));
+        }
+        return max;
+    }
+
     GeoBoxHandler subsample(GeoBoxHandler geoBoxHandler, Integer subsampleCount) {
 
         if (geoBoxHandler.getRawGeoData()
@@ -15,6 +15,7 @@ package org.codice.alliance.libs.klv;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import ddf.catalog.data.Attribute;
@@ -40,6 +41,11 @@ public abstract class MultipleFieldKlvProcessor implements KlvProcessor {
 
     }
 
+    @Override
+    public Set<String> getRequiredFieldNames(Map<String, KlvHandler> handlers) {
+        return Utilities.findFieldNames(handlers, findKlvHandlers(handlers));
+    }
+
     private void callFirstHandler(Metacard metacard, List<KlvHandler> stanagHandlers) {
         stanagHandlers.stream()
                 .findFirst()
@@ -13,7 +13,9 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 
 import org.codice.ddf.libs.klv.KlvDataElement;
 
@@ -33,4 +35,15 @@ public interface PostProcessor {
      */
     void postProcess(Map<String, KlvDataElement> dataElements, Map<String, KlvHandler> handlers);
 
+    /**
+     * Get the names of the additional STANAG fields that this post processor reads in order to
+     * supply values for the given fields. The default implementation returns an empty set.
+     *
+     * @param fieldNames the names of the STANAG fields that are required by the klv processors
+     * @return non-null set of STANAG field names
+     */
+    default Set<String> getRequiredFieldNames(Set<String> fieldNames) {
+        return Collections.emptySet();
+    }
+
 }
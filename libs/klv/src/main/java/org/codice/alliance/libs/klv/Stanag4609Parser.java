@@ -15,9 +15,34 @@ package org.codice.alliance.libs.klv;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 
 import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
 
 public interface Stanag4609Parser {
+
+    /**
+     * Parse the whole stream and return every decoded packet. All of the packets are held in
+     * memory, so prefer {@link #parse(BiConsumer)} for large streams.
+     *
+     * @return a {@link Map} whose keys are the packet IDs of the metadata streams and whose values
+     * are the decoded KLV metadata packets belonging to that stream
+     * @throws Stanag4609ParseException
+     */
     Map<Integer, List<DecodedKLVMetadataPacket>> parse() throws Stanag4609ParseException;
+
+    /**
+     * Parse the stream and pass each decoded packet to the callback as soon as it is found. The
+     * default implementation calls {@link #parse()}, implementations that can stream the packets
+     * should override it.
+     *
+     * @param callback called with the packet ID of the metadata stream and the decoded packet,
+     *                 must be non-null
+     * @throws Stanag4609ParseException
+     */
+    default void parse(BiConsumer<Integer, DecodedKLVMetadataPacket> callback)
+            throws Stanag4609ParseException {
+        parse().forEach((packetId, packets) -> packets.forEach(packet -> callback.accept(packetId,
+                packet)));
+    }
 }
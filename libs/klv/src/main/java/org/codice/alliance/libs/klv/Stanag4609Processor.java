@@ -15,6 +15,8 @@ package org.codice.alliance.libs.klv;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
 import org.codice.ddf.libs.klv.KlvContext;
@@ -23,12 +25,47 @@ import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
 
 /**
  * Handle the various KLV data elements/structures that returned by the STANAG 4609 parser. The
- * main entry point is {@link #handle(Map, KlvHandler, Map)}.
+ * main entry points are {@link #handle(Map, KlvHandler, Map)} and, for streamed packets,
+ * {@link #handle(Map, KlvHandler, DecodedKLVMetadataPacket)}.
  */
 public interface Stanag4609Processor {
     void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHander,
             Map<Integer, List<DecodedKLVMetadataPacket>> stanagMetadata);
 
+    /**
+     * Handle a single packet, so packets can be passed to the handlers as they are parsed instead
+     * of being collected first. Handling every packet of a stream with this method is equivalent
+     * to {@link #handle(Map, KlvHandler, Map)}.
+     */
+    void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHandler,
+            DecodedKLVMetadataPacket decodedKLVMetadataPacket);
+
+    /**
+     * Create a packet handler that is bound to a set of handlers. Implementations may resolve the
+     * handler of each data element once, when the packet handler is created, instead of for each
+     * packet. Passing every packet of a stream to the packet handler is equivalent to
+     * {@link #handle(Map, KlvHandler, DecodedKLVMetadataPacket)}. The handlers must not be
+     * modified while the packet handler is in use, and the packet handler is not thread-safe.
+     */
+    default Consumer<DecodedKLVMetadataPacket> createPacketHandler(
+            Map<String, KlvHandler> handlers, KlvHandler defaultHandler) {
+        return decodedKLVMetadataPacket -> handle(handlers,
+                defaultHandler,
+                decodedKLVMetadataPacket);
+    }
+
+    /**
+     * Get the names of the STANAG fields that must be decoded so that the handlers of the given
+     * fields receive all of their data, including the fields that are only used to calculate the
+     * values of other fields. The default implementation returns the given fields.
+     *
+     * @param fieldNames the names of the STANAG fields that are required by the klv processors
+     * @return non-null set of STANAG field names
+     */
+    default Set<String> getRequiredFieldNames(Set<String> fieldNames) {
+        return fieldNames;
+    }
+
     void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHandler, KlvContext klvContext,
             Map<String, KlvDataElement> dataElements);
 
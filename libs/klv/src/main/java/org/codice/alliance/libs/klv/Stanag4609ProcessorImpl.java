@@ -13,11 +13,17 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.apache.commons.lang3.Validate.notNull;
+
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.codice.ddf.libs.klv.KlvContext;
 import org.codice.ddf.libs.klv.KlvDataElement;
 import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
@@ -26,13 +32,29 @@ public class Stanag4609ProcessorImpl implements Stanag4609Processor {
 
     private PostProcessor postProcessor;
 
+    private final KlvContext klvContextDefinition;
+
+    /**
+     * Dispatch the KLV that is decoded by {@link Stanag4609TransportStreamParser}.
+     */
     public Stanag4609ProcessorImpl(PostProcessor postProcessor) {
+        this(postProcessor, Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT);
+    }
+
+    /**
+     * @param postProcessor        called after each klv metadata packet
+     * @param klvContextDefinition the context that the KLV is decoded with, used to resolve the
+     *                             handler of each tag once (must be non-null)
+     */
+    public Stanag4609ProcessorImpl(PostProcessor postProcessor, KlvContext klvContextDefinition) {
+        notNull(klvContextDefinition, "klvContextDefinition must be non-null");
         this.postProcessor = postProcessor;
+        this.klvContextDefinition = klvContextDefinition;
     }
 
     /**
      * Iterate through the STANAG 4609 metadata and pass each {@link DecodedKLVMetadataPacket}
-     * to {@link #handle(Map, KlvHandler, KlvContext, Map)}.
+     * to a packet handler created by {@link #createPacketHandler(Map, KlvHandler)}.
      *
      * @param handlers       map of klv handers
      * @param stanagMetadata list of klv metadata packets
@@ -41,22 +63,52 @@ public class Stanag4609ProcessorImpl implements Stanag4609Processor {
     public void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHander,
             Map<Integer, List<DecodedKLVMetadataPacket>> stanagMetadata) {
 
-        stanagMetadata.values()
-                .stream()
-                .flatMap(List::stream)
-                .forEach(decodedKLVMetadataPacket -> {
+        Consumer<DecodedKLVMetadataPacket> packetHandler = createPacketHandler(handlers,
+                defaultHander);
+
+        for (List<DecodedKLVMetadataPacket> decodedKLVMetadataPackets : stanagMetadata.values()) {
+            decodedKLVMetadataPackets.forEach(packetHandler);
+        }
+
+    }
+
+    /**
+     * The handler of each tag of the context definition is resolved when the packet handler is
+     * created, and the data elements of each packet are passed straight to the resolved handlers.
+     * Data elements that are not in the definition are handled by name.
+     */
+    @Override
+    public Consumer<DecodedKLVMetadataPacket> createPacketHandler(
+            Map<String, KlvHandler> handlers, KlvHandler defaultHandler) {
+        return new KlvTagDispatcher(klvContextDefinition, handlers, defaultHandler, postProcessor);
+    }
 
-                    Map<String, KlvDataElement> dataElements = new HashMap<>();
+    /**
+     * The post processor may read additional fields to calculate the values of the given fields.
+     */
+    @Override
+    public Set<String> getRequiredFieldNames(Set<String> fieldNames) {
+        Set<String> requiredFieldNames = new HashSet<>(fieldNames);
+        requiredFieldNames.addAll(postProcessor.getRequiredFieldNames(fieldNames));
+        return requiredFieldNames;
+    }
 
-                    handle(handlers,
-                            defaultHander,
-                            decodedKLVMetadataPacket.getDecodedKLV(),
-                            dataElements);
+    /**
+     * Pass the {@link DecodedKLVMetadataPacket} to {@link #handle(Map, KlvHandler, KlvContext, Map)}
+     * and then post-process the data elements of the packet. Nothing is retained between calls.
+     *
+     * @param handlers                 map of klv handers
+     * @param decodedKLVMetadataPacket klv metadata packet
+     */
+    @Override
+    public void handle(Map<String, KlvHandler> handlers, KlvHandler defaultHandler,
+            DecodedKLVMetadataPacket decodedKLVMetadataPacket) {
 
-                    postProcessor.postProcess(dataElements, handlers);
+        Map<String, KlvDataElement> dataElements = new HashMap<>();
 
-                });
+        handle(handlers, defaultHandler, decodedKLVMetadataPacket.getDecodedKLV(), dataElements);
 
+        postProcessor.postProcess(dataElements, handlers);
     }
 
     /**
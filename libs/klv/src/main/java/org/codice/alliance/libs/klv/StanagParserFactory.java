@@ -13,10 +13,45 @@
  */
 package org.codice.alliance.libs.klv;
 
+import java.util.concurrent.Executor;
+
+import org.codice.ddf.libs.klv.KlvContext;
+
 import com.google.common.io.ByteSource;
 
 public interface StanagParserFactory {
 
     Stanag4609Parser createParser(ByteSource byteSource);
 
+    /**
+     * Create a parser that only decodes the data elements that are defined by the KLV context, see
+     * {@link org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser#createUasDatalinkLocalSetContext(java.util.Set)}.
+     * The default implementation ignores the context, so it may decode more data elements.
+     *
+     * @param byteSource must be non-null
+     * @param klvContext the KLV context definition, must be non-null
+     * @return non-null parser
+     */
+    default Stanag4609Parser createParser(ByteSource byteSource, KlvContext klvContext) {
+        return createParser(byteSource);
+    }
+
+    /**
+     * Create a parser that decodes the data elements that are defined by the KLV context on the
+     * executor. The decoded packets must be passed to the callback in the same order as the parser
+     * returned by {@link #createParser(ByteSource, KlvContext)}. The default implementation
+     * ignores the executor.
+     *
+     * @param byteSource        must be non-null
+     * @param klvContext        the KLV context definition, must be non-null
+     * @param decodeExecutor    runs the decoding tasks, must be non-null
+     * @param maxPendingPackets the maximum number of packets that are decoding or waiting to be
+     *                          passed to the callback, must be &gt;0
+     * @return non-null parser
+     */
+    default Stanag4609Parser createParser(ByteSource byteSource, KlvContext klvContext,
+            Executor decodeExecutor, int maxPendingPackets) {
+        return createParser(byteSource, klvContext);
+    }
+
 }
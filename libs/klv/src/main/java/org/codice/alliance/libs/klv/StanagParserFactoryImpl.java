@@ -13,22 +13,73 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
 import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvContext;
 
 import com.google.common.io.ByteSource;
 
 /**
  * This factory returns a {@link Stanag4609Parser} that uses {@link Stanag4609TransportStreamParser}.
+ * The parser streams the decoded packets when {@link Stanag4609Parser#parse(BiConsumer)} is used.
  */
 public class StanagParserFactoryImpl implements StanagParserFactory {
 
     @Override
     public Stanag4609Parser createParser(ByteSource byteSource) {
-        return () -> {
-            try {
-                return new Stanag4609TransportStreamParser(byteSource).parse();
-            } catch (Exception e) {
-                throw new Stanag4609ParseException("unable to parse stanag 4609 data", e);
+        return createParser(() -> new Stanag4609TransportStreamParser(byteSource));
+    }
+
+    @Override
+    public Stanag4609Parser createParser(ByteSource byteSource, KlvContext klvContext) {
+        notNull(klvContext, "klvContext must be non-null");
+        return createParser(() -> new Stanag4609TransportStreamParser(byteSource, klvContext));
+    }
+
+    @Override
+    public Stanag4609Parser createParser(ByteSource byteSource, KlvContext klvContext,
+            Executor decodeExecutor, int maxPendingPackets) {
+        notNull(klvContext, "klvContext must be non-null");
+        notNull(decodeExecutor, "decodeExecutor must be non-null");
+        isTrue(maxPendingPackets > 0, "maxPendingPackets must be >0");
+        return createParser(() -> new Stanag4609TransportStreamParser(byteSource,
+                klvContext,
+                decodeExecutor,
+                maxPendingPackets));
+    }
+
+    private Stanag4609Parser createParser(
+            Supplier<Stanag4609TransportStreamParser> parserSupplier) {
+        return new Stanag4609Parser() {
+            @Override
+            public Map<Integer, List<DecodedKLVMetadataPacket>> parse()
+                    throws Stanag4609ParseException {
+                try {
+                    return parserSupplier.get()
+                            .parse();
+                } catch (Exception e) {
+                    throw new Stanag4609ParseException("unable to parse stanag 4609 data", e);
+                }
+            }
+
+            @Override
+            public void parse(BiConsumer<Integer, DecodedKLVMetadataPacket> callback)
+                    throws Stanag4609ParseException {
+                try {
+                    parserSupplier.get()
+                            .parse(callback);
+                } catch (Exception e) {
+                    throw new Stanag4609ParseException("unable to parse stanag 4609 data", e);
+                }
             }
         };
     }
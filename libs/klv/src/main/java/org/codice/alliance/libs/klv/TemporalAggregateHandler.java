@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.ddf.libs.klv.KlvDataElement;
+import org.codice.ddf.libs.klv.data.numerical.KlvLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ddf.catalog.data.Attribute;
+
+/**
+ * This handler expects dates as microseconds since epoch. Unlike {@link ListOfDatesHandler}, it
+ * does not keep every date. It keeps the first and last dates, plus an optional stride sample of
+ * at most {@code sampleSize} dates, so the memory use does not depend on the number of dates. The
+ * generated attribute starts with the first date and ends with the last date, with the sampled
+ * dates in between, in the order they were received.
+ * <p>
+ * The stride sample keeps every n-th date. When the sample is full, every other sampled date is
+ * discarded and n is doubled, so the sample always spans the dates received so far.
+ */
+class TemporalAggregateHandler extends BaseKlvHandler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TemporalAggregateHandler.class);
+
+    private final long[] samples;
+
+    private int sampleCount;
+
+    private long stride = 1;
+
+    private long count;
+
+    private long first;
+
+    private long last;
+
+    /**
+     * Only keep the first and last dates.
+     */
+    TemporalAggregateHandler(String attributeName) {
+        this(attributeName, 0);
+    }
+
+    /**
+     * @param sampleSize the maximum number of sampled dates, must be &gt;=0
+     */
+    TemporalAggregateHandler(String attributeName, int sampleSize) {
+        super(attributeName);
+        isTrue(sampleSize >= 0, "sampleSize must be >=0");
+        samples = new long[sampleSize];
+    }
+
+    @Override
+    public Optional<Attribute> asAttribute() {
+        if (count == 0) {
+            return Optional.empty();
+        }
+
+        List<Date> dates = new ArrayList<>(sampleCount + 2);
+        dates.add(new Date(first));
+        // the first sample is always the first date
+        for (int i = 1; i < sampleCount; i++) {
+            dates.add(new Date(samples[i]));
+        }
+        if (count > 1 && !isLastSampled()) {
+            dates.add(new Date(last));
+        }
+
+        return asAttribute(dates);
+    }
+
+    private boolean isLastSampled() {
+        return sampleCount > 0 && (count - 1) == (sampleCount - 1) * stride;
+    }
+
+    @Override
+    public void accept(KlvDataElement klvDataElement) {
+        if (!(klvDataElement instanceof KlvLong)) {
+            LOGGER.debug(
+                    "non-KlvLong data was passed to the TemporalAggregateHandler: name = {} klvDataElement = {}",
+                    klvDataElement.getName(),
+                    klvDataElement);
+            return;
+        }
+        add(TimeUnit.MICROSECONDS.toMillis(((KlvLong) klvDataElement).getValue()));
+    }
+
+    private void add(long millis) {
+        if (count == 0) {
+            first = millis;
+        }
+        last = millis;
+
+        if (samples.length > 0) {
+            while (sampleCount == samples.length && count % stride == 0) {
+                halveSamples();
+            }
+            if (count % stride == 0) {
+                samples[sampleCount++] = millis;
+            }
+        }
+
+        count++;
+    }
+
+    /**
+     * Keep the samples at even positions and double the stride. The first sample is always kept.
+     */
+    private void halveSamples() {
+        int kept = 0;
+        for (int i = 0; i < sampleCount; i += 2) {
+            samples[kept++] = samples[i];
+        }
+        sampleCount = kept;
+        stride *= 2;
+    }
+
+    @Override
+    public void reset() {
+        sampleCount = 0;
+        stride = 1;
+        count = 0;
+    }
+
+}
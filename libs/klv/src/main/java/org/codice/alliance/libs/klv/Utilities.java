@@ -16,7 +16,11 @@ package org.codice.alliance.libs.klv;
 import static org.apache.commons.lang.Validate.notNull;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -38,6 +42,24 @@ public class Utilities {
         return !isEmptyString(serializable);
     }
 
+    /**
+     * Find every STANAG field name that is mapped to one of the given handlers. A handler may be
+     * mapped to several fields, for example the latitude and the longitude of a location.
+     *
+     * @param handlers         map of STANAG field names to handlers
+     * @param selectedHandlers the handlers that are read
+     * @return the field names of the selected handlers
+     */
+    static Set<String> findFieldNames(Map<String, KlvHandler> handlers,
+            Collection<KlvHandler> selectedHandlers) {
+        return handlers.entrySet()
+                .stream()
+                .filter(entry -> selectedHandlers.stream()
+                        .anyMatch(handler -> handler == entry.getValue()))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
     static void safelySetAttribute(Metacard metacard, Attribute attribute) {
         notNull(attribute, "Attribute cannot be null");
         safelySetAttribute(metacard, attribute.getName(), attribute.getValues());
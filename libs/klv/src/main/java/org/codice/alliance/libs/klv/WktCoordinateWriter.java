@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import java.util.Locale;
+
+/**
+ * Writes WKT points and polygons from primitive coordinates into a reused buffer. Ordinates are
+ * written with six fractional digits, which is the output of {@code String.format("%f")} in the
+ * root locale, without creating a formatter and boxing the values for each geometry. Ordinates
+ * that are not finite, are very large or fall close to a rounding tie are delegated to
+ * {@link String#format(Locale, String, Object...)} so the output is always identical. This class
+ * is not thread-safe.
+ */
+class WktCoordinateWriter {
+
+    private static final long SCALE = 1_000_000L;
+
+    /**
+     * Ordinates below this magnitude are scaled exactly enough for the fast path.
+     */
+    private static final double MAX_FAST_MAGNITUDE = 100_000d;
+
+    private static final double TIE_TOLERANCE = 1e-4;
+
+    private final StringBuilder builder = new StringBuilder(192);
+
+    private boolean firstCoordinate;
+
+    /**
+     * @return a WKT point such as {@code POINT (1.000000 2.000000)}
+     */
+    String point(double x, double y) {
+        builder.setLength(0);
+        builder.append("POINT (");
+        appendCoordinate(x, y);
+        builder.append(')');
+        return builder.toString();
+    }
+
+    /**
+     * Start a polygon with a single ring. Add the coordinates of the ring with
+     * {@link #addCoordinate(double, double)} and finish with {@link #endPolygon()}.
+     */
+    void startPolygon() {
+        builder.setLength(0);
+        builder.append("POLYGON ((");
+        firstCoordinate = true;
+    }
+
+    void addCoordinate(double x, double y) {
+        if (!firstCoordinate) {
+            builder.append(", ");
+        }
+        firstCoordinate = false;
+        appendCoordinate(x, y);
+    }
+
+    /**
+     * @return the WKT polygon, the caller is responsible for closing the ring
+     */
+    String endPolygon() {
+        builder.append("))");
+        return builder.toString();
+    }
+
+    private void appendCoordinate(double x, double y) {
+        appendOrdinate(builder, x);
+        builder.append(' ');
+        appendOrdinate(builder, y);
+    }
+
+    static void appendOrdinate(StringBuilder stringBuilder, double value) {
+
+        double magnitude = Math.abs(value);
+
+        if (!(magnitude < MAX_FAST_MAGNITUDE)) {
+            stringBuilder.append(String.format(Locale.ROOT, "%f", value));
+            return;
+        }
+
+        double scaled = magnitude * SCALE;
+        if (Math.abs(scaled - Math.floor(scaled) - 0.5) < TIE_TOLERANCE) {
+            stringBuilder.append(String.format(Locale.ROOT, "%f", value));
+            return;
+        }
+
+        long rounded = Math.round(scaled);
+
+        if (Double.doubleToRawLongBits(value) < 0) {
+            stringBuilder.append('-');
+        }
+
+        long fraction = rounded % SCALE;
+
+        stringBuilder.append(rounded / SCALE)
+                .append('.');
+
+        for (long digit = SCALE / 10; digit > 1 && fraction < digit; digit /= 10) {
+            stringBuilder.append('0');
+        }
+
+        stringBuilder.append(fraction);
+    }
+
+}
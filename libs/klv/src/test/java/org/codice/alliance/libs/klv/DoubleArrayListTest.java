@@ -0,0 +1,80 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class DoubleArrayListTest {
+
+    @Test
+    public void testGrow() {
+        DoubleArrayList doubleArrayList = new DoubleArrayList(0);
+        for (int i = 0; i < 100; i++) {
+            doubleArrayList.add(i);
+        }
+        assertThat(doubleArrayList.size(), is(100));
+        assertThat(doubleArrayList.get(99), is(99.0));
+    }
+
+    @Test
+    public void testTruncate() {
+        DoubleArrayList doubleArrayList = createList(1, 2, 3);
+        doubleArrayList.truncate(5);
+        assertThat(doubleArrayList.size(), is(3));
+        doubleArrayList.truncate(1);
+        assertThat(doubleArrayList.toArray(), is(new double[] {1}));
+    }
+
+    @Test
+    public void testClear() {
+        DoubleArrayList doubleArrayList = createList(1, 2);
+        doubleArrayList.clear();
+        assertThat(doubleArrayList.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testAsList() {
+        DoubleArrayList doubleArrayList = createList(1, 2);
+        assertThat(doubleArrayList.asList(), contains(1.0, 2.0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetPastSize() {
+        createList(1, 2).get(2);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAsListIsReadOnly() {
+        createList(1).asList()
+                .add(2.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCapacity() {
+        new DoubleArrayList(-1);
+    }
+
+    private DoubleArrayList createList(double... values) {
+        DoubleArrayList doubleArrayList = new DoubleArrayList();
+        for (double value : values) {
+            doubleArrayList.add(value);
+        }
+        return doubleArrayList;
+    }
+
+}
@@ -147,6 +147,30 @@ public class GeoBoxHandlerTest {
 
     }
 
+    /**
+     * Polygons are only generated when all of the corners are present.
+     */
+    @Test
+    public void testAcceptDataWithMissingCorner() {
+
+        geoBoxHandler.accept(LAT1, 1.0);
+        geoBoxHandler.accept(LON1, 2.0);
+        geoBoxHandler.accept(LAT2, 3.0);
+
+        assertThat(geoBoxHandler.asAttribute()
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void testReset() {
+
+        geoBoxHandler.accept(LAT1, 1.0);
+        geoBoxHandler.reset();
+
+        assertThat(geoBoxHandler.getRawGeoData()
+                .isEmpty(), is(true));
+    }
+
     @Test
     public void testTrim() throws KlvDecodingException {
 
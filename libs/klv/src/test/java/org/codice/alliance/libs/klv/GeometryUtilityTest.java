@@ -13,20 +13,26 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.PrecisionModel;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.io.WKTWriter;
+import com.vividsolutions.jts.precision.GeometryPrecisionReducer;
 
 import ddf.catalog.data.Attribute;
 import ddf.catalog.data.impl.AttributeImpl;
@@ -150,4 +156,82 @@ public class GeometryUtilityTest {
 
     }
 
+    /**
+     * The cascaded union must be topologically equivalent to unioning the footprints one at a time.
+     */
+    @Test
+    public void testUnionMatchesPairwiseUnion() throws ParseException {
+
+        List<String> wkts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            double x = i * 0.3;
+            double y = Math.sin(i * 0.1) * 5;
+            wkts.add(String.format(Locale.US,
+                    "POLYGON (( %f %f, %f %f, %f %f, %f %f, %f %f ))",
+                    x,
+                    y,
+                    x + 1,
+                    y + 0.2,
+                    x + 0.8,
+                    y + 1.2,
+                    x - 0.2,
+                    y + 1,
+                    x,
+                    y));
+        }
+        // a footprint that does not touch the others
+        wkts.add("POLYGON (( 100 100, 101 100, 101 101, 100 101, 100 100 ))");
+
+        Geometry expected = wkts.stream()
+                .map(wkt -> GeometryUtility.wktToGeometry(wkt, wktReader)
+                        .get())
+                .reduce(Geometry::union)
+                .get();
+
+        Geometry actual = wktReader.read(GeometryUtility.createUnionOfGeometryAttribute(wktReader,
+                wktWriter,
+                new AttributeImpl(FIELD, new ArrayList<>(wkts)))
+                .get());
+
+        assertThat(actual.getNumGeometries(), is(expected.getNumGeometries()));
+        assertThat(actual.getArea(), is(closeTo(expected.getArea(), 1e-6)));
+        assertThat(actual.symDifference(expected)
+                .getArea(), is(closeTo(0, 1e-6)));
+
+    }
+
+    @Test
+    public void testUnionWithPreUnionOperator() throws ParseException {
+
+        Attribute attribute = new AttributeImpl(FIELD,
+                Arrays.asList("POLYGON (( 0 0, 10 0, 10 10, 0 10, 0 0))",
+                        "POLYGON (( 10.0000001 0, 20 0, 20 10, 10.0000001 10, 10.0000001 0))"));
+
+        Optional<String> optionalWkt = GeometryUtility.createUnionOfGeometryAttribute(wktReader,
+                wktWriter,
+                attribute,
+                GeometryOperator.IDENTITY,
+                new GeometryOperator() {
+                    @Override
+                    public Geometry apply(Geometry geometry) {
+                        return GeometryPrecisionReducer.reduce(geometry, new PrecisionModel(1000));
+                    }
+
+                    @Override
+                    public void accept(Visitor visitor) {
+
+                    }
+                });
+
+        Geometry actual = wktReader.read(optionalWkt.get())
+                .norm();
+
+        Geometry expected = wktReader.read("POLYGON (( 0 0, 20 0, 20 10, 0 10, 0 0))")
+                .norm();
+
+        assertThat(actual.getNumGeometries(), is(1));
+        assertThat(actual.getArea(), is(closeTo(expected.getArea(), 1e-9)));
+
+    }
+
 }
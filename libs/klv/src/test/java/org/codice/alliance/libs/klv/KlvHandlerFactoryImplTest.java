@@ -13,11 +13,13 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
 import java.util.Map;
 
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.junit.Test;
 
 public class KlvHandlerFactoryImplTest {
@@ -33,4 +35,21 @@ public class KlvHandlerFactoryImplTest {
 
     }
 
+    @Test
+    public void testDateHandlers() {
+
+        KlvHandlerFactoryImpl klvHandlerFactory = new KlvHandlerFactoryImpl();
+
+        assertThat(klvHandlerFactory.createStanag4609Handlers()
+                        .get(Stanag4609TransportStreamParser.TIMESTAMP),
+                is(instanceOf(TemporalAggregateHandler.class)));
+
+        klvHandlerFactory.setAggregateDates(false);
+
+        assertThat(klvHandlerFactory.createStanag4609Handlers()
+                        .get(Stanag4609TransportStreamParser.TIMESTAMP),
+                is(instanceOf(ListOfDatesHandler.class)));
+
+    }
+
 }
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.codice.ddf.libs.klv.KlvContext;
+import org.codice.ddf.libs.klv.KlvDataElement;
+import org.codice.ddf.libs.klv.KlvDecodingException;
+import org.codice.ddf.libs.klv.data.Klv;
+import org.codice.ddf.libs.klv.data.numerical.KlvIntegerEncodedFloatingPoint;
+import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KlvTagDispatcherTest {
+
+    private static final String FIELD_NAME = "field";
+
+    private static final String OTHER_FIELD_NAME = "other";
+
+    private static final String LOCAL_SET_NAME = "local set";
+
+    private PostProcessor postProcessor;
+
+    private KlvHandler klvHandler;
+
+    private KlvHandler defaultKlvHandler;
+
+    private KlvIntegerEncodedFloatingPoint klvIntegerEncodedFloatingPoint;
+
+    private Map<String, KlvHandler> handlers;
+
+    @Before
+    public void setup() throws KlvDecodingException {
+        postProcessor = mock(PostProcessor.class);
+        klvHandler = mock(KlvHandler.class);
+        defaultKlvHandler = mock(KlvHandler.class);
+        klvIntegerEncodedFloatingPoint = KlvUtilities.createTestFloat(FIELD_NAME, 100);
+        handlers = Collections.singletonMap(FIELD_NAME, klvHandler);
+    }
+
+    @Test
+    public void testDispatchByTag() {
+
+        KlvTagDispatcher klvTagDispatcher = new KlvTagDispatcher(createContext(
+                klvIntegerEncodedFloatingPoint), handlers, defaultKlvHandler, postProcessor);
+
+        klvTagDispatcher.accept(createPacket(createContext(klvIntegerEncodedFloatingPoint)));
+
+        verify(klvHandler).accept(klvIntegerEncodedFloatingPoint);
+        verify(postProcessor).postProcess(Collections.singletonMap(FIELD_NAME,
+                klvIntegerEncodedFloatingPoint), handlers);
+    }
+
+    /**
+     * Data elements that are not in the definition are handled by name.
+     */
+    @Test
+    public void testDispatchUnknownElement() throws KlvDecodingException {
+
+        KlvIntegerEncodedFloatingPoint otherElement =
+                KlvUtilities.createTestFloat(OTHER_FIELD_NAME, 50);
+
+        KlvTagDispatcher klvTagDispatcher = new KlvTagDispatcher(createContext(),
+                handlers,
+                defaultKlvHandler,
+                postProcessor);
+
+        klvTagDispatcher.accept(createPacket(createContext(klvIntegerEncodedFloatingPoint)));
+        klvTagDispatcher.accept(createPacket(createContext(otherElement)));
+
+        verify(klvHandler).accept(klvIntegerEncodedFloatingPoint);
+        verify(defaultKlvHandler).accept(otherElement);
+    }
+
+    /**
+     * The tag of the other element is the same as the tag in the definition, but the name is not.
+     */
+    @Test
+    public void testDispatchNameMismatch() throws KlvDecodingException {
+
+        KlvIntegerEncodedFloatingPoint otherElement =
+                KlvUtilities.createTestFloat(OTHER_FIELD_NAME, 50);
+
+        KlvTagDispatcher klvTagDispatcher = new KlvTagDispatcher(createContext(
+                klvIntegerEncodedFloatingPoint), handlers, defaultKlvHandler, postProcessor);
+
+        klvTagDispatcher.accept(createPacket(createContext(otherElement)));
+
+        verify(klvHandler, never()).accept(any());
+        verify(defaultKlvHandler).accept(otherElement);
+    }
+
+    @Test
+    public void testDispatchLocalSet() {
+
+        KlvTagDispatcher klvTagDispatcher = new KlvTagDispatcher(createContext(createLocalSet(
+                createContext(klvIntegerEncodedFloatingPoint))),
+                handlers,
+                defaultKlvHandler,
+                postProcessor);
+
+        klvTagDispatcher.accept(createPacket(createContext(createLocalSet(createContext(
+                klvIntegerEncodedFloatingPoint)))));
+
+        verify(klvHandler).accept(klvIntegerEncodedFloatingPoint);
+    }
+
+    /**
+     * The post processor only sees the data elements of the current packet.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDataElementsCleared() throws KlvDecodingException {
+
+        KlvIntegerEncodedFloatingPoint otherElement =
+                KlvUtilities.createTestFloat(OTHER_FIELD_NAME, 50);
+
+        List<Map<String, KlvDataElement>> dataElements = new ArrayList<>();
+        doAnswer(invocation -> {
+            dataElements.add(new HashMap<>((Map<String, KlvDataElement>) invocation.getArguments()[
+                    0]));
+            return null;
+        }).when(postProcessor)
+                .postProcess(any(), any());
+
+        KlvTagDispatcher klvTagDispatcher = new KlvTagDispatcher(createContext(
+                klvIntegerEncodedFloatingPoint), handlers, defaultKlvHandler, postProcessor);
+
+        klvTagDispatcher.accept(createPacket(createContext(klvIntegerEncodedFloatingPoint)));
+        klvTagDispatcher.accept(createPacket(createContext(otherElement)));
+        klvTagDispatcher.accept(createPacket(createContext()));
+
+        assertThat(dataElements,
+                is(Arrays.asList(Collections.singletonMap(FIELD_NAME,
+                        klvIntegerEncodedFloatingPoint),
+                        Collections.singletonMap(OTHER_FIELD_NAME, otherElement),
+                        Collections.emptyMap())));
+    }
+
+    private static KlvContext createContext(KlvDataElement... klvDataElements) {
+        return new KlvContext(Klv.KeyLength.OneByte,
+                Klv.LengthEncoding.OneByte,
+                new LinkedHashSet<>(Arrays.asList(klvDataElements)));
+    }
+
+    private static KlvLocalSet createLocalSet(KlvContext klvContext) {
+        KlvLocalSet klvLocalSet = mock(KlvLocalSet.class);
+        when(klvLocalSet.getKey()).thenReturn(new byte[] {0x30});
+        when(klvLocalSet.getName()).thenReturn(LOCAL_SET_NAME);
+        when(klvLocalSet.getValue()).thenReturn(klvContext);
+        return klvLocalSet;
+    }
+
+    private static DecodedKLVMetadataPacket createPacket(KlvContext klvContext) {
+        DecodedKLVMetadataPacket decodedKLVMetadataPacket = mock(DecodedKLVMetadataPacket.class);
+        when(decodedKLVMetadataPacket.getDecodedKLV()).thenReturn(klvContext);
+        return decodedKLVMetadataPacket;
+    }
+
+}
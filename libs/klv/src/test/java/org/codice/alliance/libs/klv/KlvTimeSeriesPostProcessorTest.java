@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvDataElement;
+import org.codice.ddf.libs.klv.KlvDecodingException;
+import org.codice.ddf.libs.klv.data.numerical.KlvLong;
+import org.junit.Before;
+import org.junit.Test;
+
+import ddf.catalog.data.Attribute;
+import ddf.catalog.data.Metacard;
+import ddf.catalog.data.impl.MetacardImpl;
+
+public class KlvTimeSeriesPostProcessorTest {
+
+    private static final double DELTA = 1e-6;
+
+    private KlvTimeSeriesPostProcessor postProcessor;
+
+    private KlvTimeSeriesHandler handler;
+
+    private Map<String, KlvHandler> handlers;
+
+    @Before
+    public void setup() {
+        postProcessor = new KlvTimeSeriesPostProcessor();
+        handler = new KlvTimeSeriesHandler();
+        handlers = Collections.singletonMap(KlvTimeSeriesHandler.FIELD_NAME, handler);
+    }
+
+    @Test
+    public void testPostProcess() throws KlvDecodingException {
+
+        Map<String, KlvDataElement> dataElements = new HashMap<>();
+        addTimestamp(dataElements, 1000L);
+        add(dataElements, Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE, 30);
+        add(dataElements, Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE, 50);
+        add(dataElements, Stanag4609TransportStreamParser.SENSOR_LATITUDE, 31);
+
+        postProcessor.postProcess(dataElements, handlers);
+
+        KlvTimeSeries timeSeries = readTimeSeries();
+
+        assertThat(timeSeries.size(), is(1));
+        assertThat(timeSeries.getTimestamp(0), is(1000L));
+        assertThat(timeSeries.getFrameCenterLatitude(0)
+                .getAsDouble(), closeTo(30, DELTA));
+        assertThat(timeSeries.getFrameCenterLongitude(0)
+                .getAsDouble(), closeTo(50, DELTA));
+        assertThat(timeSeries.getSensorLatitude(0)
+                .getAsDouble(), closeTo(31, DELTA));
+        assertThat(timeSeries.getSensorLongitude(0)
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void testPostProcessWithoutTimestamp() throws KlvDecodingException {
+
+        Map<String, KlvDataElement> dataElements = new HashMap<>();
+        add(dataElements, Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE, 30);
+
+        postProcessor.postProcess(dataElements, handlers);
+
+        assertThat(handler.asAttribute()
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void testPostProcessWithoutHandler() {
+
+        Map<String, KlvDataElement> dataElements = new HashMap<>();
+        addTimestamp(dataElements, 1000L);
+
+        postProcessor.postProcess(dataElements, Collections.emptyMap());
+
+        assertThat(handler.asAttribute()
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void testGetRequiredFieldNames() {
+        assertThat(postProcessor.getRequiredFieldNames(Collections.singleton(
+                KlvTimeSeriesHandler.FIELD_NAME)),
+                containsInAnyOrder(Stanag4609TransportStreamParser.TIMESTAMP,
+                        Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                        Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+                        Stanag4609TransportStreamParser.SENSOR_LATITUDE,
+                        Stanag4609TransportStreamParser.SENSOR_LONGITUDE));
+    }
+
+    @Test
+    public void testGetRequiredFieldNamesWithoutTimeSeries() {
+        assertThat(postProcessor.getRequiredFieldNames(Collections.singleton(
+                Stanag4609TransportStreamParser.TIMESTAMP)), is(empty()));
+    }
+
+    @Test
+    public void testKlvProcessor() {
+
+        Map<String, KlvDataElement> dataElements = new HashMap<>();
+        addTimestamp(dataElements, 1000L);
+        postProcessor.postProcess(dataElements, handlers);
+
+        Metacard metacard = new MetacardImpl();
+
+        new KlvTimeSeriesKlvProcessor().process(handlers,
+                metacard,
+                new KlvProcessor.Configuration());
+
+        Attribute attribute = metacard.getAttribute(AttributeNameConstants.KLV_TIME_SERIES);
+
+        assertThat(KlvTimeSeries.read((byte[]) attribute.getValue())
+                .getTimestamp(0), is(1000L));
+    }
+
+    private KlvTimeSeries readTimeSeries() {
+        return KlvTimeSeries.read((byte[]) handler.asAttribute()
+                .get()
+                .getValue());
+    }
+
+    private void addTimestamp(Map<String, KlvDataElement> dataElements, long timestamp) {
+        KlvLong klvLong = mock(KlvLong.class);
+        when(klvLong.getValue()).thenReturn(timestamp);
+        dataElements.put(Stanag4609TransportStreamParser.TIMESTAMP, klvLong);
+    }
+
+    private void add(Map<String, KlvDataElement> dataElements, String name, double value)
+            throws KlvDecodingException {
+        dataElements.put(name, KlvUtilities.createTestFloat(name, value));
+    }
+
+}
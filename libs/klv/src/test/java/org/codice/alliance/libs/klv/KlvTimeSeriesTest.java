@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class KlvTimeSeriesTest {
+
+    private static final double DELTA = 1e-7;
+
+    @Test
+    public void testRoundTrip() {
+
+        byte[] bytes = new KlvTimeSeries.Builder().add(1000L, 10.5, -20.25, 11.125, -179.9999999)
+                .add(2000L, -89.9999999, 179.9999999, 0, 0)
+                .build();
+
+        assertThat(bytes.length, is(KlvTimeSeries.HEADER_SIZE + 2 * KlvTimeSeries.RECORD_SIZE));
+
+        KlvTimeSeries timeSeries = KlvTimeSeries.read(bytes);
+
+        assertThat(timeSeries.size(), is(2));
+        assertThat(timeSeries.getTimestamp(0), is(1000L));
+        assertThat(timeSeries.getFrameCenterLatitude(0)
+                .getAsDouble(), closeTo(10.5, DELTA));
+        assertThat(timeSeries.getFrameCenterLongitude(0)
+                .getAsDouble(), closeTo(-20.25, DELTA));
+        assertThat(timeSeries.getSensorLatitude(0)
+                .getAsDouble(), closeTo(11.125, DELTA));
+        assertThat(timeSeries.getSensorLongitude(0)
+                .getAsDouble(), closeTo(-179.9999999, DELTA));
+        assertThat(timeSeries.getTimestamp(1), is(2000L));
+        assertThat(timeSeries.getFrameCenterLatitude(1)
+                .getAsDouble(), closeTo(-89.9999999, DELTA));
+        assertThat(timeSeries.getFrameCenterLongitude(1)
+                .getAsDouble(), closeTo(179.9999999, DELTA));
+    }
+
+    @Test
+    public void testMissingCoordinates() {
+
+        KlvTimeSeries timeSeries = KlvTimeSeries.read(new KlvTimeSeries.Builder().add(1000L,
+                Double.NaN,
+                Double.NaN,
+                1,
+                2)
+                .build());
+
+        assertThat(timeSeries.getFrameCenterLatitude(0)
+                .isPresent(), is(false));
+        assertThat(timeSeries.getFrameCenterLongitude(0)
+                .isPresent(), is(false));
+        assertThat(timeSeries.getSensorLatitude(0)
+                .getAsDouble(), closeTo(1, DELTA));
+        assertThat(timeSeries.getSensorLongitude(0)
+                .getAsDouble(), closeTo(2, DELTA));
+    }
+
+    @Test
+    public void testRecordsAreSortedByTimestamp() {
+
+        KlvTimeSeries timeSeries = KlvTimeSeries.read(new KlvTimeSeries.Builder().add(3000L,
+                3,
+                3,
+                3,
+                3)
+                .add(1000L, 1, 1, 1, 1)
+                .add(2000L, 2, 2, 2, 2)
+                .build());
+
+        assertThat(timeSeries.getTimestamp(0), is(1000L));
+        assertThat(timeSeries.getTimestamp(1), is(2000L));
+        assertThat(timeSeries.getTimestamp(2), is(3000L));
+        assertThat(timeSeries.getFrameCenterLatitude(2)
+                .getAsDouble(), closeTo(3, DELTA));
+    }
+
+    /**
+     * The builder grows past its initial capacity.
+     */
+    @Test
+    public void testFindIndex() {
+
+        KlvTimeSeries.Builder builder = new KlvTimeSeries.Builder();
+        for (int i = 0; i < 1000; i++) {
+            builder.add(i * 10L, 0, 0, 0, 0);
+        }
+
+        KlvTimeSeries timeSeries = KlvTimeSeries.read(builder.build());
+
+        assertThat(timeSeries.size(), is(1000));
+        assertThat(timeSeries.findIndex(-1L), is(-1));
+        assertThat(timeSeries.findIndex(0L), is(0));
+        assertThat(timeSeries.findIndex(9L), is(0));
+        assertThat(timeSeries.findIndex(10L), is(1));
+        assertThat(timeSeries.findIndex(5555L), is(555));
+        assertThat(timeSeries.findIndex(Long.MAX_VALUE), is(999));
+    }
+
+    @Test
+    public void testFindIndexWithDuplicateTimestamps() {
+
+        KlvTimeSeries timeSeries = KlvTimeSeries.read(new KlvTimeSeries.Builder().add(1000L,
+                0,
+                0,
+                0,
+                0)
+                .add(2000L, 0, 0, 0, 0)
+                .add(2000L, 0, 0, 0, 0)
+                .add(3000L, 0, 0, 0, 0)
+                .build());
+
+        assertThat(timeSeries.findIndex(2000L), is(2));
+    }
+
+    @Test
+    public void testFindIndexWithEmptyTimeSeries() {
+
+        KlvTimeSeries timeSeries = KlvTimeSeries.read(new KlvTimeSeries.Builder().build());
+
+        assertThat(timeSeries.size(), is(0));
+        assertThat(timeSeries.findIndex(1000L), is(-1));
+    }
+
+    /**
+     * The time series is read from the position of the buffer.
+     */
+    @Test
+    public void testReadFromBufferPosition() {
+
+        byte[] bytes = new KlvTimeSeries.Builder().add(1000L, 1, 2, 3, 4)
+                .build();
+
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 5);
+        buffer.position(5);
+        buffer.put(bytes);
+        buffer.position(5);
+
+        KlvTimeSeries timeSeries = KlvTimeSeries.read(buffer);
+
+        assertThat(timeSeries.getTimestamp(0), is(1000L));
+        assertThat(buffer.position(), is(5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadWithBadMagic() {
+        byte[] bytes = new KlvTimeSeries.Builder().build();
+        bytes[0] = 'X';
+        KlvTimeSeries.read(bytes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadWithTruncatedRecords() {
+        byte[] bytes = new KlvTimeSeries.Builder().add(1000L, 1, 2, 3, 4)
+                .build();
+        byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        KlvTimeSeries.read(truncated);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetTimestampOutOfBounds() {
+        KlvTimeSeries.read(new KlvTimeSeries.Builder().add(1000L, 1, 2, 3, 4)
+                .build())
+                .getTimestamp(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddInvalidLatitude() {
+        new KlvTimeSeries.Builder().add(1000L, 91, 0, 0, 0);
+    }
+
+}
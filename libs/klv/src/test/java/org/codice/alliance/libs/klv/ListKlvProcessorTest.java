@@ -13,9 +13,13 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Map;
 
@@ -50,6 +54,22 @@ public class ListKlvProcessorTest {
 
     }
 
+    @Test
+    public void testGetRequiredFieldNames() {
+
+        Map<String, KlvHandler> handlers = Collections.emptyMap();
+        KlvProcessor otherKlvProcessor = mock(KlvProcessor.class);
+        when(childKlvProcessor.getRequiredFieldNames(handlers)).thenReturn(Collections.singleton(
+                "a"));
+        when(otherKlvProcessor.getRequiredFieldNames(handlers)).thenReturn(Collections.singleton(
+                "b"));
+
+        ListKlvProcessor klvProcessor = new ListKlvProcessor(Arrays.asList(childKlvProcessor,
+                otherKlvProcessor));
+
+        assertThat(klvProcessor.getRequiredFieldNames(handlers), containsInAnyOrder("a", "b"));
+    }
+
     @Test
     public void testAccept() {
         KlvProcessor.Visitor visitor = mock(KlvProcessor.Visitor.class);
@@ -13,8 +13,11 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -28,6 +31,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -80,6 +84,19 @@ public class LocationKlvProcessorTest {
         verify(visitor).visit(locationKlvProcessor);
     }
 
+    @Test
+    public void testGetRequiredFieldNames() {
+
+        Map<String, KlvHandler> fieldHandlers = new HashMap<>();
+        fieldHandlers.put(Stanag4609TransportStreamParser.CORNER_LATITUDE_1, klvHandler);
+        fieldHandlers.put(Stanag4609TransportStreamParser.CORNER_LONGITUDE_1, klvHandler);
+        fieldHandlers.put(Stanag4609TransportStreamParser.MISSION_ID, mock(KlvHandler.class));
+
+        assertThat(locationKlvProcessor.getRequiredFieldNames(fieldHandlers),
+                containsInAnyOrder(Stanag4609TransportStreamParser.CORNER_LATITUDE_1,
+                        Stanag4609TransportStreamParser.CORNER_LONGITUDE_1));
+    }
+
     @Test
     public void testProcess() {
 
@@ -191,6 +208,158 @@ public class LocationKlvProcessorTest {
         }
     }
 
+    /**
+     * A stationary platform only keeps the first and last footprints.
+     */
+    @Test
+    public void testAdaptiveSubsampleStationary() {
+
+        GeoBoxHandler geoBoxHandler = createGeoBoxHandler();
+        for (int i = 0; i < 1000; i++) {
+            addFootprint(geoBoxHandler, 10, 20);
+        }
+
+        GeoBoxHandler subsampled = locationKlvProcessor.adaptiveSubsample(geoBoxHandler,
+                50,
+                0.001,
+                0);
+
+        assertThat(subsampled.getRawGeoData()
+                .get("lat1"), hasSize(2));
+    }
+
+    /**
+     * A platform that moves by more than the tolerance keeps at most the subsample count of
+     * footprints, including the first and last.
+     */
+    @Test
+    public void testAdaptiveSubsampleIsBounded() {
+
+        GeoBoxHandler geoBoxHandler = createGeoBoxHandler();
+        for (int i = 0; i < 1000; i++) {
+            addFootprint(geoBoxHandler, 10 + i * 0.01, 20);
+        }
+
+        GeoBoxHandler subsampled = locationKlvProcessor.adaptiveSubsample(geoBoxHandler,
+                50,
+                0.001,
+                0);
+
+        List<Double> latitudes = subsampled.getRawGeoData()
+                .get("lat1");
+        assertThat(latitudes.size(), lessThanOrEqualTo(50));
+        assertThat(latitudes.get(0), is(10.0));
+        assertThat(latitudes.get(latitudes.size() - 1), is(10 + 999 * 0.01));
+    }
+
+    /**
+     * Only the footprints around a turn are kept when the rest of the path is stationary.
+     */
+    @Test
+    public void testAdaptiveSubsampleKeepsTurn() {
+
+        GeoBoxHandler geoBoxHandler = createGeoBoxHandler();
+        for (int i = 0; i < 500; i++) {
+            addFootprint(geoBoxHandler, 10, 20);
+        }
+        addFootprint(geoBoxHandler, 11, 21);
+        for (int i = 0; i < 500; i++) {
+            addFootprint(geoBoxHandler, 12, 22);
+        }
+
+        GeoBoxHandler subsampled = locationKlvProcessor.adaptiveSubsample(geoBoxHandler,
+                50,
+                0.5,
+                0);
+
+        List<Double> latitudes = subsampled.getRawGeoData()
+                .get("lat1");
+        assertThat(latitudes.size(), is(4));
+        assertThat(latitudes.get(1), is(11.0));
+        assertThat(latitudes.get(2), is(12.0));
+    }
+
+    @Test
+    public void testAdaptiveSubsampleMaxGap() {
+
+        GeoBoxHandler geoBoxHandler = createGeoBoxHandler();
+        for (int i = 0; i < 101; i++) {
+            addFootprint(geoBoxHandler, 10, 20);
+        }
+
+        GeoBoxHandler subsampled = locationKlvProcessor.adaptiveSubsample(geoBoxHandler,
+                50,
+                0.001,
+                10);
+
+        assertThat(subsampled.getRawGeoData()
+                .get("lat1"), hasSize(11));
+    }
+
+    /**
+     * When the maximum gap keeps more footprints than the subsample count, the kept footprints are
+     * evenly subsampled, still including the first and last.
+     */
+    @Test
+    public void testAdaptiveSubsampleMaxGapKeepsLastFootprint() {
+
+        GeoBoxHandler geoBoxHandler = createGeoBoxHandler();
+        for (int i = 0; i < 1000; i++) {
+            addFootprint(geoBoxHandler, 10 + i * 0.01, 20);
+        }
+
+        GeoBoxHandler subsampled = locationKlvProcessor.adaptiveSubsample(geoBoxHandler,
+                10,
+                0.001,
+                1);
+
+        List<Double> latitudes = subsampled.getRawGeoData()
+                .get("lat1");
+        assertThat(latitudes, hasSize(10));
+        assertThat(latitudes.get(0), is(10.0));
+        assertThat(latitudes.get(latitudes.size() - 1), is(10 + 999 * 0.01));
+    }
+
+    @Test
+    public void testProcessWithSubsampleTolerance() {
+
+        GeoBoxHandler geoBoxHandler = createGeoBoxHandler();
+        for (int i = 0; i < 100; i++) {
+            addFootprint(geoBoxHandler, 10 + i * 0.001, 20);
+        }
+
+        klvConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_COUNT, 10);
+        klvConfiguration.set(KlvProcessor.Configuration.SUBSAMPLE_TOLERANCE, 0.01);
+
+        locationKlvProcessor.process(Collections.singletonMap(AttributeNameConstants.CORNER,
+                geoBoxHandler), metacard, klvConfiguration);
+
+        assertThat(metacard.getLocation(), notNullValue());
+    }
+
+    private GeoBoxHandler createGeoBoxHandler() {
+        return new GeoBoxHandler(AttributeNameConstants.CORNER,
+                "lat1",
+                "lon1",
+                "lat2",
+                "lon2",
+                "lat3",
+                "lon3",
+                "lat4",
+                "lon4");
+    }
+
+    private void addFootprint(GeoBoxHandler geoBoxHandler, double latitude, double longitude) {
+        geoBoxHandler.accept("lat1", latitude);
+        geoBoxHandler.accept("lon1", longitude);
+        geoBoxHandler.accept("lat2", latitude + 0.1);
+        geoBoxHandler.accept("lon2", longitude);
+        geoBoxHandler.accept("lat3", latitude + 0.1);
+        geoBoxHandler.accept("lon3", longitude + 0.1);
+        geoBoxHandler.accept("lat4", latitude);
+        geoBoxHandler.accept("lon4", longitude + 0.1);
+    }
+
     private void add(Map<String, List<Double>> rawData, String name, int value) {
         rawData.get(name)
                 .add((double) value);
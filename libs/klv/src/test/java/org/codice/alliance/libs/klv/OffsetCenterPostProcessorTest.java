@@ -14,11 +14,16 @@
 package org.codice.alliance.libs.klv;
 
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.doubleThat;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -100,6 +105,28 @@ public class OffsetCenterPostProcessorTest {
 
     }
 
+    @Test
+    public void testGetRequiredFieldNames() {
+
+        OffsetCenterPostProcessor offsetCenterPostProcessor = new OffsetCenterPostProcessor();
+
+        assertThat(offsetCenterPostProcessor.getRequiredFieldNames(Collections.singleton(
+                Stanag4609TransportStreamParser.CORNER_LATITUDE_1)),
+                hasItems(Stanag4609TransportStreamParser.FRAME_CENTER_LATITUDE,
+                        Stanag4609TransportStreamParser.FRAME_CENTER_LONGITUDE,
+                        Stanag4609TransportStreamParser.OFFSET_CORNER_LATITUDE_1,
+                        Stanag4609TransportStreamParser.OFFSET_CORNER_LONGITUDE_4));
+    }
+
+    @Test
+    public void testGetRequiredFieldNamesWithoutCorners() {
+
+        OffsetCenterPostProcessor offsetCenterPostProcessor = new OffsetCenterPostProcessor();
+
+        assertThat(offsetCenterPostProcessor.getRequiredFieldNames(Collections.singleton(
+                Stanag4609TransportStreamParser.MISSION_ID)), is(empty()));
+    }
+
     private void verifyThat(GeoBoxHandler cornerHandler, String name, double value) {
         verify(cornerHandler).accept(eq(name), doubleThat(closeTo(value, 0.01)));
     }
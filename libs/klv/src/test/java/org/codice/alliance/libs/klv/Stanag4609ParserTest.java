@@ -0,0 +1,47 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.codice.alliance.libs.stanag4609.DecodedKLVMetadataPacket;
+import org.junit.Test;
+
+public class Stanag4609ParserTest {
+
+    /**
+     * The default streaming parse passes every collected packet to the callback in order.
+     */
+    @Test
+    public void testDefaultStreamingParse() throws Stanag4609ParseException {
+
+        DecodedKLVMetadataPacket p1 = mock(DecodedKLVMetadataPacket.class);
+        DecodedKLVMetadataPacket p2 = mock(DecodedKLVMetadataPacket.class);
+
+        Stanag4609Parser parser = () -> Collections.singletonMap(1, Arrays.asList(p1, p2));
+
+        List<DecodedKLVMetadataPacket> packets = new ArrayList<>();
+        parser.parse((packetId, packet) -> packets.add(packet));
+
+        assertThat(packets, contains(p1, p2));
+    }
+
+}
@@ -13,6 +13,8 @@
  */
 package org.codice.alliance.libs.klv;
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -39,6 +41,8 @@ public class Stanag4609ProcessorImplTest {
 
     private Stanag4609Processor stanag4609Processor;
 
+    private PostProcessor postProcessor;
+
     private KlvHandler klvHandler;
 
     private KlvHandler defaultKlvHandler;
@@ -49,7 +53,8 @@ public class Stanag4609ProcessorImplTest {
 
     @Before
     public void setup() throws KlvDecodingException {
-        stanag4609Processor = new Stanag4609ProcessorImpl(mock(PostProcessor.class));
+        postProcessor = mock(PostProcessor.class);
+        stanag4609Processor = new Stanag4609ProcessorImpl(postProcessor);
         klvHandler = mock(KlvHandler.class);
         defaultKlvHandler = mock(KlvHandler.class);
         klvIntegerEncodedFloatingPoint = KlvUtilities.createTestFloat(FIELD_NAME, 100);
@@ -144,4 +149,52 @@ public class Stanag4609ProcessorImplTest {
 
     }
 
+    @Test
+    public void testHandleWithDecodedPacket() throws KlvDecodingException {
+
+        DecodedKLVMetadataPacket packet = mock(DecodedKLVMetadataPacket.class);
+        when(packet.getDecodedKLV()).thenReturn(new KlvContext(Klv.KeyLength.OneByte,
+                Klv.LengthEncoding.OneByte,
+                Collections.singleton(klvIntegerEncodedFloatingPoint)));
+
+        Map<String, KlvHandler> handlers = Collections.singletonMap(FIELD_NAME, klvHandler);
+
+        stanag4609Processor.handle(handlers, defaultKlvHandler, packet);
+
+        verify(klvHandler).accept(klvIntegerEncodedFloatingPoint);
+        verify(postProcessor).postProcess(Collections.singletonMap(FIELD_NAME,
+                klvIntegerEncodedFloatingPoint), handlers);
+
+    }
+
+    @Test
+    public void testCreatePacketHandler() throws KlvDecodingException {
+
+        DecodedKLVMetadataPacket packet = mock(DecodedKLVMetadataPacket.class);
+        when(packet.getDecodedKLV()).thenReturn(new KlvContext(Klv.KeyLength.OneByte,
+                Klv.LengthEncoding.OneByte,
+                Collections.singleton(klvIntegerEncodedFloatingPoint)));
+
+        Map<String, KlvHandler> handlers = Collections.singletonMap(FIELD_NAME, klvHandler);
+
+        stanag4609Processor.createPacketHandler(handlers, defaultKlvHandler)
+                .accept(packet);
+
+        verify(klvHandler).accept(klvIntegerEncodedFloatingPoint);
+        verify(postProcessor).postProcess(Collections.singletonMap(FIELD_NAME,
+                klvIntegerEncodedFloatingPoint), handlers);
+
+    }
+
+    @Test
+    public void testGetRequiredFieldNames() {
+
+        when(postProcessor.getRequiredFieldNames(Collections.singleton(FIELD_NAME))).thenReturn(
+                Collections.singleton("other"));
+
+        assertThat(stanag4609Processor.getRequiredFieldNames(Collections.singleton(FIELD_NAME)),
+                containsInAnyOrder(FIELD_NAME, "other"));
+
+    }
+
 }
@@ -16,7 +16,13 @@ package org.codice.alliance.libs.klv;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.util.Collections;
+
+import org.codice.alliance.libs.stanag4609.Stanag4609TransportStreamParser;
+import org.codice.ddf.libs.klv.KlvContext;
 import org.junit.Test;
 
 import com.google.common.io.ByteSource;
@@ -32,4 +38,52 @@ public class StanagParserFactoryImplTest {
 
     }
 
+    @Test
+    public void testCreateParserWithContext() {
+
+        StanagParserFactoryImpl stanagParserFactory = new StanagParserFactoryImpl();
+
+        KlvContext klvContext = Stanag4609TransportStreamParser.createUasDatalinkLocalSetContext(
+                Collections.singleton(Stanag4609TransportStreamParser.TIMESTAMP));
+
+        assertThat(stanagParserFactory.createParser(mock(ByteSource.class), klvContext),
+                notNullValue());
+
+    }
+
+    @Test
+    public void testCreateParallelParser() {
+
+        StanagParserFactoryImpl stanagParserFactory = new StanagParserFactoryImpl();
+
+        assertThat(stanagParserFactory.createParser(mock(ByteSource.class),
+                Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT,
+                Runnable::run,
+                1), notNullValue());
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCreateParallelParserWithoutPendingPackets() {
+
+        new StanagParserFactoryImpl().createParser(mock(ByteSource.class),
+                Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT,
+                Runnable::run,
+                0);
+
+    }
+
+    @Test(expected = Stanag4609ParseException.class)
+    public void testStreamingParseError() throws Exception {
+
+        ByteSource byteSource = mock(ByteSource.class);
+        when(byteSource.openStream()).thenThrow(new IOException());
+        when(byteSource.openBufferedStream()).thenThrow(new IOException());
+
+        new StanagParserFactoryImpl().createParser(byteSource)
+                .parse((packetId, packet) -> {
+                });
+
+    }
+
 }
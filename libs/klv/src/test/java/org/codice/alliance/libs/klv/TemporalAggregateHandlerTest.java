@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.codice.ddf.libs.klv.data.numerical.KlvInt;
+import org.codice.ddf.libs.klv.data.numerical.KlvLong;
+import org.junit.Test;
+
+public class TemporalAggregateHandlerTest {
+
+    @Test
+    public void testEmpty() {
+        TemporalAggregateHandler klvHandler = new TemporalAggregateHandler("field");
+
+        assertThat(klvHandler.asAttribute()
+                .isPresent(), is(false));
+    }
+
+    @Test
+    public void testSingleDate() {
+        TemporalAggregateHandler klvHandler = new TemporalAggregateHandler("field");
+
+        accept(klvHandler, 1000);
+
+        assertThat(values(klvHandler), contains(date(1000)));
+    }
+
+    @Test
+    public void testFirstAndLastMatchListOfDatesHandler() {
+        TemporalAggregateHandler klvHandler = new TemporalAggregateHandler("field");
+        ListOfDatesHandler listHandler = new ListOfDatesHandler("field");
+
+        for (long millis : new long[] {5000, 1000, 9000, 3000}) {
+            accept(klvHandler, millis);
+            accept(listHandler, millis);
+        }
+
+        List<Serializable> expected = listHandler.asAttribute()
+                .get()
+                .getValues();
+        List<Serializable> actual = values(klvHandler);
+
+        assertThat(actual, contains(expected.get(0), expected.get(expected.size() - 1)));
+    }
+
+    @Test
+    public void testSampleIsBounded() {
+        TemporalAggregateHandler klvHandler = new TemporalAggregateHandler("field", 4);
+
+        for (long i = 0; i < 1001; i++) {
+            accept(klvHandler, i);
+        }
+
+        List<Serializable> actual = values(klvHandler);
+
+        assertThat(actual.size(), lessThanOrEqualTo(5));
+        assertThat(actual.get(0), is(date(0)));
+        assertThat(actual.get(actual.size() - 1), is(date(1000)));
+    }
+
+    @Test
+    public void testSampleKeepsEveryDateWhenNotFull() {
+        TemporalAggregateHandler klvHandler = new TemporalAggregateHandler("field", 10);
+
+        accept(klvHandler, 1000);
+        accept(klvHandler, 2000);
+        accept(klvHandler, 3000);
+
+        assertThat(values(klvHandler), contains(date(1000), date(2000), date(3000)));
+    }
+
+    @Test
+    public void testReset() {
+        TemporalAggregateHandler klvHandler = new TemporalAggregateHandler("field", 2);
+
+        accept(klvHandler, 1000);
+        accept(klvHandler, 2000);
+        accept(klvHandler, 3000);
+        klvHandler.reset();
+        accept(klvHandler, 4000);
+
+        assertThat(values(klvHandler), hasSize(1));
+    }
+
+    @Test
+    public void testAcceptWrongType() {
+        TemporalAggregateHandler klvHandler = new TemporalAggregateHandler("field");
+
+        klvHandler.accept(mock(KlvInt.class));
+
+        assertThat(klvHandler.asAttribute()
+                .isPresent(), is(false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSampleSize() {
+        new TemporalAggregateHandler("field", -1);
+    }
+
+    private static List<Serializable> values(KlvHandler klvHandler) {
+        return klvHandler.asAttribute()
+                .get()
+                .getValues();
+    }
+
+    private static Date date(long millis) {
+        return new Date(millis);
+    }
+
+    private static void accept(KlvHandler klvHandler, long millis) {
+        KlvLong klvLong = mock(KlvLong.class);
+        when(klvLong.getValue()).thenReturn(TimeUnit.MILLISECONDS.toMicros(millis));
+        klvHandler.accept(klvLong);
+    }
+}
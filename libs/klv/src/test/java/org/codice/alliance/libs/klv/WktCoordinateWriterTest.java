@@ -0,0 +1,87 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.klv;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class WktCoordinateWriterTest {
+
+    private WktCoordinateWriter wktCoordinateWriter;
+
+    @Before
+    public void setup() {
+        wktCoordinateWriter = new WktCoordinateWriter();
+    }
+
+    @Test
+    public void testPoint() {
+        assertThat(wktCoordinateWriter.point(-77.25, 38.5), is("POINT (-77.250000 38.500000)"));
+    }
+
+    @Test
+    public void testPolygon() {
+        wktCoordinateWriter.startPolygon();
+        wktCoordinateWriter.addCoordinate(0, 0);
+        wktCoordinateWriter.addCoordinate(5, 0);
+        wktCoordinateWriter.addCoordinate(5, 5);
+        wktCoordinateWriter.addCoordinate(0, 0);
+        assertThat(wktCoordinateWriter.endPolygon(),
+                is("POLYGON ((0.000000 0.000000, 5.000000 0.000000, 5.000000 5.000000, 0.000000 0.000000))"));
+    }
+
+    /**
+     * The buffer is reused, so a second geometry must not contain data from the first.
+     */
+    @Test
+    public void testReuse() {
+        wktCoordinateWriter.startPolygon();
+        wktCoordinateWriter.addCoordinate(1, 2);
+        wktCoordinateWriter.endPolygon();
+
+        assertThat(wktCoordinateWriter.point(3, 4), is("POINT (3.000000 4.000000)"));
+    }
+
+    @Test
+    public void testSpecialValues() {
+        double[] values = {0.0, -0.0, -1e-7, 5e-7, 1.5e-6, 0.1234565, 12.3456785, -90.0000004,
+                99999.9999995, 1e5, 1e300, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN,
+                Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double value : values) {
+            assertFormat(value);
+        }
+    }
+
+    @Test
+    public void testMatchesStringFormat() {
+        Random random = new Random(0);
+        for (int i = 0; i < 100_000; i++) {
+            assertFormat(random.nextDouble() * 360 - 180);
+            assertFormat(Math.round((random.nextDouble() * 180 - 90) * 1e7) / 1e7);
+        }
+    }
+
+    private void assertFormat(double value) {
+        StringBuilder stringBuilder = new StringBuilder();
+        WktCoordinateWriter.appendOrdinate(stringBuilder, value);
+        assertThat(stringBuilder.toString(), is(String.format(Locale.ROOT, "%f", value)));
+    }
+
+}
@@ -28,4 +28,13 @@ public interface MpegTsDecoder {
      * @throws IOException
      */
     void read(MTSPacket mtsPacket, Consumer<PESPacket> callback) throws IOException;
+
+    /**
+     * Complete the PESPackets that are still being assembled at the end of the transport stream
+     * and call {@code callback} for each of them. The default implementation does nothing.
+     *
+     * @param callback must be non-null
+     */
+    default void flush(Consumer<PESPacket> callback) {
+    }
 }
@@ -17,13 +17,13 @@ import static org.apache.commons.lang3.Validate.notNull;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.jcodec.containers.mps.psi.PMTSection;
 import org.taktik.mpegts.MTSPacket;
 import org.taktik.mpegts.PATSection;
@@ -36,7 +36,7 @@ public class MpegTsDecoderImpl implements MpegTsDecoder {
 
     private final Map<Integer, PMTSection.PMTStream> programElementaryStreams = new HashMap<>();
 
-    private final Map<Integer, byte[]> currentPacketBytesByStream = new HashMap<>();
+    private final Map<Integer, PayloadAccumulator> currentPacketBytesByStream = new HashMap<>();
 
     private PATSectionParser patSectionParser = PATSection::parse;
 
@@ -65,30 +65,44 @@ public class MpegTsDecoderImpl implements MpegTsDecoder {
 
     }
 
+    @Override
+    public void flush(Consumer<PESPacket> callback) {
+        notNull(callback, "callback must be non-null");
+
+        currentPacketBytesByStream.forEach((pid, currentPacketBytes) -> {
+            if (currentPacketBytes.isStarted()) {
+                callback.accept(new PESPacket(currentPacketBytes.toByteArray(),
+                        MpegStreamType.lookup(programElementaryStreams.get(pid)
+                                .getStreamType()),
+                        pid));
+            }
+        });
+    }
+
     private void handleElementaryStream(MTSPacket mtsPacket, int pid,
             Consumer<PESPacket> callback) {
         if (mtsPacket.isContainsPayload()) {
             final PMTSection.PMTStream stream = programElementaryStreams.get(pid);
 
-            final byte[] currentPacketBytes = currentPacketBytesByStream.get(pid);
+            final PayloadAccumulator currentPacketBytes =
+                    currentPacketBytesByStream.computeIfAbsent(pid,
+                            key -> new PayloadAccumulator());
 
             final boolean startingNewPacket = mtsPacket.isPayloadUnitStartIndicator();
-            final boolean currentPacketToHandle = currentPacketBytes != null;
+            final boolean currentPacketToHandle = currentPacketBytes.isStarted();
             final boolean reachedEndOfCurrentPacket = startingNewPacket && currentPacketToHandle;
 
-            final byte[] payloadBytes = getByteBufferAsBytes(mtsPacket.getPayload());
+            final ByteBuffer payload = mtsPacket.getPayload();
 
             if (reachedEndOfCurrentPacket) {
-                callback.accept(new PESPacket(currentPacketBytes,
+                callback.accept(new PESPacket(currentPacketBytes.toByteArray(),
                         MpegStreamType.lookup(stream.getStreamType()),
                         pid));
-                currentPacketBytesByStream.put(pid, payloadBytes);
+                currentPacketBytes.start(payload);
             } else if (startingNewPacket) {
-                currentPacketBytesByStream.put(pid, payloadBytes);
+                currentPacketBytes.start(payload);
             } else if (currentPacketToHandle) {
-                final byte[] concatenatedPacket = ArrayUtils.addAll(currentPacketBytes,
-                        payloadBytes);
-                currentPacketBytesByStream.put(pid, concatenatedPacket);
+                currentPacketBytes.append(payload);
             }
         }
     }
@@ -137,12 +151,6 @@ public class MpegTsDecoderImpl implements MpegTsDecoder {
         }
     }
 
-    private byte[] getByteBufferAsBytes(final ByteBuffer buffer) {
-        final byte[] bytes = new byte[buffer.remaining()];
-        buffer.get(bytes);
-        return bytes;
-    }
-
     public void setPatSectionParser(PATSectionParser patSectionParser) {
         this.patSectionParser = patSectionParser;
     }
@@ -151,6 +159,79 @@ public class MpegTsDecoderImpl implements MpegTsDecoder {
         this.pmtSectionParser = pmtSectionParser;
     }
 
+    /**
+     * Collects the TS packet payloads of one PES packet. Each payload byte is copied once into a
+     * growable array. When the PES header declares the packet length, the array is allocated at
+     * that size and handed to the {@link PESPacket} without another copy. Otherwise the array is
+     * kept for the next PES packet of the stream and the payload is copied out once.
+     */
+    private static class PayloadAccumulator {
+
+        private static final int INITIAL_CAPACITY = 4096;
+
+        private static final int PES_HEADER_LENGTH = 6;
+
+        private byte[] buffer;
+
+        private int size = 0;
+
+        private boolean started = false;
+
+        private boolean isStarted() {
+            return started;
+        }
+
+        private void start(ByteBuffer payload) {
+            int expectedLength = declaredPacketLength(payload);
+            if (expectedLength > 0) {
+                buffer = new byte[expectedLength];
+            } else if (buffer == null) {
+                buffer = new byte[INITIAL_CAPACITY];
+            }
+            size = 0;
+            started = true;
+            append(payload);
+        }
+
+        private void append(ByteBuffer payload) {
+            int length = payload.remaining();
+            ensureCapacity(size + length);
+            payload.get(buffer, size, length);
+            size += length;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+            }
+        }
+
+        private byte[] toByteArray() {
+            started = false;
+            if (size == buffer.length) {
+                byte[] bytes = buffer;
+                buffer = null;
+                return bytes;
+            }
+            return Arrays.copyOf(buffer, size);
+        }
+
+        /**
+         * @return the total PES packet length including the header, or 0 if the payload does not
+         * start with a PES header or the header does not specify the length (e.g. video)
+         */
+        private static int declaredPacketLength(ByteBuffer payload) {
+            int position = payload.position();
+            if (payload.remaining() < PES_HEADER_LENGTH || payload.get(position) != 0
+                    || payload.get(position + 1) != 0 || payload.get(position + 2) != 1) {
+                return 0;
+            }
+            int packetLength = ((payload.get(position + 4) & BYTE_MASK) << 8) | (
+                    payload.get(position + 5) & BYTE_MASK);
+            return packetLength == 0 ? 0 : PES_HEADER_LENGTH + packetLength;
+        }
+    }
+
     public interface PATSectionParser {
         PATSection parse(ByteBuffer payload);
     }
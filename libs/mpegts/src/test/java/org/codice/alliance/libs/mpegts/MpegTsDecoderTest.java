@@ -22,13 +22,19 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.stream.Stream;
 
+import org.apache.commons.lang3.ArrayUtils;
 import org.jcodec.containers.mps.MTSUtils;
 import org.jcodec.containers.mps.psi.PMTSection;
 import org.junit.Test;
@@ -37,6 +43,14 @@ import org.taktik.mpegts.PATSection;
 
 public class MpegTsDecoderTest {
 
+    private static final int PROGRAM_MAP_TABLE_ID = 1;
+
+    private static final int VIDEO_PACKET_ID = 2;
+
+    private static final int DATA_PACKET_ID = 3;
+
+    private static final int TS_PAYLOAD_SIZE = Constants.TS_PACKET_SIZE - 4;
+
     @Test
     public void testRead() {
 
@@ -115,6 +129,231 @@ public class MpegTsDecoderTest {
                 is(new byte[] {expectedByte1, expectedByte2, expectedByte3, expectedByte4}));
     }
 
+    /**
+     * The PES packets must be identical to concatenating the TS payloads between payload unit
+     * starts, which is how the packets were previously assembled. Includes PES headers with a
+     * declared length, without a declared length, and with an incorrect declared length.
+     */
+    @Test
+    public void testReadMatchesPayloadConcatenation() throws IOException {
+
+        Random random = new Random(1);
+
+        MpegTsDecoderImpl decoder = createDecoder();
+
+        List<MTSPacket> mtsPackets = new ArrayList<>();
+        mtsPackets.add(createTable(Constants.PROGRAM_ASSOCIATION_TABLE_PID));
+        mtsPackets.add(createTable(PROGRAM_MAP_TABLE_ID));
+
+        Map<Integer, List<byte[]>> expected = new HashMap<>();
+        expected.put(VIDEO_PACKET_ID, new ArrayList<>());
+        expected.put(DATA_PACKET_ID, new ArrayList<>());
+
+        Map<Integer, byte[]> current = new HashMap<>();
+
+        for (int i = 0; i < 500; i++) {
+            int pid = random.nextBoolean() ? VIDEO_PACKET_ID : DATA_PACKET_ID;
+            boolean isStart = !current.containsKey(pid) || random.nextInt(8) == 0;
+
+            byte[] payload = new byte[1 + random.nextInt(TS_PAYLOAD_SIZE)];
+            random.nextBytes(payload);
+            if (isStart && payload.length >= 6) {
+                payload[0] = 0;
+                payload[1] = 0;
+                payload[2] = 1;
+                if (pid == VIDEO_PACKET_ID) {
+                    payload[4] = 0;
+                    payload[5] = 0;
+                }
+            }
+
+            if (isStart) {
+                if (current.containsKey(pid)) {
+                    expected.get(pid)
+                            .add(current.get(pid));
+                }
+                current.put(pid, payload);
+            } else {
+                current.put(pid, ArrayUtils.addAll(current.get(pid), payload));
+            }
+
+            mtsPackets.add(createElementary(isStart, pid, payload));
+        }
+
+        Map<Integer, List<byte[]>> actual = new HashMap<>();
+        actual.put(VIDEO_PACKET_ID, new ArrayList<>());
+        actual.put(DATA_PACKET_ID, new ArrayList<>());
+
+        for (MTSPacket mtsPacket : mtsPackets) {
+            decoder.read(mtsPacket,
+                    pesPacket -> actual.get(pesPacket.getPacketId())
+                            .add(pesPacket.getPayload()));
+        }
+
+        for (int pid : expected.keySet()) {
+            assertThat(actual.get(pid), hasSize(expected.get(pid)
+                    .size()));
+            for (int i = 0; i < expected.get(pid)
+                    .size(); i++) {
+                assertThat(actual.get(pid)
+                        .get(i), is(expected.get(pid)
+                        .get(i)));
+            }
+        }
+    }
+
+    /**
+     * Decode a synthetic transport stream that carries several multi-megabyte PES packets. Growing
+     * the PES payload by copying it for every TS packet would take far longer than the timeout.
+     */
+    @Test(timeout = 10000)
+    public void testReadLargePesPacketsThroughput() throws IOException {
+
+        int pesPacketSize = 2 * 1024 * 1024;
+        int pesPacketCount = 8;
+
+        Random random = new Random(1);
+
+        MpegTsDecoderImpl decoder = createDecoder();
+
+        List<MTSPacket> mtsPackets = new ArrayList<>();
+        mtsPackets.add(createTsPacket(Constants.PROGRAM_ASSOCIATION_TABLE_PID,
+                true,
+                new byte[] {0x00}));
+        mtsPackets.add(createTsPacket(PROGRAM_MAP_TABLE_ID, true, new byte[] {0x00}));
+
+        List<byte[]> pesPayloads = new ArrayList<>();
+        for (int i = 0; i <= pesPacketCount; i++) {
+            byte[] pesPayload = new byte[pesPacketSize];
+            random.nextBytes(pesPayload);
+            pesPayloads.add(pesPayload);
+            for (int offset = 0; offset < pesPayload.length; offset += TS_PAYLOAD_SIZE) {
+                mtsPackets.add(createTsPacket(VIDEO_PACKET_ID,
+                        offset == 0,
+                        ArrayUtils.subarray(pesPayload, offset, offset + TS_PAYLOAD_SIZE)));
+            }
+        }
+
+        List<PESPacket> outputList = new ArrayList<>();
+        for (MTSPacket mtsPacket : mtsPackets) {
+            decoder.read(mtsPacket, outputList::add);
+        }
+        assertThat(outputList, hasSize(pesPacketCount));
+        for (int i = 0; i < pesPacketCount; i++) {
+            assertThat(outputList.get(i)
+                    .getPayload(), is(pesPayloads.get(i)));
+        }
+    }
+
+    /**
+     * The PES packets that are still being assembled at the end of the stream are only returned by
+     * flush.
+     */
+    @Test
+    public void testFlush() throws IOException {
+
+        MpegTsDecoderImpl decoder = createDecoder();
+
+        List<PESPacket> outputList = new ArrayList<>();
+
+        decoder.read(createTable(Constants.PROGRAM_ASSOCIATION_TABLE_PID), outputList::add);
+        decoder.read(createTable(PROGRAM_MAP_TABLE_ID), outputList::add);
+        decoder.read(createElementary(true, VIDEO_PACKET_ID, (byte) 0x01), outputList::add);
+        decoder.read(createElementary(false, VIDEO_PACKET_ID, (byte) 0x02), outputList::add);
+        decoder.read(createElementary(true, DATA_PACKET_ID, (byte) 0x03), outputList::add);
+
+        assertThat(outputList, hasSize(0));
+
+        decoder.flush(outputList::add);
+
+        assertThat(outputList, hasSize(2));
+
+        Map<Integer, PESPacket> byPacketId = new HashMap<>();
+        outputList.forEach(pesPacket -> byPacketId.put(pesPacket.getPacketId(), pesPacket));
+
+        assertThat(byPacketId.get(VIDEO_PACKET_ID)
+                .getPayload(), is(new byte[] {0x01, 0x02}));
+        assertThat(byPacketId.get(VIDEO_PACKET_ID)
+                .getStreamType(), is(MpegStreamType.VIDEO_H264));
+        assertThat(byPacketId.get(DATA_PACKET_ID)
+                .getPayload(), is(new byte[] {0x03}));
+
+        outputList.clear();
+        decoder.flush(outputList::add);
+
+        assertThat(outputList, hasSize(0));
+    }
+
+    private MpegTsDecoderImpl createDecoder() {
+
+        MpegTsDecoderImpl decoder = new MpegTsDecoderImpl();
+
+        PATSection patSection = mock(PATSection.class);
+        when(patSection.getPrograms()).thenReturn(Collections.singletonMap(1,
+                PROGRAM_MAP_TABLE_ID));
+
+        MpegTsDecoderImpl.PATSectionParser patSectionParser =
+                mock(MpegTsDecoderImpl.PATSectionParser.class);
+        when(patSectionParser.parse(any())).thenReturn(patSection);
+        decoder.setPatSectionParser(patSectionParser);
+
+        PMTSection.PMTStream videoStream = mock(PMTSection.PMTStream.class);
+        when(videoStream.getStreamType()).thenReturn(MTSUtils.StreamType.VIDEO_H264);
+        when(videoStream.getPid()).thenReturn(VIDEO_PACKET_ID);
+
+        PMTSection.PMTStream dataStream = mock(PMTSection.PMTStream.class);
+        when(dataStream.getStreamType()).thenReturn(MTSUtils.StreamType.PRIVATE_SECTIONS);
+        when(dataStream.getPid()).thenReturn(DATA_PACKET_ID);
+
+        PMTSection pmtSection = mock(PMTSection.class);
+        when(pmtSection.getStreams()).thenReturn(new PMTSection.PMTStream[] {videoStream,
+                dataStream});
+
+        MpegTsDecoderImpl.PMTSectionParser pmtSectionParser =
+                mock(MpegTsDecoderImpl.PMTSectionParser.class);
+        when(pmtSectionParser.parse(any())).thenReturn(pmtSection);
+        decoder.setPmtSectionParser(pmtSectionParser);
+
+        return decoder;
+    }
+
+    private MTSPacket createTable(int pid) {
+        MTSPacket table = mock(MTSPacket.class);
+        when(table.getPid()).thenReturn(pid);
+        when(table.isPayloadUnitStartIndicator()).thenReturn(true);
+        when(table.getPayload()).thenReturn(ByteBuffer.wrap(new byte[] {0x00}));
+        return table;
+    }
+
+    /**
+     * Create a TS packet with a payload only. Payloads shorter than a full packet are padded with
+     * an adaptation field.
+     */
+    private MTSPacket createTsPacket(int pid, boolean isStart, byte[] payload) {
+
+        ByteArrayOutputStream packet = new ByteArrayOutputStream(Constants.TS_PACKET_SIZE);
+        packet.write(0x47);
+        packet.write((isStart ? 0x40 : 0x00) | ((pid >> 8) & 0x1F));
+        packet.write(pid & 0xFF);
+
+        int stuffing = TS_PAYLOAD_SIZE - payload.length;
+        if (stuffing == 0) {
+            packet.write(0x10);
+        } else {
+            packet.write(0x30);
+            packet.write(stuffing - 1);
+            if (stuffing > 1) {
+                packet.write(0x00);
+                for (int i = 2; i < stuffing; i++) {
+                    packet.write(0xFF);
+                }
+            }
+        }
+        packet.write(payload, 0, payload.length);
+
+        return new MTSPacket(ByteBuffer.wrap(packet.toByteArray()));
+    }
+
     private MTSPacket createElementary(boolean isStart, int pid, byte data) {
         MTSPacket elementaryStreamPacket = mock(MTSPacket.class);
         when(elementaryStreamPacket.getPid()).thenReturn(pid);
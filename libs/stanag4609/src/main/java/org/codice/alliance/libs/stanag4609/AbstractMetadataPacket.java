@@ -13,7 +13,7 @@
  */
 package org.codice.alliance.libs.stanag4609;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 import org.codice.ddf.libs.klv.KlvContext;
 import org.codice.ddf.libs.klv.KlvDecoder;
@@ -22,6 +22,12 @@ import org.codice.ddf.libs.klv.data.numerical.KlvUnsignedShort;
 import org.codice.ddf.libs.klv.data.set.KlvLocalSet;
 import org.jcodec.containers.mps.MPSDemuxer.PESPacket;
 
+/**
+ * The KLV of a packet is located with {@link ByteBuffer} views over the PES packet bytes. The
+ * layout of the UAS Datalink Local Set and the checksum are validated in place, so corrupt and
+ * truncated packets are rejected before they are copied and passed to the {@link KlvDecoder}. The
+ * decoder only accepts a whole array, so valid packets are copied once.
+ */
 abstract class AbstractMetadataPacket {
 
     /**
@@ -32,6 +38,14 @@ abstract class AbstractMetadataPacket {
 
     private static final int BASE_PES_PACKET_HEADER_LENGTH = 9;
 
+    private static final int CHECKSUM_TAG = 1;
+
+    private static final int CHECKSUM_LENGTH = 2;
+
+    private static final int BER_LONG_FORM = 0x80;
+
+    private static final int MAX_BER_LENGTH_BYTES = 4;
+
     private final byte[] pesPacketBytes;
 
     private final PESPacket pesHeader;
@@ -45,7 +59,7 @@ abstract class AbstractMetadataPacket {
         this.decoder = decoder;
     }
 
-    private boolean validateChecksum(final KlvContext klvContext, final byte[] klvBytes)
+    private boolean validateChecksum(final KlvContext klvContext, final int calculatedChecksum)
             throws KlvDecodingException {
         if (!klvContext.hasDataElement(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET)) {
             throw new KlvDecodingException("KLV did not contain the UAS Datalink Local Set");
@@ -58,21 +72,38 @@ abstract class AbstractMetadataPacket {
             final int packetChecksum = ((KlvUnsignedShort) localSetContext.getDataElementByName(
                     Stanag4609TransportStreamParser.CHECKSUM)).getValue();
 
-            short calculatedChecksum = 0;
-            // Checksum is calculated by a 16-bit sum from the beginning of the KLV set to the 1-byte
-            // checksum length (the checksum value is 2 bytes, which is why we subtract 2).
-            for (int i = 0; i < klvBytes.length - 2; ++i) {
-                calculatedChecksum += (klvBytes[i] & 0xFF) << (8 * ((i + 1) % 2));
-            }
-
-            return (calculatedChecksum & 0xFFFF) == packetChecksum;
+            return calculatedChecksum == packetChecksum;
         }
 
         throw new KlvDecodingException(
                 "Decoded KLV packet didn't contain checksum (which is required).");
     }
 
-    protected final byte[] getPESPacketPayload() {
+    /**
+     * Checksum is calculated by a 16-bit sum from the beginning of the KLV set to the 1-byte
+     * checksum length (the checksum value is 2 bytes, which is why the last 2 bytes are not
+     * included). Pairs of bytes are summed as big-endian shorts.
+     *
+     * @param klv the bytes between the position and the limit are summed, must be non-null
+     * @return the unsigned 16-bit checksum
+     */
+    static int calculateChecksum(final ByteBuffer klv) {
+        final int end = klv.limit() - CHECKSUM_LENGTH;
+        int checksum = 0;
+        int i = klv.position();
+        for (; i + 1 < end; i += 2) {
+            checksum += klv.getShort(i);
+        }
+        if (i < end) {
+            checksum += (klv.get(i) & 0xFF) << 8;
+        }
+        return checksum & 0xFFFF;
+    }
+
+    /**
+     * @return a view of the PES packet payload, otherwise null
+     */
+    protected final ByteBuffer getPESPacketPayload() {
 
         if (this.pesPacketBytes.length < BASE_PES_PACKET_HEADER_LENGTH) {
             return null;
@@ -84,22 +115,40 @@ abstract class AbstractMetadataPacket {
         int headerLength = BASE_PES_PACKET_HEADER_LENGTH + additionalHeaderBytes;
 
         final int payloadEnd = Math.min(pesPacketBytes.length, headerLength + payloadLength);
-        return Arrays.copyOfRange(pesPacketBytes, headerLength, payloadEnd);
+
+        if (payloadEnd < headerLength) {
+            return null;
+        }
+
+        return ByteBuffer.wrap(pesPacketBytes, headerLength, payloadEnd - headerLength)
+                .slice();
     }
 
     /**
-     *
-     * @return klv payload bytes, otherwise null
+     * @return a view of the klv payload bytes, otherwise null
      */
-    protected abstract byte[] getKLVBytes();
+    protected abstract ByteBuffer getKLVBuffer();
 
     final DecodedKLVMetadataPacket decodeKLV() throws KlvDecodingException {
-        final byte[] klvBytes = getKLVBytes();
+        final ByteBuffer klv = getKLVBuffer();
+
+        if (klv != null && klv.hasRemaining()) {
+
+            validateLayout(klv);
+
+            final int calculatedChecksum = calculateChecksum(klv);
+
+            if ((klv.getShort(klv.limit() - CHECKSUM_LENGTH) & 0xFFFF) != calculatedChecksum) {
+                throw new KlvDecodingException("KLV packet checksum does not match.");
+            }
+
+            final byte[] klvBytes = new byte[klv.remaining()];
+            klv.duplicate()
+                    .get(klvBytes);
 
-        if (klvBytes != null && klvBytes.length > 0) {
             final KlvContext decodedKLV = decoder.decode(klvBytes);
 
-            if (validateChecksum(decodedKLV, klvBytes)) {
+            if (validateChecksum(decodedKLV, calculatedChecksum)) {
                 return new DecodedKLVMetadataPacket(pesHeader.pts, decodedKLV);
             } else {
                 throw new KlvDecodingException("KLV packet checksum does not match.");
@@ -108,4 +157,90 @@ abstract class AbstractMetadataPacket {
 
         return null;
     }
+
+    /**
+     * The checksum covers every byte before the checksum value, so a packet can only be valid if
+     * it is a single UAS Datalink Local Set that ends with the checksum item. Check that layout and
+     * that each tag-length-value item fits in the local set, without copying the bytes.
+     *
+     * @throws KlvDecodingException if the layout is invalid or an item is truncated
+     */
+    private static void validateLayout(final ByteBuffer klv) throws KlvDecodingException {
+
+        final int limit = klv.limit();
+        final int keyLength = Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_KEY.length;
+
+        int offset = klv.position() + keyLength;
+        if (offset >= limit) {
+            throw new KlvDecodingException("KLV packet is truncated.");
+        }
+
+        if (!isUasDatalinkLocalSet(klv)) {
+            throw new KlvDecodingException("KLV did not contain the UAS Datalink Local Set");
+        }
+
+        final long setLength = readBerLength(klv, offset);
+        offset += getBerLengthSize(klv, offset);
+        if (offset + setLength != limit) {
+            throw new KlvDecodingException("KLV packet is truncated or has trailing bytes.");
+        }
+
+        int lastTag = -1;
+        long lastLength = -1;
+        while (offset < limit) {
+            lastTag = klv.get(offset) & 0xFF;
+            offset++;
+            if (offset >= limit) {
+                throw new KlvDecodingException("KLV local set item is truncated.");
+            }
+            lastLength = readBerLength(klv, offset);
+            offset += getBerLengthSize(klv, offset);
+            if (offset + lastLength > limit) {
+                throw new KlvDecodingException("KLV local set item is truncated.");
+            }
+            offset += lastLength;
+        }
+
+        if (lastTag != CHECKSUM_TAG || lastLength != CHECKSUM_LENGTH) {
+            throw new KlvDecodingException(
+                    "Decoded KLV packet didn't contain checksum (which is required).");
+        }
+    }
+
+    private static boolean isUasDatalinkLocalSet(final ByteBuffer klv) {
+        final byte[] key = Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_KEY;
+        for (int i = 0; i < key.length; i++) {
+            if (klv.get(klv.position() + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int getBerLengthSize(final ByteBuffer klv, final int offset) {
+        final int first = klv.get(offset) & 0xFF;
+        return first < BER_LONG_FORM ? 1 : 1 + (first & ~BER_LONG_FORM);
+    }
+
+    /**
+     * Read a BER short or long form length.
+     *
+     * @throws KlvDecodingException if the length bytes are not in the buffer
+     */
+    private static long readBerLength(final ByteBuffer klv, final int offset)
+            throws KlvDecodingException {
+        final int first = klv.get(offset) & 0xFF;
+        if (first < BER_LONG_FORM) {
+            return first;
+        }
+        final int lengthBytes = first & ~BER_LONG_FORM;
+        if (lengthBytes > MAX_BER_LENGTH_BYTES || offset + lengthBytes >= klv.limit()) {
+            throw new KlvDecodingException("KLV length is invalid or truncated.");
+        }
+        long length = 0;
+        for (int i = 1; i <= lengthBytes; i++) {
+            length = (length << 8) | (klv.get(offset + i) & 0xFF);
+        }
+        return length;
+    }
 }
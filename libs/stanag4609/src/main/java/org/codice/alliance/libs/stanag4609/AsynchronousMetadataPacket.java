@@ -13,6 +13,8 @@
  */
 package org.codice.alliance.libs.stanag4609;
 
+import java.nio.ByteBuffer;
+
 import org.codice.ddf.libs.klv.KlvDecoder;
 import org.jcodec.containers.mps.MPSDemuxer.PESPacket;
 
@@ -24,7 +26,7 @@ class AsynchronousMetadataPacket extends AbstractMetadataPacket {
     }
 
     @Override
-    protected byte[] getKLVBytes() {
+    protected ByteBuffer getKLVBuffer() {
         return getPESPacketPayload();
     }
 }
\ No newline at end of file
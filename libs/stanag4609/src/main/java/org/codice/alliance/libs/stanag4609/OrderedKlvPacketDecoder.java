@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.stanag4609;
+
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+import org.codice.ddf.libs.klv.KlvContext;
+import org.codice.ddf.libs.klv.KlvDecoder;
+import org.codice.ddf.libs.klv.KlvDecodingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes the KLV metadata of PES packets on an {@link Executor} and passes the decoded packets to
+ * a callback in the order the PES packets were given, so the callback receives the same packets in
+ * the same order as when the PES packets are decoded one after another. Packets that cannot be
+ * decoded are logged and skipped. An exception thrown by the callback is thrown to the caller of
+ * {@link #accept(int, byte[])} or {@link #finish()}.
+ * <p>
+ * At most {@code maxPendingPackets} packets are waiting to be decoded or delivered. When the limit
+ * is reached, {@link #accept(int, byte[])} waits for the oldest packet and delivers it before
+ * submitting the next one. The callback is only called from {@link #accept(int, byte[])} and
+ * {@link #finish()}, on the calling thread, so it does not need to be thread-safe.
+ * <p>
+ * Each worker thread uses its own {@link KlvDecoder}. A packet that is rejected by the executor is
+ * decoded on the calling thread. This class is not thread-safe.
+ */
+public class OrderedKlvPacketDecoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderedKlvPacketDecoder.class);
+
+    private final ThreadLocal<KlvDecoder> workerDecoders;
+
+    private final Executor executor;
+
+    private final int maxPendingPackets;
+
+    private final BiConsumer<Integer, DecodedKLVMetadataPacket> callback;
+
+    private final Deque<PendingPacket> pendingPackets = new ArrayDeque<>();
+
+    /**
+     * Decode the packets with
+     * {@link Stanag4609TransportStreamParser#UAS_DATALINK_LOCAL_SET_CONTEXT}.
+     *
+     * @param executor          runs the decoding tasks, must be non-null
+     * @param maxPendingPackets the maximum number of packets that are decoding or waiting to be
+     *                          delivered, must be &gt;0
+     * @param callback          called with the packet ID of the metadata stream and each decoded
+     *                          packet, must be non-null
+     */
+    public OrderedKlvPacketDecoder(Executor executor, int maxPendingPackets,
+            BiConsumer<Integer, DecodedKLVMetadataPacket> callback) {
+        this(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT,
+                executor,
+                maxPendingPackets,
+                callback);
+    }
+
+    /**
+     * @param klvContext        the KLV context definition, must be non-null
+     * @param executor          runs the decoding tasks, must be non-null
+     * @param maxPendingPackets the maximum number of packets that are decoding or waiting to be
+     *                          delivered, must be &gt;0
+     * @param callback          called with the packet ID of the metadata stream and each decoded
+     *                          packet, must be non-null
+     */
+    public OrderedKlvPacketDecoder(KlvContext klvContext, Executor executor,
+            int maxPendingPackets, BiConsumer<Integer, DecodedKLVMetadataPacket> callback) {
+        notNull(klvContext, "klvContext must be non-null");
+        notNull(executor, "executor must be non-null");
+        isTrue(maxPendingPackets > 0, "maxPendingPackets must be >0");
+        notNull(callback, "callback must be non-null");
+        this.executor = executor;
+        this.maxPendingPackets = maxPendingPackets;
+        this.callback = callback;
+        this.workerDecoders = ThreadLocal.withInitial(() -> new KlvDecoder(klvContext));
+    }
+
+    /**
+     * Submit a PES packet for decoding. The packet bytes must not be modified after this call.
+     *
+     * @param packetId       the packet ID of the metadata stream
+     * @param pesPacketBytes must be non-null
+     * @throws CancellationException if the calling thread is interrupted while waiting for a
+     *                               pending packet, the remaining packets are discarded
+     */
+    public void accept(int packetId, byte[] pesPacketBytes) {
+        notNull(pesPacketBytes, "pesPacketBytes must be non-null");
+        while (pendingPackets.size() >= maxPendingPackets) {
+            deliverOldest();
+        }
+        pendingPackets.addLast(new PendingPacket(packetId, submit(pesPacketBytes)));
+    }
+
+    /**
+     * Wait for every pending packet and pass the decoded packets to the callback.
+     *
+     * @throws CancellationException if the calling thread is interrupted while waiting for a
+     *                               pending packet, the remaining packets are discarded
+     */
+    public void finish() {
+        while (!pendingPackets.isEmpty()) {
+            deliverOldest();
+        }
+    }
+
+    /**
+     * Discard the pending packets without passing them to the callback. Packets that have not
+     * started decoding are not decoded.
+     */
+    public void cancel() {
+        pendingPackets.forEach(pendingPacket -> pendingPacket.decodedPacket.cancel(false));
+        pendingPackets.clear();
+    }
+
+    /**
+     * @return the number of packets that are decoding or waiting to be delivered
+     */
+    public int getPendingCount() {
+        return pendingPackets.size();
+    }
+
+    /**
+     * Decode a PES packet, logging the failures the same way as the sequential parser.
+     *
+     * @return the decoded packet, or null if the packet could not be decoded
+     */
+    static DecodedKLVMetadataPacket decode(byte[] pesPacketBytes, KlvDecoder decoder) {
+        try {
+            return PESUtilities.handlePESPacketBytes(pesPacketBytes, decoder);
+        } catch (KlvDecodingException e) {
+            LOGGER.debug("The KLV could not be decoded.", e);
+        } catch (RuntimeException e) {
+            LOGGER.debug("An error occurred while handling the metadata packet bytes.", e);
+        }
+        return null;
+    }
+
+    private Future<DecodedKLVMetadataPacket> submit(byte[] pesPacketBytes) {
+        FutureTask<DecodedKLVMetadataPacket> task = new FutureTask<>(() -> decode(pesPacketBytes,
+                workerDecoders.get()));
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("KLV decoding task was rejected, decoding on the calling thread", e);
+            task.run();
+        }
+        return task;
+    }
+
+    private void deliverOldest() {
+        PendingPacket pendingPacket = pendingPackets.removeFirst();
+        DecodedKLVMetadataPacket decodedKLVMetadataPacket = await(pendingPacket.decodedPacket);
+        if (decodedKLVMetadataPacket != null) {
+            callback.accept(pendingPacket.packetId, decodedKLVMetadataPacket);
+        }
+    }
+
+    private DecodedKLVMetadataPacket await(Future<DecodedKLVMetadataPacket> decodedPacket) {
+        try {
+            return decodedPacket.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread()
+                    .interrupt();
+            cancel();
+            throw new CancellationException(
+                    "interrupted while waiting for a KLV packet to be decoded");
+        } catch (ExecutionException e) {
+            LOGGER.debug("An error occurred while handling the metadata packet bytes.",
+                    e.getCause());
+            return null;
+        }
+    }
+
+    private static class PendingPacket {
+
+        private final int packetId;
+
+        private final Future<DecodedKLVMetadataPacket> decodedPacket;
+
+        PendingPacket(int packetId, Future<DecodedKLVMetadataPacket> decodedPacket) {
+            this.packetId = packetId;
+            this.decodedPacket = decodedPacket;
+        }
+    }
+
+}
@@ -13,6 +13,8 @@
  */
 package org.codice.alliance.libs.stanag4609;
 
+import static org.apache.commons.lang3.Validate.isTrue;
+import static org.apache.commons.lang3.Validate.notNull;
 import static org.codice.ddf.libs.klv.data.Klv.KeyLength;
 import static org.codice.ddf.libs.klv.data.Klv.LengthEncoding;
 
@@ -21,9 +23,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.BiConsumer;
 
 import org.codice.ddf.libs.klv.KlvContext;
+import org.codice.ddf.libs.klv.KlvDataElement;
 import org.codice.ddf.libs.klv.KlvDecoder;
 import org.codice.ddf.libs.klv.KlvDecodingException;
 import org.codice.ddf.libs.klv.data.numerical.KlvInt;
@@ -144,6 +149,13 @@ public class Stanag4609TransportStreamParser {
 
     public static final String RELEASING_INSTRUCTIONS = "releasing instructions";
 
+    /**
+     * The universal label of the UAS Datalink Local Set.
+     */
+    static final byte[] UAS_DATALINK_LOCAL_SET_KEY =
+            {0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01, 0x0E, 0x01, 0x03, 0x01, 0x01, 0x00,
+                    0x00, 0x00};
+
     private static final Logger LOGGER =
             LoggerFactory.getLogger(Stanag4609TransportStreamParser.class);
 
@@ -153,8 +165,7 @@ public class Stanag4609TransportStreamParser {
 
     static {
         final KlvContext localSetContext = new KlvContext(KeyLength.OneByte, LengthEncoding.BER);
-        final KlvLocalSet outerSet = new KlvLocalSet(new byte[] {0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B,
-                0x01, 0x01, 0x0E, 0x01, 0x03, 0x01, 0x01, 0x00, 0x00, 0x00},
+        final KlvLocalSet outerSet = new KlvLocalSet(UAS_DATALINK_LOCAL_SET_KEY.clone(),
                 UAS_DATALINK_LOCAL_SET,
                 localSetContext);
 
@@ -356,8 +367,14 @@ public class Stanag4609TransportStreamParser {
 
     private final MpegTransportStreamMetadataExtractor extractor;
 
+    private final KlvContext klvContext;
+
     private final KlvDecoder decoder;
 
+    private final Executor decodeExecutor;
+
+    private final int maxPendingPackets;
+
     /**
      * Constructs a {@code Stanag4609TransportStreamParser} with the given {@link ByteSource} as the
      * provider of the transport stream bytes.
@@ -365,14 +382,126 @@ public class Stanag4609TransportStreamParser {
      * @param byteSource the {@code ByteSource} providing the transport stream bytes
      */
     public Stanag4609TransportStreamParser(final ByteSource byteSource) {
+        this(byteSource, UAS_DATALINK_LOCAL_SET_CONTEXT);
+    }
+
+    /**
+     * Constructs a {@code Stanag4609TransportStreamParser} that decodes the KLV metadata packets
+     * with the given context definition, usually one that was created by
+     * {@link #createUasDatalinkLocalSetContext(Set)}. Data elements that are not defined by the
+     * context are skipped without being decoded.
+     *
+     * @param byteSource the {@code ByteSource} providing the transport stream bytes
+     * @param klvContext the KLV context definition, must be non-null
+     */
+    public Stanag4609TransportStreamParser(final ByteSource byteSource,
+            final KlvContext klvContext) {
+        notNull(klvContext, "klvContext must be non-null");
         extractor = new MpegTransportStreamMetadataExtractor(byteSource);
-        decoder = new KlvDecoder(UAS_DATALINK_LOCAL_SET_CONTEXT);
+        this.klvContext = klvContext;
+        decoder = new KlvDecoder(klvContext);
+        decodeExecutor = null;
+        maxPendingPackets = 0;
+    }
+
+    /**
+     * Constructs a {@code Stanag4609TransportStreamParser} that decodes the KLV metadata packets on
+     * the given {@link Executor} while the transport stream is being read. The decoded packets are
+     * passed to the callback in the order they were encountered, on the thread that calls
+     * {@link #parse(BiConsumer)}, so the result is identical to the sequential parser.
+     *
+     * @param byteSource        the {@code ByteSource} providing the transport stream bytes
+     * @param decodeExecutor    runs the decoding tasks, must be non-null
+     * @param maxPendingPackets the maximum number of packets that are decoding or waiting to be
+     *                          passed to the callback, must be &gt;0
+     * @see OrderedKlvPacketDecoder
+     */
+    public Stanag4609TransportStreamParser(final ByteSource byteSource,
+            final Executor decodeExecutor, final int maxPendingPackets) {
+        this(byteSource, UAS_DATALINK_LOCAL_SET_CONTEXT, decodeExecutor, maxPendingPackets);
+    }
+
+    /**
+     * Combines {@link #Stanag4609TransportStreamParser(ByteSource, KlvContext)} and
+     * {@link #Stanag4609TransportStreamParser(ByteSource, Executor, int)}.
+     *
+     * @param byteSource        the {@code ByteSource} providing the transport stream bytes
+     * @param klvContext        the KLV context definition, must be non-null
+     * @param decodeExecutor    runs the decoding tasks, must be non-null
+     * @param maxPendingPackets the maximum number of packets that are decoding or waiting to be
+     *                          passed to the callback, must be &gt;0
+     */
+    public Stanag4609TransportStreamParser(final ByteSource byteSource,
+            final KlvContext klvContext, final Executor decodeExecutor,
+            final int maxPendingPackets) {
+        notNull(klvContext, "klvContext must be non-null");
+        notNull(decodeExecutor, "decodeExecutor must be non-null");
+        isTrue(maxPendingPackets > 0, "maxPendingPackets must be >0");
+        extractor = new MpegTransportStreamMetadataExtractor(byteSource);
+        this.klvContext = klvContext;
+        decoder = new KlvDecoder(klvContext);
+        this.decodeExecutor = decodeExecutor;
+        this.maxPendingPackets = maxPendingPackets;
+    }
+
+    /**
+     * Create a context definition of the UAS Datalink Local Set that only contains the given data
+     * elements, so the decoder skips the other data elements by their length instead of decoding
+     * them. The checksum is always included because every packet is validated with it. A nested
+     * local set is included with the requested data elements it contains, or completely if its own
+     * name is requested. Use {@link #UAS_DATALINK_LOCAL_SET_CONTEXT} to decode every data element.
+     *
+     * @param dataElementNames the names of the data elements to decode, must be non-null
+     * @return a new context definition
+     */
+    public static KlvContext createUasDatalinkLocalSetContext(final Set<String> dataElementNames) {
+        notNull(dataElementNames, "dataElementNames must be non-null");
+
+        final KlvLocalSet outerSet = (KlvLocalSet) UAS_DATALINK_LOCAL_SET_CONTEXT
+                .getDataElementByName(UAS_DATALINK_LOCAL_SET);
+
+        final KlvContext klvContext = new KlvContext(KeyLength.SixteenBytes, LengthEncoding.BER);
+        klvContext.addDataElement(new KlvLocalSet(outerSet.getKey(),
+                UAS_DATALINK_LOCAL_SET,
+                filterLocalSetContext(outerSet.getValue(), dataElementNames)));
+        return klvContext;
+    }
+
+    private static KlvContext filterLocalSetContext(final KlvContext localSetContext,
+            final Set<String> dataElementNames) {
+        final KlvContext filteredContext = new KlvContext(KeyLength.OneByte, LengthEncoding.BER);
+
+        for (KlvDataElement dataElement : localSetContext.getDataElements()
+                .values()) {
+            final String name = dataElement.getName();
+            if (CHECKSUM.equals(name) || dataElementNames.contains(name)) {
+                filteredContext.addDataElement(dataElement);
+            } else if (dataElement instanceof KlvLocalSet) {
+                final KlvContext nestedContext =
+                        filterLocalSetContext(((KlvLocalSet) dataElement).getValue(),
+                                dataElementNames);
+                if (!nestedContext.getDataElements()
+                        .isEmpty()) {
+                    filteredContext.addDataElement(new KlvLocalSet(dataElement.getKey(),
+                            name,
+                            nestedContext));
+                }
+            }
+        }
+
+        return filteredContext;
     }
 
     /**
      * Parses the transport stream and calls the given callback for each decoded KLV metadata packet
      * in each metadata stream found in the transport stream. The callback is called immediately
-     * upon finding a complete KLV metadata packet.
+     * upon finding a complete KLV metadata packet. The parser does not retain the decoded packets,
+     * only the PES packet that is being assembled for each metadata stream is held in memory, so
+     * the memory use does not depend on the length of the transport stream. When the parser was
+     * constructed with a decode executor, a packet is passed to the callback once it and every
+     * packet before it have been decoded, and at most {@code maxPendingPackets} additional packets
+     * are held in memory. An exception thrown by the callback stops the parsing and is thrown by
+     * this method.
      *
      * @param callback a callback that will be called for each decoded KLV metadata packet in each
      *                 metadata stream found in the transport stream, where the first parameter is
@@ -382,24 +511,34 @@ public class Stanag4609TransportStreamParser {
      */
     public void parse(final BiConsumer<Integer, DecodedKLVMetadataPacket> callback)
             throws Exception {
+        if (decodeExecutor != null) {
+            parseInParallel(callback);
+            return;
+        }
+
         extractor.getMetadata((klvStreamPid, pesPacketBytes) -> {
+            final DecodedKLVMetadataPacket decodedKLVMetadataPacket;
             try {
-                final DecodedKLVMetadataPacket decodedKLVMetadataPacket = handlePESPacketBytes(
-                        pesPacketBytes);
-                if (decodedKLVMetadataPacket != null) {
-                    callback.accept(klvStreamPid, decodedKLVMetadataPacket);
-                }
+                decodedKLVMetadataPacket = handlePESPacketBytes(pesPacketBytes);
             } catch (KlvDecodingException e) {
                 LOGGER.debug("The KLV could not be decoded.", e);
+                return;
             } catch (RuntimeException e) {
                 LOGGER.debug("An error occurred while handling the metadata packet bytes.", e);
+                return;
+            }
+
+            if (decodedKLVMetadataPacket != null) {
+                callback.accept(klvStreamPid, decodedKLVMetadataPacket);
             }
         });
     }
 
     /**
      * Parses the transport stream and returns all the decoded KLV metadata packets (in the order in
-     * which they were encountered) that belong to each metadata stream.
+     * which they were encountered) that belong to each metadata stream. Every packet is held in
+     * memory until parsing finishes, so {@link #parse(BiConsumer)} should be preferred for long
+     * streams.
      *
      * @return a {@link Map} whose keys are the packet IDs of the metadata streams and whose values
      * are the decoded KLV metadata packets belonging to that stream
@@ -420,6 +559,20 @@ public class Stanag4609TransportStreamParser {
         return decodedStreams;
     }
 
+    private void parseInParallel(final BiConsumer<Integer, DecodedKLVMetadataPacket> callback)
+            throws Exception {
+        final OrderedKlvPacketDecoder orderedDecoder = new OrderedKlvPacketDecoder(klvContext,
+                decodeExecutor,
+                maxPendingPackets,
+                callback);
+        try {
+            extractor.getMetadata(orderedDecoder::accept);
+            orderedDecoder.finish();
+        } finally {
+            orderedDecoder.cancel();
+        }
+    }
+
     private DecodedKLVMetadataPacket handlePESPacketBytes(final byte[] pesPacketBytes)
             throws KlvDecodingException {
         return PESUtilities.handlePESPacketBytes(pesPacketBytes, decoder);
@@ -13,7 +13,7 @@
  */
 package org.codice.alliance.libs.stanag4609;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 import org.codice.ddf.libs.klv.KlvDecoder;
 import org.jcodec.containers.mps.MPSDemuxer.PESPacket;
@@ -28,28 +28,27 @@ class SynchronousMetadataPacket extends AbstractMetadataPacket {
     }
 
     @Override
-    protected byte[] getKLVBytes() {
+    protected ByteBuffer getKLVBuffer() {
 
-        final byte[] metadataAccessUnit = getPESPacketPayload();
+        final ByteBuffer metadataAccessUnit = getPESPacketPayload();
 
         if (metadataAccessUnit == null) {
             return null;
         }
 
-        if (metadataAccessUnit.length > METADATA_ACCESS_UNIT_HEADER_LENGTH) {
+        if (metadataAccessUnit.remaining() > METADATA_ACCESS_UNIT_HEADER_LENGTH) {
             return getKLVPayloadFromMetadataAccessUnit(metadataAccessUnit);
         }
 
         return null;
     }
 
-    private byte[] getKLVPayloadFromMetadataAccessUnit(final byte[] metadataAccessUnit) {
-        final int payloadLength =
-                ((metadataAccessUnit[3] & 0xFF) << 8) | (metadataAccessUnit[4] & 0xFF);
-        final int payloadEnd = Math.min(metadataAccessUnit.length,
+    private ByteBuffer getKLVPayloadFromMetadataAccessUnit(final ByteBuffer metadataAccessUnit) {
+        final int payloadLength = metadataAccessUnit.getShort(3) & 0xFFFF;
+        final int payloadEnd = Math.min(metadataAccessUnit.remaining(),
                 METADATA_ACCESS_UNIT_HEADER_LENGTH + payloadLength);
-        return Arrays.copyOfRange(metadataAccessUnit,
-                METADATA_ACCESS_UNIT_HEADER_LENGTH,
-                payloadEnd);
+        metadataAccessUnit.position(METADATA_ACCESS_UNIT_HEADER_LENGTH);
+        metadataAccessUnit.limit(payloadEnd);
+        return metadataAccessUnit.slice();
     }
 }
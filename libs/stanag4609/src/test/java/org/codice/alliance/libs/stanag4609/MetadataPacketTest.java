@@ -20,6 +20,7 @@ import static org.hamcrest.Matchers.lessThan;
 import static org.junit.Assert.assertThat;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.codice.ddf.libs.klv.KlvContext;
 import org.codice.ddf.libs.klv.KlvDataElement;
@@ -33,40 +34,48 @@ import org.junit.Test;
 
 public class MetadataPacketTest {
 
+    private static final byte[] PES_PACKET_WITH_OPTIONAL_FIELDS =
+            new byte[] {0x00, 0x00, 0x01, (byte) 0xbd, 0x01, 0x08, (byte) 0x84, (byte) 0x80,
+                    0x05, 0x21, 0x00, 0x09, 0x41, (byte) 0xd9, 0x06, 0x0e, 0x2b, 0x34, 0x02,
+                    0x0b, 0x01, 0x01, 0x0e, 0x01, 0x03, 0x01, 0x01, 0x00, 0x00, 0x00,
+                    (byte) 0x82, 0x00, (byte) 0xed, 0x02, 0x08, 0x00, 0x04, (byte) 0xe4,
+                    (byte) 0xea, (byte) 0xad, 0x53, (byte) 0xfb, 0x48, 0x03, 0x05, 0x30, 0x30,
+                    0x30, 0x30, 0x31, 0x04, 0x03, 0x30, 0x30, 0x31, 0x05, 0x02, 0x5a,
+                    (byte) 0xb6, 0x06, 0x02, 0x00, 0x00, 0x07, 0x02, 0x00, 0x00, 0x0a, 0x08,
+                    0x56, 0x52, 0x53, 0x47, 0x20, 0x35, 0x2e, 0x36, 0x0b, 0x18, 0x56, 0x52,
+                    0x53, 0x47, 0x20, 0x56, 0x35, 0x2e, 0x36, 0x2e, 0x37, 0x32, 0x20, 0x41,
+                    0x70, 0x72, 0x20, 0x20, 0x37, 0x20, 0x32, 0x30, 0x31, 0x31, 0x0c, 0x0e,
+                    0x47, 0x65, 0x6f, 0x64, 0x65, 0x74, 0x69, 0x63, 0x20, 0x57, 0x47, 0x53,
+                    0x38, 0x34, 0x0d, 0x04, 0x30, (byte) 0xf7, 0x04, (byte) 0xea, 0x0e, 0x04,
+                    0x31, 0x2d, (byte) 0xb4, 0x76, 0x0f, 0x02, 0x3f, 0x08, 0x10, 0x02, 0x03,
+                    (byte) 0x89, 0x11, 0x02, 0x02, (byte) 0xa7, 0x12, 0x04, 0x06, (byte) 0xfd,
+                    0x6b, (byte) 0xff, 0x13, 0x04, (byte) 0xd7, (byte) 0xc3, 0x3c, (byte) 0xce,
+                    0x14, 0x04, 0x00, 0x00, 0x00, 0x00, 0x15, 0x04, 0x00, 0x21, (byte) 0xac,
+                    0x7e, 0x16, 0x02, 0x02, (byte) 0xdb, 0x17, 0x04, 0x30, (byte) 0xf3,
+                    (byte) 0x98, 0x3a, 0x18, 0x04, 0x31, 0x2f, (byte) 0x99, 0x59, 0x19, 0x02,
+                    0x23, 0x72, 0x1a, 0x02, (byte) 0xff, (byte) 0xfe, 0x1b, 0x02, 0x01, 0x6e,
+                    0x1c, 0x02, (byte) 0xfe, (byte) 0xc7, 0x1d, 0x02, (byte) 0xff, (byte) 0xee,
+                    0x1e, 0x02, (byte) 0xff, (byte) 0xf8, 0x1f, 0x02, (byte) 0xfe, (byte) 0xa6,
+                    0x20, 0x02, 0x01, 0x22, 0x21, 0x02, 0x00, 0x22, 0x30, 0x20, 0x01, 0x01,
+                    0x01, 0x02, 0x01, 0x01, 0x03, 0x04, 0x2f, 0x2f, 0x55, 0x53, 0x06, 0x05,
+                    0x43, 0x41, 0x20, 0x55, 0x53, 0x0c, 0x01, 0x01, 0x0d, 0x04, 0x2f, 0x2f,
+                    0x55, 0x53, 0x16, 0x02, 0x00, 0x07, 0x41, 0x01, 0x01, 0x48, 0x08, 0x00,
+                    0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x02, (byte) 0xb7,
+                    (byte) 0x8d};
+
+    /**
+     * Offset of the KLV in {@link #PES_PACKET_WITH_OPTIONAL_FIELDS}: the 9 byte PES header and 5
+     * bytes of optional fields.
+     */
+    private static final int KLV_OFFSET = 14;
+
     /**
      * The binary data in this test was captured from a data stream where the PES header contains an optional timestamp.
      */
     @Test
     public void testThatPesHeadersWithOptionalFieldsAreHandled() throws KlvDecodingException {
 
-        byte[] packet =
-                new byte[] {0x00, 0x00, 0x01, (byte) 0xbd, 0x01, 0x08, (byte) 0x84, (byte) 0x80,
-                        0x05, 0x21, 0x00, 0x09, 0x41, (byte) 0xd9, 0x06, 0x0e, 0x2b, 0x34, 0x02,
-                        0x0b, 0x01, 0x01, 0x0e, 0x01, 0x03, 0x01, 0x01, 0x00, 0x00, 0x00,
-                        (byte) 0x82, 0x00, (byte) 0xed, 0x02, 0x08, 0x00, 0x04, (byte) 0xe4,
-                        (byte) 0xea, (byte) 0xad, 0x53, (byte) 0xfb, 0x48, 0x03, 0x05, 0x30, 0x30,
-                        0x30, 0x30, 0x31, 0x04, 0x03, 0x30, 0x30, 0x31, 0x05, 0x02, 0x5a,
-                        (byte) 0xb6, 0x06, 0x02, 0x00, 0x00, 0x07, 0x02, 0x00, 0x00, 0x0a, 0x08,
-                        0x56, 0x52, 0x53, 0x47, 0x20, 0x35, 0x2e, 0x36, 0x0b, 0x18, 0x56, 0x52,
-                        0x53, 0x47, 0x20, 0x56, 0x35, 0x2e, 0x36, 0x2e, 0x37, 0x32, 0x20, 0x41,
-                        0x70, 0x72, 0x20, 0x20, 0x37, 0x20, 0x32, 0x30, 0x31, 0x31, 0x0c, 0x0e,
-                        0x47, 0x65, 0x6f, 0x64, 0x65, 0x74, 0x69, 0x63, 0x20, 0x57, 0x47, 0x53,
-                        0x38, 0x34, 0x0d, 0x04, 0x30, (byte) 0xf7, 0x04, (byte) 0xea, 0x0e, 0x04,
-                        0x31, 0x2d, (byte) 0xb4, 0x76, 0x0f, 0x02, 0x3f, 0x08, 0x10, 0x02, 0x03,
-                        (byte) 0x89, 0x11, 0x02, 0x02, (byte) 0xa7, 0x12, 0x04, 0x06, (byte) 0xfd,
-                        0x6b, (byte) 0xff, 0x13, 0x04, (byte) 0xd7, (byte) 0xc3, 0x3c, (byte) 0xce,
-                        0x14, 0x04, 0x00, 0x00, 0x00, 0x00, 0x15, 0x04, 0x00, 0x21, (byte) 0xac,
-                        0x7e, 0x16, 0x02, 0x02, (byte) 0xdb, 0x17, 0x04, 0x30, (byte) 0xf3,
-                        (byte) 0x98, 0x3a, 0x18, 0x04, 0x31, 0x2f, (byte) 0x99, 0x59, 0x19, 0x02,
-                        0x23, 0x72, 0x1a, 0x02, (byte) 0xff, (byte) 0xfe, 0x1b, 0x02, 0x01, 0x6e,
-                        0x1c, 0x02, (byte) 0xfe, (byte) 0xc7, 0x1d, 0x02, (byte) 0xff, (byte) 0xee,
-                        0x1e, 0x02, (byte) 0xff, (byte) 0xf8, 0x1f, 0x02, (byte) 0xfe, (byte) 0xa6,
-                        0x20, 0x02, 0x01, 0x22, 0x21, 0x02, 0x00, 0x22, 0x30, 0x20, 0x01, 0x01,
-                        0x01, 0x02, 0x01, 0x01, 0x03, 0x04, 0x2f, 0x2f, 0x55, 0x53, 0x06, 0x05,
-                        0x43, 0x41, 0x20, 0x55, 0x53, 0x0c, 0x01, 0x01, 0x0d, 0x04, 0x2f, 0x2f,
-                        0x55, 0x53, 0x16, 0x02, 0x00, 0x07, 0x41, 0x01, 0x01, 0x48, 0x08, 0x00,
-                        0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x01, 0x02, (byte) 0xb7,
-                        (byte) 0x8d};
+        byte[] packet = PES_PACKET_WITH_OPTIONAL_FIELDS;
 
         final MPSDemuxer.PESPacket pesHeader = MPSUtils.readPESHeader(ByteBuffer.wrap(packet), 0);
 
@@ -185,4 +194,82 @@ public class MetadataPacketTest {
                 new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT));
         packet.decodeKLV();
     }
+
+    /**
+     * Every single byte corruption of the KLV must be rejected, either by the in-place checksum and
+     * layout validation or by the decoder.
+     */
+    @Test
+    public void testCorruptedPacketsAreRejected() {
+
+        final MPSDemuxer.PESPacket pesHeader = MPSUtils.readPESHeader(ByteBuffer.wrap(
+                PES_PACKET_WITH_OPTIONAL_FIELDS), 0);
+
+        for (int index = KLV_OFFSET; index < PES_PACKET_WITH_OPTIONAL_FIELDS.length; index++) {
+            for (int mask : new int[] {0x01, 0x10, 0x80, 0xFF}) {
+                final byte[] corrupted = PES_PACKET_WITH_OPTIONAL_FIELDS.clone();
+                corrupted[index] ^= mask;
+                assertRejected(corrupted, pesHeader, "index=" + index + ", mask=" + mask);
+            }
+        }
+    }
+
+    /**
+     * Truncated packets are either ignored or rejected.
+     */
+    @Test
+    public void testTruncatedPacketsAreRejected() {
+
+        final MPSDemuxer.PESPacket pesHeader = MPSUtils.readPESHeader(ByteBuffer.wrap(
+                PES_PACKET_WITH_OPTIONAL_FIELDS), 0);
+
+        for (int length = 0; length < PES_PACKET_WITH_OPTIONAL_FIELDS.length; length++) {
+            assertRejected(Arrays.copyOf(PES_PACKET_WITH_OPTIONAL_FIELDS, length),
+                    pesHeader,
+                    "length=" + length);
+        }
+    }
+
+    /**
+     * Bytes after the declared PES packet length are not part of the KLV.
+     */
+    @Test
+    public void testPayloadLengthLimitsKlv() throws KlvDecodingException {
+
+        final byte[] padded = Arrays.copyOf(PES_PACKET_WITH_OPTIONAL_FIELDS,
+                PES_PACKET_WITH_OPTIONAL_FIELDS.length + 16);
+        Arrays.fill(padded, PES_PACKET_WITH_OPTIONAL_FIELDS.length, padded.length, (byte) 0x55);
+
+        final AsynchronousMetadataPacket packet = new AsynchronousMetadataPacket(padded,
+                MPSUtils.readPESHeader(ByteBuffer.wrap(padded), 0),
+                new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT));
+
+        assertThat(packet.decodeKLV(), notNullValue());
+    }
+
+    @Test
+    public void testCalculateChecksum() {
+        final byte[] bytes = {0x00, 0x01, 0x02, 0x03, 0x04, 0x05, 0x06, 0x07};
+
+        // 0x0001 + 0x0203 + 0x0405, the last two bytes are the checksum value
+        assertThat(AbstractMetadataPacket.calculateChecksum(ByteBuffer.wrap(bytes)), is(0x0609));
+
+        // an odd number of bytes, the last summed byte is the high byte of a short
+        assertThat(AbstractMetadataPacket.calculateChecksum(ByteBuffer.wrap(bytes, 1, 4)
+                .slice()), is(0x0102 + 0x0300));
+    }
+
+    private void assertRejected(final byte[] pesPacketBytes,
+            final MPSDemuxer.PESPacket pesHeader, final String reason) {
+        try {
+            final DecodedKLVMetadataPacket decodedPacket = new AsynchronousMetadataPacket(
+                    pesPacketBytes,
+                    pesHeader,
+                    new KlvDecoder(Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT))
+                    .decodeKLV();
+            assertThat(reason, decodedPacket, nullValue());
+        } catch (KlvDecodingException e) {
+            // expected
+        }
+    }
 }
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) Codice Foundation
+ * <p/>
+ * This is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or any later version.
+ * <p/>
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without
+ * even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details. A copy of the GNU Lesser General Public License
+ * is distributed along with this program and can be found at
+ * <http://www.gnu.org/licenses/lgpl.html>.
+ */
+package org.codice.alliance.libs.stanag4609;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class OrderedKlvPacketDecoderTest {
+
+    private static final byte[] PES_PACKET =
+            new byte[] {0x00, 0x00, 0x01, (byte) 0xBD, 0x00, 0x18, (byte) 0x85, (byte) 0x00, 0x00,
+                    0x06, 0x0E, 0x2B, 0x34, 0x02, 0x0B, 0x01, 0x01, 0x0E, 0x01, 0x03, 0x01, 0x01,
+                    0x00, 0x00, 0x00, 0x04, 0x01, 0x02, 0x4C, 0x51};
+
+    private static final byte[] CORRUPTED_PES_PACKET = corrupt(PES_PACKET);
+
+    private List<Integer> deliveredPacketIds;
+
+    private List<Runnable> deferredTasks;
+
+    @Before
+    public void setup() {
+        deliveredPacketIds = new ArrayList<>();
+        deferredTasks = new ArrayList<>();
+    }
+
+    /**
+     * The tasks complete in reverse order, but the packets are delivered in the order they were
+     * given.
+     */
+    @Test
+    public void testPacketsAreDeliveredInOrder() {
+        OrderedKlvPacketDecoder decoder = new OrderedKlvPacketDecoder(deferredTasks::add,
+                10,
+                (packetId, packet) -> deliveredPacketIds.add(packetId));
+
+        decoder.accept(1, PES_PACKET);
+        decoder.accept(2, PES_PACKET);
+        decoder.accept(3, PES_PACKET);
+
+        Collections.reverse(deferredTasks);
+        deferredTasks.forEach(Runnable::run);
+
+        assertThat(deliveredPacketIds, is(empty()));
+
+        decoder.finish();
+
+        assertThat(deliveredPacketIds, contains(1, 2, 3));
+        assertThat(decoder.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testMaxPendingPackets() {
+        OrderedKlvPacketDecoder decoder = new OrderedKlvPacketDecoder(Runnable::run,
+                2,
+                (packetId, packet) -> deliveredPacketIds.add(packetId));
+
+        decoder.accept(1, PES_PACKET);
+        decoder.accept(2, PES_PACKET);
+
+        assertThat(deliveredPacketIds, is(empty()));
+
+        decoder.accept(3, PES_PACKET);
+
+        assertThat(deliveredPacketIds, contains(1));
+        assertThat(decoder.getPendingCount(), is(2));
+    }
+
+    @Test
+    public void testCorruptedPacketsAreSkipped() {
+        OrderedKlvPacketDecoder decoder = new OrderedKlvPacketDecoder(Runnable::run,
+                10,
+                (packetId, packet) -> deliveredPacketIds.add(packetId));
+
+        decoder.accept(1, PES_PACKET);
+        decoder.accept(2, CORRUPTED_PES_PACKET);
+        decoder.accept(3, PES_PACKET);
+        decoder.finish();
+
+        assertThat(deliveredPacketIds, contains(1, 3));
+    }
+
+    @Test
+    public void testRejectedPacketsAreDecodedOnTheCallingThread() {
+        OrderedKlvPacketDecoder decoder = new OrderedKlvPacketDecoder(runnable -> {
+            throw new RejectedExecutionException();
+        }, 10, (packetId, packet) -> deliveredPacketIds.add(packetId));
+
+        decoder.accept(1, PES_PACKET);
+        decoder.accept(2, PES_PACKET);
+        decoder.finish();
+
+        assertThat(deliveredPacketIds, contains(1, 2));
+    }
+
+    @Test
+    public void testCallbackErrorIsThrown() {
+        OrderedKlvPacketDecoder decoder = new OrderedKlvPacketDecoder(Runnable::run,
+                10,
+                (packetId, packet) -> {
+                    deliveredPacketIds.add(packetId);
+                    if (packetId == 1) {
+                        throw new IllegalStateException();
+                    }
+                });
+
+        decoder.accept(1, PES_PACKET);
+        decoder.accept(2, PES_PACKET);
+        try {
+            decoder.finish();
+            fail("Expected the callback error to be thrown.");
+        } catch (IllegalStateException e) {
+            assertThat(deliveredPacketIds, contains(1));
+        }
+    }
+
+    @Test
+    public void testCancel() {
+        OrderedKlvPacketDecoder decoder = new OrderedKlvPacketDecoder(deferredTasks::add,
+                10,
+                (packetId, packet) -> deliveredPacketIds.add(packetId));
+
+        decoder.accept(1, PES_PACKET);
+        decoder.accept(2, PES_PACKET);
+        decoder.cancel();
+        decoder.finish();
+
+        assertThat(deliveredPacketIds, is(empty()));
+        assertThat(decoder.getPendingCount(), is(0));
+    }
+
+    @Test
+    public void testThreadPool() {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            OrderedKlvPacketDecoder decoder = new OrderedKlvPacketDecoder(executorService,
+                    8,
+                    (packetId, packet) -> deliveredPacketIds.add(packetId));
+
+            List<Integer> expected = new ArrayList<>();
+            for (int packetId = 0; packetId < 100; packetId++) {
+                decoder.accept(packetId, packetId % 7 == 0 ? CORRUPTED_PES_PACKET : PES_PACKET);
+                if (packetId % 7 != 0) {
+                    expected.add(packetId);
+                }
+            }
+            decoder.finish();
+
+            assertThat(deliveredPacketIds, is(expected));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroMaxPendingPackets() {
+        new OrderedKlvPacketDecoder(Runnable::run, 0, (packetId, packet) -> {
+        });
+    }
+
+    private static byte[] corrupt(byte[] pesPacket) {
+        byte[] corrupted = pesPacket.clone();
+        corrupted[corrupted.length - 1] ^= 0x01;
+        return corrupted;
+    }
+
+}
@@ -15,6 +15,7 @@ package org.codice.alliance.libs.stanag4609;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasKey;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.eq;
@@ -23,10 +24,16 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.IOUtils;
 import org.codice.ddf.libs.klv.KlvContext;
@@ -65,12 +72,13 @@ public class Stanag4609TransportStreamParserTest {
         EXPECTED_VALUES.put(Stanag4609TransportStreamParser.CHECKSUM, 7263);
     }
 
-    private Stanag4609TransportStreamParser getParser() throws IOException {
-        final ByteSource byteSource =
-                ByteSource.wrap(IOUtils.toByteArray(getClass().getClassLoader()
-                        .getResourceAsStream("dayflight.mpg")));
+    private ByteSource getByteSource() throws IOException {
+        return ByteSource.wrap(IOUtils.toByteArray(getClass().getClassLoader()
+                .getResourceAsStream("dayflight.mpg")));
+    }
 
-        return new Stanag4609TransportStreamParser(byteSource);
+    private Stanag4609TransportStreamParser getParser() throws IOException {
+        return new Stanag4609TransportStreamParser(getByteSource());
     }
 
     @Test
@@ -96,6 +104,13 @@ public class Stanag4609TransportStreamParserTest {
         verifyDecodedMetadataPacket(decodedPacketCaptor.getValue());
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void testCallbackFailureIsThrown() throws Exception {
+        getParser().parse((packetId, packet) -> {
+            throw new IllegalStateException("test");
+        });
+    }
+
     @Test
     public void testParseTransportStreamWithKLVAll() throws Exception {
         final Stanag4609TransportStreamParser parser = getParser();
@@ -110,6 +125,102 @@ public class Stanag4609TransportStreamParserTest {
         verifyDecodedMetadataPacket(decodedPackets.get(0));
     }
 
+    @Test
+    public void testParseTransportStreamWithParallelDecoding() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            final Stanag4609TransportStreamParser parser =
+                    new Stanag4609TransportStreamParser(getByteSource(),
+                            executorService,
+                            1);
+
+            final Map<Integer, List<DecodedKLVMetadataPacket>> decodedStreams = parser.parse();
+
+            assertThat(decodedStreams.size(), is(1));
+            assertThat(decodedStreams, hasKey(497));
+            final List<DecodedKLVMetadataPacket> decodedPackets = decodedStreams.get(497);
+            assertThat(decodedPackets.size(), is(1));
+            verifyDecodedMetadataPacket(decodedPackets.get(0));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParallelDecodingRequiresPendingPackets() throws Exception {
+        new Stanag4609TransportStreamParser(getByteSource(), Runnable::run, 0);
+    }
+
+    @Test
+    public void testCreateUasDatalinkLocalSetContext() {
+        final KlvContext klvContext =
+                Stanag4609TransportStreamParser.createUasDatalinkLocalSetContext(toSet(
+                        Stanag4609TransportStreamParser.TIMESTAMP,
+                        Stanag4609TransportStreamParser.SECURITY_CLASSIFICATION));
+
+        final KlvContext localSetContext = getLocalSetContext(klvContext);
+        assertThat(localSetContext.getDataElements()
+                        .keySet(),
+                containsInAnyOrder(Stanag4609TransportStreamParser.TIMESTAMP,
+                        Stanag4609TransportStreamParser.CHECKSUM,
+                        Stanag4609TransportStreamParser.SECURITY_LOCAL_METADATA_SET));
+
+        final KlvContext securityContext = ((KlvLocalSet) localSetContext.getDataElementByName(
+                Stanag4609TransportStreamParser.SECURITY_LOCAL_METADATA_SET)).getValue();
+        assertThat(securityContext.getDataElements()
+                        .keySet(),
+                containsInAnyOrder(Stanag4609TransportStreamParser.SECURITY_CLASSIFICATION));
+    }
+
+    @Test
+    public void testCreateUasDatalinkLocalSetContextWithNestedSetName() {
+        final KlvContext klvContext =
+                Stanag4609TransportStreamParser.createUasDatalinkLocalSetContext(toSet(
+                        Stanag4609TransportStreamParser.SECURITY_LOCAL_METADATA_SET));
+
+        final KlvContext securityContext = ((KlvLocalSet) getLocalSetContext(klvContext)
+                .getDataElementByName(Stanag4609TransportStreamParser.SECURITY_LOCAL_METADATA_SET))
+                .getValue();
+        final KlvContext fullSecurityContext = ((KlvLocalSet) getLocalSetContext(
+                Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET_CONTEXT)
+                .getDataElementByName(Stanag4609TransportStreamParser.SECURITY_LOCAL_METADATA_SET))
+                .getValue();
+        assertThat(securityContext.getDataElements()
+                .size(), is(fullSecurityContext.getDataElements()
+                .size()));
+    }
+
+    @Test
+    public void testParseTransportStreamWithRestrictedContext() throws Exception {
+        final Stanag4609TransportStreamParser parser =
+                new Stanag4609TransportStreamParser(getByteSource(),
+                        Stanag4609TransportStreamParser.createUasDatalinkLocalSetContext(
+                                Collections.singleton(Stanag4609TransportStreamParser.TIMESTAMP)));
+
+        final List<DecodedKLVMetadataPacket> decodedPackets = parser.parse()
+                .get(497);
+
+        assertThat(decodedPackets.size(), is(1));
+        final Map<String, KlvDataElement> dataElements =
+                getLocalSetContext(decodedPackets.get(0)
+                        .getDecodedKLV()).getDataElements();
+        assertThat(dataElements.keySet(),
+                containsInAnyOrder(Stanag4609TransportStreamParser.TIMESTAMP,
+                        Stanag4609TransportStreamParser.CHECKSUM));
+        assertThat(dataElements.get(Stanag4609TransportStreamParser.TIMESTAMP)
+                .getValue(), is(EXPECTED_VALUES.get(Stanag4609TransportStreamParser.TIMESTAMP)));
+    }
+
+    private static Set<String> toSet(String... names) {
+        return Stream.of(names)
+                .collect(Collectors.toSet());
+    }
+
+    private static KlvContext getLocalSetContext(final KlvContext outerContext) {
+        return ((KlvLocalSet) outerContext.getDataElementByName(
+                Stanag4609TransportStreamParser.UAS_DATALINK_LOCAL_SET)).getValue();
+    }
+
     private void verifyDecodedMetadataPacket(final DecodedKLVMetadataPacket packet) {
         final KlvContext outerContext = packet.getDecodedKLV();
         assertThat(outerContext.getDataElements()